@@ -0,0 +1,158 @@
+package com.mb.ocrservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Configuration for the executors used by the Document Verification Service.
+ */
+@Configuration
+public class AsyncConfig {
+
+    @Value("${verification.parallel.max-concurrency:8}")
+    private int verificationMaxConcurrency;
+
+    @Value("${verification.parallel.queue-capacity:100}")
+    private int verificationQueueCapacity;
+
+    @Value("${ocr.executor.storage.core-size:8}")
+    private int storageCoreSize;
+
+    @Value("${ocr.executor.storage.max-size:32}")
+    private int storageMaxSize;
+
+    @Value("${ocr.executor.storage.queue-capacity:200}")
+    private int storageQueueCapacity;
+
+    @Value("${ocr.executor.vision.core-size:16}")
+    private int visionCoreSize;
+
+    @Value("${ocr.executor.vision.max-size:64}")
+    private int visionMaxSize;
+
+    @Value("${ocr.executor.vision.queue-capacity:500}")
+    private int visionQueueCapacity;
+
+    @Value("${ocr.speculative.threads:2}")
+    private int speculativeThreads;
+
+    @Value("${ocr.speculative.queue-capacity:100}")
+    private int speculativeQueueCapacity;
+
+    @Value("${ocr.executor.storage.rejection-policy:CALLER_RUNS}")
+    private OcrRejectedExecutionHandler.Policy storageRejectionPolicy;
+
+    /**
+     * Default executor for {@code @Async} methods. Declared explicitly because Spring Boot backs off
+     * from its own task executor as soon as any other executor bean is defined.
+     *
+     * @param builder the Spring Boot task executor builder
+     * @return the default async executor
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    @Primary
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * Executor used to fan out the documents of a verify-document event.
+     * When the pool and its queue are full the submitting (listener) thread runs the task itself,
+     * which throttles consumption instead of failing the document.
+     *
+     * @return the verification executor
+     */
+    @Bean(name = "verificationExecutor")
+    public ThreadPoolTaskExecutor verificationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("verification-");
+        executor.setCorePoolSize(verificationMaxConcurrency);
+        executor.setMaxPoolSize(verificationMaxConcurrency);
+        executor.setQueueCapacity(verificationQueueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Bulkhead executor for reading document content from storage (S3 or local file system).
+     * Threads beyond the core size are only started once the queue is full; when both are full the
+     * configured rejection policy applies. Documents are submitted here by the listener (or speculative) thread
+     * that requested them, so {@code CALLER_RUNS} throttles that thread.
+     *
+     * @param meterRegistry the meter registry the executor metrics are published to
+     * @return the storage I/O executor
+     */
+    @Bean(name = "ocrStorageExecutor")
+    public ThreadPoolTaskExecutor ocrStorageExecutor(MeterRegistry meterRegistry) {
+        return createOcrExecutor("ocr-storage", storageCoreSize, storageMaxSize, storageQueueCapacity,
+                storageRejectionPolicy, meterRegistry);
+    }
+
+    /**
+     * Bulkhead executor for Google Vision calls and the extraction and persistence that follow them.
+     * Work mostly reaches it from Vision (gRPC) callback threads, which must never run it themselves, so a
+     * saturated executor always rejects the task and fails the document.
+     *
+     * @param meterRegistry the meter registry the executor metrics are published to
+     * @return the Vision executor
+     */
+    @Bean(name = "ocrVisionExecutor")
+    public ThreadPoolTaskExecutor ocrVisionExecutor(MeterRegistry meterRegistry) {
+        return createOcrExecutor("ocr-vision", visionCoreSize, visionMaxSize, visionQueueCapacity,
+                OcrRejectedExecutionHandler.Policy.ABORT, meterRegistry);
+    }
+
+    /**
+     * Low-priority executor for OCR started speculatively at upload time. Each thread waits for one document, so
+     * the thread count bounds how many speculative documents compete with verify-document traffic for the storage
+     * and Vision executors. When the pool and its queue are full, further documents are dropped rather than queued;
+     * they are processed when their verify-document event arrives.
+     *
+     * @param meterRegistry the meter registry the executor metrics are published to
+     * @return the speculative OCR executor
+     */
+    @Bean(name = "ocrSpeculativeExecutor")
+    public ThreadPoolTaskExecutor ocrSpeculativeExecutor(MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ocr-speculative-");
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setCorePoolSize(speculativeThreads);
+        executor.setMaxPoolSize(speculativeThreads);
+        executor.setQueueCapacity(speculativeQueueCapacity);
+        executor.setRejectedExecutionHandler(new OcrRejectedExecutionHandler(
+                "ocr-speculative", OcrRejectedExecutionHandler.Policy.ABORT, meterRegistry));
+        executor.initialize();
+
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "ocr-speculative", Tags.empty())
+                .bindTo(meterRegistry);
+        return executor;
+    }
+
+    private ThreadPoolTaskExecutor createOcrExecutor(
+            String name, int coreSize, int maxSize, int queueCapacity, OcrRejectedExecutionHandler.Policy policy,
+            MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(name + "-");
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new OcrRejectedExecutionHandler(name, policy, meterRegistry));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+
+        // Publishes pool size, active threads, queue depth and completed tasks as executor.* metrics
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), name, Tags.empty()).bindTo(meterRegistry);
+        return executor;
+    }
+}
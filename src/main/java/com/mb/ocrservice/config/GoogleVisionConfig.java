@@ -1,11 +1,16 @@
 package com.mb.ocrservice.config;
 
 import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.vision.v1.ImageAnnotatorClient;
 import com.google.cloud.vision.v1.ImageAnnotatorSettings;
 import com.google.common.collect.Lists;
+import io.grpc.ManagedChannel;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,7 +23,7 @@ import java.io.IOException;
 
 @Configuration
 @Slf4j
-@Profile({"default", "local", "test"})  // Active in local and test environments only
+@Profile({"default", "local", "test", "vision-emulator"})  // Active in local and test environments only
 public class GoogleVisionConfig {
     
     @Value("${google.vision.credentials-file-path}")
@@ -28,6 +33,7 @@ public class GoogleVisionConfig {
     private String activeProfile;
     
     @Bean
+    @Profile("!vision-emulator")
     public ImageAnnotatorClient imageAnnotatorClient() {
         // For development/testing, return a mock client if credentials file doesn't exist
         File credentialsFile = null;
@@ -44,9 +50,11 @@ public class GoogleVisionConfig {
                     new FileInputStream(credentialsFile))
                     .createScoped(Lists.newArrayList("https://www.googleapis.com/auth/cloud-platform"));
             
-            ImageAnnotatorSettings settings = ImageAnnotatorSettings.newBuilder()
-                    .setCredentialsProvider(FixedCredentialsProvider.create(credentials))
-                    .build();
+            ImageAnnotatorSettings.Builder settingsBuilder = ImageAnnotatorSettings.newBuilder()
+                    .setCredentialsProvider(FixedCredentialsProvider.create(credentials));
+            // Retries are done by the VisionGateway, behind its concurrency limit and circuit breaker
+            settingsBuilder.batchAnnotateImagesSettings().setRetryableCodes();
+            ImageAnnotatorSettings settings = settingsBuilder.build();
             
             return ImageAnnotatorClient.create(settings);
         } catch (IOException e) {
@@ -57,6 +65,28 @@ public class GoogleVisionConfig {
         }
     }
     
+    /**
+     * Google Vision client connected to an ImageAnnotator emulator rather than to Google, for end-to-end
+     * performance tests. The emulator and its channel are provided by the test configuration of the
+     * "vision-emulator" profile.
+     *
+     * @param channel the channel to the emulator
+     * @return the Google Vision client
+     * @throws IOException if the client cannot be created
+     */
+    @Bean
+    @Profile("vision-emulator")
+    public ImageAnnotatorClient emulatorImageAnnotatorClient(
+            @Qualifier("visionEmulatorChannel") ManagedChannel channel) throws IOException {
+        log.info("Using the Google Vision emulator at {}", channel.authority());
+        ImageAnnotatorSettings.Builder settingsBuilder = ImageAnnotatorSettings.newBuilder()
+                .setCredentialsProvider(NoCredentialsProvider.create())
+                .setTransportChannelProvider(FixedTransportChannelProvider.create(GrpcTransportChannel.create(channel)));
+        // Retries are done by the VisionGateway, behind its concurrency limit and circuit breaker
+        settingsBuilder.batchAnnotateImagesSettings().setRetryableCodes();
+        return ImageAnnotatorClient.create(settingsBuilder.build());
+    }
+
     private ImageAnnotatorClient createMockClient() {
         // Return null for now - this will be handled by the service layer
         return null;
@@ -25,7 +25,7 @@ import java.util.Map;
  * This configuration is used in production environments where the credentials are stored in AWS Secrets Manager.
  */
 @Configuration
-@Profile({"prod", "dev"})
+@Profile("(prod | dev) & !vision-emulator")
 public class GoogleVisionConfigWithSecrets {
 
     private static final Logger logger = LoggerFactory.getLogger(GoogleVisionConfigWithSecrets.class);
@@ -54,9 +54,11 @@ public class GoogleVisionConfigWithSecrets {
             GoogleCredentials credentials = GoogleCredentials.fromStream(credentialsStream);
             
             // Configure the ImageAnnotatorSettings with the credentials
-            ImageAnnotatorSettings settings = ImageAnnotatorSettings.newBuilder()
-                    .setCredentialsProvider(() -> credentials)
-                    .build();
+            ImageAnnotatorSettings.Builder settingsBuilder = ImageAnnotatorSettings.newBuilder()
+                    .setCredentialsProvider(() -> credentials);
+            // Retries are done by the VisionGateway, behind its concurrency limit and circuit breaker
+            settingsBuilder.batchAnnotateImagesSettings().setRetryableCodes();
+            ImageAnnotatorSettings settings = settingsBuilder.build();
             
             // Create and return the ImageAnnotatorClient
             return ImageAnnotatorClient.create(settings);
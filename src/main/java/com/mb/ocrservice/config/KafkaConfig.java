@@ -2,11 +2,15 @@ package com.mb.ocrservice.config;
 
 import com.mb.ocrservice.dto.DocumentVerificationCompletedEvent;
 import com.mb.ocrservice.dto.DocumentVerificationErrorEvent;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
@@ -16,7 +20,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Configuration class for Kafka producers in the Document Verification Service.
+ * Configuration class for Kafka producers and the batch consumer in the Document Verification Service.
  */
 @Configuration
 public class KafkaConfig {
@@ -24,6 +28,15 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${kafka.verify-document.batch.max-size:100}")
+    private int batchMaxSize;
+
+    @Value("${kafka.verify-document.batch.max-wait-ms:500}")
+    private int batchMaxWaitMs;
+
+    @Value("${kafka.verify-document.batch.min-bytes:65536}")
+    private int batchMinBytes;
+
     /**
      * Producer factory configuration for DocumentVerificationCompletedEvent.
      *
@@ -71,4 +84,27 @@ public class KafkaConfig {
     public KafkaTemplate<String, DocumentVerificationErrorEvent> errorEventKafkaTemplate() {
         return new KafkaTemplate<>(errorEventProducerFactory());
     }
-} 
\ No newline at end of file
+
+    /**
+     * Listener container factory for consuming verify-document events in batches.
+     * A poll returns up to {@code max-size} records and the broker holds the fetch for up to
+     * {@code max-wait-ms} while fewer than {@code min-bytes} are available, so bursts are
+     * delivered to the listener as whole batches.
+     *
+     * @param kafkaProperties the Spring Boot Kafka properties
+     * @return the batch listener container factory
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> verifyDocumentBatchListenerContainerFactory(
+            KafkaProperties kafkaProperties) {
+        Map<String, Object> configProps = new HashMap<>(kafkaProperties.buildConsumerProperties());
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxSize);
+        configProps.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, batchMaxWaitMs);
+        configProps.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, batchMinBytes);
+
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(configProps));
+        factory.setBatchListener(true);
+        return factory;
+    }
+}
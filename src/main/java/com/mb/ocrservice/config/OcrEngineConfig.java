@@ -0,0 +1,76 @@
+package com.mb.ocrservice.config;
+
+import com.mb.ocrservice.service.ImagePreprocessor;
+import com.mb.ocrservice.service.VisionGateway;
+import com.mb.ocrservice.service.VisionRequestBatcher;
+import com.mb.ocrservice.service.engine.LocalOcrEngine;
+import com.mb.ocrservice.service.engine.OcrEngine;
+import com.mb.ocrservice.service.engine.VisionOcrEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Configuration for the OCR engine, selected by {@code ocr.engine}.
+ */
+@Configuration
+@Slf4j
+public class OcrEngineConfig {
+
+    @Value("${ocr.engine:vision}")
+    private String engine;
+
+    @Value("${ocr.engine.local.latency-p50-ms:300}")
+    private long localLatencyP50Ms;
+
+    @Value("${ocr.engine.local.latency-p99-ms:1500}")
+    private long localLatencyP99Ms;
+
+    @Value("${ocr.engine.local.error-rate:0}")
+    private double localErrorRate;
+
+    @Value("${ocr.engine.local.seed:42}")
+    private long localSeed;
+
+    /**
+     * The OCR engine. Google Vision unless the local engine is selected, or no Vision client is configured
+     * (e.g. no credentials in development), in which case the local engine is used instead, without simulated
+     * latency or errors. The configured latency distribution only applies when the local engine is selected.
+     *
+     * @param visionGateway the gateway to Google Vision
+     * @param visionRequestBatcher the batcher in front of the gateway
+     * @param imagePreprocessor shrinks images before they are sent to Google Vision
+     * @param visionExecutor the executor images are shrunk on
+     * @param meterRegistry the meter registry
+     * @return the OCR engine
+     */
+    @Bean
+    public OcrEngine ocrEngine(VisionGateway visionGateway, VisionRequestBatcher visionRequestBatcher,
+                               ImagePreprocessor imagePreprocessor,
+                               @Qualifier("ocrVisionExecutor") Executor visionExecutor,
+                               MeterRegistry meterRegistry) {
+        switch (engine.toLowerCase()) {
+            case LocalOcrEngine.NAME:
+                log.info("Using the local OCR engine (p50 {} ms, p99 {} ms, error rate {})",
+                        localLatencyP50Ms, localLatencyP99Ms, localErrorRate);
+                return localOcrEngine();
+            case VisionOcrEngine.NAME:
+                if (!visionGateway.isAvailable()) {
+                    log.warn("Google Vision client is not configured, falling back to the local OCR engine");
+                    return new LocalOcrEngine(0, 0, 0, localSeed);
+                }
+                return new VisionOcrEngine(visionRequestBatcher, imagePreprocessor, visionExecutor, meterRegistry);
+            default:
+                throw new IllegalStateException("Unknown OCR engine: " + engine);
+        }
+    }
+
+    private LocalOcrEngine localOcrEngine() {
+        return new LocalOcrEngine(localLatencyP50Ms, localLatencyP99Ms, localErrorRate, localSeed);
+    }
+}
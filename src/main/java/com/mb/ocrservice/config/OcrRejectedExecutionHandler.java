@@ -0,0 +1,57 @@
+package com.mb.ocrservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Rejection handler for the OCR executors.
+ * Every rejection is counted, then handled according to the configured policy:
+ * <ul>
+ *     <li>{@code CALLER_RUNS} - the submitting thread (typically a Kafka listener) runs the task itself,
+ *     which slows down consumption until the executor has capacity again.</li>
+ *     <li>{@code ABORT} - a {@link RejectedExecutionException} is thrown to the submitter, failing the
+ *     document immediately.</li>
+ * </ul>
+ */
+@Slf4j
+public class OcrRejectedExecutionHandler implements RejectedExecutionHandler {
+
+    public enum Policy {
+        CALLER_RUNS,
+        ABORT
+    }
+
+    private final String executorName;
+    private final Policy policy;
+    private final Counter rejectedCounter;
+
+    public OcrRejectedExecutionHandler(String executorName, Policy policy, MeterRegistry meterRegistry) {
+        this.executorName = executorName;
+        this.policy = policy;
+        this.rejectedCounter = Counter.builder("ocr.executor.rejected")
+                .description("Tasks rejected because the OCR executor and its queue were full")
+                .tag("name", executorName)
+                .tag("policy", policy.name())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+        rejectedCounter.increment();
+
+        if (policy == Policy.CALLER_RUNS && !executor.isShutdown()) {
+            log.warn("Executor {} is saturated (active: {}, queued: {}), running task on caller thread",
+                    executorName, executor.getActiveCount(), executor.getQueue().size());
+            task.run();
+            return;
+        }
+
+        throw new RejectedExecutionException("Executor " + executorName + " is saturated (active: " +
+                executor.getActiveCount() + ", queued: " + executor.getQueue().size() + ")");
+    }
+}
@@ -0,0 +1,96 @@
+package com.mb.ocrservice.config;
+
+import com.mb.ocrservice.service.AdaptiveConcurrencyLimiter;
+import com.mb.ocrservice.service.CircuitBreaker;
+import com.mb.ocrservice.service.HedgingPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration for the concurrency limit, circuit breaker and hedging around Google Vision calls.
+ */
+@Configuration
+public class VisionGatewayConfig {
+
+    @Value("${ocr.vision.limiter.initial-limit:8}")
+    private int initialLimit;
+
+    @Value("${ocr.vision.limiter.min-limit:1}")
+    private int minLimit;
+
+    @Value("${ocr.vision.limiter.max-limit:64}")
+    private int maxLimit;
+
+    @Value("${ocr.vision.limiter.latency-threshold-ms:5000}")
+    private long latencyThresholdMs;
+
+    @Value("${ocr.vision.limiter.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${ocr.vision.circuit-breaker.window-size:20}")
+    private int windowSize;
+
+    @Value("${ocr.vision.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${ocr.vision.circuit-breaker.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${ocr.vision.circuit-breaker.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    @Value("${ocr.vision.circuit-breaker.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    @Value("${ocr.vision.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${ocr.vision.hedging.percentile:0.95}")
+    private double hedgingPercentile;
+
+    @Value("${ocr.vision.hedging.window-size:200}")
+    private int hedgingWindowSize;
+
+    @Value("${ocr.vision.hedging.min-samples:50}")
+    private int hedgingMinSamples;
+
+    @Value("${ocr.vision.hedging.max-rate:0.05}")
+    private double hedgingMaxRate;
+
+    /**
+     * Limit on concurrent batchAnnotateImages calls, lowered when calls get slow or are throttled.
+     *
+     * @return the Vision concurrency limiter
+     */
+    @Bean(name = "visionConcurrencyLimiter")
+    public AdaptiveConcurrencyLimiter visionConcurrencyLimiter() {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs), backoffRatio);
+    }
+
+    /**
+     * Circuit breaker that stops calling Vision while most recent calls fail.
+     *
+     * @return the Vision circuit breaker
+     */
+    @Bean(name = "visionCircuitBreaker")
+    public CircuitBreaker visionCircuitBreaker() {
+        return new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, openDurationMs, halfOpenCalls,
+                Clock.systemUTC());
+    }
+
+    /**
+     * Policy for sending a duplicate of a Vision call that is slower than most recent calls.
+     *
+     * @return the Vision hedging policy
+     */
+    @Bean(name = "visionHedgingPolicy")
+    public HedgingPolicy visionHedgingPolicy() {
+        return new HedgingPolicy(hedgingEnabled, hedgingPercentile, hedgingWindowSize, hedgingMinSamples,
+                hedgingMaxRate);
+    }
+}
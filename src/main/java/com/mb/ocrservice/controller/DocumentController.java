@@ -1,6 +1,7 @@
 package com.mb.ocrservice.controller;
 
 import com.mb.ocrservice.dto.DocumentDto;
+import com.mb.ocrservice.dto.OcrResultDto;
 import com.mb.ocrservice.exception.DocumentUploadException;
 import com.mb.ocrservice.model.Document;
 import com.mb.ocrservice.service.DocumentService;
@@ -94,4 +95,40 @@ public class DocumentController {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Get the raw OCR text of a processed document. OCR results returned elsewhere do not include it.
+     *
+     * @param documentId The ID of the document
+     * @return The raw text, or 404 if the document has not been processed
+     */
+    @GetMapping(value = "/{documentId}/ocr/raw-text", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> getRawText(@PathVariable Integer documentId) {
+        return documentService.getRawText(documentId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Re-extract the structured data of a processed document from its stored OCR annotation, without calling
+     * Google Vision again.
+     *
+     * @param documentId The ID of the document
+     * @return The updated OCR result, 404 if the document or its OCR result does not exist, or 409 if no OCR
+     * annotation was stored for it or its extraction ran over budget, in which case the stored data is kept
+     */
+    @PostMapping("/{documentId}/ocr/re-extract")
+    public ResponseEntity<OcrResultDto> reextract(@PathVariable Integer documentId) {
+        try {
+            return ResponseEntity.ok(documentService.reextractDocument(documentId));
+        } catch (IllegalArgumentException e) {
+            log.error("Document or OCR result not found", e);
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            log.warn("Cannot re-extract document {}: {}", documentId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IOException e) {
+            log.error("Failed to read OCR annotation", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
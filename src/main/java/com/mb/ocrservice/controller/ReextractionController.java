@@ -0,0 +1,75 @@
+package com.mb.ocrservice.controller;
+
+import com.mb.ocrservice.dto.ReextractionStatusDto;
+import com.mb.ocrservice.service.ReextractionJob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controls the bulk re-extraction of stored OCR results, see {@link ReextractionJob}.
+ */
+@RestController
+@RequestMapping("api/admin/reextraction")
+@Slf4j
+public class ReextractionController {
+
+    private final ReextractionJob reextractionJob;
+
+    @Autowired
+    public ReextractionController(ReextractionJob reextractionJob) {
+        this.reextractionJob = reextractionJob;
+    }
+
+    /**
+     * Start the job, resuming from its checkpoints.
+     *
+     * @param restart Whether to start over from the first row
+     * @param maxRowsPerSecond The throttle, 0 for none; the configured throttle if omitted
+     * @return The progress of the job, 202 if it was started or 409 if it was already running
+     */
+    @PostMapping("/start")
+    public ResponseEntity<ReextractionStatusDto> start(
+            @RequestParam(value = "restart", defaultValue = "false") boolean restart,
+            @RequestParam(value = "maxRowsPerSecond", required = false) Double maxRowsPerSecond) {
+        boolean started = reextractionJob.start(restart, maxRowsPerSecond);
+        log.info("Re-extraction job {} (restart: {})", started ? "started" : "already running", restart);
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(reextractionJob.getStatus());
+    }
+
+    /**
+     * Stop the job after the page in progress.
+     *
+     * @return The progress of the job
+     */
+    @PostMapping("/stop")
+    public ResponseEntity<ReextractionStatusDto> stop() {
+        reextractionJob.stop();
+        return ResponseEntity.accepted().body(reextractionJob.getStatus());
+    }
+
+    /**
+     * Change the throttle of the running job.
+     *
+     * @param maxRowsPerSecond The largest number of rows read per second, 0 for none
+     * @return The progress of the job
+     */
+    @PutMapping("/throttle")
+    public ResponseEntity<ReextractionStatusDto> throttle(@RequestParam("maxRowsPerSecond") double maxRowsPerSecond) {
+        reextractionJob.throttle(maxRowsPerSecond);
+        return ResponseEntity.ok(reextractionJob.getStatus());
+    }
+
+    /**
+     * Get the progress of the job.
+     *
+     * @return The progress of the job
+     */
+    @GetMapping
+    public ResponseEntity<ReextractionStatusDto> status() {
+        return ResponseEntity.ok(reextractionJob.getStatus());
+    }
+}
@@ -119,11 +119,12 @@ public class DocumentVerificationCompletedEvent {
     
     /**
      * Adds a result for a customer.
+     * Synchronized so that documents verified in parallel can report into the same event.
      *
      * @param customerId The customer ID
      * @param result The document verification result
      */
-    public void addCustomerResult(String customerId, CustomerDocumentResult result) {
+    public synchronized void addCustomerResult(String customerId, CustomerDocumentResult result) {
         if (!customerResults.containsKey(customerId)) {
             customerResults.put(customerId, new ArrayList<>());
         }
@@ -0,0 +1,33 @@
+package com.mb.ocrservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReextractionStatusDto {
+
+    private boolean running;
+    private double maxRowsPerSecond;
+    private double rowsPerSecond;
+    private List<TableProgress> tables;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TableProgress {
+        private String name;
+        private String status;
+        private Integer lastId;
+        private Long processed;
+        private Long changed;
+        private Long skipped;
+        private Long failed;
+        private ZonedDateTime updatedAt;
+    }
+}
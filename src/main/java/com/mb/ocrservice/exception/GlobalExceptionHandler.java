@@ -48,6 +48,27 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
 
+    /**
+     * Handles VisionApiException. Transient failures, including an open circuit, are reported as 503 so clients
+     * back off and retry later.
+     */
+    @ExceptionHandler(VisionApiException.class)
+    public ResponseEntity<ErrorResponseDto> handleVisionApiException(
+            VisionApiException ex, WebRequest request) {
+
+        log.error("Google Vision call failed ({}): {}", ex.getStatusCode(), ex.getMessage(), ex);
+
+        ErrorResponseDto errorResponse = ErrorResponseDto.of(
+                "OCR_PROCESSING_ERROR",
+                "OCR processing failed",
+                ex.getMessage(),
+                request.getDescription(false)
+        );
+
+        HttpStatus status = ex.isRetryable() ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status).body(errorResponse);
+    }
+
     /**
      * Handles OcrProcessingException.
      */
@@ -0,0 +1,52 @@
+package com.mb.ocrservice.exception;
+
+import com.google.api.gax.rpc.StatusCode;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Exception thrown when a Google Vision call fails or is refused before it is sent.
+ * Carries the gRPC status code, which decides whether the call may be retried.
+ */
+public class VisionApiException extends OcrProcessingException {
+
+    private static final Set<StatusCode.Code> RETRYABLE_CODES = EnumSet.of(
+            StatusCode.Code.UNAVAILABLE,
+            StatusCode.Code.RESOURCE_EXHAUSTED,
+            StatusCode.Code.DEADLINE_EXCEEDED,
+            StatusCode.Code.ABORTED,
+            StatusCode.Code.INTERNAL);
+
+    private final StatusCode.Code statusCode;
+
+    public VisionApiException(String message, StatusCode.Code statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public VisionApiException(String message, StatusCode.Code statusCode, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+    }
+
+    public StatusCode.Code getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return Whether the failure is transient, so the same call may succeed when retried
+     */
+    public boolean isRetryable() {
+        return RETRYABLE_CODES.contains(statusCode);
+    }
+
+    /**
+     * @return Whether the failure signals that Vision is overloaded or throttling this client
+     */
+    public boolean isOverload() {
+        return statusCode == StatusCode.Code.RESOURCE_EXHAUSTED
+                || statusCode == StatusCode.Code.DEADLINE_EXCEEDED
+                || statusCode == StatusCode.Code.UNAVAILABLE;
+    }
+}
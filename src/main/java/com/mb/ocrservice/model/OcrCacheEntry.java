@@ -0,0 +1,42 @@
+package com.mb.ocrservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Entity
+@Table(name = "ocr_cache_entries",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"content_hash", "document_type"}))
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcrCacheEntry extends BaseEntity {
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "document_type", nullable = false, length = 50)
+    private String documentType;
+
+    // How rawTextContent is encoded, see RawTextCodec
+    @Column(name = "raw_text_encoding", length = 16)
+    private String rawTextEncoding;
+
+    @Column(name = "raw_text_content", columnDefinition = "bytea")
+    private byte[] rawTextContent;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "structured_data", columnDefinition = "jsonb")
+    private Map<String, Object> structuredData;
+
+    @Column(name = "confidence_score", precision = 5, scale = 2)
+    private BigDecimal confidenceScore;
+}
@@ -0,0 +1,27 @@
+package com.mb.ocrservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "ocr_raw_texts")
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcrRawText extends BaseEntity {
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ocr_result_id", nullable = false, unique = true)
+    private OcrResult ocrResult;
+
+    // How content is encoded, see RawTextCodec
+    @Column(name = "encoding", nullable = false, length = 16)
+    private String encoding;
+
+    @Column(name = "content", nullable = false, columnDefinition = "bytea")
+    private byte[] content;
+}
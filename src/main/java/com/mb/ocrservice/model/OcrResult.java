@@ -28,9 +28,6 @@ public class OcrResult extends BaseEntity {
     @JoinColumn(name = "document_id", nullable = false)
     private Document document;
 
-    @Column(name = "raw_text", columnDefinition = "text")
-    private String rawText;
-
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "structured_data", columnDefinition = "jsonb")
     private Map<String, Object> structuredData;
@@ -42,4 +39,11 @@ public class OcrResult extends BaseEntity {
 
     @Column(name = "processing_time")
     private Integer processingTime;
+
+    // The file and SHA-256 of the content the result was produced from
+    @Column(name = "source_file_path")
+    private String sourceFilePath;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.mb.ocrservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "reextraction_checkpoints")
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReextractionCheckpoint extends BaseEntity {
+
+    @Column(name = "name", nullable = false, unique = true, length = 50)
+    private String name;
+
+    @Column(name = "last_id", nullable = false)
+    private Integer lastId = 0;
+
+    @Column(name = "processed", nullable = false)
+    private Long processed = 0L;
+
+    @Column(name = "changed", nullable = false)
+    private Long changed = 0L;
+
+    @Column(name = "skipped", nullable = false)
+    private Long skipped = 0L;
+
+    @Column(name = "failed", nullable = false)
+    private Long failed = 0L;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status = Status.PENDING.name();
+
+    // Enum for checkpoint status
+    public enum Status {
+        PENDING,
+        RUNNING,
+        PAUSED,
+        COMPLETED
+    }
+}
@@ -0,0 +1,47 @@
+package com.mb.ocrservice.repository;
+
+import com.mb.ocrservice.model.OcrCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+public interface OcrCacheEntryRepository extends JpaRepository<OcrCacheEntry, Integer> {
+
+    /**
+     * Finds a cache entry without reading its raw text.
+     */
+    Optional<Summary> findSummaryByContentHashAndDocumentType(String contentHash, String documentType);
+
+    /**
+     * Reads only the raw text of a cache entry.
+     */
+    Optional<RawText> findRawTextById(Integer id);
+
+    boolean existsByContentHashAndDocumentType(String contentHash, String documentType);
+
+    /**
+     * A cache entry without its raw text.
+     */
+    interface Summary {
+
+        Integer getId();
+
+        Map<String, Object> getStructuredData();
+
+        BigDecimal getConfidenceScore();
+    }
+
+    /**
+     * The encoded raw text of a cache entry.
+     */
+    interface RawText {
+
+        String getRawTextEncoding();
+
+        byte[] getRawTextContent();
+    }
+}
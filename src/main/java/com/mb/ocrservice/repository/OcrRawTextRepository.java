@@ -0,0 +1,15 @@
+package com.mb.ocrservice.repository;
+
+import com.mb.ocrservice.model.OcrRawText;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface OcrRawTextRepository extends JpaRepository<OcrRawText, Integer> {
+
+    Optional<OcrRawText> findByOcrResultId(Integer ocrResultId);
+
+    Optional<OcrRawText> findByOcrResultDocumentId(Integer documentId);
+}
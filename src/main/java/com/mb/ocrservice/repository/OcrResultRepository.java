@@ -3,6 +3,8 @@ package com.mb.ocrservice.repository;
 import com.mb.ocrservice.model.Document;
 import com.mb.ocrservice.model.OcrResult;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
@@ -19,4 +21,16 @@ public interface OcrResultRepository extends JpaRepository<OcrResult, Integer> {
     List<OcrResult> findByConfidenceScoreGreaterThanEqual(BigDecimal confidenceScore);
     
     List<OcrResult> findByConfidenceScoreLessThan(BigDecimal confidenceScore);
+
+    /**
+     * Finds the other files OCR results were produced from with the same content, e.g. to share their OCR sidecar.
+     *
+     * @param contentHash The hash of the content
+     * @param filePath The file to leave out
+     * @return The paths of the other files with that content
+     */
+    @Query("SELECT DISTINCT r.sourceFilePath FROM OcrResult r "
+            + "WHERE r.contentHash = :contentHash AND r.sourceFilePath <> :filePath")
+    List<String> findSourceFilePathsByContentHash(@Param("contentHash") String contentHash,
+                                                  @Param("filePath") String filePath);
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.mb.ocrservice.repository;
+
+import com.mb.ocrservice.model.ReextractionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ReextractionCheckpointRepository extends JpaRepository<ReextractionCheckpoint, Integer> {
+
+    Optional<ReextractionCheckpoint> findByName(String name);
+}
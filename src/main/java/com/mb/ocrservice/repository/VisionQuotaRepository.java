@@ -0,0 +1,36 @@
+package com.mb.ocrservice.repository;
+
+import com.mb.ocrservice.model.VisionQuota;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface VisionQuotaRepository extends JpaRepository<VisionQuota, Integer> {
+
+    /**
+     * Takes tokens from the budget of the current minute, in a single atomic statement.
+     * The window is the current minute on the database clock, so instances never disagree about it;
+     * the first lease in a new minute resets the usage.
+     *
+     * @param name The name of the quota
+     * @param permits The number of tokens to take
+     * @param limit The budget per minute
+     * @return The milliseconds left until the end of the minute the tokens were charged to, or empty if the budget
+     *         of the current minute is spent
+     */
+    @Transactional
+    @Query(value = "UPDATE vision_quotas SET "
+            + "used = CASE WHEN window_start < date_trunc('minute', now()) THEN :permits ELSE used + :permits END, "
+            + "window_start = date_trunc('minute', now()), "
+            + "updated_at = now() "
+            + "WHERE name = :name "
+            + "AND (window_start < date_trunc('minute', now()) OR used + :permits <= :limit) "
+            + "RETURNING CAST(EXTRACT(EPOCH FROM window_start + INTERVAL '1 minute' - now()) * 1000 AS bigint)",
+            nativeQuery = true)
+    Optional<Long> lease(@Param("name") String name, @Param("permits") int permits, @Param("limit") int limit);
+}
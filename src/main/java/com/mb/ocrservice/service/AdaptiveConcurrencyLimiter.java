@@ -0,0 +1,105 @@
+package com.mb.ocrservice.service;
+
+/**
+ * Concurrency limit that adapts to the latency and errors of the calls it admits (AIMD).
+ * Every call that completes within the latency threshold raises the limit by {@code 1 / limit}, so the limit grows
+ * by about one per round of calls while the backend keeps up. A call that is slower than the threshold, or that is
+ * dropped because the backend is overloaded, multiplies the limit by the backoff ratio.
+ * <p>
+ * The limit only grows while it is actually being used, so an idle period does not leave it inflated.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+
+    /**
+     * @param initialLimit The limit to start with
+     * @param minLimit The limit never drops below this
+     * @param maxLimit The limit never grows above this
+     * @param latencyThresholdNanos Calls slower than this count as a sign of overload
+     * @param backoffRatio The factor the limit is multiplied by on overload, between 0 and 1
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThresholdNanos, double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limit bounds: " + minLimit + ".." + maxLimit);
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1: " + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Admits a call if fewer calls than the limit are in flight.
+     * Every admitted call must be released with exactly one of {@link #onSuccess(long)}, {@link #onDropped()} or
+     * {@link #onIgnored()}.
+     *
+     * @return Whether the call was admitted
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= getLimit()) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Releases a call that completed successfully.
+     *
+     * @param latencyNanos The latency of the call
+     */
+    public synchronized void onSuccess(long latencyNanos) {
+        boolean saturated = inFlight >= getLimit();
+        inFlight--;
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (saturated || inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * Releases a call that failed because the backend is overloaded.
+     */
+    public synchronized void onDropped() {
+        inFlight--;
+        decrease();
+    }
+
+    /**
+     * Releases a call whose outcome says nothing about the backend's capacity, such as a rejected request.
+     */
+    public synchronized void onIgnored() {
+        inFlight--;
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    /**
+     * @return The current limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return The number of admitted calls that have not been released yet
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
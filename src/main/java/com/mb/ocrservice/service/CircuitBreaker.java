@@ -0,0 +1,161 @@
+package com.mb.ocrservice.service;
+
+import java.time.Clock;
+
+/**
+ * Count-based circuit breaker.
+ * While CLOSED, the outcomes of the last {@code windowSize} calls are recorded; once at least {@code minimumCalls}
+ * have been recorded and the share of failures reaches the threshold, the circuit OPENs and calls are refused for
+ * {@code openDurationMs}. After that the circuit is HALF_OPEN and lets {@code halfOpenCalls} trial calls through:
+ * if all of them succeed the circuit closes again, a single failure opens it for another period.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationMs;
+    private final int halfOpenCalls;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    // Ring buffer of the outcomes recorded while closed
+    private final boolean[] failures;
+    private int recorded;
+    private int next;
+    private int failureCount;
+    private long openedAt;
+    private int trialCallsPermitted;
+    private int trialCallsSucceeded;
+
+    /**
+     * @param windowSize The number of most recent calls the failure rate is computed over
+     * @param minimumCalls The number of calls to record before the circuit can open
+     * @param failureRateThreshold The failure rate, between 0 and 1, at which the circuit opens
+     * @param openDurationMs How long the circuit stays open before trial calls are let through
+     * @param halfOpenCalls The number of trial calls that must succeed to close the circuit
+     * @param clock The clock the open duration is measured with
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openDurationMs, int halfOpenCalls, Clock clock) {
+        if (windowSize < 1 || minimumCalls < 1 || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Circuit breaker window, minimum calls and half-open calls must be positive");
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMs = openDurationMs;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.failures = new boolean[windowSize];
+    }
+
+    /**
+     * Asks permission for a call. A permitted call must be followed by {@link #onSuccess()} or {@link #onFailure()}.
+     *
+     * @return Whether the call may be made
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch (updateState()) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialCallsPermitted < halfOpenCalls) {
+                    trialCallsPermitted++;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Records a successful call.
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialCallsSucceeded >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * Records a failed call.
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failureCount >= failureRateThreshold * recorded) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * Gives back the permission of a call whose outcome will not be recorded, such as a call that was cancelled.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && trialCallsPermitted > trialCallsSucceeded) {
+            trialCallsPermitted--;
+        }
+    }
+
+    /**
+     * @return The current state; an open circuit whose open duration has elapsed reports HALF_OPEN
+     */
+    public synchronized State getState() {
+        return updateState();
+    }
+
+    private State updateState() {
+        if (state == State.OPEN && clock.millis() - openedAt >= openDurationMs) {
+            transitionTo(State.HALF_OPEN);
+        }
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (failures[next]) {
+                failureCount--;
+            }
+        } else {
+            recorded++;
+        }
+        failures[next] = failure;
+        if (failure) {
+            failureCount++;
+        }
+        next = (next + 1) % windowSize;
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        switch (newState) {
+            case OPEN:
+                openedAt = clock.millis();
+                break;
+            case HALF_OPEN:
+                trialCallsPermitted = 0;
+                trialCallsSucceeded = 0;
+                break;
+            default:
+                recorded = 0;
+                next = 0;
+                failureCount = 0;
+                break;
+        }
+    }
+}
@@ -33,6 +33,7 @@ public class DocumentService {
     private final StorageService storageService;
     private final OcrService ocrService;
     private final ValidationService validationService;
+    private final SpeculativeOcrScheduler speculativeOcrScheduler;
 
     @Autowired
     public DocumentService(
@@ -40,12 +41,14 @@ public class DocumentService {
             DocumentTypeRepository documentTypeRepository,
             StorageService storageService,
             OcrService ocrService,
-            ValidationService validationService) {
+            ValidationService validationService,
+            SpeculativeOcrScheduler speculativeOcrScheduler) {
         this.documentRepository = documentRepository;
         this.documentTypeRepository = documentTypeRepository;
         this.storageService = storageService;
         this.ocrService = ocrService;
         this.validationService = validationService;
+        this.speculativeOcrScheduler = speculativeOcrScheduler;
     }
 
     /**
@@ -265,6 +268,9 @@ public class DocumentService {
             } else {
                 log.info("Document uploaded successfully: {}", savedDocument.getId());
             }
+
+            // Start OCR in the background once the upload is committed, if enabled
+            speculativeOcrScheduler.scheduleAfterCommit(savedDocument.getId(), storageId);
             
             return savedDocument;
             
@@ -302,6 +308,18 @@ public class DocumentService {
         return ocrService.processDocumentAsync(documentId, storageId);
     }
 
+    /**
+     * Process a document asynchronously, reusing its OCR result if the document has not changed since it was
+     * produced.
+     *
+     * @param documentId The ID of the document to process
+     * @param storageId
+     * @return A CompletableFuture that will be completed when the processing is done
+     */
+    public CompletableFuture<OcrResult> processOrReuseDocumentAsync(Integer documentId, String storageId) {
+        return ocrService.processOrReuseAsync(documentId, storageId);
+    }
+
     /**
      * Get a document by ID.
      *
@@ -369,7 +387,7 @@ public class DocumentService {
     }
 
     /**
-     * Get the OCR result for a document.
+     * Get the OCR result for a document, without its raw text.
      *
      * @param documentId The ID of the document
      * @return The OCR result
@@ -379,6 +397,27 @@ public class DocumentService {
         return ocrResult.isEmpty() ? new OcrResultDto():  convertToDto(ocrResult.get());
     }
 
+    /**
+     * Get the raw OCR text of a document.
+     *
+     * @param documentId The ID of the document
+     * @return The raw text, if the document has been processed
+     */
+    public Optional<String> getRawText(Integer documentId) {
+        return ocrService.getRawText(documentId);
+    }
+
+    /**
+     * Rebuild the structured data of a processed document from its stored OCR annotation, without running OCR again.
+     *
+     * @param documentId The ID of the document
+     * @return The updated OCR result
+     * @throws IOException If the stored annotation cannot be read
+     */
+    public OcrResultDto reextractDocument(Integer documentId) throws IOException {
+        return convertToDto(ocrService.reextract(documentId));
+    }
+
     /**
      * Get the validation result for a document.
      *
@@ -411,7 +450,7 @@ public class DocumentService {
     }
 
     /**
-     * Convert an OcrResult entity to an OcrResultDto.
+     * Convert an OcrResult entity to an OcrResultDto. The raw text is not included.
      *
      * @param ocrResult The OcrResult entity
      * @return The OcrResultDto
@@ -420,7 +459,6 @@ public class DocumentService {
         OcrResultDto dto = new OcrResultDto();
         dto.setId(ocrResult.getId());
         dto.setDocumentId(ocrResult.getDocument().getId());
-        dto.setRawText(ocrResult.getRawText());
         dto.setStructuredData(ocrResult.getStructuredData());
         dto.setConfidenceScore(ocrResult.getConfidenceScore());
         dto.setProcessingTime(ocrResult.getProcessingTime());
@@ -8,12 +8,16 @@ import com.mb.ocrservice.dto.VerifyDocumentEvent;
 import com.mb.ocrservice.model.AuditLog;
 import com.mb.ocrservice.model.Document;
 import com.mb.ocrservice.model.DocumentType;
+import com.mb.ocrservice.model.OcrResult;
 import com.mb.ocrservice.model.ValidationResult;
 import com.mb.ocrservice.repository.AuditLogRepository;
 import com.mb.ocrservice.repository.DocumentRepository;
 import com.mb.ocrservice.repository.DocumentTypeRepository;
+import com.mb.ocrservice.service.extraction.DocumentClassifier;
+import com.mb.ocrservice.service.extraction.FieldNormalizers;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -23,9 +27,18 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Service responsible for processing document verification requests.
@@ -38,6 +51,12 @@ public class DocumentVerificationService {
     @Value("${kafka.topic.document-verification-completed:document-verification-completed}")
     private String documentVerificationCompletedTopic;
 
+    @Value("${verification.parallel.enabled:false}")
+    private boolean parallelProcessingEnabled;
+
+    @Value("${ocr.speculative.enabled:false}")
+    private boolean speculativeOcrEnabled;
+
     private final DocumentService documentService;
     private final ValidationService validationService;
     private final DocumentTypeRepository documentTypeRepository;
@@ -45,6 +64,7 @@ public class DocumentVerificationService {
     private final AuditLogRepository auditLogRepository;
     private final KafkaTemplate<String, DocumentVerificationCompletedEvent> kafkaTemplate;
     private final KafkaTemplate<String, DocumentVerificationErrorEvent> errorKafkaTemplate;
+    private final Executor verificationExecutor;
 
     @Autowired
     public DocumentVerificationService(
@@ -54,7 +74,8 @@ public class DocumentVerificationService {
             DocumentRepository documentRepository,
             AuditLogRepository auditLogRepository,
             KafkaTemplate<String, DocumentVerificationCompletedEvent> completedEventKafkaTemplate,
-            KafkaTemplate<String, DocumentVerificationErrorEvent> errorEventKafkaTemplate) {
+            KafkaTemplate<String, DocumentVerificationErrorEvent> errorEventKafkaTemplate,
+            @Qualifier("verificationExecutor") Executor verificationExecutor) {
         this.documentService = documentService;
         this.validationService = validationService;
         this.documentTypeRepository = documentTypeRepository;
@@ -62,6 +83,7 @@ public class DocumentVerificationService {
         this.auditLogRepository = auditLogRepository;
         this.kafkaTemplate = completedEventKafkaTemplate;
         this.errorKafkaTemplate = errorEventKafkaTemplate;
+        this.verificationExecutor = verificationExecutor;
     }
 
     /**
@@ -69,7 +91,8 @@ public class DocumentVerificationService {
      *
      * @param event The verify-document event
      */
-    @KafkaListener(topics = "${kafka.topic.verify-document:verify-document}", groupId = "${kafka.group-id:document-verification-service}")
+    @KafkaListener(topics = "${kafka.topic.verify-document:verify-document}", groupId = "${kafka.group-id:document-verification-service}",
+            autoStartup = "#{!${kafka.verify-document.batch.enabled:false}}")
     public void processVerifyDocumentEvent(VerifyDocumentEvent event) {
         log.info("Received verify-document event: {}", event);
         
@@ -89,27 +112,10 @@ public class DocumentVerificationService {
                     .completedAt(Instant.now().toEpochMilli())
                     .build();
             
-            // Process each document detail
-            boolean hasErrors = false;
-            for (Map.Entry<String, VerifyDocumentEvent.DocDetailEvent> entry : event.getApplicantStorageIds().entrySet()) {
-                String applicantId = entry.getKey();
-                VerifyDocumentEvent.DocDetailEvent docDetail = entry.getValue();
-                
-                try {
-                    // Process the document for this storage ID and applicant ID with validation
-                    processDocumentWithValidation(event, docDetail, applicantId, completedEvent);
-                } catch (Exception e) {
-                    log.error("Error processing document for storage ID: {}, applicant ID: {}", docDetail.getStorageId(), applicantId, e);
-                    
-                    // Create audit log for error
-                    createAuditLog("DOCUMENT_PROCESSING_ERROR",
-                            "Error processing document for storage ID: " + docDetail.getStorageId() + ", applicant ID: " + applicantId + ": " + e.getMessage(),
-                            event.getApplicationId(),
-                            event.getEventId());
-                    
-                    hasErrors = true;
-                }
-            }
+            // Process each document detail, either one at a time or fanned out across the verification executor
+            boolean hasErrors = parallelProcessingEnabled && event.getApplicantStorageIds().size() > 1
+                    ? processDocumentsInParallel(event, completedEvent)
+                    : processDocumentsSequentially(event, completedEvent);
             
             // Set the overall status based on whether there were any errors
             if (hasErrors) {
@@ -141,6 +147,328 @@ public class DocumentVerificationService {
         }
     }
     
+    /**
+     * Processes a whole poll of verify-document events received from Kafka.
+     * Only started when kafka.verify-document.batch.enabled is true, in which case the per-record listener is not.
+     * The documents of all events go through shared stages: every document is resolved first, then all distinct
+     * documents are OCR-processed together (documents referenced by several events are processed once), then each
+     * is validated once. A document referenced again with a different storage ID than its first reference in the
+     * poll fails for that reference. Events of the same application are processed together, but every event is
+     * still answered with a completed event of its own, carrying the results of the applicants it requested.
+     *
+     * @param events The verify-document events of one poll
+     */
+    @KafkaListener(id = "verifyDocumentBatchListener", topics = "${kafka.topic.verify-document:verify-document}",
+            groupId = "${kafka.group-id:document-verification-service}",
+            containerFactory = "verifyDocumentBatchListenerContainerFactory",
+            autoStartup = "${kafka.verify-document.batch.enabled:false}")
+    public void processVerifyDocumentEvents(List<VerifyDocumentEvent> events) {
+        log.info("Received batch of {} verify-document events", events.size());
+        
+        Map<String, List<VerifyDocumentEvent>> requestsByApplication = groupByApplication(events);
+        Map<String, DocumentVerificationCompletedEvent> applicationResults = new LinkedHashMap<>();
+        Map<String, Set<String>> failedApplicants = new HashMap<>();
+        List<BatchItem> items = new ArrayList<>();
+        
+        // Stage 1: resolve the documents of every application
+        for (List<VerifyDocumentEvent> requests : requestsByApplication.values()) {
+            VerifyDocumentEvent event = mergeRequests(requests);
+            try {
+                // Create audit log for every event received
+                for (VerifyDocumentEvent request : requests) {
+                    createAuditLog("VERIFY_DOCUMENT_EVENT_RECEIVED",
+                            "Received verify-document event for application: " + request.getApplicationId() +
+                            ", with " + request.getApplicantStorageIds().size() + " document details",
+                            request.getApplicationId(),
+                            request.getEventId());
+                }
+                
+                applicationResults.put(event.getApplicationId(), DocumentVerificationCompletedEvent.builder()
+                        .applicationNumber(event.getApplicationId())
+                        .build());
+                
+                for (Map.Entry<String, VerifyDocumentEvent.DocDetailEvent> entry : event.getApplicantStorageIds().entrySet()) {
+                    try {
+                        Document document = prepareDocument(event, entry.getValue(), entry.getKey());
+                        items.add(new BatchItem(event, entry.getKey(), entry.getValue(), document));
+                    } catch (Exception e) {
+                        handleDocumentError(event, entry.getValue(), entry.getKey(), e);
+                        recordFailure(failedApplicants, event, entry.getKey());
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Error processing verify-document event", e);
+                applicationResults.remove(event.getApplicationId());
+                
+                for (VerifyDocumentEvent request : requests) {
+                    createAuditLog("VERIFY_DOCUMENT_EVENT_ERROR",
+                            "Error processing verify-document event: " + e.getMessage(),
+                            request.getApplicationId(),
+                            request.getEventId());
+                    
+                    publishErrorEvent(request, e.getMessage());
+                }
+            }
+        }
+        
+        // Stage 2: download and OCR every distinct document once, with all of them in flight together.
+        // A document requested again with another storage ID is rejected rather than given the other file's result.
+        Map<Integer, String> storageIds = new HashMap<>();
+        Map<Integer, CompletableFuture<OcrResult>> ocrFutures = new HashMap<>();
+        List<BatchItem> ocrItems = new ArrayList<>();
+        for (BatchItem item : items) {
+            Integer documentId = item.document().getId();
+            String storageId = item.docDetail().getStorageId();
+            storageIds.putIfAbsent(documentId, storageId);
+            if (!Objects.equals(storageIds.get(documentId), storageId)) {
+                handleDocumentError(item.event(), item.docDetail(), item.applicantId(), new IllegalStateException(
+                        "Document " + documentId + " is requested with storage ID " + storageId +
+                        " in the same batch as storage ID " + storageIds.get(documentId)));
+                recordFailure(failedApplicants, item.event(), item.applicantId());
+                continue;
+            }
+
+            ocrItems.add(item);
+            ocrFutures.computeIfAbsent(documentId, id -> processOcrAsync(id, storageId));
+        }
+        CompletableFuture.allOf(ocrFutures.values().toArray(new CompletableFuture[0]))
+                .handle((result, ex) -> null)
+                .join();
+        log.info("OCR completed for {} distinct documents of {} verify-document events", ocrFutures.size(), events.size());
+        
+        // Stage 3: validate every distinct document once and check each requested document number
+        Map<Integer, ProcessedDocument> processedDocuments = new HashMap<>();
+        for (BatchItem item : ocrItems) {
+            VerifyDocumentEvent event = item.event();
+            try {
+                ocrFutures.get(item.document().getId()).join();
+                
+                ProcessedDocument processed = processedDocuments.get(item.document().getId());
+                if (processed == null) {
+                    log.info("Validating document with ID: {}", item.document().getId());
+                    ValidationResult validationResult = validationService.validateDocument(item.document().getId());
+                    processed = new ProcessedDocument(
+                            documentService.getOcrResult(item.document().getId()),
+                            documentService.convertToDto(validationResult));
+                    processedDocuments.put(item.document().getId(), processed);
+                }
+                
+                completeDocument(event, item.docDetail(), item.applicantId(), item.document(),
+                        processed.ocrResult(), processed.validationResult(), applicationResults.get(event.getApplicationId()));
+            } catch (Exception e) {
+                handleDocumentError(event, item.docDetail(), item.applicantId(), e);
+                recordFailure(failedApplicants, event, item.applicantId());
+            }
+        }
+        
+        // Stage 4: answer every event with the results of the applicants it requested
+        for (Map.Entry<String, DocumentVerificationCompletedEvent> entry : applicationResults.entrySet()) {
+            Set<String> failed = failedApplicants.getOrDefault(entry.getKey(), Set.of());
+            for (VerifyDocumentEvent request : requestsByApplication.get(entry.getKey())) {
+                try {
+                    kafkaTemplate.send(documentVerificationCompletedTopic,
+                            completedEventFor(request, entry.getValue(), failed));
+                    
+                    createAuditLog("DOCUMENT_VERIFICATION_COMPLETED_EVENT_PUBLISHED",
+                            "Published document-verification-completed event for application: " + request.getApplicationId(),
+                            request.getApplicationId(),
+                            request.getEventId());
+                } catch (Exception e) {
+                    log.error("Error publishing document-verification-completed event", e);
+                    
+                    createAuditLog("VERIFY_DOCUMENT_EVENT_ERROR",
+                            "Error processing verify-document event: " + e.getMessage(),
+                            request.getApplicationId(),
+                            request.getEventId());
+                    
+                    publishErrorEvent(request, e.getMessage());
+                }
+            }
+        }
+        
+        log.info("Completed processing batch of {} verify-document events for {} applications",
+                events.size(), applicationResults.size());
+    }
+    
+    /**
+     * Groups the events of a batch by application.
+     *
+     * @param events The verify-document events of one poll
+     * @return The events of each application in the order they were received, by application in order of first
+     *         appearance
+     */
+    private Map<String, List<VerifyDocumentEvent>> groupByApplication(List<VerifyDocumentEvent> events) {
+        Map<String, List<VerifyDocumentEvent>> requestsByApplication = new LinkedHashMap<>();
+        for (VerifyDocumentEvent event : events) {
+            requestsByApplication.computeIfAbsent(event.getApplicationId(), applicationId -> new ArrayList<>()).add(event);
+        }
+        return requestsByApplication;
+    }
+    
+    /**
+     * Merges the events of one application, so that its documents are processed once. Document details of later
+     * events replace those of earlier events for the same applicant, and the latest event ID is used for the audit
+     * logs of the shared stages.
+     *
+     * @param requests The events of one application, in the order they were received
+     * @return The merged event
+     */
+    private VerifyDocumentEvent mergeRequests(List<VerifyDocumentEvent> requests) {
+        VerifyDocumentEvent latest = requests.get(requests.size() - 1);
+        if (requests.size() == 1) {
+            return latest;
+        }
+        
+        log.info("Merging {} verify-document events for application: {}", requests.size(), latest.getApplicationId());
+        Map<String, VerifyDocumentEvent.DocDetailEvent> applicantStorageIds = new LinkedHashMap<>();
+        for (VerifyDocumentEvent request : requests) {
+            applicantStorageIds.putAll(request.getApplicantStorageIds());
+        }
+        return new VerifyDocumentEvent(
+                latest.getEventId(), latest.getApplicationId(), applicantStorageIds, latest.getTimestamp());
+    }
+    
+    /**
+     * OCR-processes a document. When speculative OCR is enabled, the result it may already have produced for the
+     * same content is reused instead of running OCR again.
+     *
+     * @param documentId The ID of the document to process
+     * @param storageId The storage ID the document is downloaded from
+     * @return A CompletableFuture that will be completed when the processing is done
+     */
+    private CompletableFuture<OcrResult> processOcrAsync(Integer documentId, String storageId) {
+        return speculativeOcrEnabled
+                ? documentService.processOrReuseDocumentAsync(documentId, storageId)
+                : documentService.processDocumentAsync(documentId, storageId);
+    }
+    
+    /**
+     * Records that the document of an applicant failed within a batch.
+     *
+     * @param failedApplicants The failed applicant IDs by application
+     * @param event The verify-document event the document belongs to
+     * @param applicantId The applicant ID associated with the document
+     */
+    private static void recordFailure(Map<String, Set<String>> failedApplicants, VerifyDocumentEvent event,
+                                      String applicantId) {
+        failedApplicants.computeIfAbsent(event.getApplicationId(), applicationId -> new HashSet<>()).add(applicantId);
+    }
+    
+    /**
+     * Builds the completed event answering one verify-document event of a batch from the results of its application.
+     *
+     * @param request The verify-document event to answer
+     * @param applicationResults The results of all documents of the application processed in the batch
+     * @param failedApplicants The applicants of the application whose document failed
+     * @return The completed event, PARTIAL_SUCCESS if a document the event requested failed
+     */
+    private DocumentVerificationCompletedEvent completedEventFor(
+            VerifyDocumentEvent request,
+            DocumentVerificationCompletedEvent applicationResults,
+            Set<String> failedApplicants) {
+        DocumentVerificationCompletedEvent completedEvent = DocumentVerificationCompletedEvent.builder()
+                .applicationNumber(request.getApplicationId())
+                .requestId(request.getEventId())
+                .status(Document.Status.COMPLETED.name())
+                .completedAt(Instant.now().toEpochMilli())
+                .build();
+        
+        for (String applicantId : request.getApplicantStorageIds().keySet()) {
+            applicationResults.getCustomerResults().getOrDefault(applicantId, List.of())
+                    .forEach(result -> completedEvent.addCustomerResult(applicantId, result));
+            if (failedApplicants.contains(applicantId)) {
+                completedEvent.setStatus("PARTIAL_SUCCESS");
+            }
+        }
+        return completedEvent;
+    }
+    
+    /**
+     * Processes the documents of an event one after the other.
+     *
+     * @param event The verify-document event
+     * @param completedEvent The completed event to populate with results
+     * @return true if any document failed, false otherwise
+     */
+    private boolean processDocumentsSequentially(VerifyDocumentEvent event, DocumentVerificationCompletedEvent completedEvent) {
+        boolean hasErrors = false;
+        for (Map.Entry<String, VerifyDocumentEvent.DocDetailEvent> entry : event.getApplicantStorageIds().entrySet()) {
+            if (!processDocumentSafely(event, entry.getValue(), entry.getKey(), completedEvent)) {
+                hasErrors = true;
+            }
+        }
+        return hasErrors;
+    }
+    
+    /**
+     * Dispatches all documents of an event to the verification executor at once and waits for all of them,
+     * so the event takes as long as its slowest document rather than the sum of all documents.
+     *
+     * @param event The verify-document event
+     * @param completedEvent The completed event to populate with results
+     * @return true if any document failed, false otherwise
+     */
+    private boolean processDocumentsInParallel(VerifyDocumentEvent event, DocumentVerificationCompletedEvent completedEvent) {
+        AtomicBoolean hasErrors = new AtomicBoolean(false);
+        
+        CompletableFuture<?>[] futures = event.getApplicantStorageIds().entrySet().stream()
+                .map(entry -> CompletableFuture.runAsync(() -> {
+                    if (!processDocumentSafely(event, entry.getValue(), entry.getKey(), completedEvent)) {
+                        hasErrors.set(true);
+                    }
+                }, verificationExecutor))
+                .toArray(CompletableFuture[]::new);
+        
+        CompletableFuture.allOf(futures).join();
+        return hasErrors.get();
+    }
+    
+    /**
+     * Processes a single document, recording an audit log instead of propagating failures.
+     *
+     * @param event The original verify-document event
+     * @param docDetail The document details
+     * @param applicantId The applicant ID associated with the document
+     * @param completedEvent The completed event to populate with results
+     * @return true if the document was processed successfully, false otherwise
+     */
+    private boolean processDocumentSafely(
+            VerifyDocumentEvent event,
+            VerifyDocumentEvent.DocDetailEvent docDetail,
+            String applicantId,
+            DocumentVerificationCompletedEvent completedEvent) {
+        try {
+            // Process the document for this storage ID and applicant ID with validation
+            processDocumentWithValidation(event, docDetail, applicantId, completedEvent);
+            return true;
+        } catch (Exception e) {
+            handleDocumentError(event, docDetail, applicantId, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Logs and audits the failure of a single document.
+     *
+     * @param event The original verify-document event
+     * @param docDetail The document details
+     * @param applicantId The applicant ID associated with the document
+     * @param e The failure
+     */
+    private void handleDocumentError(
+            VerifyDocumentEvent event,
+            VerifyDocumentEvent.DocDetailEvent docDetail,
+            String applicantId,
+            Exception e) {
+        log.error("Error processing document for storage ID: {}, applicant ID: {}", docDetail.getStorageId(), applicantId, e);
+        
+        // Create audit log for error
+        createAuditLog("DOCUMENT_PROCESSING_ERROR",
+                "Error processing document for storage ID: " + docDetail.getStorageId() + ", applicant ID: " + applicantId + ": " + e.getMessage(),
+                event.getApplicationId(),
+                event.getEventId());
+    }
+    
     /**
      * Processes a document for a specific storage ID and applicant ID with document validation.
      *
@@ -159,6 +487,36 @@ public class DocumentVerificationService {
         log.info("Processing document with validation for storage ID: {}, applicant ID: {}, document type: {}",
                 docDetail.getStorageId(), applicantId, docDetail.getDocumentType());
         
+        Document savedDocument = prepareDocument(event, docDetail, applicantId);
+        
+        // Process document for OCR
+        log.info("Processing document with ID: {}", savedDocument.getId());
+        processOcrAsync(savedDocument.getId(), docDetail.getStorageId()).join();
+        
+        // Now explicitly validate the document
+        log.info("Validating document with ID: {}", savedDocument.getId());
+        ValidationResult validationResult = validationService.validateDocument(savedDocument.getId());
+        
+        // Get OCR result
+        OcrResultDto ocrResult = documentService.getOcrResult(savedDocument.getId());
+        ValidationResultDto validationResultDto = documentService.convertToDto(validationResult);
+        
+        completeDocument(event, docDetail, applicantId, savedDocument, ocrResult, validationResultDto, completedEvent);
+    }
+    
+    /**
+     * Finds (or creates) the document referenced by a document detail and marks it as pending for processing.
+     *
+     * @param event The original verify-document event
+     * @param docDetail The document details containing storageId, documentType, and documentId
+     * @param applicantId The applicant ID associated with the document
+     * @return The saved document
+     */
+    private Document prepareDocument(
+            VerifyDocumentEvent event,
+            VerifyDocumentEvent.DocDetailEvent docDetail,
+            String applicantId) {
+        
         // Find document using the composite key: applicantId and documentType
         DocumentType expectedDocumentType = documentTypeRepository.findByName(docDetail.getDocumentType())
                 .orElseThrow(() -> new IllegalStateException("Document type not found in database: " + docDetail.getDocumentType()));
@@ -204,24 +562,55 @@ public class DocumentVerificationService {
                 event.getApplicationId(),
                 event.getEventId());
         
-        // Process document for OCR
-        log.info("Processing document with ID: {}", savedDocument.getId());
-        documentService.processDocumentAsync(savedDocument.getId(), docDetail.getStorageId()).join();
-        
-        // Now explicitly validate the document
-        log.info("Validating document with ID: {}", savedDocument.getId());
-        ValidationResult validationResult = validationService.validateDocument(savedDocument.getId());
+        return savedDocument;
+    }
+    
+    /**
+     * Checks the extracted document number of an OCR-processed and validated document and
+     * adds the document result to the completed event.
+     *
+     * @param event The original verify-document event
+     * @param docDetail The document details containing the expected document ID
+     * @param applicantId The applicant ID associated with the document
+     * @param savedDocument The processed document
+     * @param ocrResult The OCR result of the document
+     * @param validationResultDto The validation result of the document
+     * @param completedEvent The completed event to populate with results
+     */
+    private void completeDocument(
+            VerifyDocumentEvent event,
+            VerifyDocumentEvent.DocDetailEvent docDetail,
+            String applicantId,
+            Document savedDocument,
+            OcrResultDto ocrResult,
+            ValidationResultDto validationResultDto,
+            DocumentVerificationCompletedEvent completedEvent) {
         
-        // Get OCR result
-        OcrResultDto ocrResult = documentService.getOcrResult(savedDocument.getId());
-        ValidationResultDto validationResultDto = documentService.convertToDto(validationResult);
+        // A document recognized as another type has no fields to check
+        String detectedType = detectMismatchedType(ocrResult);
+        if (detectedType != null) {
+            String errorMessage = "Document type mismatch: Expected " + docDetail.getDocumentType() +
+                    ", but the document is a " + detectedType;
+            publishDocumentValidationErrorEvent(event, docDetail, applicantId, ocrResult, errorMessage);
+            
+            createAuditLog("DOCUMENT_TYPE_MISMATCH",
+                    "Document type mismatch for storage ID: " + docDetail.getStorageId() +
+                    ", expected: " + docDetail.getDocumentType() +
+                    ", detected: " + detectedType,
+                    event.getApplicationId(),
+                    event.getEventId());
+            
+            throw new RuntimeException(errorMessage);
+        }
         
         // Perform document validation
         boolean validationPassed = validateDocumentNumber(ocrResult, docDetail);
         
         if (!validationPassed) {
             // Publish error event for document validation failure
-            publishDocumentValidationErrorEvent(event, docDetail, applicantId, ocrResult);
+            publishDocumentValidationErrorEvent(event, docDetail, applicantId, ocrResult,
+                    "Document validation failed: Expected " + docDetail.getDocumentId() +
+                    ", but extracted " + extractDocumentNumber(ocrResult, docDetail.getDocumentType()));
             
             // Create audit log for validation failure
             createAuditLog("DOCUMENT_VALIDATION_FAILED",
@@ -251,7 +640,7 @@ public class DocumentVerificationService {
                             .isAuthentic(validationResultDto.getAuthentic())
                             .isComplete(validationResultDto.getComplete())
                             .confidenceScore(validationResultDto.getOverallConfidenceScore())
-                            .rawText(ocrResult.getRawText())
+                            .rawText(documentService.getRawText(savedDocument.getId()).orElse(null))
                             .extractedData(ocrResult.getStructuredData())
                             .verificationDetails(validationResultDto.getValidationDetails())
                             .build();
@@ -358,12 +747,28 @@ public class DocumentVerificationService {
         }
         
         // Normalize both strings for comparison (remove spaces, convert to uppercase)
-        String normalizedExpected = expectedDocumentId.replaceAll("\\s+", "").toUpperCase();
-        String normalizedExtracted = extractedDocumentId.replaceAll("\\s+", "").toUpperCase();
+        String normalizedExpected = FieldNormalizers.normalizeDocumentNumber(expectedDocumentId);
+        String normalizedExtracted = FieldNormalizers.normalizeDocumentNumber(extractedDocumentId);
         
         return normalizedExpected.equals(normalizedExtracted);
     }
     
+    /**
+     * Checks whether the OCR text of a document was recognized as another document type than the declared one.
+     *
+     * @param ocrResult The OCR result containing extracted data
+     * @return The detected document type on a mismatch, otherwise null
+     */
+    private String detectMismatchedType(OcrResultDto ocrResult) {
+        Map<String, Object> structuredData = ocrResult.getStructuredData();
+        if (structuredData == null
+                || !(structuredData.get(DocumentClassifier.CLASSIFICATION_FIELD) instanceof Map<?, ?> classification)
+                || !Boolean.TRUE.equals(classification.get("type_mismatch"))) {
+            return null;
+        }
+        return String.valueOf(classification.get("detected_type"));
+    }
+    
     /**
      * Extracts the document number from OCR result based on document type.
      *
@@ -453,12 +858,14 @@ public class DocumentVerificationService {
      * @param docDetail The document details
      * @param applicantId The applicant ID
      * @param ocrResult The OCR result
+     * @param errorMessage The reason the document failed validation
      */
     private void publishDocumentValidationErrorEvent(
             VerifyDocumentEvent originalEvent,
             VerifyDocumentEvent.DocDetailEvent docDetail,
             String applicantId,
-            OcrResultDto ocrResult) {
+            OcrResultDto ocrResult,
+            String errorMessage) {
         
         try {
             DocumentVerificationErrorEvent errorEvent = DocumentVerificationErrorEvent.builder()
@@ -469,8 +876,7 @@ public class DocumentVerificationService {
                     .documentType(docDetail.getDocumentType())
                     .expectedDocumentId(docDetail.getDocumentId())
                     .extractedDocumentId(extractDocumentNumber(ocrResult, docDetail.getDocumentType()))
-                    .errorMessage("Document validation failed: Expected " + docDetail.getDocumentId() + 
-                            ", but extracted " + extractDocumentNumber(ocrResult, docDetail.getDocumentType()))
+                    .errorMessage(errorMessage)
                     .build();
             
             // Publish to error topic
@@ -484,4 +890,20 @@ public class DocumentVerificationService {
             log.error("Error publishing document validation error event", e);
         }
     }
+    
+    /**
+     * A document of a verify-document event within a batch.
+     */
+    private record BatchItem(
+            VerifyDocumentEvent event,
+            String applicantId,
+            VerifyDocumentEvent.DocDetailEvent docDetail,
+            Document document) {
+    }
+    
+    /**
+     * The OCR and validation results of a document processed within a batch.
+     */
+    private record ProcessedDocument(OcrResultDto ocrResult, ValidationResultDto validationResult) {
+    }
 }
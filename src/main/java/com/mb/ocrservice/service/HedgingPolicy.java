@@ -0,0 +1,96 @@
+package com.mb.ocrservice.service;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+
+/**
+ * Decides when a slow call gets a duplicate (hedged) call.
+ * A call is hedged once it has been outstanding longer than the configured percentile of the latencies of the last
+ * {@code windowSize} successful calls. Hedges are paid for from a budget that earns {@code maxHedgeRate} for every
+ * primary call, so at most that fraction of calls is ever duplicated, with a small burst allowance.
+ */
+public class HedgingPolicy {
+
+    private static final double MAX_BURST = 10;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final int minSamples;
+    private final double maxHedgeRate;
+
+    // Ring buffer of recent latencies
+    private final long[] latencies;
+    private int recorded;
+    private int next;
+    private double budget;
+
+    /**
+     * @param enabled Whether calls are hedged at all
+     * @param percentile The latency percentile, between 0 and 1, after which a call is hedged
+     * @param windowSize The number of most recent latencies the percentile is computed over
+     * @param minSamples The number of latencies to record before any call is hedged
+     * @param maxHedgeRate The largest fraction of calls, between 0 and 1, that may be hedged
+     */
+    public HedgingPolicy(boolean enabled, double percentile, int windowSize, int minSamples, double maxHedgeRate) {
+        if (percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException("Hedging percentile must be between 0 and 1: " + percentile);
+        }
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Hedging window must be positive: " + windowSize);
+        }
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minSamples = Math.max(1, Math.min(minSamples, windowSize));
+        this.maxHedgeRate = maxHedgeRate;
+        this.latencies = new long[windowSize];
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records the latency of a successful call.
+     *
+     * @param latencyNanos The latency of the call
+     */
+    public synchronized void recordLatency(long latencyNanos) {
+        latencies[next] = latencyNanos;
+        next = (next + 1) % latencies.length;
+        if (recorded < latencies.length) {
+            recorded++;
+        }
+    }
+
+    /**
+     * Registers a primary call and returns how long to wait before hedging it.
+     *
+     * @return The hedging delay, or empty if hedging is disabled or too few latencies have been recorded
+     */
+    public synchronized OptionalLong onPrimaryCall() {
+        if (!enabled) {
+            return OptionalLong.empty();
+        }
+        budget = Math.min(MAX_BURST, budget + maxHedgeRate);
+        if (recorded < minSamples) {
+            return OptionalLong.empty();
+        }
+        long[] sorted = Arrays.copyOf(latencies, recorded);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * recorded) - 1;
+        return OptionalLong.of(sorted[Math.max(0, index)]);
+    }
+
+    /**
+     * Takes one hedge from the budget.
+     *
+     * @return Whether the hedge rate allows another hedge
+     */
+    public synchronized boolean tryAcquireHedge() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+}
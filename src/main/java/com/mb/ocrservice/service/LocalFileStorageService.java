@@ -13,6 +13,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -73,7 +74,7 @@ public class LocalFileStorageService implements StorageService {
     }
 
     /**
-     * Deletes a document file from storage.
+     * Deletes a document file, and its OCR sidecar if there is one, from storage.
      *
      * @param filePath The path of the file to delete
      * @throws IOException If an error occurs during file deletion
@@ -87,6 +88,7 @@ public class LocalFileStorageService implements StorageService {
         } else {
             log.warn("Document not found for deletion: {}", filePath);
         }
+        Files.deleteIfExists(Paths.get(filePath + OCR_SIDECAR_SUFFIX));
     }
 
     /**
@@ -120,6 +122,17 @@ public class LocalFileStorageService implements StorageService {
         return new byte[0];
     }
 
+    @Override
+    public void storeOcrSidecar(String filePath, byte[] content) throws IOException {
+        Files.write(Paths.get(filePath + OCR_SIDECAR_SUFFIX), content);
+    }
+
+    @Override
+    public Optional<byte[]> getOcrSidecar(String filePath) throws IOException {
+        Path path = Paths.get(filePath + OCR_SIDECAR_SUFFIX);
+        return Files.exists(path) ? Optional.of(Files.readAllBytes(path)) : Optional.empty();
+    }
+
     /**
      * Extracts the file extension from a filename.
      *
@@ -0,0 +1,224 @@
+package com.mb.ocrservice.service;
+
+import com.mb.ocrservice.model.OcrCacheEntry;
+import com.mb.ocrservice.repository.OcrCacheEntryRepository;
+import com.mb.ocrservice.service.extraction.ExtractionGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed cache of OCR results, keyed by the SHA-256 of the document content and the document type.
+ * Re-uploads of the same file and re-verifications of the same image reuse the stored raw text, structured data
+ * and confidence score instead of calling Google Vision again.
+ * <p>
+ * Lookups go to an in-process L1 (least recently used entries are evicted once {@code l1.max-entries} is reached)
+ * and then to the {@code ocr_cache_entries} table (L2); L2 hits are promoted to L1. The raw text is stored
+ * compressed (see {@link RawTextCodec}) and of L2 hits is only read when it is asked for, i.e. when a new OCR result
+ * is persisted. Hits per tier and misses are published as {@code ocr.cache.hits} and {@code ocr.cache.misses}.
+ */
+@Component
+@Slf4j
+public class OcrResultCache {
+
+    private final OcrCacheEntryRepository ocrCacheEntryRepository;
+    private final boolean enabled;
+    private final Map<CacheKey, CachedOcrResult> l1;
+    private final Counter l1Hits;
+    private final Counter l2Hits;
+    private final Counter misses;
+
+    @Autowired
+    public OcrResultCache(
+            OcrCacheEntryRepository ocrCacheEntryRepository,
+            MeterRegistry meterRegistry,
+            @Value("${ocr.cache.enabled:true}") boolean enabled,
+            @Value("${ocr.cache.l1.max-entries:1000}") int l1MaxEntries) {
+        this.ocrCacheEntryRepository = ocrCacheEntryRepository;
+        this.enabled = enabled;
+        this.l1 = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedOcrResult> eldest) {
+                return size() > l1MaxEntries;
+            }
+        });
+        this.l1Hits = Counter.builder("ocr.cache.hits")
+                .description("OCR results served from the cache instead of Google Vision")
+                .tag("tier", "l1")
+                .register(meterRegistry);
+        this.l2Hits = Counter.builder("ocr.cache.hits")
+                .description("OCR results served from the cache instead of Google Vision")
+                .tag("tier", "l2")
+                .register(meterRegistry);
+        this.misses = Counter.builder("ocr.cache.misses")
+                .description("OCR lookups that had to call Google Vision")
+                .register(meterRegistry);
+        meterRegistry.gauge("ocr.cache.l1.size", l1, Map::size);
+    }
+
+    /**
+     * Builds the cache key for a document's content.
+     *
+     * @param content The document content
+     * @param documentType The name of the document type
+     * @return The cache key
+     */
+    public CacheKey keyFor(byte[] content, String documentType) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return new CacheKey(HexFormat.of().formatHex(digest), documentType);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Looks up a cached OCR result, first in memory and then in the database.
+     *
+     * @param key The cache key
+     * @return The cached OCR result, or empty on a miss or when the cache is disabled
+     */
+    public Optional<CachedOcrResult> get(CacheKey key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        CachedOcrResult cached = l1.get(key);
+        if (cached != null) {
+            l1Hits.increment();
+            log.debug("OCR cache L1 hit for {} content hash {}", key.documentType(), key.contentHash());
+            return Optional.of(cached);
+        }
+
+        try {
+            Optional<OcrCacheEntryRepository.Summary> entry = ocrCacheEntryRepository
+                    .findSummaryByContentHashAndDocumentType(key.contentHash(), key.documentType());
+            if (entry.isPresent()) {
+                Integer entryId = entry.get().getId();
+                cached = new CachedOcrResult(
+                        () -> loadRawText(entryId),
+                        entry.get().getStructuredData(),
+                        entry.get().getConfidenceScore());
+                l1.put(key, cached);
+                l2Hits.increment();
+                log.debug("OCR cache L2 hit for {} content hash {}", key.documentType(), key.contentHash());
+                return Optional.of(cached);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to read OCR cache entry for content hash {}: {}", key.contentHash(), e.getMessage());
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Stores an OCR result in memory and in the database.
+     * Results with fields that ran out of their extraction budget are not stored, so that one slow run does not
+     * degrade every later upload of the same content. Failing to store the result in the database does not fail the
+     * OCR processing.
+     *
+     * @param key The cache key
+     * @param result The OCR result to cache
+     */
+    public void put(CacheKey key, CachedOcrResult result) {
+        if (!enabled) {
+            return;
+        }
+        if (!ExtractionGuard.isComplete(result.structuredData())) {
+            log.debug("Not caching the OCR result for content hash {}: extraction ran over budget", key.contentHash());
+            return;
+        }
+
+        l1.put(key, result);
+        try {
+            if (!ocrCacheEntryRepository.existsByContentHashAndDocumentType(key.contentHash(), key.documentType())) {
+                OcrCacheEntry entry = new OcrCacheEntry();
+                entry.setContentHash(key.contentHash());
+                entry.setDocumentType(key.documentType());
+                String text = result.rawText();
+                if (text != null) {
+                    RawTextCodec.Encoded rawText = RawTextCodec.encode(text);
+                    entry.setRawTextEncoding(rawText.encoding());
+                    entry.setRawTextContent(rawText.content());
+                }
+                entry.setStructuredData(result.structuredData());
+                entry.setConfidenceScore(result.confidenceScore());
+                ocrCacheEntryRepository.save(entry);
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Another instance stored the same content concurrently
+            log.debug("OCR cache entry for content hash {} already exists", key.contentHash());
+        } catch (DataAccessException e) {
+            log.warn("Failed to store OCR cache entry for content hash {}: {}", key.contentHash(), e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the raw text of a cache entry.
+     *
+     * @param entryId The ID of the cache entry
+     * @return The raw text, or null if the entry has none or no longer exists
+     */
+    private String loadRawText(Integer entryId) {
+        return ocrCacheEntryRepository.findRawTextById(entryId)
+                .map(rawText -> RawTextCodec.decode(rawText.getRawTextEncoding(), rawText.getRawTextContent()))
+                .orElse(null);
+    }
+
+    /**
+     * Drops the results held in memory, so the next lookups read the database, e.g. after the stored structured data
+     * was re-extracted.
+     */
+    public void clearMemory() {
+        l1.clear();
+    }
+
+    /**
+     * Identifies identical document content of the same document type.
+     */
+    public record CacheKey(String contentHash, String documentType) {
+    }
+
+    /**
+     * The parts of an OCR result that only depend on the document content and type. The raw text is supplied on
+     * demand, so that results read from the database do not load it unless it is needed.
+     */
+    public record CachedOcrResult(Supplier<String> rawTextSupplier, Map<String, Object> structuredData,
+                                  BigDecimal confidenceScore) {
+
+        public CachedOcrResult(String rawText, Map<String, Object> structuredData, BigDecimal confidenceScore) {
+            this(() -> rawText, structuredData, confidenceScore);
+        }
+
+        /**
+         * @return The raw text, read from the database on each call for results that were loaded from it
+         */
+        public String rawText() {
+            return rawTextSupplier.get();
+        }
+
+        /**
+         * @return A copy of the structured data, so callers can attach it to an entity without sharing the cached map
+         */
+        public Map<String, Object> copyOfStructuredData() {
+            return structuredData == null ? null : new HashMap<>(structuredData);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.mb.ocrservice.service;
+
+import com.mb.ocrservice.model.Document;
+import com.mb.ocrservice.model.OcrRawText;
+import com.mb.ocrservice.model.OcrResult;
+import com.mb.ocrservice.repository.DocumentRepository;
+import com.mb.ocrservice.repository.OcrRawTextRepository;
+import com.mb.ocrservice.repository.OcrResultRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Database phases of OCR processing.
+ * Each phase is a short transaction of its own, so no connection is held while the document is read from storage
+ * or while Google Vision is called; the pool size then bounds concurrent database work rather than OCR latency.
+ */
+@Service
+@Slf4j
+public class OcrResultPersistenceService {
+
+    private final DocumentRepository documentRepository;
+    private final OcrResultRepository ocrResultRepository;
+    private final OcrRawTextRepository ocrRawTextRepository;
+
+    @Autowired
+    public OcrResultPersistenceService(DocumentRepository documentRepository, OcrResultRepository ocrResultRepository,
+                                       OcrRawTextRepository ocrRawTextRepository) {
+        this.documentRepository = documentRepository;
+        this.ocrResultRepository = ocrResultRepository;
+        this.ocrRawTextRepository = ocrRawTextRepository;
+    }
+
+    /**
+     * Marks a document as processing.
+     *
+     * @param documentId The ID of the document to process
+     * @return The document, detached once the transaction commits
+     */
+    @Transactional
+    public Document markProcessing(Integer documentId) {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new IllegalArgumentException("Document not found with ID: " + documentId));
+
+        // Update document status
+        document.setStatus(Document.Status.PROCESSING.name());
+        return documentRepository.save(document);
+    }
+
+    /**
+     * Stores the OCR result of a document and marks the document as completed.
+     * The raw text is stored compressed in its own row, so that loading the result does not read it.
+     *
+     * @param documentId The ID of the processed document
+     * @param extracted The raw text, structured data and confidence score of the document
+     * @param processingTime The time the OCR took, in milliseconds
+     * @param contentHash The SHA-256 of the content the result was produced from
+     * @return The OCR result
+     */
+    @Transactional
+    public OcrResult saveResult(Integer documentId, OcrResultCache.CachedOcrResult extracted, long processingTime,
+                                String contentHash) {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new IllegalArgumentException("Document not found with ID: " + documentId));
+
+        // Check if OCR result already exists for this document
+        Optional<OcrResult> existingOcrResult = ocrResultRepository.findByDocumentId(documentId);
+        OcrResult ocrResult;
+
+        if (existingOcrResult.isPresent()) {
+            // Use existing OCR result
+            log.info("Found existing OCR result for document ID: {}, updating it", documentId);
+            ocrResult = existingOcrResult.get();
+        } else {
+            // Create new OCR result
+            log.info("Creating new OCR result for document ID: {}", documentId);
+            ocrResult = new OcrResult();
+            ocrResult.setDocument(document);
+        }
+
+        // Update OCR result with new data
+        ocrResult.setStructuredData(extracted.copyOfStructuredData());
+        ocrResult.setConfidenceScore(extracted.confidenceScore());
+        ocrResult.setProcessingTime((int) processingTime);
+        ocrResult.setSourceFilePath(document.getFilePath());
+        ocrResult.setContentHash(contentHash);
+
+        OcrResult savedResult = ocrResultRepository.save(ocrResult);
+        saveRawText(savedResult, extracted.rawText());
+
+        // Update document status
+        document.setStatus(Document.Status.COMPLETED.name());
+        documentRepository.save(document);
+
+        return savedResult;
+    }
+
+    private void saveRawText(OcrResult ocrResult, String rawText) {
+        Optional<OcrRawText> existingRawText = ocrRawTextRepository.findByOcrResultId(ocrResult.getId());
+        if (rawText == null) {
+            existingRawText.ifPresent(ocrRawTextRepository::delete);
+            return;
+        }
+
+        OcrRawText ocrRawText = existingRawText.orElseGet(() -> {
+            OcrRawText created = new OcrRawText();
+            created.setOcrResult(ocrResult);
+            return created;
+        });
+        RawTextCodec.Encoded encoded = RawTextCodec.encode(rawText);
+        ocrRawText.setEncoding(encoded.encoding());
+        ocrRawText.setContent(encoded.content());
+        ocrRawTextRepository.save(ocrRawText);
+    }
+
+    /**
+     * Loads the raw OCR text of a document.
+     *
+     * @param documentId The ID of the document
+     * @return The raw text, if the document has an OCR result with text
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> findRawText(Integer documentId) {
+        return ocrRawTextRepository.findByOcrResultDocumentId(documentId)
+                .map(ocrRawText -> RawTextCodec.decode(ocrRawText.getEncoding(), ocrRawText.getContent()));
+    }
+
+    /**
+     * Reuses the OCR result of a document if it was produced from the file the document points at now, with the
+     * same content, and marks the document as completed.
+     *
+     * @param documentId The ID of the document
+     * @param contentHash The SHA-256 of the current content of the document
+     * @return The OCR result, if it is still fresh
+     */
+    @Transactional
+    public Optional<OcrResult> reuseFreshResult(Integer documentId, String contentHash) {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new IllegalArgumentException("Document not found with ID: " + documentId));
+        Optional<OcrResult> fresh = ocrResultRepository.findByDocumentId(documentId)
+                .filter(ocrResult -> contentHash.equals(ocrResult.getContentHash())
+                        && document.getFilePath().equals(ocrResult.getSourceFilePath()));
+        if (fresh.isPresent()) {
+            document.setStatus(Document.Status.COMPLETED.name());
+            documentRepository.save(document);
+        }
+        return fresh;
+    }
+
+    /**
+     * Loads a document.
+     *
+     * @param documentId The ID of the document
+     * @return The document, detached once the transaction commits
+     */
+    @Transactional(readOnly = true)
+    public Document findDocument(Integer documentId) {
+        return documentRepository.findById(documentId)
+                .orElseThrow(() -> new IllegalArgumentException("Document not found with ID: " + documentId));
+    }
+
+    /**
+     * Replaces the structured data of an existing OCR result.
+     *
+     * @param documentId The ID of the document
+     * @param structuredData The structured data extracted again
+     * @return The OCR result
+     */
+    @Transactional
+    public OcrResult saveStructuredData(Integer documentId, Map<String, Object> structuredData) {
+        OcrResult ocrResult = ocrResultRepository.findByDocumentId(documentId)
+                .orElseThrow(() -> new IllegalArgumentException("OCR result not found for document ID: " + documentId));
+        ocrResult.setStructuredData(structuredData);
+        return ocrResultRepository.save(ocrResult);
+    }
+
+    /**
+     * Marks a document as failed.
+     *
+     * @param documentId The ID of the document that failed
+     */
+    @Transactional
+    public void markFailed(Integer documentId) {
+        documentRepository.findById(documentId).ifPresent(document -> {
+            document.setStatus(Document.Status.FAILED.name());
+            documentRepository.save(document);
+        });
+    }
+}
@@ -1,578 +1,415 @@
 package com.mb.ocrservice.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.cloud.vision.v1.*;
-import com.google.protobuf.ByteString;
+import com.google.cloud.vision.v1.TextAnnotation;
 import com.mb.ocrservice.exception.OcrProcessingException;
 import com.mb.ocrservice.model.Document;
 import com.mb.ocrservice.model.DocumentType;
 import com.mb.ocrservice.model.OcrResult;
-import com.mb.ocrservice.repository.DocumentRepository;
 import com.mb.ocrservice.repository.OcrResultRepository;
+import com.mb.ocrservice.service.engine.OcrEngine;
+import com.mb.ocrservice.service.engine.RecognizedText;
+import com.mb.ocrservice.service.extraction.DocumentClassifier;
+import com.mb.ocrservice.service.extraction.ExtractionGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 @Slf4j
 public class OcrService {
 
-    private final ImageAnnotatorClient imageAnnotatorClient;
-    private final DocumentRepository documentRepository;
+    private final OcrEngine ocrEngine;
     private final OcrResultRepository ocrResultRepository;
-    private final ObjectMapper objectMapper;
+    private final OcrResultPersistenceService ocrResultPersistenceService;
     private final StorageService storageService;
+    private final OcrResultCache ocrResultCache;
+    private final DocumentClassifier documentClassifier;
+    private final PdfOcrProcessor pdfOcrProcessor;
+    private final OcrSidecarStore ocrSidecarStore;
+    private final Executor storageExecutor;
+    private final Executor visionExecutor;
+    private final SingleFlight<Integer, OcrResult> documentFlights;
+    private final SingleFlight<OcrResultCache.CacheKey, Extraction> contentFlights;
+    private final Counter reusedResults;
 
     @Autowired
     public OcrService(
-            ImageAnnotatorClient imageAnnotatorClient,
-            DocumentRepository documentRepository,
+            OcrEngine ocrEngine,
             OcrResultRepository ocrResultRepository,
-            ObjectMapper objectMapper,
-            StorageService storageService) {
-        this.imageAnnotatorClient = imageAnnotatorClient;
-        this.documentRepository = documentRepository;
+            OcrResultPersistenceService ocrResultPersistenceService,
+            StorageService storageService,
+            OcrResultCache ocrResultCache,
+            DocumentClassifier documentClassifier,
+            PdfOcrProcessor pdfOcrProcessor,
+            OcrSidecarStore ocrSidecarStore,
+            @Qualifier("ocrStorageExecutor") Executor storageExecutor,
+            @Qualifier("ocrVisionExecutor") Executor visionExecutor,
+            MeterRegistry meterRegistry) {
+        this.ocrEngine = ocrEngine;
         this.ocrResultRepository = ocrResultRepository;
-        this.objectMapper = objectMapper;
+        this.ocrResultPersistenceService = ocrResultPersistenceService;
         this.storageService = storageService;
+        this.ocrResultCache = ocrResultCache;
+        this.documentClassifier = documentClassifier;
+        this.pdfOcrProcessor = pdfOcrProcessor;
+        this.ocrSidecarStore = ocrSidecarStore;
+        this.storageExecutor = storageExecutor;
+        this.visionExecutor = visionExecutor;
+        this.documentFlights = new SingleFlight<>("document", meterRegistry);
+        this.contentFlights = new SingleFlight<>("content", meterRegistry);
+        this.reusedResults = Counter.builder("ocr.results.reused")
+                .description("OCR results reused because the document content did not change")
+                .register(meterRegistry);
     }
 
     /**
      * Process a document asynchronously using OCR.
+     * The document content is read on the storage executor, the OCR engine is called without holding a thread,
+     * and extraction and persistence continue on the Vision executor once the text arrives. Only marking the
+     * document as processing and storing the result run in (short) transactions; no database connection is held
+     * while the content is read or while Vision is called.
+     * <p>
+     * Concurrent calls for the same document (e.g. an upload and a redelivered verify-document event) attach to the
+     * run already in flight, and documents with identical content share a single OCR call. PDFs are recognized page
+     * by page by the {@link PdfOcrProcessor}. The full annotation of a fresh OCR run is kept as a sidecar next to
+     * the document, see {@link #reextract(Integer)}; a document whose result comes from the OCR cache gets a copy of
+     * the sidecar of a document with the same content.
      *
      * @param documentId The ID of the document to process
      * @param storageId
      * @return A CompletableFuture that will be completed when the OCR processing is done
      */
-    @Async
     public CompletableFuture<OcrResult> processDocumentAsync(Integer documentId, String storageId) {
-        return CompletableFuture.supplyAsync(() -> processDocument(documentId, storageId));
+        return process(documentId, storageId, false);
     }
 
     /**
-     * Process a document using OCR.
+     * Process a document asynchronously using OCR, unless its stored OCR result was produced from the file the
+     * document points at now and that file still has the same content (e.g. because the document was processed
+     * speculatively right after its upload). The content is read and hashed either way; only the OCR engine,
+     * extraction and the result update are skipped.
      *
      * @param documentId The ID of the document to process
-     * @param storageId
-     * @return The OCR result
+     * @param storageId The storage ID of the document
+     * @return A CompletableFuture that will be completed with the fresh or reused OCR result
      */
-    @Transactional
-    public OcrResult processDocument(Integer documentId, String storageId) {
-        Document document = documentRepository.findById(documentId)
-                .orElseThrow(() -> new IllegalArgumentException("Document not found with ID: " + documentId));
-
-        try {
-            // Update document status
-            document.setStatus(Document.Status.PROCESSING.name());
-            document = documentRepository.save(document);
-
-            // Check if OCR result already exists for this document
-            Optional<OcrResult> existingOcrResult = ocrResultRepository.findByDocumentId(documentId);
-            OcrResult ocrResult;
-            
-            if (existingOcrResult.isPresent()) {
-                // Use existing OCR result
-                log.info("Found existing OCR result for document ID: {}, updating it", documentId);
-                ocrResult = existingOcrResult.get();
-            } else {
-                // Create new OCR result
-                log.info("Creating new OCR result for document ID: {}", documentId);
-                ocrResult = new OcrResult();
-                ocrResult.setDocument(document);
-            }
-
-            // Start processing time measurement
-            long startTime = System.currentTimeMillis();
-
-            // Read document file using StorageService
-            byte[] fileData = storageService.getDocumentByTypeAndStorage(document.getDocumentType().getName(), storageId, document.getFilePath());
-
-            String extractedText;
-            float confidenceScore;
-            
-            // Check if we have a real Google Vision client or if we need to use mock processing
-            if (imageAnnotatorClient != null) {
-                // Use real Google Vision API
-                // Prepare request to Google Vision API
-                ByteString imgBytes = ByteString.copyFrom(fileData);
-                com.google.cloud.vision.v1.Image image = com.google.cloud.vision.v1.Image.newBuilder()
-                        .setContent(imgBytes)
-                        .build();
-
-                // Create feature list for the request
-                Feature textDetectionFeature = Feature.newBuilder()
-                        .setType(Feature.Type.DOCUMENT_TEXT_DETECTION)
-                        .build();
-
-                // Create the request
-                AnnotateImageRequest request = AnnotateImageRequest.newBuilder()
-                        .addFeatures(textDetectionFeature)
-                        .setImage(image)
-                        .build();
-
-                // Send request to Google Vision API
-                BatchAnnotateImagesResponse response = imageAnnotatorClient.batchAnnotateImages(
-                        List.of(request));
-
-                // Process response
-                AnnotateImageResponse imageResponse = response.getResponses(0);
-
-                if (imageResponse.hasError()) {
-                    log.error("Error performing OCR: {}", imageResponse.getError().getMessage());
-                    document.setStatus(Document.Status.FAILED.name());
-                    documentRepository.save(document);
-                    throw new OcrProcessingException("Error performing OCR: " + imageResponse.getError().getMessage());
-                }
-
-                // Extract text annotations
-                TextAnnotation fullTextAnnotation = imageResponse.getFullTextAnnotation();
-                extractedText = fullTextAnnotation.getText();
-                
-                // Calculate confidence score
-                confidenceScore = calculateConfidenceScore(fullTextAnnotation);
-            } else {
-                // Use mock processing for development
-                log.info("Using mock OCR processing for document ID: {}", documentId);
-                extractedText = generateMockExtractedText(document.getDocumentType());
-                confidenceScore = 0.85f; // Mock confidence score
-            }
-
-            // Calculate processing time
-            long processingTime = System.currentTimeMillis() - startTime;
-
-            // Extract structured data based on document type
-            Map<String, Object> structuredData = extractStructuredData(
-                    extractedText,
-                    document.getDocumentType());
-
-            // Update OCR result with new data
-            ocrResult.setRawText(extractedText);
-            ocrResult.setStructuredData(structuredData);
-            ocrResult.setConfidenceScore(BigDecimal.valueOf(confidenceScore));
-            ocrResult.setProcessingTime((int) processingTime);
-
-            OcrResult savedResult = ocrResultRepository.save(ocrResult);
-
-            // Update document status
-            document.setStatus(Document.Status.COMPLETED.name());
-            documentRepository.save(document);
-
-            return savedResult;
+    public CompletableFuture<OcrResult> processOrReuseAsync(Integer documentId, String storageId) {
+        return process(documentId, storageId, true);
+    }
 
-        } catch (IOException e) {
-            log.error("Failed to process document with ID: {}", documentId, e);
-            document.setStatus(Document.Status.FAILED.name());
-            documentRepository.save(document);
-            throw new OcrProcessingException("Failed to process document: " + e.getMessage(), e);
-        }
+    private CompletableFuture<OcrResult> process(Integer documentId, String storageId, boolean reuseFresh) {
+        return documentFlights.execute(documentId, () -> CompletableFuture
+                .supplyAsync(() -> loadDocumentContent(documentId, storageId), storageExecutor)
+                .thenCompose(content -> {
+                    if (reuseFresh) {
+                        Optional<OcrResult> fresh = ocrResultPersistenceService.reuseFreshResult(
+                                documentId, content.cacheKey().contentHash());
+                        if (fresh.isPresent()) {
+                            log.debug("Reusing the OCR result of unchanged document ID: {}", documentId);
+                            reusedResults.increment();
+                            return CompletableFuture.completedFuture(fresh.get());
+                        }
+                    }
+                    return extractText(content)
+                            .thenApplyAsync(extraction -> {
+                                OcrResult result = ocrResultPersistenceService.saveResult(documentId,
+                                        extraction.result(), extraction.processingTime(),
+                                        content.cacheKey().contentHash());
+                                if (extraction.cached()) {
+                                    copySidecar(content.document(), content.cacheKey().contentHash());
+                                } else {
+                                    storeSidecar(content.document(), extraction.annotation());
+                                }
+                                return result;
+                            }, visionExecutor)
+                            .exceptionallyCompose(ex -> markFailedAsync(documentId, ex));
+                }));
     }
 
     /**
-     * Extract structured data from the OCR text based on document type.
+     * Marks a document whose OCR failed as failed on the Vision executor. The failure usually arrives on an OCR
+     * engine callback thread, so the status update only runs there if the Vision executor rejects it (which is also
+     * how a saturated Vision executor fails a document).
      *
-     * @param extractedText The text extracted from the document
-     * @param documentType The type of the document
-     * @return A map of structured data
+     * @param documentId The ID of the document
+     * @param ex The failure
+     * @return A future failed with the failure as an {@link OcrProcessingException}
      */
-    private Map<String, Object> extractStructuredData(String extractedText, DocumentType documentType) {
-        String docType = documentType.getName();
-        
-        switch (docType) {
-            case "AADHAAR":
-                return extractAadhaarData(extractedText);
-            case "PAN":
-                return extractPanData(extractedText);
-            case "DRIVING_LICENSE":
-                return extractDrivingLicenseData(extractedText);
-            case "BANK_STATEMENT":
-                return extractBankStatementData(extractedText);
-            default:
-                log.warn("Unknown document type: {}", docType);
-                return new HashMap<>();
+    private CompletableFuture<OcrResult> markFailedAsync(Integer documentId, Throwable ex) {
+        OcrProcessingException failure = toOcrProcessingException(ex);
+        log.error("Error performing OCR for document ID {}: {}", documentId, failure.getMessage());
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                ocrResultPersistenceService.markFailed(documentId);
+                throw failure;
+            }, visionExecutor);
+        } catch (RejectedExecutionException e) {
+            ocrResultPersistenceService.markFailed(documentId);
+            return CompletableFuture.failedFuture(failure);
         }
     }
 
     /**
-     * Extract structured data from Aadhaar card.
+     * Stores the annotation of a document as its sidecar in the background. A failure is only logged; the document
+     * can still be re-extracted once it has been processed again.
      *
-     * @param text The text extracted from the document
-     * @return A map of structured data
+     * @param document The processed document
+     * @param annotation The annotation recognized in the document, or null if the engine produced none
      */
-    private Map<String, Object> extractAadhaarData(String text) {
-        Map<String, Object> data = new HashMap<>();
-        
-        // Extract Aadhaar number (12 digits, may be space-separated)
-        Pattern aadhaarPattern = Pattern.compile("\\d{4}\\s?\\d{4}\\s?\\d{4}");
-        Matcher aadhaarMatcher = aadhaarPattern.matcher(text);
-        if (aadhaarMatcher.find()) {
-            String aadhaarNumber = aadhaarMatcher.group().replaceAll("\\s", "");
-            addFieldWithConfidence(data, "aadhaar_number", aadhaarNumber, 0.9f);
+    private void storeSidecar(Document document, TextAnnotation annotation) {
+        if (annotation == null) {
+            return;
         }
-        
-        // Extract name (typically after "Name:" or similar)
-        Pattern namePattern = Pattern.compile("(?i)(?:name|नाम)[:\\s]+([\\p{L}\\s]+)");
-        Matcher nameMatcher = namePattern.matcher(text);
-        if (nameMatcher.find()) {
-            String name = cleanText(nameMatcher.group(1).trim());
-            if (!name.isEmpty()) {
-                addFieldWithConfidence(data, "name", name, 0.85f);
+        CompletableFuture.runAsync(() -> {
+            try {
+                ocrSidecarStore.store(document.getFilePath(), annotation);
+            } catch (IOException e) {
+                log.warn("Failed to store OCR sidecar for document ID {}: {}", document.getId(), e.getMessage());
             }
-        }
-        
-        // Extract date of birth
-        Pattern dobPattern = Pattern.compile("(?i)(?:DOB|Date of Birth|जन्म तिथि)[:\\s]+(\\d{2}/\\d{2}/\\d{4})");
-        Matcher dobMatcher = dobPattern.matcher(text);
-        if (dobMatcher.find()) {
-            String dob = dobMatcher.group(1).trim();
-            addFieldWithConfidence(data, "date_of_birth", dob, 0.85f);
-        }
-        
-        // Extract gender
-        Pattern genderPattern = Pattern.compile("(?i)(Male|Female)");
-        Matcher genderMatcher = genderPattern.matcher(text);
-        if (genderMatcher.find()) {
-            String gender = genderMatcher.group(1).trim();
-            addFieldWithConfidence(data, "gender", gender, 0.9f);
-        }
-        
-        // Extract address (more complex, may span multiple lines)
-        Pattern addressPattern = Pattern.compile("(?i)(?:Address|पता)[:\\s]+([\\s\\S]+?)(?:\\n\\n|\\d{6}|$)");
-        Matcher addressMatcher = addressPattern.matcher(text);
-        if (addressMatcher.find()) {
-            String address = cleanText(addressMatcher.group(1).trim().replaceAll("\\n", ", "));
-            if (!address.isEmpty()) {
-                addFieldWithConfidence(data, "address", address, 0.75f);
-            }
-        }
-        
-        return data;
+        }, storageExecutor);
     }
 
     /**
-     * Extract structured data from PAN card.
+     * Gives a document whose OCR result came from the cache the sidecar of another document with the same content,
+     * in the background, so it can be re-extracted like a document that went through OCR. A failure is only logged.
      *
-     * @param text The text extracted from the document
-     * @return A map of structured data
+     * @param document The processed document
+     * @param contentHash The hash of the document's content
      */
-    private Map<String, Object> extractPanData(String text) {
-        Map<String, Object> data = new HashMap<>();
-        
-        // Extract PAN number (5 letters, 4 digits, 1 letter)
-        Pattern panPattern = Pattern.compile("[A-Z]{5}\\d{4}[A-Z]{1}");
-        Matcher panMatcher = panPattern.matcher(text);
-        if (panMatcher.find()) {
-            String panNumber = panMatcher.group().trim();
-            addFieldWithConfidence(data, "pan_number", panNumber, 0.9f);
-        }
-        
-        // Split text into lines for better parsing
-        String[] lines = text.split("\\n");
-        
-        for (int i = 0; i < lines.length; i++) {
-            String line = lines[i].trim();
-            
-            // Extract name
-            if (line.contains("नाम") || line.contains("Name")) {
-                if (i + 1 < lines.length) {
-                    String nextLine = lines[i + 1].trim();
-                    // Check if next line contains only English letters and spaces
-                    if (nextLine.matches("[A-Z\\s]+")) {
-                        String name = cleanText(nextLine);
-                        if (!name.isEmpty()) {
-                            addFieldWithConfidence(data, "name", name, 0.85f);
-                        }
+    private void copySidecar(Document document, String contentHash) {
+        CompletableFuture.runAsync(() -> {
+            try {
+                for (String sourcePath : ocrResultRepository.findSourceFilePathsByContentHash(
+                        contentHash, document.getFilePath())) {
+                    if (ocrSidecarStore.copy(sourcePath, document.getFilePath())) {
+                        return;
                     }
                 }
+                log.debug("No OCR sidecar to copy for document ID {}", document.getId());
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to copy OCR sidecar for document ID {}: {}", document.getId(), e.getMessage());
             }
-            
-            // Extract father's name
-            if (line.contains("पिता का नाम") || line.contains("Father's Name")) {
-                if (i + 1 < lines.length) {
-                    String nextLine = lines[i + 1].trim();
-                    // Check if next line contains only English letters and spaces
-                    if (nextLine.matches("[A-Z\\s]+")) {
-                        String fathersName = cleanText(nextLine);
-                        if (!fathersName.isEmpty()) {
-                            addFieldWithConfidence(data, "fathers_name", fathersName, 0.8f);
-                        }
-                    }
-                }
-            }
-            
-            // Extract date of birth
-            if (line.contains("जन्म की तारीख") || line.contains("Date of Birth")) {
-                if (i + 1 < lines.length) {
-                    String nextLine = lines[i + 1].trim();
-                    // Check if next line contains date format
-                    if (nextLine.matches("\\d{2}/\\d{2}/\\d{4}")) {
-                        addFieldWithConfidence(data, "date_of_birth", nextLine, 0.85f);
-                    }
-                }
-            }
-        }
-        
-        return data;
+        }, storageExecutor);
     }
 
     /**
-     * Extract structured data from driving license.
+     * Rebuilds the structured data of a processed document from its OCR sidecar, with the current extractors and
+     * word-level confidences and bounding boxes, without calling the OCR engine. The raw text, confidence score and
+     * processing time of the stored result are kept.
      *
-     * @param text The text extracted from the document
-     * @return A map of structured data
+     * @param documentId The ID of the document
+     * @return The updated OCR result
+     * @throws IOException If the sidecar cannot be read
+     * @throws IllegalArgumentException If the document or its OCR result does not exist
+     * @throws IllegalStateException If no sidecar was stored for the document, or if extraction ran over its budget,
+     *         in which case the stored structured data is kept
      */
-    private Map<String, Object> extractDrivingLicenseData(String text) {
-        Map<String, Object> data = new HashMap<>();
-        
-        // Extract license number
-        Pattern licensePattern = Pattern.compile("(?i)(?:DL No|License No)[.:\\s]+(\\w+\\s?\\w+)");
-        Matcher licenseMatcher = licensePattern.matcher(text);
-        if (licenseMatcher.find()) {
-            String licenseNumber = licenseMatcher.group(1).trim();
-            addFieldWithConfidence(data, "license_number", licenseNumber, 0.9f);
+    public OcrResult reextract(Integer documentId) throws IOException {
+        Document document = ocrResultPersistenceService.findDocument(documentId);
+        TextAnnotation annotation = ocrSidecarStore.load(document.getFilePath())
+                .orElseThrow(() -> new IllegalStateException("No OCR sidecar stored for document ID: " + documentId));
+
+        Map<String, Object> structuredData = WordEvidence.attach(
+                extractStructuredData(annotation.getText(), document.getDocumentType()), annotation);
+        if (!ExtractionGuard.isComplete(structuredData)) {
+            // Keep the stored data rather than replace it with data degraded by a slow run
+            throw new IllegalStateException("Re-extraction of document ID " + documentId + " ran over budget");
         }
-        
-        // Extract name
-        Pattern namePattern = Pattern.compile("(?i)(?:Name|नाम)[:\\s]+([\\p{L}\\s]+)");
-        Matcher nameMatcher = namePattern.matcher(text);
-        if (nameMatcher.find()) {
-            String name = cleanText(nameMatcher.group(1).trim());
-            if (!name.isEmpty()) {
-                addFieldWithConfidence(data, "name", name, 0.85f);
-            }
-        }
-        
-        // Extract date of birth
-        Pattern dobPattern = Pattern.compile("(?i)(?:DOB|Date of Birth|जन्म तिथि)[:\\s]+(\\d{2}/\\d{2}/\\d{4})");
-        Matcher dobMatcher = dobPattern.matcher(text);
-        if (dobMatcher.find()) {
-            String dob = dobMatcher.group(1).trim();
-            addFieldWithConfidence(data, "date_of_birth", dob, 0.85f);
-        }
-        
-        // Extract address
-        Pattern addressPattern = Pattern.compile("(?i)(?:Address|पता)[:\\s]+([\\s\\S]+?)(?:\\n\\n|\\d{6}|$)");
-        Matcher addressMatcher = addressPattern.matcher(text);
-        if (addressMatcher.find()) {
-            String address = cleanText(addressMatcher.group(1).trim().replaceAll("\\n", ", "));
-            if (!address.isEmpty()) {
-                addFieldWithConfidence(data, "address", address, 0.75f);
+        log.info("Re-extracted {} fields of document ID {} from its OCR sidecar", structuredData.size(), documentId);
+        return ocrResultPersistenceService.saveStructuredData(documentId, structuredData);
+    }
+
+    /**
+     * Process a document using OCR, waiting for the result.
+     *
+     * @param documentId The ID of the document to process
+     * @param storageId
+     * @return The OCR result
+     */
+    public OcrResult processDocument(Integer documentId, String storageId) {
+        try {
+            return processDocumentAsync(documentId, storageId).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw toOcrProcessingException(e);
         }
-        
-        // Extract valid from date
-        Pattern validFromPattern = Pattern.compile("(?i)(?:Valid From|Issue Date)[:\\s]+(\\d{2}/\\d{2}/\\d{4})");
-        Matcher validFromMatcher = validFromPattern.matcher(text);
-        if (validFromMatcher.find()) {
-            String validFrom = validFromMatcher.group(1).trim();
-            addFieldWithConfidence(data, "valid_from", validFrom, 0.85f);
-        }
-        
-        // Extract valid until date
-        Pattern validUntilPattern = Pattern.compile("(?i)(?:Valid Until|Valid Till|Expiry Date)[:\\s]+(\\d{2}/\\d{2}/\\d{4})");
-        Matcher validUntilMatcher = validUntilPattern.matcher(text);
-        if (validUntilMatcher.find()) {
-            String validUntil = validUntilMatcher.group(1).trim();
-            addFieldWithConfidence(data, "valid_until", validUntil, 0.85f);
-        }
-        
-        return data;
     }
 
     /**
-     * Extract structured data from bank statement.
+     * Marks a document as processing and reads its content from storage.
      *
-     * @param text The text extracted from the document
-     * @return A map of structured data
+     * @param documentId The ID of the document to process
+     * @param storageId The storage ID of the document
+     * @return The document together with its content and cache key
      */
-    private Map<String, Object> extractBankStatementData(String text) {
-        Map<String, Object> data = new HashMap<>();
-        
-        // Extract account number
-        Pattern accountPattern = Pattern.compile("(?i)(?:A/C No|Account No|Account Number)[.:\\s]+(\\d[\\d\\s]+)");
-        Matcher accountMatcher = accountPattern.matcher(text);
-        if (accountMatcher.find()) {
-            String accountNumber = accountMatcher.group(1).trim().replaceAll("\\s", "");
-            addFieldWithConfidence(data, "account_number", accountNumber, 0.9f);
-        }
-        
-        // Extract account holder name
-        Pattern namePattern = Pattern.compile("(?i)(?:Name|Customer Name|Account Name)[:\\s]+([\\p{L}\\s]+)");
-        Matcher nameMatcher = namePattern.matcher(text);
-        if (nameMatcher.find()) {
-            String name = nameMatcher.group(1).trim();
-            addFieldWithConfidence(data, "account_holder_name", name, 0.85f);
-        }
-        
-        // Extract bank name
-        Pattern bankPattern = Pattern.compile("(?i)(HDFC|SBI|ICICI|AXIS|KOTAK|PNB|BANK OF BARODA|CANARA|UNION BANK)");
-        Matcher bankMatcher = bankPattern.matcher(text);
-        if (bankMatcher.find()) {
-            String bankName = bankMatcher.group(1).trim();
-            addFieldWithConfidence(data, "bank_name", bankName, 0.9f);
-        }
-        
-        // Extract statement period
-        Pattern periodPattern = Pattern.compile("(?i)(?:Statement Period|Period)[:\\s]+([\\d/\\s\\-]+to[\\d/\\s\\-]+)");
-        Matcher periodMatcher = periodPattern.matcher(text);
-        if (periodMatcher.find()) {
-            String period = periodMatcher.group(1).trim();
-            addFieldWithConfidence(data, "statement_period", period, 0.8f);
-        }
-        
-        // Extract opening balance
-        Pattern openingPattern = Pattern.compile("(?i)(?:Opening Balance)[:\\s]+([$₹]?[\\d,.]+)");
-        Matcher openingMatcher = openingPattern.matcher(text);
-        if (openingMatcher.find()) {
-            String openingBalance = openingMatcher.group(1).trim();
-            addFieldWithConfidence(data, "opening_balance", openingBalance, 0.8f);
+    private DocumentContent loadDocumentContent(Integer documentId, String storageId) {
+        Document document = ocrResultPersistenceService.markProcessing(documentId);
+
+        try {
+            // Read document file using StorageService
+            String documentType = document.getDocumentType().getName();
+            byte[] fileData = storageService.getDocumentByTypeAndStorage(documentType, storageId, document.getFilePath());
+            return new DocumentContent(document, fileData, ocrResultCache.keyFor(fileData, documentType));
+
+        } catch (IOException e) {
+            log.error("Failed to process document with ID: {}", documentId, e);
+            ocrResultPersistenceService.markFailed(documentId);
+            throw new OcrProcessingException("Failed to process document: " + e.getMessage(), e);
         }
-        
-        // Extract closing balance
-        Pattern closingPattern = Pattern.compile("(?i)(?:Closing Balance)[:\\s]+([$₹]?[\\d,.]+)");
-        Matcher closingMatcher = closingPattern.matcher(text);
-        if (closingMatcher.find()) {
-            String closingBalance = closingMatcher.group(1).trim();
-            addFieldWithConfidence(data, "closing_balance", closingBalance, 0.8f);
+    }
+
+    /**
+     * Looks up the OCR result for the content of a document in the cache, or runs OCR and extraction on it.
+     * Documents with identical content that are processed concurrently share a single run.
+     *
+     * @param content The document together with its content and cache key
+     * @return A future completed with the raw text, structured data and confidence score of the document
+     */
+    private CompletableFuture<Extraction> extractText(DocumentContent content) {
+        Optional<OcrResultCache.CachedOcrResult> cached = ocrResultCache.get(content.cacheKey());
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(new Extraction(cached.get(), 0, null, true));
         }
-        
-        return data;
+
+        return contentFlights.execute(content.cacheKey(), () -> pdfOcrProcessor.isPdf(content.data())
+                ? recognizePdf(content)
+                : recognizeText(content).thenApplyAsync(text -> extract(content, text), visionExecutor));
     }
 
     /**
-     * Add a field with confidence score to the data map.
+     * Runs OCR on the pages of a PDF document and extracts structured data from them as they complete.
+     * If the OCR fails the returned future completes with an {@link OcrProcessingException}.
      *
-     * @param data The data map
-     * @param fieldName The name of the field
-     * @param fieldValue The value of the field
-     * @param confidence The confidence score
+     * @param content The PDF document together with its content and cache key
+     * @return A future completed with the raw text, structured data and confidence score of the document
      */
-    private void addFieldWithConfidence(Map<String, Object> data, String fieldName, String fieldValue, float confidence) {
-        Map<String, Object> fieldData = new HashMap<>();
-        fieldData.put("value", fieldValue);
-        fieldData.put("confidence", confidence);
-        data.put(fieldName, fieldData);
+    private CompletableFuture<Extraction> recognizePdf(DocumentContent content) {
+        Document document = content.document();
+        log.debug("Running {} OCR on the pages of PDF document ID: {}", ocrEngine.getName(), document.getId());
+
+        long startTime = System.currentTimeMillis();
+
+        return pdfOcrProcessor.recognize(content.data(), document.getDocumentType().getName())
+                .thenApply(pdfText -> cache(content, new OcrResultCache.CachedOcrResult(
+                        pdfText.text(),
+                        withWordEvidence(documentClassifier.extract(document.getDocumentType().getName(),
+                                pdfText.text(), pdfText::structuredData), pdfText.annotation()),
+                        BigDecimal.valueOf(pdfText.confidenceScore())),
+                        System.currentTimeMillis() - startTime, pdfText.annotation()))
+                .exceptionally(ex -> {
+                    throw toOcrProcessingException(ex);
+                });
     }
 
     /**
-     * Clean text by removing Devanagari characters and keeping only English text.
+     * Runs OCR on the content of a document.
+     * If the OCR fails the returned future completes with an {@link OcrProcessingException}.
      *
-     * @param text The text to clean
-     * @return The cleaned text with only English characters
+     * @param content The document together with its content
+     * @return A future completed with the recognized text and the time the OCR took
      */
-    private String cleanText(String text) {
-        if (text == null || text.trim().isEmpty()) {
-            return text;
-        }
-        
-        // Remove Devanagari characters (Unicode range: \u0900-\u097F)
-        String cleanedText = text.replaceAll("[\\u0900-\\u097F]", "");
-        
-        // Remove extra whitespace and newlines
-        cleanedText = cleanedText.replaceAll("\\s+", " ").trim();
-        
-        // Remove any remaining non-English characters except spaces, numbers, and common punctuation
-        cleanedText = cleanedText.replaceAll("[^a-zA-Z0-9\\s./-]", "");
-        
-        return cleanedText.trim();
+    private CompletableFuture<TimedText> recognizeText(DocumentContent content) {
+        Document document = content.document();
+        log.debug("Running {} OCR for document ID: {}", ocrEngine.getName(), document.getId());
+
+        // Start processing time measurement
+        long startTime = System.currentTimeMillis();
+
+        return ocrEngine.recognize(content.data(), document.getDocumentType().getName())
+                .thenApply(recognizedText -> new TimedText(recognizedText, System.currentTimeMillis() - startTime))
+                .exceptionally(ex -> {
+                    throw toOcrProcessingException(ex);
+                });
     }
 
     /**
-     * Calculate the average confidence score from the text annotation.
+     * Extracts structured data from the recognized text and caches it for identical content.
      *
-     * @param textAnnotation The text annotation from Google Vision API
-     * @return The average confidence score
+     * @param content The processed document together with its content and cache key
+     * @param timedText The text recognized in the document, with the time the OCR took
+     * @return The raw text, structured data and confidence score of the document
      */
-    private float calculateConfidenceScore(TextAnnotation textAnnotation) {
-        float totalConfidence = 0;
-        int blockCount = 0;
-        
-        for (Page page : textAnnotation.getPagesList()) {
-            for (Block block : page.getBlocksList()) {
-                totalConfidence += block.getConfidence();
-                blockCount++;
-            }
+    private Extraction extract(DocumentContent content, TimedText timedText) {
+        RecognizedText recognizedText = timedText.recognizedText();
+
+        // Extract structured data based on document type
+        Map<String, Object> structuredData = extractStructuredData(
+                recognizedText.text(),
+                content.document().getDocumentType());
+
+        OcrResultCache.CachedOcrResult extracted = new OcrResultCache.CachedOcrResult(
+                recognizedText.text(),
+                withWordEvidence(structuredData, recognizedText.annotation()),
+                BigDecimal.valueOf(recognizedText.confidenceScore()));
+
+        return cache(content, extracted, timedText.processingTime(), recognizedText.annotation());
+    }
+
+    /**
+     * Adds the words each field was read from, if the OCR engine produced an annotation.
+     */
+    private static Map<String, Object> withWordEvidence(Map<String, Object> structuredData, TextAnnotation annotation) {
+        return annotation == null ? structuredData : WordEvidence.attach(structuredData, annotation);
+    }
+
+    /**
+     * Caches an extracted result for identical content.
+     *
+     * @param content The processed document together with its content and cache key
+     * @param extracted The raw text, structured data and confidence score of the document
+     * @param processingTime The time the OCR took
+     * @param annotation The annotation recognized in the document, or null
+     * @return The extraction
+     */
+    private Extraction cache(DocumentContent content, OcrResultCache.CachedOcrResult extracted, long processingTime,
+                             TextAnnotation annotation) {
+        // Generated (local engine) results are not cached, so they are never served once Vision is used
+        if (ocrEngine.isCacheable()) {
+            ocrResultCache.put(content.cacheKey(), extracted);
         }
-        
-        return blockCount > 0 ? totalConfidence / blockCount : 0;
+
+        return new Extraction(extracted, processingTime, annotation, false);
     }
-    
+
     /**
-     * Generate mock extracted text for development purposes.
+     * Extract structured data from the OCR text based on document type, unless the text is recognized as another
+     * document type.
      *
+     * @param extractedText The text extracted from the document
      * @param documentType The type of the document
-     * @return Mock extracted text
+     * @return A map of structured data, with the classification of the document
      */
-    private String generateMockExtractedText(DocumentType documentType) {
-        String docType = documentType.getName();
-        
-        switch (docType) {
-            case "AADHAAR":
-                return "Government of India\n" +
-                       "Unique Identification Authority of India\n" +
-                       "Name: John Doe\n" +
-                       "DOB: 01/01/1990\n" +
-                       "Gender: MALE\n" +
-                       "Address: 123 Main Street, Apartment 4B, Bangalore, Karnataka, 560001\n" +
-                       "Aadhaar: 1234 5678 9012";
-                       
-            case "PAN":
-                return "INCOME TAX DEPARTMENT\n" +
-                       "GOVT. OF INDIA\n" +
-                       "Permanent Account Number\n" +
-                       "ABCDE1234F\n" +
-                       "Name: John Doe\n" +
-                       "Father's Name: James Doe\n" +
-                       "Date of Birth: 01/01/1990";
-                       
-            case "DRIVING_LICENSE":
-                return "DRIVING LICENSE\n" +
-                       "License No: KA01 20120012345\n" +
-                       "Name: John Doe\n" +
-                       "DOB: 01/01/1990\n" +
-                       "Address: 123 Main Street, Apartment 4B, Bangalore, Karnataka, 560001\n" +
-                       "Valid From: 01/01/2020\n" +
-                       "Valid Until: 31/12/2030\n" +
-                       "Blood Group: O+\n" +
-                       "Issuing Authority: RTO Bangalore";
-                       
-            case "BANK_STATEMENT":
-                return "HDFC BANK\n" +
-                       "Statement of Account\n" +
-                       "Account Name: John Doe\n" +
-                       "A/C No: 12345678901234\n" +
-                       "Statement Period: 01/01/2023 to 31/01/2023\n" +
-                       "Opening Balance: ₹50,000.00\n" +
-                       "Closing Balance: ₹65,432.10\n" +
-                       "Date       Description                 Debit      Credit     Balance\n" +
-                       "01/01/2023 Opening Balance                                  50,000.00\n" +
-                       "05/01/2023 Salary                                20,000.00  70,000.00\n" +
-                       "10/01/2023 Rent Payment               15,000.00            55,000.00\n" +
-                       "15/01/2023 Grocery Shopping            2,500.00            52,500.00\n" +
-                       "20/01/2023 Utility Bills               1,500.00            51,000.00\n" +
-                       "25/01/2023 Online Purchase             1,200.00            49,800.00\n" +
-                       "28/01/2023 Interest Credit                         632.10   50,432.10\n" +
-                       "30/01/2023 ATM Withdrawal              5,000.00            45,432.10\n" +
-                       "31/01/2023 Deposit                                20,000.00  65,432.10";
-                       
-            default:
-                return "Sample document text for development purposes.\n" +
-                       "This is a mock text generated for testing OCR functionality.\n" +
-                       "No real data is being processed.";
-        }
+    private Map<String, Object> extractStructuredData(String extractedText, DocumentType documentType) {
+        return documentClassifier.extract(documentType.getName(), extractedText);
     }
-    
+
+    /**
+     * Unwraps the failure of an OCR stage into an {@link OcrProcessingException}.
+     *
+     * @param ex The failure, possibly wrapped in a {@link CompletionException}
+     * @return The OCR processing exception
+     */
+    private static OcrProcessingException toOcrProcessingException(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return cause instanceof OcrProcessingException
+                ? (OcrProcessingException) cause
+                : new OcrProcessingException("Error performing OCR: " + cause.getMessage(), cause);
+    }
+
     /**
      * Get the OCR result for a document.
      *
@@ -582,4 +419,35 @@ public class OcrService {
     public Optional<OcrResult> getOcrResult(Integer documentId) {
         return ocrResultRepository.findByDocumentId(documentId);
     }
+
+    /**
+     * Get the raw OCR text of a document. The text is not part of {@link OcrResult} and is only read here.
+     *
+     * @param documentId The ID of the document
+     * @return The raw text, if the document has been processed
+     */
+    public Optional<String> getRawText(Integer documentId) {
+        return ocrResultPersistenceService.findRawText(documentId);
+    }
+
+    /**
+     * A document together with the content read from storage and its OCR cache key.
+     */
+    private record DocumentContent(Document document, byte[] data, OcrResultCache.CacheKey cacheKey) {
+    }
+
+    /**
+     * Text recognized in a document, with the time the recognition took.
+     */
+    private record TimedText(RecognizedText recognizedText, long processingTime) {
+    }
+
+    /**
+     * The OCR result extracted from a document's content, with the time the OCR took (zero for cache hits), the
+     * annotation it was extracted from (null for cache hits and engines without annotations) and whether it came
+     * from the cache.
+     */
+    private record Extraction(OcrResultCache.CachedOcrResult result, long processingTime, TextAnnotation annotation,
+                              boolean cached) {
+    }
 }
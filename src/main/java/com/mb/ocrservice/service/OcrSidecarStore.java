@@ -0,0 +1,108 @@
+package com.mb.ocrservice.service;
+
+import com.google.cloud.vision.v1.TextAnnotation;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the full Vision {@link TextAnnotation} of a document as a sidecar next to the document in the
+ * {@link StorageService}, so fields can be re-extracted with word-level confidences and bounding boxes without calling
+ * Vision again. The sidecar is the annotation's protobuf encoding, gzip-compressed.
+ * <p>
+ * Metrics: {@code ocr.sidecar.bytes}, the compressed size of each stored sidecar.
+ */
+@Component
+@Slf4j
+public class OcrSidecarStore {
+
+    private final StorageService storageService;
+    private final boolean enabled;
+    private final DistributionSummary sidecarBytes;
+
+    @Autowired
+    public OcrSidecarStore(StorageService storageService, MeterRegistry meterRegistry,
+                           @Value("${ocr.sidecar.enabled:true}") boolean enabled) {
+        this.storageService = storageService;
+        this.enabled = enabled;
+        this.sidecarBytes = DistributionSummary.builder("ocr.sidecar.bytes")
+                .description("Compressed size of the OCR sidecars stored next to documents")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stores the annotation of a document, replacing an earlier one.
+     *
+     * @param documentPath The path or key of the document
+     * @param annotation The annotation recognized in the document
+     * @throws IOException If the sidecar cannot be stored
+     */
+    public void store(String documentPath, TextAnnotation annotation) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        byte[] content = encode(annotation);
+        storageService.storeOcrSidecar(documentPath, content);
+        sidecarBytes.record(content.length);
+        log.debug("Stored OCR sidecar of {} bytes for {}", content.length, documentPath);
+    }
+
+    /**
+     * Copies the sidecar of a document to another document with the same content, replacing an earlier one.
+     *
+     * @param sourcePath The path or key of the document whose sidecar is copied
+     * @param documentPath The path or key of the document to copy the sidecar to
+     * @return Whether a sidecar was stored for the source document and copied
+     * @throws IOException If the sidecar cannot be read or stored
+     */
+    public boolean copy(String sourcePath, String documentPath) throws IOException {
+        if (!enabled) {
+            return false;
+        }
+        Optional<byte[]> content = storageService.getOcrSidecar(sourcePath);
+        if (content.isEmpty()) {
+            return false;
+        }
+        storageService.storeOcrSidecar(documentPath, content.get());
+        log.debug("Copied OCR sidecar of {} to {}", sourcePath, documentPath);
+        return true;
+    }
+
+    /**
+     * Loads the annotation of a document.
+     *
+     * @param documentPath The path or key of the document
+     * @return The annotation, or empty if no sidecar was stored for the document
+     * @throws IOException If the sidecar cannot be read
+     */
+    public Optional<TextAnnotation> load(String documentPath) throws IOException {
+        Optional<byte[]> content = storageService.getOcrSidecar(documentPath);
+        return content.isPresent() ? Optional.of(decode(content.get())) : Optional.empty();
+    }
+
+    static byte[] encode(TextAnnotation annotation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream output = new GZIPOutputStream(bytes)) {
+            annotation.writeTo(output);
+        }
+        return bytes.toByteArray();
+    }
+
+    static TextAnnotation decode(byte[] content) throws IOException {
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return TextAnnotation.parseFrom(input);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.mb.ocrservice.service;
+
+import com.google.cloud.vision.v1.TextAnnotation;
+import com.mb.ocrservice.exception.OcrProcessingException;
+import com.mb.ocrservice.service.engine.OcrEngine;
+import com.mb.ocrservice.service.engine.RecognizedText;
+import com.mb.ocrservice.service.extraction.FieldExtractorRegistry;
+import com.mb.ocrservice.service.extraction.PagedExtraction;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs OCR on PDF documents page by page.
+ * Google Vision only recognizes PDFs through its asynchronous file API, so pages are rendered locally to grayscale
+ * PNGs at {@code ocr.pdf.dpi} and sent to the {@link OcrEngine} like any other image. At most
+ * {@code ocr.pdf.max-concurrent-pages} pages of a document are rendered or recognized at a time; the next page is
+ * rendered as soon as one completes, so a long statement never holds all its page images in memory.
+ * <p>
+ * Pages are streamed into a {@link PagedExtraction} in page order as they complete, so most of a 30-page statement
+ * has been scanned for labels by the time its last page arrives.
+ * <p>
+ * Metrics: {@code ocr.pdf.render} per page and {@code ocr.pdf.pages} per document.
+ */
+@Component
+@Slf4j
+public class PdfOcrProcessor {
+
+    private static final byte[] PDF_HEADER = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    // The header may be preceded by other bytes, but must start within the first 1024 bytes
+    private static final int HEADER_SEARCH_LIMIT = 1024;
+
+    private final OcrEngine ocrEngine;
+    private final FieldExtractorRegistry fieldExtractorRegistry;
+    private final Executor executor;
+    private final boolean enabled;
+    private final float dpi;
+    private final int maxPages;
+    private final int maxConcurrentPages;
+
+    private final Timer renderTimer;
+    private final DistributionSummary pageCounts;
+
+    @Autowired
+    public PdfOcrProcessor(
+            OcrEngine ocrEngine,
+            FieldExtractorRegistry fieldExtractorRegistry,
+            @Qualifier("ocrVisionExecutor") Executor executor,
+            MeterRegistry meterRegistry,
+            @Value("${ocr.pdf.enabled:true}") boolean enabled,
+            @Value("${ocr.pdf.dpi:200}") float dpi,
+            @Value("${ocr.pdf.max-pages:50}") int maxPages,
+            @Value("${ocr.pdf.max-concurrent-pages:4}") int maxConcurrentPages) {
+        this.ocrEngine = ocrEngine;
+        this.fieldExtractorRegistry = fieldExtractorRegistry;
+        this.executor = executor;
+        this.enabled = enabled;
+        this.dpi = dpi;
+        this.maxPages = Math.max(1, maxPages);
+        this.maxConcurrentPages = Math.max(1, maxConcurrentPages);
+        this.renderTimer = Timer.builder("ocr.pdf.render")
+                .description("Time spent rendering a PDF page to an image")
+                .register(meterRegistry);
+        this.pageCounts = DistributionSummary.builder("ocr.pdf.pages")
+                .description("Pages per PDF document sent to OCR")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param content The document content
+     * @return Whether the content is a PDF that is processed page by page
+     */
+    public boolean isPdf(byte[] content) {
+        if (!enabled) {
+            return false;
+        }
+        int limit = Math.min(content.length - PDF_HEADER.length, HEADER_SEARCH_LIMIT);
+        for (int offset = 0; offset <= limit; offset++) {
+            if (content[offset] == PDF_HEADER[0] && startsWithHeader(content, offset)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWithHeader(byte[] content, int offset) {
+        for (int i = 1; i < PDF_HEADER.length; i++) {
+            if (content[offset + i] != PDF_HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Recognizes the text of every page of a PDF and extracts structured data from it.
+     *
+     * @param content The PDF content
+     * @param documentType The name of the document type
+     * @return A future completed with the text of all pages in page order, or exceptionally with an
+     * {@link OcrProcessingException} if the PDF cannot be read or any page fails
+     */
+    public CompletableFuture<PdfText> recognize(byte[] content, String documentType) {
+        PdfRun run = new PdfRun(content, documentType);
+        run.submit(run::open, true);
+        return run.result;
+    }
+
+    /**
+     * The text recognized in a PDF, with the structured data extracted from it.
+     *
+     * @param text The text of all pages, in page order
+     * @param confidenceScore The average confidence of the pages
+     * @param structuredData The structured data extracted from the text
+     * @param pageCount The number of pages
+     * @param annotation The annotations of all pages combined, with one annotation page per PDF page, or null if
+     *                   the engine does not produce annotations
+     */
+    public record PdfText(String text, float confidenceScore, Map<String, Object> structuredData, int pageCount,
+                          TextAnnotation annotation) {
+    }
+
+    /**
+     * The processing of one PDF. Rendering is done by one thread at a time, since a PDDocument is not thread-safe;
+     * recognition of rendered pages runs concurrently.
+     */
+    private final class PdfRun {
+
+        private final byte[] content;
+        private final String documentType;
+        private final CompletableFuture<PdfText> result = new CompletableFuture<>();
+        private final PagedExtraction extraction;
+        private float confidenceTotal;
+        private TextAnnotation.Builder annotation = TextAnnotation.newBuilder();
+
+        // Guarded by this
+        private PDDocument document;
+        private PDFRenderer renderer;
+        private int pageCount;
+        private int nextPage;
+        private int inFlight;
+        private boolean rendering = true;
+        private RecognizedText[] pages;
+        private int nextToExtract;
+
+        PdfRun(byte[] content, String documentType) {
+            this.content = content;
+            this.documentType = documentType;
+            this.extraction = fieldExtractorRegistry.startPaged(documentType);
+        }
+
+        void open() {
+            try {
+                PDDocument loaded = PDDocument.load(content);
+                int count = loaded.getNumberOfPages();
+                if (count == 0 || count > maxPages) {
+                    loaded.close();
+                    fail(new OcrProcessingException(count == 0
+                            ? "PDF has no pages"
+                            : "PDF has " + count + " pages, at most " + maxPages + " are supported"));
+                    return;
+                }
+                synchronized (this) {
+                    document = loaded;
+                    renderer = new PDFRenderer(loaded);
+                    pageCount = count;
+                    pages = new RecognizedText[count];
+                }
+                pageCounts.record(count);
+                log.debug("Running OCR on {} pages of a {} PDF", count, documentType);
+            } catch (IOException | RuntimeException e) {
+                fail(new OcrProcessingException("Failed to read PDF: " + e.getMessage(), e));
+                return;
+            }
+            renderPages();
+        }
+
+        /**
+         * Renders pages and sends them to OCR until all pages are rendered or the concurrency limit is reached.
+         */
+        private void renderPages() {
+            while (true) {
+                int page;
+                synchronized (this) {
+                    if (result.isDone() || nextPage == pageCount || inFlight == maxConcurrentPages) {
+                        rendering = false;
+                        if (result.isDone() || nextPage == pageCount) {
+                            closeDocument();
+                        }
+                        return;
+                    }
+                    page = nextPage++;
+                    inFlight++;
+                }
+
+                byte[] image;
+                try {
+                    image = render(page);
+                } catch (IOException | RuntimeException e) {
+                    fail(new OcrProcessingException(
+                            "Failed to render page " + (page + 1) + " of PDF: " + e.getMessage(), e));
+                    synchronized (this) {
+                        rendering = false;
+                        closeDocument();
+                    }
+                    return;
+                }
+
+                recognizePage(image).whenComplete((text, ex) -> onPage(page, text, ex));
+            }
+        }
+
+        /**
+         * Sends a page to OCR. An engine that throws instead of returning a failed future (e.g. because its executor
+         * rejected the call) fails the page like any other OCR error.
+         */
+        private CompletableFuture<RecognizedText> recognizePage(byte[] image) {
+            try {
+                return ocrEngine.recognize(image, documentType);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        private byte[] render(int page) throws IOException {
+            long start = System.nanoTime();
+            BufferedImage image = renderer.renderImageWithDPI(page, dpi, ImageType.GRAY);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", bytes);
+            renderTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return bytes.toByteArray();
+        }
+
+        private void onPage(int page, RecognizedText text, Throwable ex) {
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                fail(new OcrProcessingException(
+                        "Error performing OCR on page " + (page + 1) + " of PDF: " + cause.getMessage(), cause));
+                synchronized (this) {
+                    if (!rendering) {
+                        closeDocument();
+                    }
+                }
+                return;
+            }
+
+            boolean renderMore;
+            synchronized (this) {
+                inFlight--;
+                pages[page] = text;
+                renderMore = !rendering && nextPage < pageCount && !result.isDone();
+                if (renderMore) {
+                    rendering = true;
+                }
+            }
+            if (renderMore) {
+                submit(this::renderPages, true);
+            }
+            submit(this::extractCompletedPages, false);
+        }
+
+        /**
+         * Adds the pages that completed, up to the first page still outstanding, to the extraction, and completes
+         * the result once the last page is added.
+         */
+        private void extractCompletedPages() {
+            synchronized (extraction) {
+                while (true) {
+                    RecognizedText page;
+                    synchronized (this) {
+                        if (nextToExtract == pageCount || pages[nextToExtract] == null) {
+                            break;
+                        }
+                        page = pages[nextToExtract];
+                        pages[nextToExtract++] = null;
+                    }
+                    extraction.addPage(page.text());
+                    confidenceTotal += page.confidenceScore();
+                    if (annotation != null && page.annotation() != null) {
+                        annotation.addAllPages(page.annotation().getPagesList());
+                    } else {
+                        annotation = null;
+                    }
+                }
+
+                if (extraction.getPageCount() == pageCount && !result.isDone()) {
+                    String text = extraction.getText();
+                    result.complete(new PdfText(text, confidenceTotal / pageCount, extraction.extract(), pageCount,
+                            annotation == null ? null : annotation.setText(text).build()));
+                }
+            }
+        }
+
+        /**
+         * Runs a step of the run on the executor. A step that throws, or that the executor rejects, fails the run,
+         * so the result always completes.
+         *
+         * @param step The step
+         * @param rendersPages Whether the step renders pages, and so owns the document until it returns
+         */
+        void submit(Runnable step, boolean rendersPages) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        step.run();
+                    } catch (RuntimeException e) {
+                        abort(e, rendersPages);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                abort(e, rendersPages);
+            }
+        }
+
+        private void abort(RuntimeException e, boolean rendersPages) {
+            fail(e instanceof OcrProcessingException
+                    ? (OcrProcessingException) e
+                    : new OcrProcessingException("Error performing OCR on PDF: " + e.getMessage(), e));
+            synchronized (this) {
+                if (rendersPages) {
+                    rendering = false;
+                }
+                if (!rendering) {
+                    closeDocument();
+                }
+            }
+        }
+
+        private void fail(OcrProcessingException failure) {
+            if (result.completeExceptionally(failure)) {
+                log.warn("OCR of a {} PDF failed: {}", documentType, failure.getMessage());
+            }
+        }
+
+        private void closeDocument() {
+            if (document == null) {
+                return;
+            }
+            try {
+                document.close();
+            } catch (IOException e) {
+                log.warn("Failed to close PDF: {}", e.getMessage());
+            }
+            document = null;
+            renderer = null;
+        }
+    }
+}
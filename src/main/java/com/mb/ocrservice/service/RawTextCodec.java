@@ -0,0 +1,74 @@
+package com.mb.ocrservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding of raw OCR text at rest in {@code ocr_raw_texts} and {@code ocr_cache_entries}.
+ * Text is stored as gzip-compressed UTF-8, unless compressing does not make it smaller (short texts), in which case
+ * the UTF-8 bytes are stored as they are.
+ */
+final class RawTextCodec {
+
+    static final String GZIP = "gzip";
+    static final String IDENTITY = "identity";
+
+    private RawTextCodec() {
+    }
+
+    /**
+     * Encodes a text for storage.
+     *
+     * @param text The text
+     * @return The encoding and the encoded content
+     */
+    static Encoded encode(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        // OCR text typically compresses to a quarter or less
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, utf8.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(utf8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.size() < utf8.length
+                ? new Encoded(GZIP, compressed.toByteArray())
+                : new Encoded(IDENTITY, utf8);
+    }
+
+    /**
+     * Decodes stored content.
+     *
+     * @param encoding The encoding of the content
+     * @param content The encoded content, or null
+     * @return The text, or null if there is no content
+     * @throws IllegalStateException If the encoding is unknown or the content is not valid gzip
+     */
+    static String decode(String encoding, byte[] content) {
+        if (content == null) {
+            return null;
+        }
+        if (IDENTITY.equals(encoding)) {
+            return new String(content, StandardCharsets.UTF_8);
+        }
+        if (!GZIP.equals(encoding)) {
+            throw new IllegalStateException("Unknown raw text encoding: " + encoding);
+        }
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt raw text content: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Text encoded for storage.
+     */
+    record Encoded(String encoding, byte[] content) {
+    }
+}
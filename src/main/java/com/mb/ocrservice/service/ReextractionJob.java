@@ -0,0 +1,435 @@
+package com.mb.ocrservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mb.ocrservice.dto.ReextractionStatusDto;
+import com.mb.ocrservice.model.ReextractionCheckpoint;
+import com.mb.ocrservice.repository.ReextractionCheckpointRepository;
+import com.mb.ocrservice.service.extraction.DocumentClassifier;
+import com.mb.ocrservice.service.extraction.ExtractionGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background job that recomputes {@code structured_data} from the stored raw text after extraction rules change,
+ * for {@code ocr_results} and then {@code ocr_cache_entries}. It never calls the OCR engine.
+ * <p>
+ * Rows are read in pages of {@code page-size} by keyset pagination on the primary key, extracted in parallel on
+ * {@code workers} threads, and the changed rows of a page are written back with one JDBC batch update, in the same
+ * transaction as the page's checkpoint. A stopped or crashed job resumes after the last checkpointed row. Reading is
+ * throttled to {@code max-rows-per-second} so the job does not compete with live traffic for the database.
+ * <p>
+ * A row is only written if its {@code updated_at} is still the one read with the page, so a result stored by a live
+ * OCR run in the meantime is never overwritten with data extracted from the previous text. Such rows, and rows
+ * without raw text, are skipped; a later run extracts them again.
+ * <p>
+ * Word-level evidence of fields whose value did not change is kept. The in-memory OCR result cache is cleared once
+ * the cache entries are rewritten.
+ * <p>
+ * Metrics: {@code ocr.reextraction.rows} tagged with the table and outcome (changed, unchanged, skipped or failed),
+ * and
+ * {@code ocr.reextraction.running}.
+ */
+@Service
+@Slf4j
+public class ReextractionJob {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    /**
+     * A table whose structured data the job rewrites.
+     */
+    enum Table {
+        OCR_RESULTS("ocr_results",
+                "SELECT r.id, x.encoding AS raw_text_encoding, x.content AS raw_text, "
+                        + "CAST(r.structured_data AS text) AS structured_data, t.name AS document_type, r.updated_at "
+                        + "FROM ocr_results r "
+                        + "LEFT JOIN ocr_raw_texts x ON x.ocr_result_id = r.id "
+                        + "JOIN documents d ON d.id = r.document_id "
+                        + "JOIN document_types t ON t.id = d.document_type_id "
+                        + "WHERE r.id > ? ORDER BY r.id LIMIT ?",
+                "UPDATE ocr_results SET structured_data = CAST(? AS jsonb), updated_at = now() "
+                        + "WHERE id = ? AND updated_at IS NOT DISTINCT FROM ?"),
+        OCR_CACHE_ENTRIES("ocr_cache_entries",
+                "SELECT id, raw_text_encoding, raw_text_content AS raw_text, "
+                        + "CAST(structured_data AS text) AS structured_data, document_type, updated_at "
+                        + "FROM ocr_cache_entries "
+                        + "WHERE id > ? ORDER BY id LIMIT ?",
+                "UPDATE ocr_cache_entries SET structured_data = CAST(? AS jsonb), updated_at = now() "
+                        + "WHERE id = ? AND updated_at IS NOT DISTINCT FROM ?");
+
+        private final String tableName;
+        private final String selectSql;
+        private final String updateSql;
+
+        Table(String tableName, String selectSql, String updateSql) {
+            this.tableName = tableName;
+            this.selectSql = selectSql;
+            this.updateSql = updateSql;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReextractionCheckpointRepository checkpointRepository;
+    private final DocumentClassifier documentClassifier;
+    private final OcrResultCache ocrResultCache;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final int pageSize;
+    private final int workers;
+    private final double defaultMaxRowsPerSecond;
+
+    private final ExecutorService jobExecutor;
+    private final ExecutorService workerPool;
+    private final AtomicInteger running = new AtomicInteger();
+
+    private volatile boolean stopRequested;
+    private volatile double maxRowsPerSecond;
+    private volatile double rowsPerSecond;
+
+    @Autowired
+    public ReextractionJob(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ReextractionCheckpointRepository checkpointRepository,
+            DocumentClassifier documentClassifier,
+            OcrResultCache ocrResultCache,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${ocr.reextraction.page-size:1000}") int pageSize,
+            @Value("${ocr.reextraction.workers:4}") int workers,
+            @Value("${ocr.reextraction.max-rows-per-second:2000}") double maxRowsPerSecond) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkpointRepository = checkpointRepository;
+        this.documentClassifier = documentClassifier;
+        this.ocrResultCache = ocrResultCache;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.pageSize = Math.max(1, pageSize);
+        this.workers = Math.max(1, workers);
+        this.defaultMaxRowsPerSecond = maxRowsPerSecond;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.jobExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reextraction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workerPool = Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable, "reextraction-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("ocr.reextraction.running", running, AtomicInteger::get)
+                .description("Whether the bulk re-extraction job is running")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the job in the background, resuming from the checkpoints unless {@code restart} is set.
+     *
+     * @param restart Whether to start over from the first row, also for tables already completed
+     * @param maxRowsPerSecond The throttle, or null for {@code ocr.reextraction.max-rows-per-second}; 0 or less
+     *                         disables throttling
+     * @return Whether the job was started; false if it is already running
+     */
+    public boolean start(boolean restart, Double maxRowsPerSecond) {
+        if (!running.compareAndSet(0, 1)) {
+            return false;
+        }
+        this.stopRequested = false;
+        this.maxRowsPerSecond = maxRowsPerSecond != null ? maxRowsPerSecond : defaultMaxRowsPerSecond;
+        jobExecutor.execute(() -> {
+            try {
+                for (Table table : Table.values()) {
+                    if (stopRequested || !run(table, restart)) {
+                        break;
+                    }
+                    if (table == Table.OCR_CACHE_ENTRIES) {
+                        ocrResultCache.clearMemory();
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("Re-extraction job failed, it resumes from its last checkpoint: {}", e.getMessage(), e);
+            } finally {
+                rowsPerSecond = 0;
+                running.set(0);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Asks the job to stop after the page in progress; its checkpoint is kept, so the next start resumes there.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Changes the throttle of the running job.
+     *
+     * @param maxRowsPerSecond The largest number of rows read per second, 0 or less to disable throttling
+     */
+    public void throttle(double maxRowsPerSecond) {
+        this.maxRowsPerSecond = maxRowsPerSecond;
+    }
+
+    /**
+     * @return The progress of the job
+     */
+    public ReextractionStatusDto getStatus() {
+        List<ReextractionStatusDto.TableProgress> tables = new ArrayList<>();
+        for (Table table : Table.values()) {
+            ReextractionCheckpoint checkpoint = checkpointRepository.findByName(table.tableName)
+                    .orElseGet(() -> newCheckpoint(table));
+            tables.add(new ReextractionStatusDto.TableProgress(checkpoint.getName(), checkpoint.getStatus(),
+                    checkpoint.getLastId(), checkpoint.getProcessed(), checkpoint.getChanged(),
+                    checkpoint.getSkipped(), checkpoint.getFailed(), checkpoint.getUpdatedAt()));
+        }
+        return new ReextractionStatusDto(running.get() == 1, maxRowsPerSecond, rowsPerSecond, tables);
+    }
+
+    /**
+     * Re-extracts every row of a table after its checkpoint.
+     *
+     * @return Whether the table was completed; false if the job was stopped
+     */
+    private boolean run(Table table, boolean restart) {
+        ReextractionCheckpoint checkpoint = checkpointRepository.findByName(table.tableName)
+                .orElseGet(() -> newCheckpoint(table));
+        if (restart) {
+            checkpoint.setLastId(0);
+            checkpoint.setProcessed(0L);
+            checkpoint.setChanged(0L);
+            checkpoint.setSkipped(0L);
+            checkpoint.setFailed(0L);
+        } else if (ReextractionCheckpoint.Status.COMPLETED.name().equals(checkpoint.getStatus())) {
+            return true;
+        }
+        checkpoint.setStatus(ReextractionCheckpoint.Status.RUNNING.name());
+        checkpoint = checkpointRepository.save(checkpoint);
+        log.info("Re-extracting {} after row ID {}", table.tableName, checkpoint.getLastId());
+
+        Counter changed = rowCounter(table, "changed");
+        Counter unchanged = rowCounter(table, "unchanged");
+        Counter skipped = rowCounter(table, "skipped");
+        Counter failed = rowCounter(table, "failed");
+        TokenBucket throttle = null;
+        double throttleRate = 0;
+        long started = System.nanoTime();
+        long rowsRead = 0;
+
+        while (!stopRequested) {
+            if (maxRowsPerSecond != throttleRate) {
+                throttleRate = maxRowsPerSecond;
+                throttle = throttleRate > 0
+                        ? new TokenBucket(Math.max(pageSize, throttleRate), throttleRate, System::nanoTime)
+                        : null;
+            }
+            if (throttle != null && !awaitPermits(throttle)) {
+                break;
+            }
+
+            List<Row> rows = jdbcTemplate.query(table.selectSql, (resultSet, rowNum) -> new Row(
+                    resultSet.getInt("id"),
+                    RawTextCodec.decode(resultSet.getString("raw_text_encoding"), resultSet.getBytes("raw_text")),
+                    resultSet.getString("structured_data"),
+                    resultSet.getString("document_type"),
+                    resultSet.getTimestamp("updated_at")), checkpoint.getLastId(), pageSize);
+            if (rows.isEmpty()) {
+                checkpoint.setStatus(ReextractionCheckpoint.Status.COMPLETED.name());
+                checkpointRepository.save(checkpoint);
+                log.info("Re-extracted {}: {} rows, {} changed, {} skipped, {} failed", table.tableName,
+                        checkpoint.getProcessed(), checkpoint.getChanged(), checkpoint.getSkipped(),
+                        checkpoint.getFailed());
+                return true;
+            }
+
+            List<Outcome> outcomes = extractAll(rows);
+            List<Object[]> updates = new ArrayList<>();
+            long failures = 0;
+            long skips = 0;
+            for (Outcome outcome : outcomes) {
+                if (outcome.failed()) {
+                    failures++;
+                } else if (outcome.skipped()) {
+                    skips++;
+                } else if (outcome.structuredData() != null) {
+                    updates.add(new Object[]{outcome.structuredData(), outcome.id(), outcome.updatedAt()});
+                }
+            }
+
+            long pageSkips = skips;
+            int[] written = new int[1];
+            checkpoint.setLastId(rows.get(rows.size() - 1).id());
+            checkpoint.setProcessed(checkpoint.getProcessed() + rows.size());
+            checkpoint.setFailed(checkpoint.getFailed() + failures);
+            ReextractionCheckpoint pageCheckpoint = checkpoint;
+            checkpoint = transactionTemplate.execute(status -> {
+                if (!updates.isEmpty()) {
+                    for (int count : jdbcTemplate.batchUpdate(table.updateSql, updates)) {
+                        // A row updated since the page was read is not written
+                        written[0] += count == 0 ? 0 : 1;
+                    }
+                }
+                pageCheckpoint.setChanged(pageCheckpoint.getChanged() + written[0]);
+                pageCheckpoint.setSkipped(pageCheckpoint.getSkipped() + pageSkips + updates.size() - written[0]);
+                return checkpointRepository.save(pageCheckpoint);
+            });
+
+            int conflicts = updates.size() - written[0];
+            if (conflicts > 0) {
+                log.info("Skipped {} rows of {} that were updated while being re-extracted", conflicts,
+                        table.tableName);
+            }
+            changed.increment(written[0]);
+            skipped.increment(pageSkips + conflicts);
+            failed.increment(failures);
+            unchanged.increment(rows.size() - updates.size() - failures - pageSkips);
+            rowsRead += rows.size();
+            rowsPerSecond = rowsRead / Math.max(1e-9, (System.nanoTime() - started) / 1e9);
+            log.debug("Re-extracted {} up to row ID {} ({} rows, {} rows/s)", table.tableName,
+                    checkpoint.getLastId(), checkpoint.getProcessed(), Math.round(rowsPerSecond));
+        }
+
+        checkpoint.setStatus(ReextractionCheckpoint.Status.PAUSED.name());
+        checkpointRepository.save(checkpoint);
+        log.info("Re-extraction of {} stopped after row ID {}", table.tableName, checkpoint.getLastId());
+        return false;
+    }
+
+    /**
+     * Waits until the throttle allows reading another page.
+     *
+     * @return Whether the permits were taken; false if the job was stopped or interrupted while waiting
+     */
+    private boolean awaitPermits(TokenBucket throttle) {
+        while (!throttle.tryAcquire(pageSize)) {
+            if (stopRequested) {
+                return false;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.min(throttle.nanosUntilAvailable(pageSize),
+                        TimeUnit.SECONDS.toNanos(1)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Extracts a page of rows, split evenly over the workers.
+     */
+    private List<Outcome> extractAll(List<Row> rows) {
+        int chunkSize = (rows.size() + workers - 1) / workers;
+        List<CompletableFuture<List<Outcome>>> chunks = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            List<Row> chunk = rows.subList(from, Math.min(rows.size(), from + chunkSize));
+            chunks.add(CompletableFuture.supplyAsync(() -> chunk.stream().map(this::reextract).toList(), workerPool));
+        }
+        List<Outcome> outcomes = new ArrayList<>(rows.size());
+        chunks.forEach(chunk -> outcomes.addAll(chunk.join()));
+        return outcomes;
+    }
+
+    /**
+     * Extracts the structured data of one row again.
+     *
+     * @param row The row
+     * @return The new structured data as JSON if it differs from the stored data, no data if it does not, a skip if
+     * the row has no raw text, or a failure
+     */
+    Outcome reextract(Row row) {
+        if (row.rawText() == null) {
+            return new Outcome(row.id(), null, row.updatedAt(), false, true);
+        }
+        try {
+            Map<String, Object> previous = row.structuredData() == null
+                    ? new HashMap<>()
+                    : objectMapper.readValue(row.structuredData(), MAP_TYPE);
+            Map<String, Object> structuredData = WordEvidence.carryOver(
+                    documentClassifier.extract(row.documentType(), row.rawText()), previous);
+            if (!ExtractionGuard.isComplete(structuredData)) {
+                // Keep the stored data rather than replace it with data degraded by a slow run
+                log.warn("Re-extraction of row ID {} ran over budget; keeping its stored data", row.id());
+                return new Outcome(row.id(), null, row.updatedAt(), true, false);
+            }
+
+            String json = objectMapper.writeValueAsString(structuredData);
+            // Compare as parsed JSON, so number types and key order do not count as changes
+            boolean changed = !objectMapper.readValue(json, MAP_TYPE).equals(previous);
+            return new Outcome(row.id(), changed ? json : null, row.updatedAt(), false, false);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Failed to re-extract row ID {}: {}", row.id(), e.getMessage());
+            return new Outcome(row.id(), null, row.updatedAt(), true, false);
+        }
+    }
+
+    private Counter rowCounter(Table table, String outcome) {
+        return Counter.builder("ocr.reextraction.rows")
+                .description("Rows whose structured data was re-extracted")
+                .tag("table", table.tableName)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static ReextractionCheckpoint newCheckpoint(Table table) {
+        ReextractionCheckpoint checkpoint = new ReextractionCheckpoint();
+        checkpoint.setName(table.tableName);
+        return checkpoint;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopRequested = true;
+        jobExecutor.shutdown();
+        workerPool.shutdown();
+    }
+
+    /**
+     * A row read from a table: its raw text, its stored structured data as JSON, its document type and when it was
+     * last updated.
+     */
+    record Row(int id, String rawText, String structuredData, String documentType, Timestamp updatedAt) {
+    }
+
+    /**
+     * The result of re-extracting a row.
+     *
+     * @param id The ID of the row
+     * @param structuredData The new structured data as JSON, or null if it is unchanged or extraction failed
+     * @param updatedAt When the row was last updated, as read with its page
+     * @param failed Whether extraction failed
+     * @param skipped Whether the row was not extracted because it has no raw text
+     */
+    record Outcome(int id, String structuredData, Timestamp updatedAt, boolean failed, boolean skipped) {
+    }
+}
@@ -13,6 +13,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -75,6 +76,7 @@ public class S3StorageService implements StorageService {
     public void deleteDocument(String key) throws IOException {
         try {
             s3Client.deleteObject(bucketName, key);
+            s3Client.deleteObject(bucketName, key + OCR_SIDECAR_SUFFIX);
             log.info("Deleted document from S3: {}", key);
         } catch (Exception e) {
             log.error("Error deleting document from S3: {}", key, e);
@@ -141,8 +143,8 @@ public class S3StorageService implements StorageService {
                 String objectKey = objectSummary.getKey();
                 String filename = objectKey.substring(objectKey.lastIndexOf('/') + 1);
                 
-                // Check if the filename starts with the document type (case insensitive)
-                if (filename.toLowerCase().startsWith(docTypeLower + "_")) {
+                // Check if the filename starts with the document type (case insensitive), skipping OCR sidecars
+                if (filename.toLowerCase().startsWith(docTypeLower + "_") && !filename.endsWith(OCR_SIDECAR_SUFFIX)) {
                     log.info("Found {} document for {}: {}", documentType, storageId, objectKey);
                     return getDocumentContent(objectKey);
                 }
@@ -161,6 +163,30 @@ public class S3StorageService implements StorageService {
     public String getStorageLocation() {
         return "s3://" + bucketName;
     }
+
+    @Override
+    public void storeOcrSidecar(String key, byte[] content) throws IOException {
+        try {
+            uploadBytes(key + OCR_SIDECAR_SUFFIX, content, "application/gzip");
+        } catch (Exception e) {
+            log.error("Error storing OCR sidecar in S3: {}", key, e);
+            throw new IOException("Failed to store OCR sidecar: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> getOcrSidecar(String key) throws IOException {
+        String sidecarKey = key + OCR_SIDECAR_SUFFIX;
+        try {
+            if (!s3Client.doesObjectExist(bucketName, sidecarKey)) {
+                return Optional.empty();
+            }
+        } catch (Exception e) {
+            log.error("Error checking OCR sidecar in S3: {}", sidecarKey, e);
+            throw new IOException("Failed to retrieve OCR sidecar: " + e.getMessage(), e);
+        }
+        return Optional.of(getDocumentContent(sidecarKey));
+    }
     
     /**
      * Uploads a byte array to S3.
@@ -0,0 +1,75 @@
+package com.mb.ocrservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Registry of in-flight asynchronous operations, keyed by what they compute.
+ * A caller asking for a key that is already in flight attaches to the existing future instead of starting the
+ * operation again; the key is released as soon as the operation completes, so later callers start a fresh one.
+ * Coalesced calls are counted as {@code ocr.singleflight.coalesced}, tagged with the registry name.
+ *
+ * @param <K> The key type
+ * @param <V> The result type
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.coalesced = Counter.builder("ocr.singleflight.coalesced")
+                .description("Calls that attached to an operation already in flight instead of starting a new one")
+                .tag("name", name)
+                .register(meterRegistry);
+        meterRegistry.gaugeMapSize("ocr.singleflight.in-flight", Tags.of("name", name), inFlight);
+    }
+
+    /**
+     * Returns the in-flight future for a key, or starts the operation if none is in flight.
+     *
+     * @param key The key identifying the operation
+     * @param operation Starts the operation; only invoked when no operation for the key is in flight
+     * @return The future of the in-flight operation
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> operation) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+
+        CompletableFuture<V> started;
+        try {
+            started = operation.get();
+        } catch (RuntimeException e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+
+        started.whenComplete((result, ex) -> {
+            // Release the key before completing, so callers reacting to the result never see a finished flight
+            inFlight.remove(key, promise);
+            if (ex != null) {
+                promise.completeExceptionally(ex);
+            } else {
+                promise.complete(result);
+            }
+        });
+        return promise;
+    }
+
+    /**
+     * @param key The key identifying the operation
+     * @return Whether an operation for the key is currently in flight
+     */
+    public boolean isInFlight(K key) {
+        return inFlight.containsKey(key);
+    }
+}
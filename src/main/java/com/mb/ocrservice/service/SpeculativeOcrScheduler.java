@@ -0,0 +1,103 @@
+package com.mb.ocrservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Opt-in OCR of uploaded documents ahead of their verify-document event.
+ * Once the upload transaction commits, the document is processed on the low-priority speculative executor, so that
+ * {@link DocumentVerificationService} usually finds a fresh OCR result and only has to validate it. A document that
+ * cannot be queued is skipped; it is processed when it is verified, as without speculation.
+ * <p>
+ * Metrics: {@code ocr.speculative.documents} tagged with the outcome (completed, failed or dropped).
+ */
+@Component
+@Slf4j
+public class SpeculativeOcrScheduler {
+
+    private final OcrService ocrService;
+    private final Executor speculativeExecutor;
+    private final boolean enabled;
+    private final Counter completedCounter;
+    private final Counter failedCounter;
+    private final Counter droppedCounter;
+
+    @Autowired
+    public SpeculativeOcrScheduler(
+            OcrService ocrService,
+            @Qualifier("ocrSpeculativeExecutor") Executor speculativeExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${ocr.speculative.enabled:false}") boolean enabled) {
+        this.ocrService = ocrService;
+        this.speculativeExecutor = speculativeExecutor;
+        this.enabled = enabled;
+        this.completedCounter = documentCounter("completed", meterRegistry);
+        this.failedCounter = documentCounter("failed", meterRegistry);
+        this.droppedCounter = documentCounter("dropped", meterRegistry);
+    }
+
+    private static Counter documentCounter(String outcome, MeterRegistry meterRegistry) {
+        return Counter.builder("ocr.speculative.documents")
+                .description("Documents processed speculatively after their upload")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules the OCR of an uploaded document for after the current transaction commits, or right away if no
+     * transaction is active. Does nothing unless speculative OCR is enabled.
+     *
+     * @param documentId The ID of the uploaded document
+     * @param storageId The storage ID of the document
+     */
+    public void scheduleAfterCommit(Integer documentId, String storageId) {
+        if (!enabled) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(documentId, storageId);
+                }
+            });
+        } else {
+            submit(documentId, storageId);
+        }
+    }
+
+    private void submit(Integer documentId, String storageId) {
+        try {
+            speculativeExecutor.execute(() -> process(documentId, storageId));
+        } catch (RejectedExecutionException e) {
+            droppedCounter.increment();
+            log.debug("Speculative OCR executor is saturated, skipping document ID: {}", documentId);
+        }
+    }
+
+    /**
+     * Processes a document and waits for it, so each speculative thread has at most one document in flight.
+     */
+    private void process(Integer documentId, String storageId) {
+        try {
+            ocrService.processOrReuseAsync(documentId, storageId).join();
+            completedCounter.increment();
+        } catch (CompletionException | IllegalArgumentException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            failedCounter.increment();
+            log.warn("Speculative OCR failed for document ID {}: {}", documentId, cause.getMessage());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.mb.ocrservice.service;
 
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Interface for document storage operations.
@@ -22,7 +23,12 @@ public interface StorageService {
     String storeDocument(MultipartFile file, String documentType, String storageId) throws IOException;
     
     /**
-     * Deletes a document file from storage.
+     * Suffix of the OCR sidecar stored next to a document.
+     */
+    String OCR_SIDECAR_SUFFIX = ".ocr.pb.gz";
+
+    /**
+     * Deletes a document file, and its OCR sidecar if there is one, from storage.
      *
      * @param path The path or key of the file to delete
      * @throws IOException If an error occurs during file deletion
@@ -46,4 +52,22 @@ public interface StorageService {
     String getStorageLocation();
 
     public byte[] getDocumentByTypeAndStorage(String documentType, String storageId, String key) throws IOException;
+
+    /**
+     * Stores the OCR sidecar of a document next to it, replacing an earlier one.
+     *
+     * @param path The path or key of the document
+     * @param content The sidecar content
+     * @throws IOException If an error occurs during storage
+     */
+    void storeOcrSidecar(String path, byte[] content) throws IOException;
+
+    /**
+     * Gets the OCR sidecar of a document.
+     *
+     * @param path The path or key of the document
+     * @return The sidecar content, or empty if none was stored
+     * @throws IOException If an error occurs while reading the sidecar
+     */
+    Optional<byte[]> getOcrSidecar(String path) throws IOException;
 }
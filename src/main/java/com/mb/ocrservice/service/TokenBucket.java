@@ -0,0 +1,100 @@
+package com.mb.ocrservice.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that refills continuously at a fixed rate up to its capacity.
+ * Tokens can also be added explicitly, for buckets filled from an external budget rather than by time.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param capacity The largest number of tokens the bucket holds, and so the largest burst
+     * @param tokensPerSecond The refill rate, 0 for a bucket that is only filled by {@link #add(double)}
+     * @param nanoClock Source of {@link System#nanoTime()}-like timestamps
+     */
+    public TokenBucket(double capacity, double tokensPerSecond, LongSupplier nanoClock) {
+        if (capacity <= 0 || tokensPerSecond < 0) {
+            throw new IllegalArgumentException("Invalid token bucket: capacity " + capacity + ", rate " + tokensPerSecond);
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.lastRefill = nanoClock.getAsLong();
+        this.tokens = tokensPerSecond > 0 ? capacity : 0;
+    }
+
+    /**
+     * Takes tokens if enough are available.
+     *
+     * @param permits The number of tokens to take
+     * @return Whether the tokens were taken
+     */
+    public synchronized boolean tryAcquire(int permits) {
+        refill();
+        if (tokens < permits) {
+            return false;
+        }
+        tokens -= permits;
+        return true;
+    }
+
+    /**
+     * @param permits The number of tokens needed
+     * @return How long until that many tokens are available, 0 if they already are, or {@link Long#MAX_VALUE}
+     * if the bucket does not refill by itself
+     */
+    public synchronized long nanosUntilAvailable(int permits) {
+        refill();
+        double missing = permits - tokens;
+        if (missing <= 0) {
+            return 0;
+        }
+        if (tokensPerNano == 0 || permits > capacity) {
+            return Long.MAX_VALUE;
+        }
+        return (long) Math.ceil(missing / tokensPerNano);
+    }
+
+    /**
+     * Adds tokens, up to the capacity.
+     *
+     * @param permits The number of tokens to add
+     */
+    public synchronized void add(double permits) {
+        refill();
+        tokens = Math.min(capacity, tokens + permits);
+    }
+
+    /**
+     * Removes all tokens.
+     */
+    public synchronized void clear() {
+        refill();
+        tokens = 0;
+    }
+
+    /**
+     * @return The number of whole tokens available
+     */
+    public synchronized int available() {
+        refill();
+        return (int) tokens;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        if (tokensPerNano > 0) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        }
+        lastRefill = now;
+    }
+}
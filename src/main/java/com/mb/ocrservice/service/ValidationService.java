@@ -10,6 +10,8 @@ import com.mb.ocrservice.model.ValidationResult;
 import com.mb.ocrservice.repository.DocumentRepository;
 import com.mb.ocrservice.repository.OcrResultRepository;
 import com.mb.ocrservice.repository.ValidationResultRepository;
+import com.mb.ocrservice.service.extraction.BankStatementFieldExtractor;
+import com.mb.ocrservice.service.extraction.DocumentClassifier;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
@@ -141,7 +143,14 @@ public class ValidationService {
         Map<String, Object> structuredData = ocrResult.getStructuredData();
         
         // Convert to JsonNode for easier processing
-        JsonNode dataNode = objectMapper.valueToTree(structuredData);
+        ObjectNode dataNode = objectMapper.valueToTree(structuredData);
+        
+        // The classification of the document is not a field
+        JsonNode classification = dataNode.remove(DocumentClassifier.CLASSIFICATION_FIELD);
+        boolean isTypeMismatch = classification != null && classification.path("type_mismatch").asBoolean();
+        
+        // Neither is the transaction summary of a bank statement
+        JsonNode transactionSummary = dataNode.remove(BankStatementFieldExtractor.TRANSACTION_SUMMARY_FIELD);
         
         // Validate completeness
         boolean isComplete = validateCompleteness(documentType, dataNode);
@@ -153,14 +162,21 @@ public class ValidationService {
         // Validate confidence scores
         boolean isConfidenceAcceptable = validateConfidence(dataNode);
         
-        // Determine authenticity
-        boolean isAuthentic = isFormatValid && isConfidenceAcceptable;
+        // Determine authenticity; a document recognized as another type is never authentic
+        boolean isAuthentic = isFormatValid && isConfidenceAcceptable && !isTypeMismatch;
         
         // Calculate overall confidence score
         BigDecimal overallConfidenceScore = calculateOverallConfidence(dataNode, formatValidations);
         
         // Create validation details
         ObjectNode validationDetails = createValidationDetails(documentType, dataNode, formatValidations);
+        if (classification != null) {
+            validationDetails.put("detected_document_type", classification.path("detected_type").textValue());
+            validationDetails.put("document_type_mismatch", isTypeMismatch);
+        }
+        if (transactionSummary != null && transactionSummary.has("balance_continuity")) {
+            validationDetails.set("balance_continuity", transactionSummary.get("balance_continuity"));
+        }
         
         // Update validation result with new data
         validationResult.setIsAuthentic(isAuthentic);
@@ -0,0 +1,501 @@
+package com.mb.ocrservice.service;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.vision.v1.BatchAnnotateImagesRequest;
+import com.google.cloud.vision.v1.BatchAnnotateImagesResponse;
+import com.google.cloud.vision.v1.ImageAnnotatorClient;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.mb.ocrservice.exception.VisionApiException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The single path through which batchAnnotateImages calls reach Google Vision.
+ * <ul>
+ *     <li>Every call, retry and hedge first takes Vision quota for its images from the {@link VisionQuotaManager};
+ *     calls wait for quota rather than fail when the per-minute budget is spent.</li>
+ *     <li>An {@link AdaptiveConcurrencyLimiter} bounds the calls in flight; calls over the limit wait in a bounded
+ *     queue and are sent as earlier calls complete, so a slow Vision lowers throughput instead of piling up calls.</li>
+ *     <li>A {@link CircuitBreaker} fails calls fast while Vision keeps failing, and lets a few trial calls through
+ *     once the open period has elapsed.</li>
+ *     <li>Transient failures (UNAVAILABLE, RESOURCE_EXHAUSTED, DEADLINE_EXCEEDED, ABORTED, INTERNAL) are retried up to
+ *     {@code ocr.max-retries} times with jittered exponential backoff starting at {@code ocr.retry-delay-ms}. Retries
+ *     go through the circuit breaker and the limiter again, so they never add load to an overloaded Vision.</li>
+ *     <li>Optionally, a call still outstanding after a percentile of recent latencies is hedged: a duplicate is sent
+ *     and whichever returns first wins, the other is cancelled. The {@link HedgingPolicy} caps the share of calls
+ *     hedged, and a hedge is skipped rather than queued when the limiter has no free slot.</li>
+ * </ul>
+ * Futures are completed on the gRPC callback thread; callers should continue on their own executor.
+ */
+@Component
+@Slf4j
+public class VisionGateway {
+
+    private final ImageAnnotatorClient imageAnnotatorClient;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final CircuitBreaker circuitBreaker;
+    private final HedgingPolicy hedgingPolicy;
+    private final VisionQuotaManager quotaManager;
+    private final int maxRetries;
+    private final long retryDelayMs;
+    private final int maxQueuedCalls;
+    private final ScheduledExecutorService scheduler;
+
+    private final Queue<PendingCall> queued = new ArrayDeque<>();
+
+    private final Counter retries;
+    private final Counter rejectedCircuitOpen;
+    private final Counter rejectedQueueFull;
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+
+    @Autowired
+    public VisionGateway(
+            ImageAnnotatorClient imageAnnotatorClient,
+            @Qualifier("visionConcurrencyLimiter") AdaptiveConcurrencyLimiter limiter,
+            @Qualifier("visionCircuitBreaker") CircuitBreaker circuitBreaker,
+            @Qualifier("visionHedgingPolicy") HedgingPolicy hedgingPolicy,
+            VisionQuotaManager quotaManager,
+            MeterRegistry meterRegistry,
+            @Value("${ocr.max-retries:3}") int maxRetries,
+            @Value("${ocr.retry-delay-ms:5000}") long retryDelayMs,
+            @Value("${ocr.vision.limiter.max-queued:1000}") int maxQueuedCalls) {
+        this.imageAnnotatorClient = imageAnnotatorClient;
+        this.limiter = limiter;
+        this.circuitBreaker = circuitBreaker;
+        this.hedgingPolicy = hedgingPolicy;
+        this.quotaManager = quotaManager;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryDelayMs = Math.max(0, retryDelayMs);
+        this.maxQueuedCalls = maxQueuedCalls;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vision-gateway-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("ocr.vision.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current limit on concurrent Google Vision calls")
+                .register(meterRegistry);
+        Gauge.builder("ocr.vision.limiter.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Google Vision calls in flight")
+                .register(meterRegistry);
+        Gauge.builder("ocr.vision.limiter.queued", this, VisionGateway::getQueuedCalls)
+                .description("Google Vision calls waiting for the concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("ocr.vision.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Google Vision circuit state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        this.retries = Counter.builder("ocr.vision.retries")
+                .description("Google Vision calls retried after a transient failure")
+                .register(meterRegistry);
+        this.rejectedCircuitOpen = Counter.builder("ocr.vision.rejected")
+                .description("Google Vision calls refused without being sent")
+                .tag("reason", "circuit-open")
+                .register(meterRegistry);
+        this.rejectedQueueFull = Counter.builder("ocr.vision.rejected")
+                .description("Google Vision calls refused without being sent")
+                .tag("reason", "queue-full")
+                .register(meterRegistry);
+        this.hedgesSent = Counter.builder("ocr.vision.hedges.sent")
+                .description("Duplicate Google Vision calls sent because the original was slower than the hedging percentile")
+                .register(meterRegistry);
+        this.hedgesWon = Counter.builder("ocr.vision.hedges.won")
+                .description("Hedged Google Vision calls where the duplicate returned first")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return Whether a Google Vision client is configured
+     */
+    public boolean isAvailable() {
+        return imageAnnotatorClient != null;
+    }
+
+    /**
+     * Sends a batchAnnotateImages call once the concurrency limit allows, retrying transient failures.
+     *
+     * @param request The batch request
+     * @return A future completed with the response, or exceptionally with a {@link VisionApiException}
+     */
+    public CompletableFuture<BatchAnnotateImagesResponse> batchAnnotate(BatchAnnotateImagesRequest request) {
+        if (imageAnnotatorClient == null) {
+            throw new IllegalStateException("Google Vision client is not configured");
+        }
+        CompletableFuture<BatchAnnotateImagesResponse> result = new CompletableFuture<>();
+        acquireQuotaAndSubmit(new PendingCall(request, 0, result));
+        return result;
+    }
+
+    /**
+     * Waits for Vision quota for the images of a call, then submits it.
+     * If waiting for quota or submitting fails, the call fails instead of never completing.
+     *
+     * @param call The call to send
+     */
+    private void acquireQuotaAndSubmit(PendingCall call) {
+        if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            rejectedCircuitOpen.increment();
+            call.result().completeExceptionally(circuitOpen());
+            return;
+        }
+        quotaManager.acquire(call.request().getRequestsCount()).whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                call.result().completeExceptionally(toVisionApiException(ex));
+                return;
+            }
+            try {
+                submit(call);
+            } catch (Throwable t) {
+                call.result().completeExceptionally(toVisionApiException(t));
+            }
+        });
+    }
+
+    /**
+     * Sends a call if the limit allows, otherwise queues it.
+     *
+     * @param call The call to send
+     */
+    private void submit(PendingCall call) {
+        if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            rejectedCircuitOpen.increment();
+            call.result().completeExceptionally(circuitOpen());
+            return;
+        }
+
+        if (!limiter.tryAcquire()) {
+            synchronized (queued) {
+                if (queued.size() >= maxQueuedCalls) {
+                    rejectedQueueFull.increment();
+                    call.result().completeExceptionally(new VisionApiException(
+                            "Google Vision call queue is full", StatusCode.Code.RESOURCE_EXHAUSTED));
+                    return;
+                }
+                queued.add(call);
+            }
+            // A call may have completed between the failed acquire and queueing
+            dispatchQueued();
+            return;
+        }
+        dispatch(call);
+    }
+
+    /**
+     * Sends queued calls while the limit allows.
+     */
+    private void dispatchQueued() {
+        while (true) {
+            PendingCall call;
+            synchronized (queued) {
+                if (queued.isEmpty() || !limiter.tryAcquire()) {
+                    return;
+                }
+                call = queued.poll();
+            }
+            dispatch(call);
+        }
+    }
+
+    /**
+     * Sends a call that holds a limiter slot, and schedules its hedge if hedging is enabled.
+     *
+     * @param call The call to send
+     */
+    private void dispatch(PendingCall call) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            limiter.onIgnored();
+            rejectedCircuitOpen.increment();
+            call.result().completeExceptionally(circuitOpen());
+            dispatchQueued();
+            return;
+        }
+
+        Flight flight = new Flight(call);
+        sendLeg(flight, false);
+
+        OptionalLong hedgeDelayNanos = hedgingPolicy.onPrimaryCall();
+        if (hedgeDelayNanos.isPresent()) {
+            try {
+                scheduler.schedule(() -> hedge(flight), hedgeDelayNanos.getAsLong(), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                log.debug("Not hedging Google Vision call, scheduler is shut down");
+            }
+        }
+    }
+
+    /**
+     * Sends a duplicate of a call that is still outstanding, if the hedge rate, the limiter, the circuit breaker and
+     * the quota all allow it. A hedge never waits: if no slot or quota is free right away it is simply skipped.
+     *
+     * @param flight The outstanding call
+     */
+    private void hedge(Flight flight) {
+        if (flight.isDone() || !hedgingPolicy.tryAcquireHedge()) {
+            return;
+        }
+        if (!limiter.tryAcquire()) {
+            return;
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            limiter.onIgnored();
+            return;
+        }
+        if (!quotaManager.tryAcquire(flight.call().request().getRequestsCount()) || !flight.addLeg()) {
+            limiter.onIgnored();
+            circuitBreaker.releasePermission();
+            return;
+        }
+        hedgesSent.increment();
+        sendLeg(flight, true);
+    }
+
+    /**
+     * Sends one leg of a call, the primary or its hedge, holding a limiter slot and a circuit breaker permission.
+     *
+     * @param flight The call
+     * @param hedge Whether this leg is the hedge
+     */
+    private void sendLeg(Flight flight, boolean hedge) {
+        long start = System.nanoTime();
+        ApiFuture<BatchAnnotateImagesResponse> responseFuture;
+        try {
+            responseFuture = imageAnnotatorClient.batchAnnotateImagesCallable().futureCall(flight.call().request());
+        } catch (RuntimeException e) {
+            onLegFailure(flight, e);
+            return;
+        }
+        flight.track(responseFuture);
+
+        ApiFutures.addCallback(responseFuture, new ApiFutureCallback<>() {
+            @Override
+            public void onSuccess(BatchAnnotateImagesResponse response) {
+                long latency = System.nanoTime() - start;
+                limiter.onSuccess(latency);
+                circuitBreaker.onSuccess();
+                hedgingPolicy.recordLatency(latency);
+                dispatchQueued();
+                if (flight.finish()) {
+                    if (hedge) {
+                        hedgesWon.increment();
+                    }
+                    flight.cancelOtherLegs(responseFuture);
+                    flight.call().result().complete(response);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                onLegFailure(flight, t);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Releases the slot of a failed leg. Once no leg of the call is left, retries the call or fails it.
+     *
+     * @param flight The call
+     * @param t The failure
+     */
+    private void onLegFailure(Flight flight, Throwable t) {
+        if (flight.isDone() && t instanceof CancellationException) {
+            // The losing leg of a hedged call
+            limiter.onIgnored();
+            circuitBreaker.releasePermission();
+            return;
+        }
+
+        VisionApiException failure = toVisionApiException(t);
+        if (failure.isOverload()) {
+            limiter.onDropped();
+        } else {
+            limiter.onIgnored();
+        }
+        if (failure.isRetryable() || failure.getStatusCode() == StatusCode.Code.UNKNOWN) {
+            circuitBreaker.onFailure();
+        } else {
+            // Vision answered; the request itself was bad
+            circuitBreaker.onSuccess();
+        }
+        dispatchQueued();
+
+        if (flight.legFailed()) {
+            retryOrFail(flight.call(), failure);
+        }
+    }
+
+    /**
+     * Retries a failed call after a backoff delay, or fails it if the failure is permanent or retries are used up.
+     *
+     * @param call The call that failed
+     * @param failure The failure
+     */
+    private void retryOrFail(PendingCall call, VisionApiException failure) {
+        if (!failure.isRetryable() || call.attempt() >= maxRetries) {
+            call.result().completeExceptionally(failure);
+            return;
+        }
+
+        long delayMs = backoffDelayMs(call.attempt());
+        log.warn("Google Vision call failed with {}, retrying in {} ms (attempt {} of {})",
+                failure.getStatusCode(), delayMs, call.attempt() + 1, maxRetries);
+        retries.increment();
+        try {
+            scheduler.schedule(() -> acquireQuotaAndSubmit(call.nextAttempt()), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            call.result().completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Exponential backoff with jitter: half of the exponential delay is fixed, the other half random, so calls
+     * that failed together are not retried together.
+     *
+     * @param attempt The attempt that failed, 0 for the first call
+     * @return The delay before the next attempt, in milliseconds
+     */
+    private long backoffDelayMs(int attempt) {
+        long delay = retryDelayMs << Math.min(attempt, 20);
+        long half = delay / 2;
+        return half + (half > 0 ? ThreadLocalRandom.current().nextLong(half + 1) : 0);
+    }
+
+    private static VisionApiException toVisionApiException(Throwable t) {
+        Throwable cause = t;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof VisionApiException visionApiException) {
+            return visionApiException;
+        }
+        StatusCode.Code code = cause instanceof ApiException apiException
+                ? apiException.getStatusCode().getCode()
+                : StatusCode.Code.UNKNOWN;
+        return new VisionApiException("Google Vision call failed: " + cause.getMessage(), code, cause);
+    }
+
+    private static VisionApiException circuitOpen() {
+        return new VisionApiException("Google Vision circuit is open", StatusCode.Code.UNAVAILABLE);
+    }
+
+    /**
+     * @return The number of calls waiting for the concurrency limit
+     */
+    public int getQueuedCalls() {
+        synchronized (queued) {
+            return queued.size();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * The legs in flight for one attempt of a call: the primary and, if it was hedged, its duplicate.
+     * The attempt is decided by the first leg to succeed, or by the last leg to fail.
+     */
+    private static final class Flight {
+
+        private final PendingCall call;
+        private final List<ApiFuture<BatchAnnotateImagesResponse>> legs = new ArrayList<>(2);
+        private int outstanding = 1;
+        private boolean done;
+
+        Flight(PendingCall call) {
+            this.call = call;
+        }
+
+        PendingCall call() {
+            return call;
+        }
+
+        synchronized boolean isDone() {
+            return done;
+        }
+
+        /**
+         * @return Whether a hedge leg may still be added, in which case it counts as outstanding
+         */
+        synchronized boolean addLeg() {
+            if (done) {
+                return false;
+            }
+            outstanding++;
+            return true;
+        }
+
+        synchronized void track(ApiFuture<BatchAnnotateImagesResponse> leg) {
+            legs.add(leg);
+        }
+
+        /**
+         * @return Whether this leg is the first to succeed and so decides the attempt
+         */
+        synchronized boolean finish() {
+            if (done) {
+                return false;
+            }
+            done = true;
+            return true;
+        }
+
+        /**
+         * @return Whether this was the last outstanding leg and so decides the attempt
+         */
+        synchronized boolean legFailed() {
+            outstanding--;
+            if (done || outstanding > 0) {
+                return false;
+            }
+            done = true;
+            return true;
+        }
+
+        void cancelOtherLegs(ApiFuture<BatchAnnotateImagesResponse> winner) {
+            List<ApiFuture<BatchAnnotateImagesResponse>> others;
+            synchronized (this) {
+                others = new ArrayList<>(legs);
+            }
+            others.stream().filter(leg -> leg != winner).forEach(leg -> leg.cancel(true));
+        }
+    }
+
+    /**
+     * A batch call together with the caller's future and the number of attempts made so far.
+     */
+    private record PendingCall(BatchAnnotateImagesRequest request, int attempt,
+                               CompletableFuture<BatchAnnotateImagesResponse> result) {
+
+        PendingCall nextAttempt() {
+            return new PendingCall(request, attempt + 1, result);
+        }
+    }
+}
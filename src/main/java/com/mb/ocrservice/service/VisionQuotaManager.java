@@ -0,0 +1,330 @@
+package com.mb.ocrservice.service;
+
+import com.mb.ocrservice.repository.VisionQuotaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-minute budget for Google Vision, counted in images.
+ * <p>
+ * Standalone, each instance spends from a local {@link TokenBucket} refilled at {@code per-minute / 60} tokens per
+ * second with a burst of {@code burst}. With {@code coordinated} enabled, all instances share one budget of
+ * {@code per-minute} images per minute in the {@code vision_quotas} table: an instance leases {@code lease-size}
+ * tokens at a time with a single conditional update and spends them locally until the end of the database minute
+ * they were charged to, so the database is not hit per call.
+ * If the database cannot be reached, the instance falls back to its local bucket rather than stopping OCR.
+ * <p>
+ * Callers are never refused: when the budget is spent they wait, in order, until tokens become available.
+ * Waiting is asynchronous, and database leases are only taken on the quota manager's own thread.
+ */
+@Component
+@Slf4j
+public class VisionQuotaManager {
+
+    static final String QUOTA_NAME = "google-vision";
+
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final VisionQuotaRepository visionQuotaRepository;
+    private final boolean enabled;
+    private final boolean coordinated;
+    private final int perMinute;
+    private final int burst;
+    private final int leaseSize;
+    private final long pollIntervalNanos;
+    private final TokenBucket localBucket;
+    private final TokenBucket leasedTokens;
+    private final ScheduledExecutorService scheduler;
+
+    private final Object lock = new Object();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private boolean drainScheduled;
+    private long leaseExpiresAt;
+
+    private final Timer waitTimer;
+    private final Counter leasesGranted;
+    private final Counter leasesDenied;
+    private final Counter leaseErrors;
+
+    @Autowired
+    public VisionQuotaManager(
+            VisionQuotaRepository visionQuotaRepository,
+            MeterRegistry meterRegistry,
+            @Value("${ocr.vision.quota.enabled:true}") boolean enabled,
+            @Value("${ocr.vision.quota.coordinated:false}") boolean coordinated,
+            @Value("${ocr.vision.quota.per-minute:1800}") int perMinute,
+            @Value("${ocr.vision.quota.burst:100}") int burst,
+            @Value("${ocr.vision.quota.lease-size:20}") int leaseSize,
+            @Value("${ocr.vision.quota.poll-interval-ms:1000}") long pollIntervalMs) {
+        this.visionQuotaRepository = visionQuotaRepository;
+        this.enabled = enabled;
+        this.coordinated = coordinated;
+        this.perMinute = Math.max(1, perMinute);
+        this.burst = Math.max(1, burst);
+        this.leaseSize = Math.max(1, Math.min(leaseSize, this.perMinute));
+        this.pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, pollIntervalMs));
+        this.localBucket = new TokenBucket(this.burst, this.perMinute / 60.0, System::nanoTime);
+        this.leasedTokens = new TokenBucket(2.0 * this.leaseSize + this.perMinute, 0, System::nanoTime);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vision-quota");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.leaseExpiresAt = System.nanoTime();
+
+        Gauge.builder("ocr.vision.quota.waiting", this, VisionQuotaManager::getWaiting)
+                .description("Google Vision calls waiting for quota")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("ocr.vision.quota.wait")
+                .description("Time Google Vision calls waited for quota")
+                .register(meterRegistry);
+        this.leasesGranted = Counter.builder("ocr.vision.quota.leases")
+                .description("Leases of the shared Google Vision budget")
+                .tag("outcome", "granted")
+                .register(meterRegistry);
+        this.leasesDenied = Counter.builder("ocr.vision.quota.leases")
+                .description("Leases of the shared Google Vision budget")
+                .tag("outcome", "denied")
+                .register(meterRegistry);
+        this.leaseErrors = Counter.builder("ocr.vision.quota.leases")
+                .description("Leases of the shared Google Vision budget")
+                .tag("outcome", "error")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits for quota.
+     *
+     * @param images The number of images about to be sent
+     * @return A future completed once the quota for the images has been taken
+     */
+    public CompletableFuture<Void> acquire(int images) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int permits = permitsFor(images);
+        synchronized (lock) {
+            if (waiters.isEmpty() && tryTake(permits)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            Waiter waiter = new Waiter(permits, System.nanoTime(), new CompletableFuture<>());
+            waiters.add(waiter);
+            scheduleDrain(0);
+            return waiter.future();
+        }
+    }
+
+    /**
+     * Takes quota only if it is available right away and nobody is waiting, for calls that are optional.
+     *
+     * @param images The number of images about to be sent
+     * @return Whether the quota was taken
+     */
+    public boolean tryAcquire(int images) {
+        if (!enabled) {
+            return true;
+        }
+        synchronized (lock) {
+            return waiters.isEmpty() && tryTake(permitsFor(images));
+        }
+    }
+
+    /**
+     * @return The number of callers waiting for quota
+     */
+    public int getWaiting() {
+        synchronized (lock) {
+            return waiters.size();
+        }
+    }
+
+    private int permitsFor(int images) {
+        // A request larger than the whole budget could never be served otherwise
+        return Math.max(1, Math.min(images, coordinated ? perMinute : burst));
+    }
+
+    /**
+     * Takes tokens from what this instance holds locally. Must be called while holding the lock.
+     */
+    private boolean tryTake(int permits) {
+        if (!coordinated) {
+            return localBucket.tryAcquire(permits);
+        }
+        if (System.nanoTime() - leaseExpiresAt > 0) {
+            // Unspent tokens of an old lease belong to a past minute
+            leasedTokens.clear();
+        }
+        return leasedTokens.tryAcquire(permits);
+    }
+
+    /**
+     * Schedules a drain of the waiters unless one is already scheduled. Must be called while holding the lock.
+     */
+    private void scheduleDrain(long delayNanos) {
+        if (drainScheduled) {
+            return;
+        }
+        drainScheduled = true;
+        try {
+            scheduler.schedule(this::drain, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            drainScheduled = false;
+            log.warn("Google Vision quota manager is shut down, releasing waiting calls");
+            waiters.forEach(waiter -> waiter.future().complete(null));
+            waiters.clear();
+        }
+    }
+
+    /**
+     * Serves waiters in order while tokens are available, leasing more from the shared budget when coordinated.
+     * Runs on the quota manager's thread only. Waiters are never stranded: if serving them fails, another drain is
+     * scheduled.
+     */
+    private void drain() {
+        try {
+            drainWaiters();
+        } catch (RuntimeException e) {
+            log.error("Error serving calls waiting for Google Vision quota", e);
+            synchronized (lock) {
+                if (!waiters.isEmpty()) {
+                    scheduleDrain(pollIntervalNanos);
+                }
+            }
+        }
+    }
+
+    private void drainWaiters() {
+        while (true) {
+            Waiter served = null;
+            int needed;
+            synchronized (lock) {
+                drainScheduled = false;
+                Waiter head = waiters.peek();
+                if (head == null) {
+                    return;
+                }
+                needed = head.permits();
+                if (tryTake(needed)) {
+                    served = waiters.poll();
+                }
+            }
+
+            if (served != null) {
+                waitTimer.record(System.nanoTime() - served.since(), TimeUnit.NANOSECONDS);
+                served.future().complete(null);
+                continue;
+            }
+            if (coordinated && lease(needed)) {
+                continue;
+            }
+
+            synchronized (lock) {
+                long delayNanos = coordinated ? pollIntervalNanos : localBucket.nanosUntilAvailable(needed);
+                scheduleDrain(Math.min(delayNanos, MINUTE_NANOS));
+            }
+            return;
+        }
+    }
+
+    /**
+     * Leases tokens from the shared budget into the local lease.
+     *
+     * @param needed The number of tokens the next waiter needs
+     * @return Whether tokens were added
+     */
+    private boolean lease(int needed) {
+        try {
+            int size = Math.max(leaseSize, needed);
+            Optional<Long> millisLeft = visionQuotaRepository.lease(QUOTA_NAME, size, perMinute);
+            if (millisLeft.isEmpty() && size > needed) {
+                // The rest of this minute's budget may still cover the waiter
+                size = needed;
+                millisLeft = visionQuotaRepository.lease(QUOTA_NAME, size, perMinute);
+            }
+            if (millisLeft.isEmpty()) {
+                leasesDenied.increment();
+                return false;
+            }
+            leasesGranted.increment();
+            addLeased(size, TimeUnit.MILLISECONDS.toNanos(Math.max(0, millisLeft.get())));
+            return true;
+        } catch (RuntimeException e) {
+            // Not only DataAccessException: the transactional proxy throws CannotCreateTransactionException when
+            // no connection can be obtained
+            leaseErrors.increment();
+            log.warn("Could not lease Google Vision quota from the database, using the local budget: {}", e.getMessage());
+            if (localBucket.tryAcquire(needed)) {
+                addLocal(needed);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Adds tokens taken from the shared budget. They expire at the end of the database minute they were charged to.
+     *
+     * @param permits The number of tokens
+     * @param nanosLeft The time left in the minute the tokens were charged to
+     */
+    private void addLeased(int permits, long nanosLeft) {
+        synchronized (lock) {
+            long now = System.nanoTime();
+            long expiresAt = now + nanosLeft;
+            // A lease ending a good part of a minute after the current one was charged to the next minute
+            if (now - leaseExpiresAt > 0 || expiresAt - leaseExpiresAt > MINUTE_NANOS / 2) {
+                leasedTokens.clear();
+            }
+            leasedTokens.add(permits);
+            leaseExpiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Adds tokens taken from the local budget while the database cannot be reached. They expire with the current
+     * lease, or after a minute if there is none.
+     *
+     * @param permits The number of tokens
+     */
+    private void addLocal(int permits) {
+        synchronized (lock) {
+            long now = System.nanoTime();
+            if (now - leaseExpiresAt > 0) {
+                leasedTokens.clear();
+                leaseExpiresAt = now + MINUTE_NANOS;
+            }
+            leasedTokens.add(permits);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        synchronized (lock) {
+            waiters.forEach(waiter -> waiter.future().complete(null));
+            waiters.clear();
+        }
+    }
+
+    /**
+     * A caller waiting for quota.
+     */
+    private record Waiter(int permits, long since, CompletableFuture<Void> future) {
+    }
+}
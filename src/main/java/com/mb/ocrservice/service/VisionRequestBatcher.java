@@ -0,0 +1,225 @@
+package com.mb.ocrservice.service;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.BatchAnnotateImagesRequest;
+import com.google.cloud.vision.v1.BatchAnnotateImagesResponse;
+import com.google.cloud.vision.v1.ImageAnnotatorClient;
+import com.mb.ocrservice.exception.OcrProcessingException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Micro-batcher between the OCR pipeline and {@link ImageAnnotatorClient}.
+ * Concurrent annotate requests are collected for up to {@code max-delay-ms} or until {@code max-size} images
+ * (at most 16, the Vision limit per batchAnnotateImages call) or {@code max-bytes} of image content are pending,
+ * whichever comes first, and are then sent as a single RPC. Each caller's future is completed from the matching
+ * {@link AnnotateImageResponse}; an error on one image fails only that image's future.
+ * <p>
+ * Batches are sent through the {@link VisionGateway}, so no thread is held while a call is in flight and the number
+ * of outstanding Vision calls is bounded by the gateway's adaptive limit rather than a thread count. Futures are
+ * completed on the gRPC callback thread; callers should continue on their own executor.
+ */
+@Component
+@Slf4j
+public class VisionRequestBatcher {
+
+    /**
+     * Maximum number of images Google Vision accepts in one batchAnnotateImages call.
+     */
+    private static final int VISION_MAX_BATCH_SIZE = 16;
+
+    private final VisionGateway visionGateway;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxDelayMs;
+    private final long maxBatchBytes;
+    private final ScheduledExecutorService flushScheduler;
+    private final DistributionSummary batchSizeSummary;
+
+    private final Object lock = new Object();
+    private List<PendingRequest> pending = new ArrayList<>();
+    private long pendingBytes;
+    private ScheduledFuture<?> scheduledFlush;
+
+    @Autowired
+    public VisionRequestBatcher(
+            VisionGateway visionGateway,
+            MeterRegistry meterRegistry,
+            @Value("${ocr.vision.batch.enabled:true}") boolean enabled,
+            @Value("${ocr.vision.batch.max-size:16}") int maxBatchSize,
+            @Value("${ocr.vision.batch.max-delay-ms:50}") long maxDelayMs,
+            @Value("${ocr.vision.batch.max-bytes:31457280}") long maxBatchBytes) {
+        this.visionGateway = visionGateway;
+        this.enabled = enabled;
+        this.maxBatchSize = Math.max(1, Math.min(maxBatchSize, VISION_MAX_BATCH_SIZE));
+        this.maxDelayMs = maxDelayMs;
+        this.maxBatchBytes = maxBatchBytes;
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vision-batch-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchSizeSummary = DistributionSummary.builder("ocr.vision.batch.size")
+                .description("Number of images sent per batchAnnotateImages call")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues an annotate request for the next batch.
+     *
+     * @param request The annotate request for a single image
+     * @return A future completed with the response for this image, or exceptionally if the image or the batch failed
+     */
+    public CompletableFuture<AnnotateImageResponse> annotate(AnnotateImageRequest request) {
+        if (!visionGateway.isAvailable()) {
+            throw new IllegalStateException("Google Vision client is not configured");
+        }
+
+        PendingRequest pendingRequest = new PendingRequest(request, new CompletableFuture<>());
+        if (!enabled) {
+            send(List.of(pendingRequest));
+            return pendingRequest.future();
+        }
+
+        List<List<PendingRequest>> ready = new ArrayList<>();
+        long requestBytes = request.getImage().getContent().size();
+        synchronized (lock) {
+            // Flush what is pending first if this image would push the batch over the byte limit
+            if (!pending.isEmpty() && pendingBytes + requestBytes > maxBatchBytes) {
+                ready.add(drainPending());
+            }
+
+            pending.add(pendingRequest);
+            pendingBytes += requestBytes;
+
+            if (pending.size() >= maxBatchSize || pendingBytes >= maxBatchBytes) {
+                ready.add(drainPending());
+            } else if (scheduledFlush == null) {
+                scheduledFlush = flushScheduler.schedule(this::flushPending, maxDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        ready.forEach(this::send);
+        return pendingRequest.future();
+    }
+
+    /**
+     * Sends whatever is pending once the batching delay of the oldest pending request has elapsed.
+     */
+    private void flushPending() {
+        List<PendingRequest> ready;
+        synchronized (lock) {
+            scheduledFlush = null;
+            ready = drainPending();
+        }
+        send(ready);
+    }
+
+    /**
+     * Takes all pending requests and resets the batch. Must be called while holding the lock.
+     *
+     * @return The pending requests
+     */
+    private List<PendingRequest> drainPending() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        List<PendingRequest> drained = pending;
+        pending = new ArrayList<>();
+        pendingBytes = 0;
+        return drained;
+    }
+
+    /**
+     * Sends a batch as a single batchAnnotateImages call and completes each request from its matching response
+     * once the call returns.
+     *
+     * @param batch The requests to send
+     */
+    private void send(List<PendingRequest> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSizeSummary.record(batch.size());
+
+        CompletableFuture<BatchAnnotateImagesResponse> responseFuture;
+        try {
+            BatchAnnotateImagesRequest request = BatchAnnotateImagesRequest.newBuilder()
+                    .addAllRequests(batch.stream().map(PendingRequest::request).collect(Collectors.toList()))
+                    .build();
+            responseFuture = visionGateway.batchAnnotate(request);
+        } catch (Exception e) {
+            failBatch(batch, e);
+            return;
+        }
+
+        responseFuture.whenComplete((response, t) -> {
+            if (t != null) {
+                failBatch(batch, t);
+            } else {
+                log.debug("Received Google Vision response for batch of {} images", batch.size());
+                completeBatch(batch, response);
+            }
+        });
+    }
+
+    /**
+     * Completes each request of a batch from its matching response.
+     *
+     * @param batch The requests that were sent
+     * @param response The response of the batch call
+     */
+    private void completeBatch(List<PendingRequest> batch, BatchAnnotateImagesResponse response) {
+        for (int i = 0; i < batch.size(); i++) {
+            CompletableFuture<AnnotateImageResponse> future = batch.get(i).future();
+            if (i >= response.getResponsesCount()) {
+                future.completeExceptionally(new OcrProcessingException("Error performing OCR: no response for image"));
+                continue;
+            }
+
+            AnnotateImageResponse imageResponse = response.getResponses(i);
+            if (imageResponse.hasError()) {
+                future.completeExceptionally(new OcrProcessingException(
+                        "Error performing OCR: " + imageResponse.getError().getMessage()));
+            } else {
+                future.complete(imageResponse);
+            }
+        }
+    }
+
+    private void failBatch(List<PendingRequest> batch, Throwable t) {
+        log.error("Google Vision batch of {} images failed", batch.size(), t);
+        OcrProcessingException failure = t instanceof OcrProcessingException ocrProcessingException
+                ? ocrProcessingException
+                : new OcrProcessingException("Error performing OCR: " + t.getMessage(), t);
+        batch.forEach(pendingRequest -> pendingRequest.future().completeExceptionally(failure));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushPending();
+        flushScheduler.shutdown();
+    }
+
+    /**
+     * An annotate request waiting for its batch, together with the caller's future.
+     */
+    private record PendingRequest(AnnotateImageRequest request, CompletableFuture<AnnotateImageResponse> future) {
+    }
+}
@@ -0,0 +1,197 @@
+package com.mb.ocrservice.service;
+
+import com.google.cloud.vision.v1.Block;
+import com.google.cloud.vision.v1.Page;
+import com.google.cloud.vision.v1.Paragraph;
+import com.google.cloud.vision.v1.Symbol;
+import com.google.cloud.vision.v1.TextAnnotation;
+import com.google.cloud.vision.v1.Vertex;
+import com.google.cloud.vision.v1.Word;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Attaches the Vision words each extracted field was read from to the structured data: the field gets
+ * {@code ocr_confidence} (the average confidence of its words), {@code page} (1-based), {@code bounding_box}
+ * (the box around its words) and {@code words} (each word's text, confidence and box).
+ * <p>
+ * Field values are normalized by the extractors (whitespace removed, Devanagari dropped, ...), so values are matched
+ * against runs of consecutive words by their letters and digits only, case-insensitively. The first run on a single
+ * page that spells the value is taken; fields without one are left as they are.
+ */
+public final class WordEvidence {
+
+    private static final List<String> EVIDENCE_KEYS = List.of("ocr_confidence", "page", "bounding_box", "words");
+
+    private WordEvidence() {
+    }
+
+    /**
+     * Adds word-level evidence to every field of the structured data that can be located in the annotation.
+     *
+     * @param structuredData The structured data, with fields as maps holding a {@code value}
+     * @param annotation The annotation the text of the structured data was recognized with
+     * @return The structured data with evidence added to the fields that were located
+     */
+    public static Map<String, Object> attach(Map<String, Object> structuredData, TextAnnotation annotation) {
+        List<AnnotatedWord> words = words(annotation);
+        Map<String, Object> result = new HashMap<>(structuredData);
+        for (Map.Entry<String, Object> field : structuredData.entrySet()) {
+            if (!(field.getValue() instanceof Map<?, ?> fieldData) || !(fieldData.get("value") instanceof String value)) {
+                continue;
+            }
+            List<AnnotatedWord> run = locate(words, key(value));
+            if (run.isEmpty()) {
+                continue;
+            }
+
+            Map<String, Object> enriched = new HashMap<>();
+            fieldData.forEach((name, data) -> enriched.put(String.valueOf(name), data));
+            float confidence = 0;
+            List<Map<String, Object>> wordData = new ArrayList<>();
+            for (AnnotatedWord word : run) {
+                confidence += word.confidence();
+                Map<String, Object> data = new LinkedHashMap<>();
+                data.put("text", word.text());
+                data.put("confidence", word.confidence());
+                data.put("bounding_box", box(word.box()));
+                wordData.add(data);
+            }
+            enriched.put("ocr_confidence", confidence / run.size());
+            enriched.put("page", run.get(0).page() + 1);
+            enriched.put("bounding_box", box(union(run)));
+            enriched.put("words", wordData);
+            result.put(field.getKey(), enriched);
+        }
+        return result;
+    }
+
+    /**
+     * Copies the word-level evidence of fields whose value did not change from earlier structured data, for
+     * re-extraction from text alone.
+     *
+     * @param structuredData The structured data extracted again
+     * @param previous The earlier structured data, which may hold evidence
+     * @return The structured data with the evidence of unchanged fields copied over
+     */
+    public static Map<String, Object> carryOver(Map<String, Object> structuredData, Map<String, Object> previous) {
+        Map<String, Object> result = new HashMap<>(structuredData);
+        for (Map.Entry<String, Object> field : structuredData.entrySet()) {
+            if (!(field.getValue() instanceof Map<?, ?> fieldData)
+                    || !(previous.get(field.getKey()) instanceof Map<?, ?> previousData)
+                    || !previousData.containsKey("words")
+                    || !Objects.equals(fieldData.get("value"), previousData.get("value"))) {
+                continue;
+            }
+            Map<String, Object> enriched = new HashMap<>();
+            fieldData.forEach((name, data) -> enriched.put(String.valueOf(name), data));
+            for (String key : EVIDENCE_KEYS) {
+                if (previousData.containsKey(key)) {
+                    enriched.put(key, previousData.get(key));
+                }
+            }
+            result.put(field.getKey(), enriched);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first run of consecutive words on one page whose keys concatenate to the key of a value.
+     */
+    private static List<AnnotatedWord> locate(List<AnnotatedWord> words, String valueKey) {
+        if (valueKey.isEmpty()) {
+            return List.of();
+        }
+        for (int start = 0; start < words.size(); start++) {
+            int matched = 0;
+            for (int end = start; end < words.size(); end++) {
+                AnnotatedWord word = words.get(end);
+                if (word.page() != words.get(start).page() || !valueKey.startsWith(word.key(), matched)) {
+                    break;
+                }
+                matched += word.key().length();
+                if (matched == valueKey.length()) {
+                    return words.subList(start, end + 1);
+                }
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Lists the words of the annotation in reading order, leaving out words without letters or digits.
+     */
+    private static List<AnnotatedWord> words(TextAnnotation annotation) {
+        List<AnnotatedWord> words = new ArrayList<>();
+        for (int p = 0; p < annotation.getPagesCount(); p++) {
+            Page page = annotation.getPages(p);
+            for (Block block : page.getBlocksList()) {
+                for (Paragraph paragraph : block.getParagraphsList()) {
+                    for (Word word : paragraph.getWordsList()) {
+                        StringBuilder text = new StringBuilder();
+                        for (Symbol symbol : word.getSymbolsList()) {
+                            text.append(symbol.getText());
+                        }
+                        String key = key(text);
+                        if (!key.isEmpty()) {
+                            words.add(new AnnotatedWord(text.toString(), key, word.getConfidence(), p,
+                                    word.getBoundingBox().getVerticesList()));
+                        }
+                    }
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The letters and digits of a text, lower-cased.
+     */
+    private static String key(CharSequence text) {
+        StringBuilder key = new StringBuilder(text.length());
+        text.codePoints()
+                .filter(Character::isLetterOrDigit)
+                .map(Character::toLowerCase)
+                .forEach(key::appendCodePoint);
+        return key.toString();
+    }
+
+    private static List<Vertex> union(List<AnnotatedWord> run) {
+        List<Vertex> vertices = new ArrayList<>();
+        run.forEach(word -> vertices.addAll(word.box()));
+        return vertices;
+    }
+
+    /**
+     * The axis-aligned box around a polygon, as {@code x}, {@code y}, {@code width} and {@code height} in pixels.
+     */
+    private static Map<String, Object> box(List<Vertex> vertices) {
+        Map<String, Object> box = new LinkedHashMap<>();
+        if (vertices.isEmpty()) {
+            return box;
+        }
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (Vertex vertex : vertices) {
+            minX = Math.min(minX, vertex.getX());
+            minY = Math.min(minY, vertex.getY());
+            maxX = Math.max(maxX, vertex.getX());
+            maxY = Math.max(maxY, vertex.getY());
+        }
+        box.put("x", minX);
+        box.put("y", minY);
+        box.put("width", maxX - minX);
+        box.put("height", maxY - minY);
+        return box;
+    }
+
+    private record AnnotatedWord(String text, String key, float confidence, int page, List<Vertex> box) {
+    }
+}
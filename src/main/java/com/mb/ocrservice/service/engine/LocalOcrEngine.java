@@ -0,0 +1,346 @@
+package com.mb.ocrservice.service.engine;
+
+import com.mb.ocrservice.exception.OcrProcessingException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline OCR engine for development, load tests and capacity planning.
+ * <p>
+ * The text of a document is generated from a corpus of templates per document type ({@code ocr-corpus/<TYPE>.txt}
+ * on the classpath, {@code DEFAULT.txt} for other types), with names, numbers and dates filled in from a random
+ * generator seeded by the document content. The same content therefore always yields the same text, while different
+ * documents get different, realistically formatted values.
+ * <p>
+ * Latency follows a lognormal distribution fitted to the configured p50 and p99, and a configurable share of calls
+ * fails, so the whole pipeline can be exercised under realistic load without network access. Completion is
+ * scheduled with a delay rather than by sleeping, so no thread is held while a call is "in flight", as with Vision.
+ * Latency and errors are drawn from a generator with a fixed seed, so a run is reproducible for the same sequence
+ * of calls.
+ */
+@Slf4j
+public class LocalOcrEngine implements OcrEngine {
+
+    public static final String NAME = "local";
+
+    private static final String CORPUS_LOCATION = "ocr-corpus/";
+    private static final String DEFAULT_CORPUS = "DEFAULT";
+    private static final String TEMPLATE_SEPARATOR = "---";
+    // Standard normal quantile of the 99th percentile
+    private static final double Z_99 = 2.3263478740408408;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final LocalDate REFERENCE_DATE = LocalDate.of(2024, 1, 1);
+
+    private static final String[] FIRST_NAMES = {
+            "Aarav", "Vivaan", "Aditya", "Vihaan", "Arjun", "Sai", "Reyansh", "Krishna", "Ishaan", "Rohan",
+            "Ananya", "Diya", "Aadhya", "Saanvi", "Priya", "Kavya", "Meera", "Pooja", "Neha", "Lakshmi"};
+    private static final String[] LAST_NAMES = {
+            "Sharma", "Verma", "Patel", "Reddy", "Nair", "Iyer", "Gupta", "Singh", "Kumar", "Das",
+            "Mehta", "Joshi", "Rao", "Menon", "Chopra", "Bose", "Kulkarni", "Pillai", "Agarwal", "Mishra"};
+    private static final String[][] CITIES = {
+            {"Bangalore", "Karnataka", "560"}, {"Mumbai", "Maharashtra", "400"}, {"Chennai", "Tamil Nadu", "600"},
+            {"Hyderabad", "Telangana", "500"}, {"Pune", "Maharashtra", "411"}, {"Kolkata", "West Bengal", "700"},
+            {"Delhi", "Delhi", "110"}, {"Ahmedabad", "Gujarat", "380"}, {"Jaipur", "Rajasthan", "302"},
+            {"Kochi", "Kerala", "682"}};
+    private static final String[] STATE_CODES = {"KA", "MH", "TN", "TS", "MH", "WB", "DL", "GJ", "RJ", "KL"};
+    private static final String[] STREETS = {
+            "Main Street", "MG Road", "Park Avenue", "Station Road", "Temple Street", "Lake View Road",
+            "Gandhi Nagar", "Nehru Street", "Church Road", "Market Road"};
+    private static final String[] BANKS = {"HDFC", "SBI", "ICICI", "AXIS", "KOTAK", "PNB", "CANARA"};
+    private static final String[] BLOOD_GROUPS = {"A+", "A-", "B+", "B-", "O+", "O-", "AB+", "AB-"};
+    private static final String[] DEBITS = {
+            "Rent Payment", "Grocery Shopping", "Utility Bills", "Online Purchase", "ATM Withdrawal",
+            "EMI Payment", "Fuel", "Restaurant", "Insurance Premium", "Mobile Recharge"};
+    private static final String[] CREDITS = {"Salary", "Interest Credit", "Deposit", "Refund", "Transfer In"};
+
+    private final double mu;
+    private final double sigma;
+    private final double errorRate;
+    private final Random random;
+    private final Map<String, List<String>> corpus = new ConcurrentHashMap<>();
+
+    /**
+     * @param latencyP50Ms The median latency of a call, in milliseconds; 0 completes calls immediately
+     * @param latencyP99Ms The 99th percentile latency of a call, in milliseconds
+     * @param errorRate The share of calls, between 0 and 1, that fail
+     * @param seed The seed of the latency and error generator
+     */
+    public LocalOcrEngine(long latencyP50Ms, long latencyP99Ms, double errorRate, long seed) {
+        if (latencyP50Ms < 0 || latencyP99Ms < latencyP50Ms) {
+            throw new IllegalArgumentException("Invalid local OCR latency: p50 " + latencyP50Ms + ", p99 " + latencyP99Ms);
+        }
+        this.mu = latencyP50Ms > 0 ? Math.log(latencyP50Ms) : Double.NEGATIVE_INFINITY;
+        this.sigma = latencyP50Ms > 0 ? (Math.log(latencyP99Ms) - Math.log(latencyP50Ms)) / Z_99 : 0;
+        this.errorRate = errorRate;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<RecognizedText> recognize(byte[] content, String documentType) {
+        long latencyMs = sampleLatencyMs();
+        boolean fail = random.nextDouble() < errorRate;
+
+        return CompletableFuture.supplyAsync(() -> {
+            if (fail) {
+                throw new OcrProcessingException("Error performing OCR: simulated failure of the local OCR engine");
+            }
+            return generate(content, documentType);
+        }, CompletableFuture.delayedExecutor(latencyMs, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public boolean isCacheable() {
+        // Generated text says nothing about the real content, so it must never be served once Vision is used
+        return false;
+    }
+
+    /**
+     * @return A latency drawn from the lognormal distribution with the configured p50 and p99, in milliseconds
+     */
+    long sampleLatencyMs() {
+        if (mu == Double.NEGATIVE_INFINITY) {
+            return 0;
+        }
+        return Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+    }
+
+    /**
+     * Generates the text of a document from the corpus of its type.
+     *
+     * @param content The document content, which seeds the generated values
+     * @param documentType The name of the document type
+     * @return The generated text
+     */
+    RecognizedText generate(byte[] content, String documentType) {
+        SplittableRandom values = new SplittableRandom(seedOf(content, documentType));
+        List<String> templates = corpus.computeIfAbsent(documentType, LocalOcrEngine::loadCorpus);
+        String template = templates.get(values.nextInt(templates.size()));
+        String text = new Document(values).fill(template);
+        return new RecognizedText(text, 0.80f + (float) values.nextDouble(0.19));
+    }
+
+    private static long seedOf(byte[] content, String documentType) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(documentType.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest.digest(content)).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static List<String> loadCorpus(String documentType) {
+        ClassPathResource resource = new ClassPathResource(CORPUS_LOCATION + documentType + ".txt");
+        if (!resource.exists()) {
+            resource = new ClassPathResource(CORPUS_LOCATION + DEFAULT_CORPUS + ".txt");
+        }
+        try (InputStream in = resource.getInputStream()) {
+            List<String> templates = new ArrayList<>();
+            StringBuilder template = new StringBuilder();
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+                if (line.equals(TEMPLATE_SEPARATOR)) {
+                    templates.add(template.toString().strip());
+                    template.setLength(0);
+                } else {
+                    template.append(line).append('\n');
+                }
+            }
+            if (!template.isEmpty()) {
+                templates.add(template.toString().strip());
+            }
+            log.debug("Loaded {} local OCR templates for document type {}", templates.size(), documentType);
+            return templates;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load the local OCR corpus for " + documentType, e);
+        }
+    }
+
+    /**
+     * The generated values of one document, consistent across all placeholders of its template.
+     */
+    private static final class Document {
+
+        private final SplittableRandom random;
+        private final String name;
+        private final String fatherName;
+        private final String[] city;
+        private final String stateCode;
+        private final LocalDate statementStart;
+        private final Map<String, String> values = new HashMap<>();
+
+        Document(SplittableRandom random) {
+            this.random = random;
+            String lastName = pick(LAST_NAMES);
+            this.name = pick(FIRST_NAMES) + " " + lastName;
+            this.fatherName = pick(FIRST_NAMES) + " " + lastName;
+            int cityIndex = random.nextInt(CITIES.length);
+            this.city = CITIES[cityIndex];
+            this.stateCode = STATE_CODES[cityIndex];
+            this.statementStart = REFERENCE_DATE.minusMonths(random.nextInt(1, 24)).withDayOfMonth(1);
+        }
+
+        String fill(String template) {
+            StringBuilder text = new StringBuilder(template.length() * 2);
+            int from = 0;
+            while (true) {
+                int open = template.indexOf("{{", from);
+                int close = open < 0 ? -1 : template.indexOf("}}", open);
+                if (close < 0) {
+                    text.append(template, from, template.length());
+                    return text.toString();
+                }
+                text.append(template, from, open);
+                String placeholder = template.substring(open + 2, close);
+                // Repeated placeholders get the same value, except for the random digit groups
+                String value = placeholder.startsWith("DIGITS_") ? null : values.get(placeholder);
+                if (value == null) {
+                    value = value(placeholder);
+                    values.putIfAbsent(placeholder, value);
+                }
+                text.append(value);
+                from = close + 2;
+            }
+        }
+
+        private String value(String placeholder) {
+            switch (placeholder) {
+                case "NAME":
+                    return name;
+                case "NAME_UPPER":
+                    return name.toUpperCase(Locale.ROOT);
+                case "FATHER_NAME":
+                    return fatherName;
+                case "FATHER_NAME_UPPER":
+                    return fatherName.toUpperCase(Locale.ROOT);
+                case "DOB":
+                    return date(REFERENCE_DATE.minusYears(20).minusDays(random.nextInt(365 * 40)));
+                case "GENDER":
+                    return random.nextBoolean() ? "MALE" : "FEMALE";
+                case "ADDRESS":
+                    return random.nextInt(1, 500) + " " + pick(STREETS) + ", " + city[0] + ", " + city[1] + ", "
+                            + city[2] + digits(3);
+                case "AADHAAR":
+                    return random.nextInt(2, 10) + digits(3) + " " + digits(4) + " " + digits(4);
+                case "PAN":
+                    return letters(3) + "P" + letters(1) + digits(4) + letters(1);
+                case "DL_NUMBER":
+                    return stateCode + digits(2) + " " + (2000 + random.nextInt(24)) + digits(7);
+                case "DATE_PAST":
+                    return date(REFERENCE_DATE.minusDays(random.nextInt(1, 365 * 10)));
+                case "DATE_FUTURE":
+                    return date(REFERENCE_DATE.plusDays(random.nextInt(1, 365 * 20)));
+                case "BLOOD_GROUP":
+                    return pick(BLOOD_GROUPS);
+                case "CITY":
+                    return city[0];
+                case "STATE":
+                    return city[1];
+                case "BANK":
+                    return pick(BANKS);
+                case "ACCOUNT_NUMBER":
+                    return random.nextInt(1, 10) + digits(13);
+                case "PERIOD":
+                    return date(statementStart) + " to " + date(statementStart.plusMonths(1).minusDays(1));
+                case "OPENING_BALANCE":
+                case "CLOSING_BALANCE":
+                case "TRANSACTIONS":
+                    generateTransactions();
+                    return values.get(placeholder);
+                default:
+                    if (placeholder.startsWith("DIGITS_")) {
+                        return digits(Integer.parseInt(placeholder.substring("DIGITS_".length())));
+                    }
+                    return "";
+            }
+        }
+
+        /**
+         * Generates the transactions of a statement together with its opening and closing balance.
+         */
+        private void generateTransactions() {
+            if (values.containsKey("TRANSACTIONS")) {
+                return;
+            }
+            long balance = random.nextLong(1_000_00, 500_000_00);
+            values.put("OPENING_BALANCE", amount(balance));
+            StringBuilder transactions = new StringBuilder();
+            transactions.append(String.format("%-10s %-27s %10s %10s %10s", date(statementStart), "Opening Balance",
+                    "", "", amount(balance)));
+            int count = random.nextInt(5, 40);
+            int monthDays = statementStart.lengthOfMonth();
+            for (int i = 0; i < count; i++) {
+                LocalDate date = statementStart.plusDays((long) i * monthDays / count);
+                boolean credit = random.nextInt(4) == 0;
+                long value = credit ? random.nextLong(100_00, 100_000_00) : random.nextLong(50_00, Math.max(51_00, balance / 4));
+                balance += credit ? value : -value;
+                transactions.append('\n').append(String.format("%-10s %-27s %10s %10s %10s", date(date),
+                        credit ? pick(CREDITS) : pick(DEBITS),
+                        credit ? "" : amount(value),
+                        credit ? amount(value) : "",
+                        amount(balance)));
+            }
+            values.put("CLOSING_BALANCE", amount(balance));
+            values.put("TRANSACTIONS", transactions.toString());
+        }
+
+        private String pick(String[] options) {
+            return options[random.nextInt(options.length)];
+        }
+
+        private String digits(int count) {
+            StringBuilder digits = new StringBuilder(count);
+            for (int i = 0; i < count; i++) {
+                digits.append((char) ('0' + random.nextInt(10)));
+            }
+            return digits.toString();
+        }
+
+        private String letters(int count) {
+            StringBuilder letters = new StringBuilder(count);
+            for (int i = 0; i < count; i++) {
+                letters.append((char) ('A' + random.nextInt(26)));
+            }
+            return letters.toString();
+        }
+
+        private static String date(LocalDate date) {
+            return date.format(DATE_FORMAT);
+        }
+
+        /**
+         * @param paise An amount in paise
+         * @return The amount in rupees, e.g. "65,432.10"
+         */
+        private static String amount(long paise) {
+            return String.format(Locale.ROOT, "%,d.%02d", paise / 100, Math.abs(paise % 100));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.mb.ocrservice.service.engine;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Recognizes the text in a document image.
+ * Implementations must not hold the calling thread while recognition is in progress.
+ */
+public interface OcrEngine {
+
+    /**
+     * @return The name of the engine, as selected by {@code ocr.engine}
+     */
+    String getName();
+
+    /**
+     * Recognizes the text in a document.
+     *
+     * @param content The document content
+     * @param documentType The name of the document type
+     * @return A future completed with the recognized text, or exceptionally with an
+     * {@link com.mb.ocrservice.exception.OcrProcessingException} if recognition failed
+     */
+    CompletableFuture<RecognizedText> recognize(byte[] content, String documentType);
+
+    /**
+     * @return Whether results reflect the actual document content, so they may be cached and reused for
+     * identical content
+     */
+    boolean isCacheable();
+}
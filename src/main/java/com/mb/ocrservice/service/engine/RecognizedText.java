@@ -0,0 +1,18 @@
+package com.mb.ocrservice.service.engine;
+
+import com.google.cloud.vision.v1.TextAnnotation;
+
+/**
+ * The text an {@link OcrEngine} recognized in a document.
+ *
+ * @param text The full text of the document
+ * @param confidenceScore The confidence of the recognition, between 0 and 1
+ * @param annotation The full annotation (pages, blocks, words with confidences and bounding boxes), or null if the
+ *                   engine does not produce one
+ */
+public record RecognizedText(String text, float confidenceScore, TextAnnotation annotation) {
+
+    public RecognizedText(String text, float confidenceScore) {
+        this(text, confidenceScore, null);
+    }
+}
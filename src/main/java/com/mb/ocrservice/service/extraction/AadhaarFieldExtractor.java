@@ -0,0 +1,45 @@
+package com.mb.ocrservice.service.extraction;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Extracts the fields of an Aadhaar card.
+ */
+@Component
+public class AadhaarFieldExtractor extends RuleBasedFieldExtractor {
+
+    public AadhaarFieldExtractor() {
+        super("AADHAAR", List.of(
+                // Aadhaar number (12 digits, may be space-separated)
+                FieldRule.firstMatch("aadhaar_number", "\\d{4}\\s?\\d{4}\\s?\\d{4}")
+                        .valueGroup(0)
+                        .startsWith(Character::isDigit)
+                        .confidence(0.9f)
+                        .normalizer(FieldNormalizers::removeWhitespace)
+                        .build(),
+                // Name (typically after "Name:" or similar)
+                FieldRule.firstMatch("name", "(?i)(?:name|नाम)[:\\s]+([\\p{L}\\s]+)")
+                        .labels("name", "नाम")
+                        .confidence(0.85f)
+                        .normalizer(FieldNormalizers::trimAndClean)
+                        .skipEmpty()
+                        .build(),
+                FieldRule.firstMatch("date_of_birth", "(?i)(?:DOB|Date of Birth|जन्म तिथि)[:\\s]+(\\d{2}/\\d{2}/\\d{4})")
+                        .labels("DOB", "Date of Birth", "जन्म तिथि")
+                        .confidence(0.85f)
+                        .build(),
+                FieldRule.firstMatch("gender", "(?i)(Male|Female)")
+                        .labels("Male", "Female")
+                        .confidence(0.9f)
+                        .build(),
+                // Address (may span multiple lines)
+                FieldRule.firstMatch("address", "(?i)(?:Address|पता)[:\\s]+([\\s\\S]+?)(?:\\n\\n|\\d{6}|$)")
+                        .labels("Address", "पता")
+                        .confidence(0.75f)
+                        .normalizer(FieldNormalizers::joinLinesAndClean)
+                        .skipEmpty()
+                        .build()));
+    }
+}
@@ -0,0 +1,75 @@
+package com.mb.ocrservice.service.extraction;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts the header fields of a bank statement, and summarizes its transaction rows under
+ * {@code transaction_summary}.
+ */
+@Component
+public class BankStatementFieldExtractor extends RuleBasedFieldExtractor {
+
+    public static final String TRANSACTION_SUMMARY_FIELD = "transaction_summary";
+
+    public BankStatementFieldExtractor() {
+        super("BANK_STATEMENT", List.of(
+                FieldRule.firstMatch("account_number", "(?i)(?:A/C No|Account No|Account Number)[.:\\s]+(\\d[\\d\\s]+)")
+                        .labels("A/C No", "Account No", "Account Number")
+                        .confidence(0.9f)
+                        .normalizer(FieldNormalizers::removeWhitespace)
+                        .build(),
+                FieldRule.firstMatch("account_holder_name",
+                                "(?i)(?:Name|Customer Name|Account Name)[:\\s]+([\\p{L}\\s]+)")
+                        .labels("Name", "Customer Name", "Account Name")
+                        .confidence(0.85f)
+                        .build(),
+                FieldRule.firstMatch("bank_name",
+                                "(?i)(HDFC|SBI|ICICI|AXIS|KOTAK|PNB|BANK OF BARODA|CANARA|UNION BANK)")
+                        .labels("HDFC", "SBI", "ICICI", "AXIS", "KOTAK", "PNB", "BANK OF BARODA", "CANARA",
+                                "UNION BANK")
+                        .confidence(0.9f)
+                        .build(),
+                FieldRule.firstMatch("statement_period",
+                                "(?i)(?:Statement Period|Period)[:\\s]+([\\d/\\s\\-]+to[\\d/\\s\\-]+)")
+                        .labels("Statement Period", "Period")
+                        .confidence(0.8f)
+                        .build(),
+                FieldRule.firstMatch("opening_balance", "(?i)(?:Opening Balance)[:\\s]+([$₹]?[\\d,.]+)")
+                        .labels("Opening Balance")
+                        .confidence(0.8f)
+                        .build(),
+                FieldRule.firstMatch("closing_balance", "(?i)(?:Closing Balance)[:\\s]+([$₹]?[\\d,.]+)")
+                        .labels("Closing Balance")
+                        .confidence(0.8f)
+                        .build()));
+    }
+
+    @Override
+    public Map<String, Object> extract(String text, LabelHits hits, ExtractionGuard guard) {
+        Map<String, Object> data = super.extract(text, hits, guard);
+        if (text == null || text.isEmpty()) {
+            return data;
+        }
+        TransactionTable transactions = TransactionTable.parse(text, balance(data, "opening_balance"));
+        if (transactions.size() > 0) {
+            data.put(TRANSACTION_SUMMARY_FIELD,
+                    TransactionSummary.summarize(transactions, balance(data, "closing_balance")));
+        }
+        return data;
+    }
+
+    /**
+     * @return The value of an extracted balance field in paise, or {@link Long#MIN_VALUE} if it is missing or not
+     * an amount
+     */
+    private static long balance(Map<String, Object> data, String field) {
+        if (!(data.get(field) instanceof Map<?, ?> fieldData) || !(fieldData.get("value") instanceof String value)) {
+            return Long.MIN_VALUE;
+        }
+        int start = value.startsWith("₹") || value.startsWith("$") ? 1 : 0;
+        return TransactionTable.parseAmount(value, start, value.length());
+    }
+}
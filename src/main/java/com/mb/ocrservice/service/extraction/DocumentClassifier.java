@@ -0,0 +1,206 @@
+package com.mb.ocrservice.service.extraction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Recognizes the type of a document from keyword signatures in its OCR text, such as "INCOME TAX DEPARTMENT" on a
+ * PAN card or "IFSC" on a bank statement, before its fields are extracted.
+ * <p>
+ * The signatures of all types are compiled into one {@link LabelAutomaton}, so a single scan of the text scores
+ * every type: each signature found adds its weight to its type, once however often it occurs. The type with the
+ * highest score is detected if it reaches {@code min-score}. When the detected type is not the declared one and the
+ * declared type scores less than half as much, the document is a type mismatch: its fields are not extracted, and
+ * its structured data only holds the classification.
+ * <p>
+ * The classification is stored in the structured data under {@value #CLASSIFICATION_FIELD}.
+ */
+@Component
+@Slf4j
+public class DocumentClassifier {
+
+    public static final String CLASSIFICATION_FIELD = "document_classification";
+
+    static final int DEFAULT_MIN_SCORE = 3;
+
+    private static final List<Signature> SIGNATURES = List.of(
+            new Signature("AADHAAR", "Unique Identification Authority", 3),
+            new Signature("AADHAAR", "UIDAI", 3),
+            new Signature("AADHAAR", "Aadhaar", 2),
+            new Signature("AADHAAR", "आधार", 2),
+            new Signature("AADHAAR", "Enrolment No", 1),
+            new Signature("PAN", "INCOME TAX DEPARTMENT", 3),
+            new Signature("PAN", "Permanent Account Number", 3),
+            new Signature("PAN", "आयकर विभाग", 2),
+            new Signature("PAN", "स्थायी लेखा संख्या", 2),
+            new Signature("DRIVING_LICENSE", "DRIVING LICENSE", 3),
+            new Signature("DRIVING_LICENSE", "DRIVING LICENCE", 3),
+            new Signature("DRIVING_LICENSE", "License No", 2),
+            new Signature("DRIVING_LICENSE", "Licence No", 2),
+            new Signature("DRIVING_LICENSE", "DL No", 2),
+            new Signature("DRIVING_LICENSE", "Transport Department", 2),
+            new Signature("DRIVING_LICENSE", "Issuing Authority", 1),
+            new Signature("BANK_STATEMENT", "Statement of Account", 3),
+            new Signature("BANK_STATEMENT", "Account Statement", 3),
+            new Signature("BANK_STATEMENT", "IFSC", 2),
+            new Signature("BANK_STATEMENT", "Opening Balance", 2),
+            new Signature("BANK_STATEMENT", "Closing Balance", 2),
+            new Signature("BANK_STATEMENT", "Statement Period", 2),
+            new Signature("BANK_STATEMENT", "Withdrawal", 1));
+
+    private final FieldExtractorRegistry fieldExtractorRegistry;
+    private final boolean enabled;
+    private final int minScore;
+    private final LabelAutomaton automaton;
+    private final List<String> types = new ArrayList<>();
+    // Indexed by label ID: the type index and weight of the signature
+    private final int[] signatureTypes;
+    private final int[] signatureWeights;
+    private final Counter mismatchCounter;
+
+    @Autowired
+    public DocumentClassifier(
+            FieldExtractorRegistry fieldExtractorRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${ocr.classifier.enabled:true}") boolean enabled,
+            @Value("${ocr.classifier.min-score:3}") int minScore) {
+        this.fieldExtractorRegistry = fieldExtractorRegistry;
+        this.enabled = enabled;
+        this.minScore = minScore;
+        this.automaton = new LabelAutomaton(SIGNATURES.stream().map(Signature::keyword).toList());
+        this.signatureTypes = new int[automaton.labelCount()];
+        this.signatureWeights = new int[automaton.labelCount()];
+        for (Signature signature : SIGNATURES) {
+            if (!types.contains(signature.type())) {
+                types.add(signature.type());
+            }
+            int labelId = automaton.labelId(signature.keyword());
+            signatureTypes[labelId] = types.indexOf(signature.type());
+            signatureWeights[labelId] = signature.weight();
+        }
+        this.mismatchCounter = Counter.builder("ocr.classifier.mismatches")
+                .description("Documents whose text matched another document type than the declared one")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param fieldExtractorRegistry The extractors run for documents of the declared type
+     * @return A classifier with the default minimum score, whose mismatches are not exported
+     */
+    public static DocumentClassifier withDefaults(FieldExtractorRegistry fieldExtractorRegistry) {
+        return new DocumentClassifier(fieldExtractorRegistry, new SimpleMeterRegistry(), true, DEFAULT_MIN_SCORE);
+    }
+
+    /**
+     * Scores every document type against a text.
+     *
+     * @param text The text extracted from the document
+     * @param declaredType The document type the document was uploaded as
+     * @return The classification
+     */
+    public Classification classify(String text, String declaredType) {
+        int[] scores = new int[types.size()];
+        if (text != null) {
+            LabelHits hits = automaton.scan(text);
+            BitSet seen = new BitSet(signatureTypes.length);
+            for (int h = 0; h < hits.size(); h++) {
+                int labelId = hits.labelId(h);
+                if (!seen.get(labelId)) {
+                    seen.set(labelId);
+                    scores[signatureTypes[labelId]] += signatureWeights[labelId];
+                }
+            }
+        }
+
+        int best = -1;
+        for (int t = 0; t < scores.length; t++) {
+            if (scores[t] >= minScore && (best < 0 || scores[t] > scores[best])) {
+                best = t;
+            }
+        }
+        int declared = types.indexOf(declaredType);
+        int declaredScore = declared < 0 ? 0 : scores[declared];
+        String detectedType = best < 0 ? null : types.get(best);
+        boolean mismatch = best >= 0 && best != declared && declared >= 0 && declaredScore * 2 < scores[best];
+
+        Map<String, Integer> typeScores = new LinkedHashMap<>();
+        for (int t = 0; t < scores.length; t++) {
+            typeScores.put(types.get(t), scores[t]);
+        }
+        return new Classification(declaredType, detectedType, mismatch, typeScores);
+    }
+
+    /**
+     * Extracts the structured data of a document unless its text is recognized as another document type.
+     *
+     * @param documentType The document type the document was uploaded as
+     * @param text The text extracted from the document
+     * @return The structured data with its classification, or only the classification on a type mismatch
+     */
+    public Map<String, Object> extract(String documentType, String text) {
+        return extract(documentType, text, () -> fieldExtractorRegistry.extract(documentType, text));
+    }
+
+    /**
+     * Classifies a document whose fields are extracted elsewhere, such as page by page.
+     *
+     * @param documentType The document type the document was uploaded as
+     * @param text The text extracted from the document
+     * @param extraction Supplies the structured data; only called if the document is not a type mismatch
+     * @return The structured data with its classification, or only the classification on a type mismatch
+     */
+    public Map<String, Object> extract(String documentType, String text, Supplier<Map<String, Object>> extraction) {
+        if (!enabled) {
+            return extraction.get();
+        }
+        Classification classification = classify(text, documentType);
+        Map<String, Object> data;
+        if (classification.mismatch()) {
+            log.warn("Document uploaded as {} was recognized as {}; skipping field extraction",
+                    documentType, classification.detectedType());
+            mismatchCounter.increment();
+            data = new HashMap<>();
+        } else {
+            data = extraction.get();
+        }
+        data.put(CLASSIFICATION_FIELD, classification.toMap());
+        return data;
+    }
+
+    /**
+     * The outcome of classifying a document.
+     *
+     * @param declaredType The document type the document was uploaded as
+     * @param detectedType The best scoring document type, or null if none scored enough
+     * @param mismatch Whether the document was recognized as another type than the declared one
+     * @param scores The score of every document type
+     */
+    public record Classification(String declaredType, String detectedType, boolean mismatch,
+                                 Map<String, Integer> scores) {
+
+        Map<String, Object> toMap() {
+            Map<String, Object> classification = new LinkedHashMap<>();
+            classification.put("declared_type", declaredType);
+            classification.put("detected_type", detectedType);
+            classification.put("type_mismatch", mismatch);
+            classification.put("scores", scores);
+            return classification;
+        }
+    }
+
+    private record Signature(String type, String keyword, int weight) {
+    }
+}
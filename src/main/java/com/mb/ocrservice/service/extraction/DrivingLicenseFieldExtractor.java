@@ -0,0 +1,45 @@
+package com.mb.ocrservice.service.extraction;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Extracts the fields of a driving license.
+ */
+@Component
+public class DrivingLicenseFieldExtractor extends RuleBasedFieldExtractor {
+
+    public DrivingLicenseFieldExtractor() {
+        super("DRIVING_LICENSE", List.of(
+                FieldRule.firstMatch("license_number", "(?i)(?:DL No|License No)[.:\\s]+(\\w+\\s?\\w+)")
+                        .labels("DL No", "License No")
+                        .confidence(0.9f)
+                        .build(),
+                FieldRule.firstMatch("name", "(?i)(?:Name|नाम)[:\\s]+([\\p{L}\\s]+)")
+                        .labels("Name", "नाम")
+                        .confidence(0.85f)
+                        .normalizer(FieldNormalizers::trimAndClean)
+                        .skipEmpty()
+                        .build(),
+                FieldRule.firstMatch("date_of_birth", "(?i)(?:DOB|Date of Birth|जन्म तिथि)[:\\s]+(\\d{2}/\\d{2}/\\d{4})")
+                        .labels("DOB", "Date of Birth", "जन्म तिथि")
+                        .confidence(0.85f)
+                        .build(),
+                FieldRule.firstMatch("address", "(?i)(?:Address|पता)[:\\s]+([\\s\\S]+?)(?:\\n\\n|\\d{6}|$)")
+                        .labels("Address", "पता")
+                        .confidence(0.75f)
+                        .normalizer(FieldNormalizers::joinLinesAndClean)
+                        .skipEmpty()
+                        .build(),
+                FieldRule.firstMatch("valid_from", "(?i)(?:Valid From|Issue Date)[:\\s]+(\\d{2}/\\d{2}/\\d{4})")
+                        .labels("Valid From", "Issue Date")
+                        .confidence(0.85f)
+                        .build(),
+                FieldRule.firstMatch("valid_until",
+                                "(?i)(?:Valid Until|Valid Till|Expiry Date)[:\\s]+(\\d{2}/\\d{2}/\\d{4})")
+                        .labels("Valid Until", "Valid Till", "Expiry Date")
+                        .confidence(0.85f)
+                        .build()));
+    }
+}
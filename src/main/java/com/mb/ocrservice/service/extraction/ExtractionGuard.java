@@ -0,0 +1,217 @@
+package com.mb.ocrservice.service.extraction;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+/**
+ * Bounds the work spent matching each field of a document, so that a pattern that backtracks badly on long or noisy
+ * OCR text cannot pin the extracting thread.
+ * <p>
+ * A match starting at a label only sees the following {@code max-window-chars} characters. Matchers run over a
+ * {@link GuardedCharSequence}, and each field has a budget of characters read and of time, shared by all its match
+ * attempts in a document. A field whose budget runs out is given up: it is stored with {@code extracted=false} and
+ * no value, and the other fields of the document are still extracted.
+ * <p>
+ * The time spent on each field is exported as {@code ocr.extraction.field}, tagged with the document type, the field
+ * and its outcome ({@code extracted}, {@code missing} or {@code budget_exceeded}).
+ */
+@Component
+@Slf4j
+public class ExtractionGuard {
+
+    public static final String BUDGET_EXCEEDED = "budget_exceeded";
+
+    static final int DEFAULT_MAX_WINDOW_CHARS = 4096;
+    static final long DEFAULT_MAX_STEPS_PER_FIELD = 5_000_000;
+    static final long DEFAULT_FIELD_BUDGET_MS = 100;
+
+    private final MeterRegistry meterRegistry;
+    private final int maxWindowChars;
+    private final long maxStepsPerField;
+    private final long fieldBudgetNanos;
+    private final Map<String, Timer> fieldTimers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ExtractionGuard(
+            MeterRegistry meterRegistry,
+            @Value("${ocr.extraction.max-window-chars:4096}") int maxWindowChars,
+            @Value("${ocr.extraction.max-steps-per-field:5000000}") long maxStepsPerField,
+            @Value("${ocr.extraction.field-budget-ms:100}") long fieldBudgetMs) {
+        this.meterRegistry = meterRegistry;
+        this.maxWindowChars = maxWindowChars;
+        this.maxStepsPerField = maxStepsPerField;
+        this.fieldBudgetNanos = TimeUnit.MILLISECONDS.toNanos(fieldBudgetMs);
+    }
+
+    /**
+     * @return A guard with the default budgets, whose timings are not exported
+     */
+    static ExtractionGuard withDefaults() {
+        return new ExtractionGuard(new SimpleMeterRegistry(), DEFAULT_MAX_WINDOW_CHARS, DEFAULT_MAX_STEPS_PER_FIELD,
+                DEFAULT_FIELD_BUDGET_MS);
+    }
+
+    /**
+     * Whether every field of extracted data was matched within its budget. The time budget depends on the load of
+     * the machine, so data with fields given up is specific to one run and must not be reused for identical content.
+     *
+     * @param data The extracted data, or null
+     * @return Whether no field ran out of budget
+     */
+    public static boolean isComplete(Map<String, Object> data) {
+        if (data == null) {
+            return true;
+        }
+        for (Object fieldData : data.values()) {
+            if (fieldData instanceof Map<?, ?> field && BUDGET_EXCEEDED.equals(field.get("reason"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts the guarded extraction of one document.
+     *
+     * @param documentType The name of the document type
+     * @param text The text extracted from the document
+     * @param rules The rules of the document type
+     * @return The extraction, used by one thread
+     */
+    Run start(String documentType, String text, FieldRule[] rules) {
+        return new Run(documentType, text, rules);
+    }
+
+    /**
+     * The guarded extraction of one document: the budgets left to each field, and the guarded view of the text that
+     * all matchers of the document run over.
+     */
+    final class Run {
+
+        private final String documentType;
+        private final GuardedCharSequence text;
+        private final FieldRule[] rules;
+        private final long[] stepsUsed;
+        private final long[] nanosUsed;
+        private final boolean[] exceeded;
+
+        private Run(String documentType, String text, FieldRule[] rules) {
+            this.documentType = documentType;
+            this.text = new GuardedCharSequence(text);
+            this.rules = rules;
+            this.stepsUsed = new long[rules.length];
+            this.nanosUsed = new long[rules.length];
+            this.exceeded = new boolean[rules.length];
+        }
+
+        /**
+         * @return The view of the text that matchers must be created over
+         */
+        CharSequence text() {
+            return text;
+        }
+
+        /**
+         * @param start The start of a match
+         * @return The end of the window a match starting there may see
+         */
+        int windowEnd(int start) {
+            return (int) Math.min(text.length(), (long) start + maxWindowChars);
+        }
+
+        /**
+         * @return The longest line a whole-line match is tried on
+         */
+        int maxWindowChars() {
+            return maxWindowChars;
+        }
+
+        /**
+         * @param r The index of a rule
+         * @return Whether the rule has run out of budget, so that it is not tried again
+         */
+        boolean isExceeded(int r) {
+            return exceeded[r];
+        }
+
+        /**
+         * Runs {@link Matcher#lookingAt()} within the budget left to a rule.
+         *
+         * @return Whether the pattern matched; false once the rule is out of budget
+         */
+        boolean lookingAt(int r, Matcher matcher) {
+            return match(r, matcher, false);
+        }
+
+        /**
+         * Runs {@link Matcher#matches()} within the budget left to a rule.
+         *
+         * @return Whether the pattern matched; false once the rule is out of budget
+         */
+        boolean matches(int r, Matcher matcher) {
+            return match(r, matcher, true);
+        }
+
+        private boolean match(int r, Matcher matcher, boolean whole) {
+            if (exceeded[r]) {
+                return false;
+            }
+            text.arm(maxStepsPerField - stepsUsed[r], fieldBudgetNanos - nanosUsed[r]);
+            long start = System.nanoTime();
+            try {
+                return whole ? matcher.matches() : matcher.lookingAt();
+            } catch (GuardedCharSequence.BudgetExceededException e) {
+                exceeded[r] = true;
+                log.warn("Extraction of field {} of a {} document ran over its budget; the field is not extracted",
+                        rules[r].getFieldName(), documentType);
+                return false;
+            } finally {
+                nanosUsed[r] += System.nanoTime() - start;
+                stepsUsed[r] += text.steps();
+            }
+        }
+
+        /**
+         * Marks the fields that ran out of budget as not extracted and records the time spent on every field.
+         *
+         * @param data The extracted data
+         */
+        void finish(Map<String, Object> data) {
+            for (int r = 0; r < rules.length; r++) {
+                String fieldName = rules[r].getFieldName();
+                String outcome;
+                if (exceeded[r] && !data.containsKey(fieldName)) {
+                    Map<String, Object> fieldData = new HashMap<>();
+                    fieldData.put("extracted", false);
+                    fieldData.put("reason", BUDGET_EXCEEDED);
+                    data.put(fieldName, fieldData);
+                    outcome = BUDGET_EXCEEDED;
+                } else {
+                    outcome = data.containsKey(fieldName) ? "extracted" : "missing";
+                }
+                fieldTimer(fieldName, outcome).record(nanosUsed[r], TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private Timer fieldTimer(String fieldName, String outcome) {
+            return fieldTimers.computeIfAbsent(documentType + '/' + fieldName + '/' + outcome,
+                    key -> Timer.builder("ocr.extraction.field")
+                            .description("Time spent matching one field of a document")
+                            .tag("document_type", documentType)
+                            .tag("field", fieldName)
+                            .tag("outcome", outcome)
+                            .register(meterRegistry));
+        }
+    }
+}
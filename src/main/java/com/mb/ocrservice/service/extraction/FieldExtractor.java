@@ -0,0 +1,30 @@
+package com.mb.ocrservice.service.extraction;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Extracts the structured fields of one document type from its OCR text.
+ */
+public interface FieldExtractor {
+
+    /**
+     * @return The name of the document type this extractor handles, as stored in {@code document_types.name}
+     */
+    String getDocumentType();
+
+    /**
+     * @return Every label the extractor needs located in the text
+     */
+    Collection<String> getLabels();
+
+    /**
+     * Extract structured data from the OCR text of a document.
+     *
+     * @param text The text extracted from the document
+     * @param hits The occurrences of labels in the text, which may include labels of other document types
+     * @param guard Bounds the work spent on each field
+     * @return A map of field names to their value and confidence
+     */
+    Map<String, Object> extract(String text, LabelHits hits, ExtractionGuard guard);
+}
@@ -0,0 +1,95 @@
+package com.mb.ocrservice.service.extraction;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Looks up the {@link FieldExtractor} for a document type.
+ * The labels of all extractors, English and Devanagari, are compiled into one {@link LabelAutomaton}, so every label
+ * occurrence in a document is located by a single scan before its fields are parsed. Fields are matched within the
+ * budgets of the {@link ExtractionGuard}.
+ */
+@Component
+@Slf4j
+public class FieldExtractorRegistry {
+
+    private final Map<String, FieldExtractor> extractors = new HashMap<>();
+    private final LabelAutomaton labelAutomaton;
+    private final ExtractionGuard guard;
+
+    public FieldExtractorRegistry(List<FieldExtractor> extractors) {
+        this(extractors, ExtractionGuard.withDefaults());
+    }
+
+    @Autowired
+    public FieldExtractorRegistry(List<FieldExtractor> extractors, ExtractionGuard guard) {
+        this.guard = guard;
+        for (FieldExtractor extractor : extractors) {
+            FieldExtractor existing = this.extractors.putIfAbsent(extractor.getDocumentType(), extractor);
+            if (existing != null) {
+                throw new IllegalStateException("Duplicate field extractors for document type: "
+                        + extractor.getDocumentType());
+            }
+        }
+        this.labelAutomaton = new LabelAutomaton(extractors.stream()
+                .flatMap(extractor -> extractor.getLabels().stream())
+                .toList());
+    }
+
+    /**
+     * Locates every label of every document type in a text.
+     *
+     * @param text The text extracted from the document
+     * @return The label occurrences, ordered by start offset
+     */
+    public LabelHits scanLabels(String text) {
+        return labelAutomaton.scan(text);
+    }
+
+    /**
+     * Starts the extraction of a document whose pages are recognized one at a time.
+     *
+     * @param documentType The name of the document type
+     * @return The extraction, to which pages are added in page order
+     */
+    public PagedExtraction startPaged(String documentType) {
+        FieldExtractor extractor = extractors.get(documentType);
+        if (extractor == null) {
+            log.warn("Unknown document type: {}", documentType);
+        }
+        return new PagedExtraction(extractor, labelAutomaton, guard);
+    }
+
+    /**
+     * @param documentType The name of the document type
+     * @return The extractor for the document type, if there is one
+     */
+    public Optional<FieldExtractor> getExtractor(String documentType) {
+        return Optional.ofNullable(extractors.get(documentType));
+    }
+
+    /**
+     * Extract structured data from the OCR text based on document type.
+     *
+     * @param documentType The name of the document type
+     * @param text The text extracted from the document
+     * @return A map of structured data, empty for unknown document types
+     */
+    public Map<String, Object> extract(String documentType, String text) {
+        FieldExtractor extractor = extractors.get(documentType);
+        if (extractor == null) {
+            log.warn("Unknown document type: {}", documentType);
+            return new HashMap<>();
+        }
+        if (text == null || text.isEmpty()) {
+            return new HashMap<>();
+        }
+        return extractor.extract(text, scanLabels(text), guard);
+    }
+}
@@ -0,0 +1,75 @@
+package com.mb.ocrservice.service.extraction;
+
+/**
+ * Normalizers applied to extracted field values, each a single-pass {@link TextNormalizer}.
+ */
+public final class FieldNormalizers {
+
+    // Devanagari stripped, whitespace runs collapsed, then only [a-zA-Z0-9\s./-] kept
+    private static final TextNormalizer CLEAN = cleaning().build();
+    private static final TextNormalizer JOIN_LINES_AND_CLEAN = cleaning().lineSeparator(", ").build();
+    private static final TextNormalizer REMOVE_WHITESPACE = TextNormalizer.builder()
+            .whitespace(TextNormalizer.Whitespace.REMOVE)
+            .build();
+    private static final TextNormalizer DOCUMENT_NUMBER = TextNormalizer.builder()
+            .whitespace(TextNormalizer.Whitespace.REMOVE)
+            .upperCase()
+            .build();
+
+    private FieldNormalizers() {
+    }
+
+    private static TextNormalizer.Builder cleaning() {
+        return TextNormalizer.builder()
+                .dropBlock(Character.UnicodeBlock.DEVANAGARI)
+                .whitespace(TextNormalizer.Whitespace.COLLAPSE)
+                .allow(c -> c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                        || c == '.' || c == '/' || c == '-');
+    }
+
+    /**
+     * Clean text by removing Devanagari characters and keeping only English text.
+     *
+     * @param text The text to clean
+     * @return The cleaned text with only English characters
+     */
+    public static String cleanText(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return text;
+        }
+        return CLEAN.normalize(text);
+    }
+
+    /**
+     * @param value The matched value
+     * @return The trimmed and cleaned value
+     */
+    public static String trimAndClean(String value) {
+        return cleanText(value.trim());
+    }
+
+    /**
+     * @param value The matched value
+     * @return The value with all whitespace removed
+     */
+    public static String removeWhitespace(String value) {
+        return REMOVE_WHITESPACE.normalize(value);
+    }
+
+    /**
+     * @param value The matched multi-line value, such as an address
+     * @return The value with lines joined by commas, cleaned
+     */
+    public static String joinLinesAndClean(String value) {
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? trimmed : JOIN_LINES_AND_CLEAN.normalize(trimmed);
+    }
+
+    /**
+     * @param documentNumber A document number as printed or entered, such as {@code abcde 1234f}
+     * @return The number without whitespace, upper-cased, for comparison
+     */
+    public static String normalizeDocumentNumber(String documentNumber) {
+        return DOCUMENT_NUMBER.normalize(documentNumber);
+    }
+}
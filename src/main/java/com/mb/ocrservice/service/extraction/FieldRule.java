@@ -0,0 +1,270 @@
+package com.mb.ocrservice.service.extraction;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * Describes how a single field is found in the OCR text of a document.
+ * <p>
+ * A {@link Mode#FIRST_MATCH} rule resolves to the earliest position in the text where its pattern matches. Its pattern
+ * is only tried where one of its labels occurs (case-insensitive, as found by the {@link LabelAutomaton}) or, for
+ * unlabeled values, where its start character occurs.
+ * A {@link Mode#NEXT_LINE} rule looks for a line containing one of its labels (case-sensitive) and matches the whole
+ * of the following line, trimmed, against its pattern; later occurrences overwrite earlier ones.
+ * <p>
+ * Patterns are compiled once, when the rule is built.
+ */
+public final class FieldRule {
+
+    public enum Mode {
+        FIRST_MATCH,
+        NEXT_LINE
+    }
+
+    /**
+     * Decides whether a rule's pattern can start at a character.
+     */
+    @FunctionalInterface
+    public interface StartCharacter {
+        boolean matches(char c);
+    }
+
+    private final String fieldName;
+    private final Mode mode;
+    private final Pattern pattern;
+    private final int valueGroup;
+    private final List<String> labels;
+    private final List<String> excludedLabels;
+    private final float confidence;
+    private final UnaryOperator<String> normalizer;
+    private final boolean skipEmpty;
+    private final BitSet startChars;
+
+    private FieldRule(Builder builder) {
+        this.fieldName = builder.fieldName;
+        this.mode = builder.mode;
+        this.pattern = Pattern.compile(builder.regex);
+        this.valueGroup = builder.valueGroup;
+        this.labels = List.copyOf(builder.labels);
+        this.excludedLabels = List.copyOf(builder.excludedLabels);
+        this.confidence = builder.confidence;
+        this.normalizer = builder.normalizer;
+        this.skipEmpty = builder.skipEmpty;
+        this.startChars = new BitSet(Character.MAX_VALUE + 1);
+        if (builder.startCharacter != null) {
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                if (builder.startCharacter.matches((char) c)) {
+                    startChars.set(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts a rule resolved by the earliest match of its pattern.
+     *
+     * @param fieldName The name of the extracted field
+     * @param regex The pattern of the field
+     * @return The rule builder
+     */
+    public static Builder firstMatch(String fieldName, String regex) {
+        return new Builder(fieldName, Mode.FIRST_MATCH, regex);
+    }
+
+    /**
+     * Starts a rule resolved from the line following a label line.
+     *
+     * @param fieldName The name of the extracted field
+     * @param regex The pattern the whole next line must match
+     * @return The rule builder
+     */
+    public static Builder nextLine(String fieldName, String regex) {
+        return new Builder(fieldName, Mode.NEXT_LINE, regex).valueGroup(0);
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    public int getValueGroup() {
+        return valueGroup;
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public List<String> getExcludedLabels() {
+        return excludedLabels;
+    }
+
+    /**
+     * @return Whether the rule finds an unlabeled value by its start character rather than by its labels
+     */
+    public boolean isUnlabeled() {
+        return labels.isEmpty();
+    }
+
+    /**
+     * @return Every character an unlabeled value of this rule can start with
+     */
+    public BitSet getStartChars() {
+        return startChars;
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    public boolean isSkipEmpty() {
+        return skipEmpty;
+    }
+
+    /**
+     * Checks whether the value of an unlabeled rule can start at a position.
+     *
+     * @param text The OCR text
+     * @param index The position in the text
+     * @return Whether the start character of the rule occurs at the position
+     */
+    public boolean canStartAt(CharSequence text, int index) {
+        return startChars.get(text.charAt(index));
+    }
+
+    /**
+     * @param text The OCR text
+     * @param index The position in the text
+     * @return Whether one of the labels occurs at the position with exactly the same case
+     */
+    public boolean hasLabelAt(String text, int index) {
+        return anyStartsAt(text, index, labels);
+    }
+
+    /**
+     * @param text The OCR text
+     * @param index The position in the text
+     * @return Whether one of the excluded labels occurs at the position with exactly the same case
+     */
+    public boolean hasExcludedLabelAt(String text, int index) {
+        return anyStartsAt(text, index, excludedLabels);
+    }
+
+    private static boolean anyStartsAt(String text, int index, List<String> candidates) {
+        for (String candidate : candidates) {
+            if (text.startsWith(candidate, index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Normalizes a matched value.
+     *
+     * @param value The matched value
+     * @return The normalized value
+     */
+    public String normalize(String value) {
+        return normalizer.apply(value);
+    }
+
+    public static final class Builder {
+
+        private final String fieldName;
+        private final Mode mode;
+        private final String regex;
+        private int valueGroup = 1;
+        private List<String> labels = List.of();
+        private List<String> excludedLabels = List.of();
+        private StartCharacter startCharacter;
+        private float confidence;
+        private UnaryOperator<String> normalizer = String::trim;
+        private boolean skipEmpty;
+
+        private Builder(String fieldName, Mode mode, String regex) {
+            this.fieldName = fieldName;
+            this.mode = mode;
+            this.regex = regex;
+        }
+
+        /**
+         * @param valueGroup The pattern group holding the value, 0 for the whole match
+         * @return This builder
+         */
+        public Builder valueGroup(int valueGroup) {
+            this.valueGroup = valueGroup;
+            return this;
+        }
+
+        /**
+         * @param labels The labels the field follows (or, for unlabeled values, the literals it starts with)
+         * @return This builder
+         */
+        public Builder labels(String... labels) {
+            this.labels = List.of(labels);
+            return this;
+        }
+
+        /**
+         * @param excludedLabels Labels that disqualify a label line of a {@link Mode#NEXT_LINE} rule
+         * @return This builder
+         */
+        public Builder excludedLabels(String... excludedLabels) {
+            this.excludedLabels = List.of(excludedLabels);
+            return this;
+        }
+
+        /**
+         * @param startCharacter The characters an unlabeled value can start with
+         * @return This builder
+         */
+        public Builder startsWith(StartCharacter startCharacter) {
+            this.startCharacter = startCharacter;
+            return this;
+        }
+
+        public Builder confidence(float confidence) {
+            this.confidence = confidence;
+            return this;
+        }
+
+        /**
+         * @param normalizer Applied to the matched value before it is stored; trims by default
+         * @return This builder
+         */
+        public Builder normalizer(UnaryOperator<String> normalizer) {
+            this.normalizer = normalizer;
+            return this;
+        }
+
+        /**
+         * Skips the field when its normalized value is empty.
+         *
+         * @return This builder
+         */
+        public Builder skipEmpty() {
+            this.skipEmpty = true;
+            return this;
+        }
+
+        public FieldRule build() {
+            if (labels.isEmpty() == (startCharacter == null)) {
+                throw new IllegalStateException("Field rule " + fieldName + " needs either labels or a start character");
+            }
+            if (mode == Mode.NEXT_LINE && labels.isEmpty()) {
+                throw new IllegalStateException("Next-line field rule " + fieldName + " needs labels");
+            }
+            return new FieldRule(this);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.mb.ocrservice.service.extraction;
+
+/**
+ * A read-only view of a text that stops a regex match which runs over its budget. Every {@link #charAt} is a step;
+ * once the steps allowed are spent, or every 1024 steps once the deadline has passed or the thread was interrupted,
+ * it throws {@link BudgetExceededException}, which unwinds the {@link java.util.regex.Matcher} out of any
+ * backtracking. Sub-sequences are cut from the underlying text and are not counted.
+ * <p>
+ * Not thread-safe; a view is used by one extraction at a time.
+ */
+final class GuardedCharSequence implements CharSequence {
+
+    private static final int CLOCK_CHECK_MASK = 0x3FF;
+
+    private final String text;
+    private long steps;
+    private long stepLimit = Long.MAX_VALUE;
+    private long deadline = Long.MAX_VALUE;
+
+    GuardedCharSequence(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Sets the budget of the next matches.
+     *
+     * @param maxSteps The number of characters that may be read
+     * @param maxNanos The time the matches may take
+     */
+    void arm(long maxSteps, long maxNanos) {
+        steps = 0;
+        stepLimit = maxSteps;
+        deadline = System.nanoTime() + maxNanos;
+    }
+
+    /**
+     * @return The number of characters read since the view was last armed
+     */
+    long steps() {
+        return steps;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (++steps > stepLimit || ((steps & CLOCK_CHECK_MASK) == 0
+                && (System.nanoTime() - deadline > 0 || Thread.currentThread().isInterrupted()))) {
+            throw new BudgetExceededException();
+        }
+        return text.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * Thrown when a match runs over its budget. Carries no stack trace, since it is part of normal control flow.
+     */
+    static final class BudgetExceededException extends RuntimeException {
+
+        BudgetExceededException() {
+            super("Extraction budget exceeded", null, false, false);
+        }
+    }
+}
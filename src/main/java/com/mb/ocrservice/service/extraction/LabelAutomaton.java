@@ -0,0 +1,206 @@
+package com.mb.ocrservice.service.extraction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Aho-Corasick automaton over a fixed set of labels, matched case-insensitively.
+ * A single linear scan of the text reports every occurrence of every label, including overlapping ones such as
+ * "Name" inside "Father's Name", regardless of how many labels there are. Works for any script; labels in
+ * Devanagari are matched the same way as English ones.
+ * <p>
+ * The automaton is immutable once built and can be shared between threads.
+ */
+public final class LabelAutomaton {
+
+    private static final int ROOT = 0;
+
+    private final String[] labels;
+    private final Map<String, Integer> labelIds;
+
+    // Column of each character in the transition table (case-folded), 0 for characters that occur in no label
+    private final char[] columns = new char[Character.MAX_VALUE + 1];
+    private final int columnCount;
+    // Complete transition table with failure transitions resolved: next state = delta[state * columnCount + column]
+    private final int[] delta;
+    // Label ending at a state, or -1
+    private final int[] output;
+    // Nearest state on the failure chain that has an output, or -1
+    private final int[] outputLink;
+    // The state itself if it has an output, otherwise its output link
+    private final int[] firstOutput;
+
+    public LabelAutomaton(Collection<String> labels) {
+        Set<String> folded = new LinkedHashSet<>();
+        for (String label : labels) {
+            if (!label.isEmpty()) {
+                folded.add(fold(label));
+            }
+        }
+        this.labels = folded.toArray(String[]::new);
+        this.labelIds = new HashMap<>();
+        for (int i = 0; i < this.labels.length; i++) {
+            labelIds.put(this.labels[i], i);
+        }
+
+        // Assign a column to every character of every label, and to every character that folds to one
+        BitSet alphabet = new BitSet(Character.MAX_VALUE + 1);
+        for (String label : this.labels) {
+            label.chars().forEach(alphabet::set);
+        }
+        int column = 1;
+        for (int c = alphabet.nextSetBit(0); c >= 0; c = alphabet.nextSetBit(c + 1)) {
+            columns[c] = (char) column++;
+        }
+        this.columnCount = column;
+        char[] labelColumns = columns.clone();
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            columns[c] = labelColumns[fold((char) c)];
+        }
+
+        // Build the trie
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        trie.add(new int[columnCount]);
+        outputs.add(-1);
+        for (int id = 0; id < this.labels.length; id++) {
+            int state = ROOT;
+            for (char c : this.labels[id].toCharArray()) {
+                int next = trie.get(state)[columns[c]];
+                if (next == 0) {
+                    next = trie.size();
+                    trie.add(new int[columnCount]);
+                    outputs.add(-1);
+                    trie.get(state)[columns[c]] = next;
+                }
+                state = next;
+            }
+            outputs.set(state, id);
+        }
+
+        int stateCount = trie.size();
+        this.delta = new int[stateCount * columnCount];
+        this.output = new int[stateCount];
+        this.outputLink = new int[stateCount];
+        Arrays.fill(outputLink, -1);
+        int[] failure = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            output[state] = outputs.get(state);
+        }
+
+        // Resolve failure transitions breadth first, so each state can reuse the row of its failure state
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int col = 1; col < columnCount; col++) {
+            int child = trie.get(ROOT)[col];
+            delta[col] = child;
+            if (child != ROOT) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputLink[state] = output[failure[state]] >= 0 ? failure[state] : outputLink[failure[state]];
+            for (int col = 1; col < columnCount; col++) {
+                int child = trie.get(state)[col];
+                if (child != ROOT) {
+                    failure[child] = delta[failure[state] * columnCount + col];
+                    delta[state * columnCount + col] = child;
+                    queue.add(child);
+                } else {
+                    delta[state * columnCount + col] = delta[failure[state] * columnCount + col];
+                }
+            }
+        }
+
+        this.firstOutput = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            firstOutput[state] = output[state] >= 0 ? state : outputLink[state];
+        }
+    }
+
+    /**
+     * Folds a character for case-insensitive matching, the same way {@link String#regionMatches(boolean, int,
+     * String, int, int)} compares characters.
+     */
+    static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    static String fold(String label) {
+        char[] chars = label.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @param label A label, in any case
+     * @return The ID of the label, or -1 if the automaton does not contain it
+     */
+    public int labelId(String label) {
+        Integer id = labelIds.get(fold(label));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return The number of distinct (case-folded) labels
+     */
+    public int labelCount() {
+        return labels.length;
+    }
+
+    /**
+     * Finds every label occurrence in a text.
+     *
+     * @param text The text to scan
+     * @return The occurrences, ordered by start offset
+     */
+    public LabelHits scan(CharSequence text) {
+        LabelHits hits = newHits();
+        scan(text, 0, hits);
+        return hits;
+    }
+
+    /**
+     * @return An empty set of occurrences, to be filled by {@link #scan(CharSequence, int, LabelHits)}
+     */
+    LabelHits newHits() {
+        return new LabelHits(labels);
+    }
+
+    /**
+     * Continues a scan over text appended to an earlier scanned text, adding the occurrences that start at or
+     * after {@code from}. The character before {@code from} must not occur in any label (such as a line break),
+     * so no occurrence spans the two parts.
+     *
+     * @param text The text to scan
+     * @param from The offset to scan from
+     * @param hits The occurrences found before {@code from}
+     */
+    void scan(CharSequence text, int from, LabelHits hits) {
+        int first = hits.size();
+        int state = ROOT;
+        int length = text.length();
+        for (int i = from; i < length; i++) {
+            int column = columns[text.charAt(i)];
+            // Characters that occur in no label end every partial match
+            state = column == 0 ? ROOT : delta[state * columnCount + column];
+
+            for (int s = firstOutput[state]; s >= 0; s = outputLink[s]) {
+                int labelId = output[s];
+                hits.add(i + 1 - labels[labelId].length(), labelId);
+            }
+        }
+        hits.sortByStart(first);
+    }
+}
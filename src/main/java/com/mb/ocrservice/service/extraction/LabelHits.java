@@ -0,0 +1,89 @@
+package com.mb.ocrservice.service.extraction;
+
+import java.util.Arrays;
+
+/**
+ * The label occurrences found by a {@link LabelAutomaton} scan, ordered by start offset.
+ * Occurrences are packed as {@code start << 32 | labelId} into a single array.
+ */
+public final class LabelHits {
+
+    private final String[] labels;
+    private long[] hits = new long[16];
+    private int size;
+
+    LabelHits(String[] labels) {
+        this.labels = labels;
+    }
+
+    void add(int start, int labelId) {
+        if (size == hits.length) {
+            hits = Arrays.copyOf(hits, size * 2);
+        }
+        hits[size++] = ((long) start << 32) | labelId;
+    }
+
+    /**
+     * Sorts the occurrences added since the given index, which all start after the earlier ones.
+     */
+    void sortByStart(int from) {
+        Arrays.sort(hits, from, size);
+    }
+
+    /**
+     * @return The number of label occurrences
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index The index of the occurrence
+     * @return The offset in the text where the label starts
+     */
+    public int start(int index) {
+        return (int) (hits[index] >>> 32);
+    }
+
+    /**
+     * @param index The index of the occurrence
+     * @return The offset in the text just past the label
+     */
+    public int end(int index) {
+        return start(index) + label(index).length();
+    }
+
+    /**
+     * @param index The index of the occurrence
+     * @return The ID of the label, see {@link LabelAutomaton#labelId(String)}
+     */
+    public int labelId(int index) {
+        return (int) hits[index];
+    }
+
+    /**
+     * @param index The index of the occurrence
+     * @return The label, case-folded
+     */
+    public String label(int index) {
+        return labels[labelId(index)];
+    }
+
+    /**
+     * @param offset An offset in the text
+     * @return The index of the first occurrence starting at or after the offset, or {@link #size()} if there is none
+     */
+    public int firstAtOrAfter(int offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (start(mid) < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,73 @@
+package com.mb.ocrservice.service.extraction;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Extraction of a multi-page document whose pages arrive one at a time, in page order.
+ * Each page is appended to the document text and scanned for labels as soon as it is added, so only the rule
+ * matching is left once the last page arrives. Pages are joined by a line break, which occurs in no label, so the
+ * result is the same as extracting the joined text in one go.
+ * <p>
+ * Not thread-safe; pages must be added by one thread at a time.
+ */
+public final class PagedExtraction {
+
+    static final char PAGE_SEPARATOR = '\n';
+
+    private final FieldExtractor extractor;
+    private final LabelAutomaton labelAutomaton;
+    private final ExtractionGuard guard;
+    private final StringBuilder text = new StringBuilder();
+    private final LabelHits hits;
+    private int pageCount;
+
+    PagedExtraction(FieldExtractor extractor, LabelAutomaton labelAutomaton, ExtractionGuard guard) {
+        this.extractor = extractor;
+        this.labelAutomaton = labelAutomaton;
+        this.guard = guard;
+        this.hits = labelAutomaton.newHits();
+    }
+
+    /**
+     * Appends the next page and locates the labels in it.
+     *
+     * @param pageText The text recognized on the page
+     */
+    public void addPage(String pageText) {
+        if (pageCount++ > 0) {
+            text.append(PAGE_SEPARATOR);
+        }
+        int start = text.length();
+        text.append(pageText);
+        if (extractor != null) {
+            labelAutomaton.scan(text, start, hits);
+        }
+    }
+
+    /**
+     * @return The number of pages added so far
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * @return The text of all pages added so far, in page order
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Extracts structured data from all pages added.
+     *
+     * @return A map of structured data, empty for unknown document types
+     */
+    public Map<String, Object> extract() {
+        if (extractor == null || text.length() == 0) {
+            return new HashMap<>();
+        }
+        return extractor.extract(text.toString(), hits, guard);
+    }
+}
@@ -0,0 +1,40 @@
+package com.mb.ocrservice.service.extraction;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Extracts the fields of a PAN card. Names and the date of birth are printed on the line below their label.
+ */
+@Component
+public class PanFieldExtractor extends RuleBasedFieldExtractor {
+
+    public PanFieldExtractor() {
+        super("PAN", List.of(
+                // PAN number (5 letters, 4 digits, 1 letter)
+                FieldRule.firstMatch("pan_number", "[A-Z]{5}\\d{4}[A-Z]{1}")
+                        .valueGroup(0)
+                        .startsWith(c -> c >= 'A' && c <= 'Z')
+                        .confidence(0.9f)
+                        .build(),
+                // The father's name label also contains "Name", so its line must not set the holder's name
+                FieldRule.nextLine("name", "[A-Z\\s]+")
+                        .labels("नाम", "Name")
+                        .excludedLabels("पिता का नाम", "Father's Name")
+                        .confidence(0.85f)
+                        .normalizer(FieldNormalizers::cleanText)
+                        .skipEmpty()
+                        .build(),
+                FieldRule.nextLine("fathers_name", "[A-Z\\s]+")
+                        .labels("पिता का नाम", "Father's Name")
+                        .confidence(0.8f)
+                        .normalizer(FieldNormalizers::cleanText)
+                        .skipEmpty()
+                        .build(),
+                FieldRule.nextLine("date_of_birth", "\\d{2}/\\d{2}/\\d{4}")
+                        .labels("जन्म की तारीख", "Date of Birth")
+                        .confidence(0.85f)
+                        .build()));
+    }
+}
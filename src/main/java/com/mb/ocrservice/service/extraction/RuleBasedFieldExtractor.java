@@ -0,0 +1,217 @@
+package com.mb.ocrservice.service.extraction;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.stream.IntStream;
+
+/**
+ * Field extractor driven by a list of {@link FieldRule}s.
+ * <p>
+ * Labeled rules are resolved from the label occurrences found by the {@link LabelAutomaton}, in text order: a
+ * {@link FieldRule.Mode#FIRST_MATCH} rule tries its pattern with {@link Matcher#lookingAt()} at each occurrence of
+ * one of its labels until it matches, and a {@link FieldRule.Mode#NEXT_LINE} rule matches the line following each
+ * line that holds one of its labels. Lines are located by offsets around the occurrence, so the text is never split.
+ * Unlabeled rules are resolved by one scan over the characters their values can start with, which stops as soon as
+ * all of them are resolved.
+ * <p>
+ * Every match runs within the budget the {@link ExtractionGuard} gives its field, and only sees a bounded window of
+ * text after its start.
+ */
+public class RuleBasedFieldExtractor implements FieldExtractor {
+
+    private final String documentType;
+    private final FieldRule[] rules;
+    private final Set<String> labels = new LinkedHashSet<>();
+    // Case-folded label -> indices of the rules the label triggers
+    private final Map<String, int[]> rulesByLabel = new HashMap<>();
+    private final int[] unlabeledRules;
+    private final BitSet unlabeledStartChars = new BitSet(Character.MAX_VALUE + 1);
+
+    public RuleBasedFieldExtractor(String documentType, List<FieldRule> rules) {
+        this.documentType = documentType;
+        this.rules = rules.toArray(FieldRule[]::new);
+        for (int r = 0; r < this.rules.length; r++) {
+            FieldRule rule = this.rules[r];
+            int ruleIndex = r;
+            for (String label : rule.getLabels()) {
+                labels.add(label);
+                int[] ruleIndices = rulesByLabel.getOrDefault(LabelAutomaton.fold(label), new int[0]);
+                if (Arrays.stream(ruleIndices).noneMatch(index -> index == ruleIndex)) {
+                    rulesByLabel.put(LabelAutomaton.fold(label), append(ruleIndices, ruleIndex));
+                }
+            }
+            labels.addAll(rule.getExcludedLabels());
+            if (rule.isUnlabeled()) {
+                unlabeledStartChars.or(rule.getStartChars());
+            }
+        }
+        this.unlabeledRules = IntStream.range(0, this.rules.length)
+                .filter(r -> this.rules[r].isUnlabeled())
+                .toArray();
+    }
+
+    @Override
+    public String getDocumentType() {
+        return documentType;
+    }
+
+    @Override
+    public Collection<String> getLabels() {
+        return labels;
+    }
+
+    @Override
+    public Map<String, Object> extract(String text, LabelHits hits, ExtractionGuard guard) {
+        Map<String, Object> data = new HashMap<>();
+        if (text == null || text.isEmpty()) {
+            return data;
+        }
+
+        ExtractionGuard.Run run = guard.start(documentType, text, rules);
+        Matcher[] matchers = new Matcher[rules.length];
+        boolean[] resolved = new boolean[rules.length];
+        int[] lastLabelLine = new int[rules.length];
+        Arrays.fill(lastLabelLine, -1);
+
+        for (int h = 0; h < hits.size(); h++) {
+            int[] ruleIndices = rulesByLabel.get(hits.label(h));
+            if (ruleIndices == null) {
+                // A label of another document type
+                continue;
+            }
+            int start = hits.start(h);
+            for (int r : ruleIndices) {
+                FieldRule rule = rules[r];
+                if (rule.getMode() == FieldRule.Mode.FIRST_MATCH) {
+                    if (!resolved[r]
+                            && run.lookingAt(r, matcher(matchers, r, run).region(start, run.windowEnd(start)))) {
+                        addField(data, rule, matchers[r].group(rule.getValueGroup()));
+                        resolved[r] = true;
+                    }
+                } else if (rule.hasLabelAt(text, start)) {
+                    int lineStart = text.lastIndexOf('\n', start - 1) + 1;
+                    if (lineStart != lastLabelLine[r]) {
+                        lastLabelLine[r] = lineStart;
+                        resolveNextLine(text, hits, lineStart, start, r, run, matchers, data);
+                    }
+                }
+            }
+        }
+
+        resolveUnlabeledRules(text, run, matchers, data);
+        run.finish(data);
+        return data;
+    }
+
+    /**
+     * Matches the line after a label line against a next-line rule, unless the label line holds an excluded label.
+     * Lines longer than the match window are not tried.
+     */
+    private void resolveNextLine(String text, LabelHits hits, int lineStart, int labelStart, int r,
+                                 ExtractionGuard.Run run, Matcher[] matchers, Map<String, Object> data) {
+        FieldRule rule = rules[r];
+        int lineEnd = lineEnd(text, labelStart);
+        if (!rule.getExcludedLabels().isEmpty()) {
+            for (int k = hits.firstAtOrAfter(lineStart); k < hits.size() && hits.start(k) < lineEnd; k++) {
+                if (rule.hasExcludedLabelAt(text, hits.start(k))) {
+                    return;
+                }
+            }
+        }
+        if (lineEnd == text.length()) {
+            // The label is on the last line
+            return;
+        }
+
+        // Trim the next line by adjusting its bounds
+        int start = lineEnd + 1;
+        int end = lineEnd(text, start);
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        if (end - start > run.maxWindowChars()) {
+            return;
+        }
+        Matcher matcher = matcher(matchers, r, run).region(start, end);
+        if (run.matches(r, matcher)) {
+            addField(data, rule, matcher.group(rule.getValueGroup()));
+        }
+    }
+
+    /**
+     * Resolves the unlabeled rules in one scan over the positions where one of their values can start.
+     */
+    private void resolveUnlabeledRules(String text, ExtractionGuard.Run run, Matcher[] matchers,
+                                       Map<String, Object> data) {
+        int unresolved = unlabeledRules.length;
+        int length = text.length();
+        boolean[] resolved = new boolean[rules.length];
+        for (int i = 0; i < length && unresolved > 0; i++) {
+            if (!unlabeledStartChars.get(text.charAt(i))) {
+                continue;
+            }
+            for (int r : unlabeledRules) {
+                FieldRule rule = rules[r];
+                if (resolved[r] || !rule.canStartAt(text, i)) {
+                    continue;
+                }
+                Matcher matcher = matcher(matchers, r, run).region(i, run.windowEnd(i));
+                if (run.lookingAt(r, matcher)) {
+                    addField(data, rule, matcher.group(rule.getValueGroup()));
+                    resolved[r] = true;
+                    unresolved--;
+                } else if (run.isExceeded(r)) {
+                    resolved[r] = true;
+                    unresolved--;
+                }
+            }
+        }
+    }
+
+    private Matcher matcher(Matcher[] matchers, int r, ExtractionGuard.Run run) {
+        if (matchers[r] == null) {
+            matchers[r] = rules[r].getPattern().matcher(run.text());
+        }
+        return matchers[r];
+    }
+
+    private static int lineEnd(String text, int from) {
+        int end = text.indexOf('\n', from);
+        return end < 0 ? text.length() : end;
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] appended = Arrays.copyOf(values, values.length + 1);
+        appended[values.length] = value;
+        return appended;
+    }
+
+    /**
+     * Add a field with confidence score to the data map.
+     *
+     * @param data The data map
+     * @param rule The rule that matched
+     * @param matchedValue The matched value, before normalization
+     */
+    private static void addField(Map<String, Object> data, FieldRule rule, String matchedValue) {
+        String value = rule.normalize(matchedValue);
+        if (rule.isSkipEmpty() && value.isEmpty()) {
+            return;
+        }
+        Map<String, Object> fieldData = new HashMap<>();
+        fieldData.put("value", value);
+        fieldData.put("confidence", rule.getConfidence());
+        data.put(rule.getFieldName(), fieldData);
+    }
+}
@@ -0,0 +1,205 @@
+package com.mb.ocrservice.service.extraction;
+
+import java.util.BitSet;
+
+/**
+ * Normalizes text in a single pass over its characters, into a reusable per-thread buffer; the result string is the
+ * only allocation, and none is made when the text is already normal.
+ * <p>
+ * The text is trimmed first, and each line feed is replaced by the line separator if one is set. Then each
+ * character is:
+ * <ul>
+ *     <li>dropped if it is in a dropped Unicode block; a dropped character does not interrupt a whitespace run</li>
+ *     <li>kept, collapsed into one space per run, or removed if it is whitespace ({@code [ \t\n\x0B\f\r]}),
+ *     according to the {@link Whitespace} rule</li>
+ *     <li>otherwise kept if it is an allowed character, upper-cased if requested, and removed if not</li>
+ * </ul>
+ * A removed character ends a whitespace run, so a space on each side of it stays two spaces. When whitespace is
+ * collapsed, spaces left at the end of the result are trimmed.
+ */
+public final class TextNormalizer {
+
+    public enum Whitespace {
+        KEEP,
+        COLLAPSE,
+        REMOVE
+    }
+
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[256]);
+
+    private final BitSet dropped;
+    private final BitSet allowed;
+    private final Whitespace whitespace;
+    private final String lineSeparator;
+    private final boolean upperCase;
+
+    private TextNormalizer(Builder builder) {
+        this.dropped = builder.dropped;
+        this.allowed = builder.allowed;
+        this.whitespace = builder.whitespace;
+        this.lineSeparator = builder.lineSeparator;
+        this.upperCase = builder.upperCase;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param text The text to normalize
+     * @return The normalized text, or the text itself if it is already normal
+     */
+    public String normalize(String text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        int expansion = lineSeparator == null ? 1 : Math.max(1, lineSeparator.length());
+        char[] out = buffer((end - start) * expansion);
+        int length = 0;
+        boolean pendingSpace = false;
+        boolean replaced = false;
+        for (int i = start; i < end; i++) {
+            char next = text.charAt(i);
+            boolean separator = next == '\n' && lineSeparator != null;
+            int count = separator ? lineSeparator.length() : 1;
+            replaced |= separator;
+            for (int k = 0; k < count; k++) {
+                char c = separator ? lineSeparator.charAt(k) : next;
+                if (dropped != null && dropped.get(c)) {
+                    continue;
+                }
+                if (isWhitespace(c)) {
+                    if (whitespace == Whitespace.KEEP) {
+                        out[length++] = c;
+                    } else if (whitespace == Whitespace.COLLAPSE) {
+                        pendingSpace = true;
+                        replaced |= c != ' ';
+                    }
+                    continue;
+                }
+                if (pendingSpace) {
+                    // Spaces at the start are trimmed
+                    if (length > 0) {
+                        out[length++] = ' ';
+                    }
+                    pendingSpace = false;
+                }
+                if (allowed != null && !allowed.get(c)) {
+                    continue;
+                }
+                char normalized = upperCase ? Character.toUpperCase(c) : c;
+                replaced |= normalized != c;
+                out[length++] = normalized;
+            }
+        }
+        if (whitespace == Whitespace.COLLAPSE) {
+            while (length > 0 && out[length - 1] == ' ') {
+                length--;
+            }
+        }
+
+        // Every change other than a replacement shortens the text
+        String result = !replaced && length == text.length() ? text : new String(out, 0, length);
+        if (out.length > MAX_RETAINED_BUFFER) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+
+    /**
+     * Whitespace as matched by {@code \s}.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static char[] buffer(int capacity) {
+        char[] buffer = BUFFER.get();
+        if (buffer.length < capacity) {
+            buffer = new char[Math.max(capacity, buffer.length * 2)];
+            BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    public static final class Builder {
+
+        private BitSet dropped;
+        private BitSet allowed;
+        private Whitespace whitespace = Whitespace.KEEP;
+        private String lineSeparator;
+        private boolean upperCase;
+
+        private Builder() {
+        }
+
+        /**
+         * @param block A Unicode block whose characters are dropped, such as {@link Character.UnicodeBlock#DEVANAGARI}
+         * @return This builder
+         */
+        public Builder dropBlock(Character.UnicodeBlock block) {
+            if (dropped == null) {
+                dropped = new BitSet(Character.MAX_VALUE + 1);
+            }
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                if (Character.UnicodeBlock.of(c) == block) {
+                    dropped.set(c);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @param allowedCharacter The characters other than whitespace that are kept; all are kept by default
+         * @return This builder
+         */
+        public Builder allow(FieldRule.StartCharacter allowedCharacter) {
+            allowed = new BitSet(Character.MAX_VALUE + 1);
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                if (allowedCharacter.matches((char) c)) {
+                    allowed.set(c);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @param whitespace What happens to whitespace; kept by default
+         * @return This builder
+         */
+        public Builder whitespace(Whitespace whitespace) {
+            this.whitespace = whitespace;
+            return this;
+        }
+
+        /**
+         * @param lineSeparator Replaces each line feed, before the other rules apply
+         * @return This builder
+         */
+        public Builder lineSeparator(String lineSeparator) {
+            this.lineSeparator = lineSeparator;
+            return this;
+        }
+
+        /**
+         * Upper-cases the kept characters.
+         *
+         * @return This builder
+         */
+        public Builder upperCase() {
+            this.upperCase = true;
+            return this;
+        }
+
+        public TextNormalizer build() {
+            return new TextNormalizer(this);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.mb.ocrservice.service.extraction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates of a {@link TransactionTable}: totals, monthly credits and debits, salary credits and the continuity of
+ * the running balance. Everything is computed from the primitive columns; the only objects created are the output
+ * maps, one per month.
+ */
+public final class TransactionSummary {
+
+    private static final String[] SALARY_WORDS = {"SALARY", "SAL", "PAYROLL", "WAGES"};
+
+    private TransactionSummary() {
+    }
+
+    /**
+     * Summarizes the rows of a statement.
+     *
+     * @param table The rows of the statement
+     * @param closingBalance The closing balance in paise, or {@link Long#MIN_VALUE} if it is not known
+     * @return The summary, with amounts in rupees
+     */
+    public static Map<String, Object> summarize(TransactionTable table, long closingBalance) {
+        int size = table.size();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("transaction_count", size);
+        if (size == 0) {
+            return summary;
+        }
+
+        long totalCredits = 0;
+        long totalDebits = 0;
+        int creditCount = 0;
+        int firstDay = Integer.MAX_VALUE;
+        int lastDay = Integer.MIN_VALUE;
+
+        long salaryTotal = 0;
+        int salaryCount = 0;
+        int salaryMonths = 0;
+        int lastSalaryMonth = Integer.MIN_VALUE;
+        int lastSalaryDay = Integer.MIN_VALUE;
+
+        int breaks = 0;
+        int firstBreakDay = Integer.MIN_VALUE;
+
+        // Statement rows are in date order, so a month is a run of rows; a month seen again out of order is merged
+        Map<Integer, long[]> months = new LinkedHashMap<>();
+        int currentMonth = Integer.MIN_VALUE;
+        long[] month = null;
+
+        for (int row = 0; row < size; row++) {
+            int day = table.epochDay(row);
+            long amount = table.amount(row);
+            firstDay = Math.min(firstDay, day);
+            lastDay = Math.max(lastDay, day);
+
+            int monthIndex = TransactionTable.monthIndex(day);
+            if (monthIndex != currentMonth) {
+                currentMonth = monthIndex;
+                // credits, debits, credit count, debit count, closing balance
+                month = months.computeIfAbsent(monthIndex, key -> new long[5]);
+            }
+            if (amount >= 0) {
+                totalCredits += amount;
+                creditCount++;
+                month[0] += amount;
+                month[2]++;
+                if (isSalary(table, row)) {
+                    salaryTotal += amount;
+                    salaryCount++;
+                    if (monthIndex != lastSalaryMonth) {
+                        salaryMonths++;
+                        lastSalaryMonth = monthIndex;
+                    }
+                    lastSalaryDay = Math.max(lastSalaryDay, day);
+                }
+            } else {
+                totalDebits -= amount;
+                month[1] -= amount;
+                month[3]++;
+            }
+            month[4] = table.balance(row);
+
+            if ((row > 0 || table.hasOpeningBalance()) && !table.isContinuous(row)) {
+                breaks++;
+                if (firstBreakDay == Integer.MIN_VALUE) {
+                    firstBreakDay = day;
+                }
+            }
+        }
+
+        summary.put("first_date", LocalDate.ofEpochDay(firstDay).toString());
+        summary.put("last_date", LocalDate.ofEpochDay(lastDay).toString());
+        summary.put("credit_count", creditCount);
+        summary.put("debit_count", size - creditCount);
+        summary.put("total_credits", rupees(totalCredits));
+        summary.put("total_debits", rupees(totalDebits));
+
+        List<Map<String, Object>> monthly = new ArrayList<>(months.size());
+        for (Map.Entry<Integer, long[]> entry : months.entrySet()) {
+            long[] totals = entry.getValue();
+            Map<String, Object> monthSummary = new LinkedHashMap<>();
+            monthSummary.put("month", String.format("%04d-%02d", entry.getKey() / 12, entry.getKey() % 12 + 1));
+            monthSummary.put("credits", rupees(totals[0]));
+            monthSummary.put("debits", rupees(totals[1]));
+            monthSummary.put("credit_count", totals[2]);
+            monthSummary.put("debit_count", totals[3]);
+            monthSummary.put("closing_balance", rupees(totals[4]));
+            monthly.add(monthSummary);
+        }
+        summary.put("monthly", monthly);
+
+        Map<String, Object> salary = new LinkedHashMap<>();
+        salary.put("detected", salaryCount > 0);
+        if (salaryCount > 0) {
+            salary.put("credit_count", salaryCount);
+            salary.put("months", salaryMonths);
+            salary.put("average_amount", rupees(salaryTotal / salaryCount));
+            salary.put("last_date", LocalDate.ofEpochDay(lastSalaryDay).toString());
+        }
+        summary.put("salary", salary);
+
+        // The first row is only checked when the opening balance was known
+        Map<String, Object> continuity = new LinkedHashMap<>();
+        continuity.put("checked", table.hasOpeningBalance() ? size : size - 1);
+        continuity.put("breaks", breaks);
+        continuity.put("consistent", breaks == 0);
+        if (firstBreakDay != Integer.MIN_VALUE) {
+            continuity.put("first_break_date", LocalDate.ofEpochDay(firstBreakDay).toString());
+        }
+        if (closingBalance != Long.MIN_VALUE) {
+            continuity.put("closing_balance_matches", table.balance(size - 1) == closingBalance);
+        }
+        summary.put("balance_continuity", continuity);
+        return summary;
+    }
+
+    private static boolean isSalary(TransactionTable table, int row) {
+        for (String word : SALARY_WORDS) {
+            if (table.descriptionContains(row, word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static BigDecimal rupees(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+}
@@ -0,0 +1,427 @@
+package com.mb.ocrservice.service.extraction;
+
+import java.util.Arrays;
+
+/**
+ * The transaction rows of a bank statement, in columnar form: one primitive array per column and no object per row.
+ * Rows are parsed by a single pass over the lines of the text, without splitting it. A transaction line starts with
+ * a date ({@code dd/mm/yyyy}, {@code dd-mm-yyyy}, {@code dd.mm.yyyy} or a two-digit year) and ends with the amount
+ * and the running balance; everything in between is the description. Other lines (headers, page footers) are
+ * skipped. Amounts and balances may carry a {@code Cr} or {@code Dr} marker, attached or as a separate token; a
+ * {@code Dr} balance or a leading minus is negative (an overdrawn account).
+ * <p>
+ * A single amount column does not tell debits from credits, so the direction is taken from the change of the
+ * running balance. Where the balance does not move by the amount (the first row without an opening balance, or an
+ * OCR error), a Cr/Dr marker or minus on the amount decides, and otherwise the description: credit keywords such as
+ * SALARY or REFUND make it a credit.
+ */
+public final class TransactionTable {
+
+    private static final long NO_AMOUNT = Long.MIN_VALUE;
+    private static final String[] CREDIT_WORDS = {"CR", "CREDIT", "CREDITED", "DEPOSIT", "SALARY", "SAL", "PAYROLL",
+            "REFUND", "INTEREST", "REVERSAL", "CASHBACK"};
+
+    private final CharSequence text;
+    private final boolean openingBalanceKnown;
+    private int size;
+    private int[] epochDays = new int[64];
+    private long[] amounts = new long[64];
+    private long[] balances = new long[64];
+    private int[] descriptionStarts = new int[64];
+    private int[] descriptionEnds = new int[64];
+    private boolean[] continuous = new boolean[64];
+
+    // Set by parseSignedAmount: where the parsed amount starts, including a separate marker, and its Cr/Dr marker
+    private int amountGroupStart;
+    private int amountMarker;
+
+    private TransactionTable(CharSequence text, boolean openingBalanceKnown) {
+        this.text = text;
+        this.openingBalanceKnown = openingBalanceKnown;
+    }
+
+    /**
+     * Parses the transaction rows of a statement.
+     *
+     * @param text The text of the statement
+     * @param openingBalance The opening balance in paise, or {@link Long#MIN_VALUE} if it is not known
+     * @return The rows, in statement order
+     */
+    public static TransactionTable parse(CharSequence text, long openingBalance) {
+        TransactionTable table = new TransactionTable(text, openingBalance != NO_AMOUNT);
+        long previousBalance = openingBalance;
+        int length = text.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (table.parseLine(lineStart, lineEnd, previousBalance)) {
+                previousBalance = table.balances[table.size - 1];
+            }
+            lineStart = lineEnd + 1;
+        }
+        return table;
+    }
+
+    /**
+     * Parses one line, adding a row if it is a transaction.
+     *
+     * @return Whether a row was added
+     */
+    private boolean parseLine(int start, int end, long previousBalance) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        // Date at the start of the line
+        int day = digits(start, 2);
+        if (day < 1 || day > 31 || !isDateSeparator(start + 2, end)) {
+            return false;
+        }
+        int month = digits(start + 3, 2);
+        if (month < 1 || month > 12 || !isDateSeparator(start + 5, end)) {
+            return false;
+        }
+        int year;
+        int dateEnd;
+        if (start + 10 <= end && digits(start + 6, 4) >= 0) {
+            year = digits(start + 6, 4);
+            dateEnd = start + 10;
+        } else if (start + 8 <= end && digits(start + 6, 2) >= 0) {
+            year = 2000 + digits(start + 6, 2);
+            dateEnd = start + 8;
+        } else {
+            return false;
+        }
+        if (dateEnd < end && text.charAt(dateEnd) > ' ') {
+            return false;
+        }
+
+        // Balance and amount at the end of the line
+        long balance = parseSignedAmount(dateEnd, end);
+        if (balance == NO_AMOUNT) {
+            return false;
+        }
+        int amountEnd = trimEnd(dateEnd, amountGroupStart);
+        long amount = parseSignedAmount(dateEnd, amountEnd);
+        int amountStart = amountGroupStart;
+        if (amount == NO_AMOUNT || amountStart <= dateEnd) {
+            return false;
+        }
+        // A marker or minus on the amount gives its direction; the amount itself is a magnitude
+        int direction = amountMarker != 0 ? amountMarker : amount < 0 ? -1 : 0;
+        amount = Math.abs(amount);
+
+        int descriptionStart = dateEnd;
+        int descriptionEnd = amountStart;
+        while (descriptionStart < descriptionEnd && text.charAt(descriptionStart) <= ' ') {
+            descriptionStart++;
+        }
+        while (descriptionEnd > descriptionStart && text.charAt(descriptionEnd - 1) <= ' ') {
+            descriptionEnd--;
+        }
+
+        long signed;
+        boolean isContinuous = false;
+        if (previousBalance != NO_AMOUNT && previousBalance + amount == balance) {
+            signed = amount;
+            isContinuous = true;
+        } else if (previousBalance != NO_AMOUNT && previousBalance - amount == balance) {
+            signed = -amount;
+            isContinuous = true;
+        } else {
+            boolean credit = direction != 0 ? direction > 0 : hasCreditWord(descriptionStart, descriptionEnd);
+            signed = credit ? amount : -amount;
+        }
+
+        add(epochDay(year, month, day), signed, balance, descriptionStart, descriptionEnd, isContinuous);
+        return true;
+    }
+
+    private void add(int epochDay, long amount, long balance, int descriptionStart, int descriptionEnd,
+                     boolean isContinuous) {
+        if (size == epochDays.length) {
+            int capacity = size * 2;
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            balances = Arrays.copyOf(balances, capacity);
+            descriptionStarts = Arrays.copyOf(descriptionStarts, capacity);
+            descriptionEnds = Arrays.copyOf(descriptionEnds, capacity);
+            continuous = Arrays.copyOf(continuous, capacity);
+        }
+        epochDays[size] = epochDay;
+        amounts[size] = amount;
+        balances[size] = balance;
+        descriptionStarts[size] = descriptionStart;
+        descriptionEnds[size] = descriptionEnd;
+        continuous[size] = isContinuous;
+        size++;
+    }
+
+    /**
+     * @return The number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Whether the opening balance was known, so that the first row could be checked against it
+     */
+    public boolean hasOpeningBalance() {
+        return openingBalanceKnown;
+    }
+
+    /**
+     * @param row The index of the row
+     * @return The date of the transaction, in days since 1970-01-01
+     */
+    public int epochDay(int row) {
+        return epochDays[row];
+    }
+
+    /**
+     * @param row The index of the row
+     * @return The amount in paise, positive for credits and negative for debits
+     */
+    public long amount(int row) {
+        return amounts[row];
+    }
+
+    /**
+     * @param row The index of the row
+     * @return The running balance after the transaction, in paise
+     */
+    public long balance(int row) {
+        return balances[row];
+    }
+
+    /**
+     * @param row The index of the row
+     * @return Whether the balance before the row moved by exactly the row's amount
+     */
+    public boolean isContinuous(int row) {
+        return continuous[row];
+    }
+
+    /**
+     * @param row The index of the row
+     * @param word An upper-case word
+     * @return Whether the description of the row contains the word, case-insensitively and not as part of a
+     * longer word
+     */
+    public boolean descriptionContains(int row, String word) {
+        return containsWord(descriptionStarts[row], descriptionEnds[row], word);
+    }
+
+    /**
+     * @param row The index of the row
+     * @return The description of the row
+     */
+    public String description(int row) {
+        return text.subSequence(descriptionStarts[row], descriptionEnds[row]).toString();
+    }
+
+    private boolean hasCreditWord(int start, int end) {
+        for (String word : CREDIT_WORDS) {
+            if (containsWord(start, end, word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsWord(int start, int end, String word) {
+        int last = end - word.length();
+        for (int i = start; i <= last; i++) {
+            if ((i == start || !Character.isLetter(text.charAt(i - 1)))
+                    && (i + word.length() == end || !Character.isLetter(text.charAt(i + word.length())))
+                    && regionMatches(i, word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean regionMatches(int offset, String word) {
+        for (int j = 0; j < word.length(); j++) {
+            if (Character.toUpperCase(text.charAt(offset + j)) != word.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isDateSeparator(int index, int end) {
+        if (index >= end) {
+            return false;
+        }
+        char c = text.charAt(index);
+        return c == '/' || c == '-' || c == '.';
+    }
+
+    /**
+     * @return The value of {@code count} decimal digits, or -1 if they are not all digits
+     */
+    private int digits(int start, int count) {
+        if (start + count > text.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * @return The start of the last whitespace-separated token before {@code end}
+     */
+    private int tokenStart(int from, int end) {
+        int start = end;
+        while (start > from && text.charAt(start - 1) > ' ') {
+            start--;
+        }
+        return start;
+    }
+
+    /**
+     * @return {@code end} without the whitespace before it
+     */
+    private int trimEnd(int from, int end) {
+        while (end > from && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Parses the amount that ends at {@code end}, such as {@code 1,30,230.50}, {@code ₹45.00}, {@code -1,200.00},
+     * {@code 250.00Cr} or {@code 250.00 Dr}, into paise. A {@code Dr} marker or a leading minus makes it negative.
+     * Sets {@link #amountGroupStart} and {@link #amountMarker}.
+     *
+     * @return The amount in paise, or {@link Long#MIN_VALUE} if the text before {@code end} is not an amount
+     */
+    private long parseSignedAmount(int from, int end) {
+        int start = tokenStart(from, end);
+        int marker = marker(start, end);
+        if (marker != 0 && end - start == 2) {
+            // Separate marker token: the amount is the token before it
+            end = trimEnd(from, start);
+            start = tokenStart(from, end);
+        } else if (marker != 0) {
+            end -= 2;
+        }
+        amountGroupStart = start;
+        amountMarker = marker;
+
+        boolean negative = start < end && text.charAt(start) == '-';
+        if (negative) {
+            start++;
+        }
+        if (start < end && (text.charAt(start) == '₹' || text.charAt(start) == '$')) {
+            start++;
+        }
+        long amount = parseAmount(text, start, end);
+        if (amount == NO_AMOUNT) {
+            return NO_AMOUNT;
+        }
+        return negative || marker < 0 ? -amount : amount;
+    }
+
+    /**
+     * @return 1 if the range ends with a Cr marker, -1 if it ends with a Dr marker, 0 otherwise
+     */
+    private int marker(int start, int end) {
+        if (end - start < 2 || Character.toUpperCase(text.charAt(end - 1)) != 'R') {
+            return 0;
+        }
+        char c = Character.toUpperCase(text.charAt(end - 2));
+        return c == 'C' ? 1 : c == 'D' ? -1 : 0;
+    }
+
+    /**
+     * Parses an amount with optional thousands separators and up to two decimals into paise.
+     *
+     * @param text The text holding the amount
+     * @param start The start of the amount
+     * @param end The end of the amount
+     * @return The amount in paise, or {@link Long#MIN_VALUE} if the range is not an amount
+     */
+    static long parseAmount(CharSequence text, int start, int end) {
+        long rupees = 0;
+        int digitCount = 0;
+        int i = start;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digitCount > 15) {
+                    return NO_AMOUNT;
+                }
+                rupees = rupees * 10 + (c - '0');
+            } else if (c == '.') {
+                break;
+            } else if (c != ',' || digitCount == 0) {
+                return NO_AMOUNT;
+            }
+        }
+        if (digitCount == 0) {
+            return NO_AMOUNT;
+        }
+        long paise = 0;
+        if (i < end) {
+            // Decimals: exactly one or two digits after the point
+            int decimals = end - i - 1;
+            if (decimals < 1 || decimals > 2) {
+                return NO_AMOUNT;
+            }
+            for (int j = i + 1; j < end; j++) {
+                char c = text.charAt(j);
+                if (c < '0' || c > '9') {
+                    return NO_AMOUNT;
+                }
+                paise = paise * 10 + (c - '0');
+            }
+            if (decimals == 1) {
+                paise *= 10;
+            }
+        }
+        return rupees * 100 + paise;
+    }
+
+    /**
+     * Days since 1970-01-01 of a date in the proleptic Gregorian calendar.
+     */
+    static int epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * The month of a date as {@code year * 12 + month - 1}.
+     */
+    static int monthIndex(int epochDay) {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + month - 1;
+    }
+}
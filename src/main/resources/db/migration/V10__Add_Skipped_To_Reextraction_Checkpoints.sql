@@ -0,0 +1,3 @@
+-- Rows the bulk re-extraction job did not write: rows without raw text, and rows updated by a live OCR run
+-- between reading their page and writing it
+ALTER TABLE reextraction_checkpoints ADD COLUMN skipped BIGINT NOT NULL DEFAULT 0;
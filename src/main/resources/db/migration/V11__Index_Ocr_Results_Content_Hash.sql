@@ -0,0 +1,2 @@
+-- OCR results with the same content are looked up to share their OCR sidecar with a document served from the cache
+CREATE INDEX idx_ocr_results_content_hash ON ocr_results(content_hash);
@@ -0,0 +1,11 @@
+-- Raw OCR text of cache entries, stored like ocr_raw_texts: raw_text_content is the UTF-8 text, gzip-compressed
+-- unless raw_text_encoding is 'identity'
+ALTER TABLE ocr_cache_entries ADD COLUMN raw_text_encoding VARCHAR(16);
+ALTER TABLE ocr_cache_entries ADD COLUMN raw_text_content BYTEA;
+
+-- Existing texts are moved as they are
+UPDATE ocr_cache_entries
+SET raw_text_encoding = 'identity', raw_text_content = convert_to(raw_text, 'UTF8')
+WHERE raw_text IS NOT NULL;
+
+ALTER TABLE ocr_cache_entries DROP COLUMN raw_text;
@@ -0,0 +1,13 @@
+-- OCR results keyed by the SHA-256 of the document content and the document type,
+-- so identical uploads can reuse an earlier OCR result instead of calling Google Vision again
+CREATE TABLE ocr_cache_entries (
+    id SERIAL PRIMARY KEY,
+    content_hash VARCHAR(64) NOT NULL,
+    document_type VARCHAR(50) NOT NULL,
+    raw_text TEXT,
+    structured_data JSONB,
+    confidence_score DECIMAL(5,2),
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_ocr_cache_entries_hash_type UNIQUE (content_hash, document_type)
+);
@@ -0,0 +1,13 @@
+-- Per-minute Google Vision budget shared by all service instances.
+-- Instances lease tokens by incrementing "used" for the current minute window (see VisionQuotaRepository.lease)
+CREATE TABLE vision_quotas (
+    id SERIAL PRIMARY KEY,
+    name VARCHAR(50) NOT NULL,
+    window_start TIMESTAMP WITH TIME ZONE NOT NULL,
+    used INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_vision_quotas_name UNIQUE (name)
+);
+
+INSERT INTO vision_quotas (name, window_start, used) VALUES ('google-vision', TIMESTAMP WITH TIME ZONE 'epoch', 0);
@@ -0,0 +1,14 @@
+-- Progress of the bulk re-extraction job, one row per table it rewrites.
+-- last_id is the highest row ID whose structured_data has been recomputed; the job resumes after it
+CREATE TABLE reextraction_checkpoints (
+    id SERIAL PRIMARY KEY,
+    name VARCHAR(50) NOT NULL,
+    last_id INTEGER NOT NULL DEFAULT 0,
+    processed BIGINT NOT NULL DEFAULT 0,
+    changed BIGINT NOT NULL DEFAULT 0,
+    failed BIGINT NOT NULL DEFAULT 0,
+    status VARCHAR(20) NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_reextraction_checkpoints_name UNIQUE (name)
+);
@@ -0,0 +1,4 @@
+-- The file and content an OCR result was produced from, so that a result computed ahead of time (at upload)
+-- is reused by verification only while the document still points at the same, unchanged file
+ALTER TABLE ocr_results ADD COLUMN source_file_path VARCHAR(255);
+ALTER TABLE ocr_results ADD COLUMN content_hash VARCHAR(64);
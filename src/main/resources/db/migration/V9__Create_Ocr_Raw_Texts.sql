@@ -0,0 +1,20 @@
+-- Raw OCR text, kept apart from ocr_results so that loading a result for its structured data or confidence score
+-- does not read the (for bank statements, megabyte-sized) text. content is the UTF-8 text, gzip-compressed unless
+-- encoding is 'identity'
+CREATE TABLE ocr_raw_texts (
+    id SERIAL PRIMARY KEY,
+    ocr_result_id INTEGER NOT NULL REFERENCES ocr_results(id) ON DELETE CASCADE,
+    encoding VARCHAR(16) NOT NULL,
+    content BYTEA NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_ocr_raw_texts_ocr_result UNIQUE (ocr_result_id)
+);
+
+-- Existing texts are moved as they are; they are compressed when their document is processed again
+INSERT INTO ocr_raw_texts (ocr_result_id, encoding, content, created_at, updated_at)
+SELECT id, 'identity', convert_to(raw_text, 'UTF8'), created_at, updated_at
+FROM ocr_results
+WHERE raw_text IS NOT NULL;
+
+ALTER TABLE ocr_results DROP COLUMN raw_text;
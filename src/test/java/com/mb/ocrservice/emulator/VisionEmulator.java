@@ -0,0 +1,289 @@
+package com.mb.ocrservice.emulator;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.BatchAnnotateImagesRequest;
+import com.google.cloud.vision.v1.BatchAnnotateImagesResponse;
+import com.google.cloud.vision.v1.Block;
+import com.google.cloud.vision.v1.Page;
+import com.google.cloud.vision.v1.Paragraph;
+import com.google.cloud.vision.v1.TextAnnotation;
+import com.google.cloud.vision.v1.Word;
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.protobuf.ProtoUtils;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process gRPC implementation of the Google Vision ImageAnnotator service, for tests that exercise the real
+ * {@link com.google.cloud.vision.v1.ImageAnnotatorClient} code path (protobuf serialization, gRPC channel, batching).
+ * <p>
+ * Images are answered from fixtures registered per image content, as full {@link TextAnnotation}s with pages,
+ * blocks, paragraphs and words carrying confidences; unknown images get an empty annotation, as Vision returns for
+ * blank images. Latency and failures (of whole calls or of single images) can be injected at any time.
+ * Responses are delayed on a scheduler, so injected latency does not hold server threads.
+ * <p>
+ * The service definition is built from the method descriptor directly, as the generated ImageAnnotator gRPC stubs
+ * are not published for the Vision client version in use; methods other than BatchAnnotateImages answer
+ * UNIMPLEMENTED.
+ */
+public class VisionEmulator implements AutoCloseable {
+
+    static final String SERVICE_NAME = "google.cloud.vision.v1.ImageAnnotator";
+
+    static final MethodDescriptor<BatchAnnotateImagesRequest, BatchAnnotateImagesResponse> BATCH_ANNOTATE_IMAGES =
+            MethodDescriptor.<BatchAnnotateImagesRequest, BatchAnnotateImagesResponse>newBuilder()
+                    .setType(MethodDescriptor.MethodType.UNARY)
+                    .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, "BatchAnnotateImages"))
+                    .setRequestMarshaller(ProtoUtils.marshaller(BatchAnnotateImagesRequest.getDefaultInstance()))
+                    .setResponseMarshaller(ProtoUtils.marshaller(BatchAnnotateImagesResponse.getDefaultInstance()))
+                    .build();
+
+    // Standard normal quantile of the 99th percentile
+    private static final double Z_99 = 2.3263478740408408;
+
+    private final String name;
+    private final Server server;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<ByteString, TextAnnotation> fixtures = new ConcurrentHashMap<>();
+    private final Map<ByteString, com.google.rpc.Status> imageErrors = new ConcurrentHashMap<>();
+    private volatile LongSupplier latencyMs = () -> 0;
+    private volatile double errorRate;
+    private volatile Status.Code errorCode = Status.Code.UNAVAILABLE;
+    private final AtomicInteger failNext = new AtomicInteger();
+    private volatile Status.Code failNextCode = Status.Code.UNAVAILABLE;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong images = new AtomicLong();
+
+    private VisionEmulator(String name) throws IOException {
+        this.name = name;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vision-emulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = InProcessServerBuilder.forName(name)
+                .addService(ServerServiceDefinition.builder(SERVICE_NAME)
+                        .addMethod(BATCH_ANNOTATE_IMAGES, ServerCalls.asyncUnaryCall(this::batchAnnotateImages))
+                        .build())
+                .build()
+                .start();
+    }
+
+    /**
+     * Starts an emulator with a unique in-process name.
+     *
+     * @return The running emulator
+     * @throws IOException if the server cannot be started
+     */
+    public static VisionEmulator start() throws IOException {
+        return start(InProcessServerBuilder.generateName());
+    }
+
+    /**
+     * @param name The in-process name clients connect to
+     * @return The running emulator
+     * @throws IOException if the server cannot be started
+     */
+    public static VisionEmulator start(String name) throws IOException {
+        return new VisionEmulator(name);
+    }
+
+    /**
+     * @return A new channel to the emulator; the caller shuts it down
+     */
+    public ManagedChannel newChannel() {
+        return InProcessChannelBuilder.forName(name).build();
+    }
+
+    /**
+     * Registers the text Vision returns for an image. Blank lines separate blocks; every block gets the given
+     * confidence.
+     *
+     * @param image The image content
+     * @param text The full text of the image
+     * @param confidence The confidence of every page, block, paragraph and word
+     * @return This emulator
+     */
+    public VisionEmulator withFixture(byte[] image, String text, float confidence) {
+        fixtures.put(ByteString.copyFrom(image), toTextAnnotation(text, confidence));
+        return this;
+    }
+
+    /**
+     * Fails a single image of any batch it is part of, the rest of the batch still succeeds.
+     *
+     * @param image The image content
+     * @param code The google.rpc code of the image error
+     * @param message The error message
+     * @return This emulator
+     */
+    public VisionEmulator withImageError(byte[] image, int code, String message) {
+        imageErrors.put(ByteString.copyFrom(image),
+                com.google.rpc.Status.newBuilder().setCode(code).setMessage(message).build());
+        return this;
+    }
+
+    /**
+     * @param latencyMs The latency of every call, in milliseconds
+     * @return This emulator
+     */
+    public VisionEmulator withFixedLatency(long latencyMs) {
+        this.latencyMs = () -> latencyMs;
+        return this;
+    }
+
+    /**
+     * Draws the latency of every call from a lognormal distribution with the given median and 99th percentile.
+     *
+     * @param p50Ms The median latency, in milliseconds
+     * @param p99Ms The 99th percentile latency, in milliseconds
+     * @param seed The seed of the latency generator
+     * @return This emulator
+     */
+    public VisionEmulator withLatency(long p50Ms, long p99Ms, long seed) {
+        double mu = Math.log(p50Ms);
+        double sigma = (Math.log(p99Ms) - mu) / Z_99;
+        Random random = new Random(seed);
+        this.latencyMs = () -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+        return this;
+    }
+
+    /**
+     * Fails a share of all calls.
+     *
+     * @param errorRate The share of calls to fail, between 0 and 1
+     * @param code The status the failed calls end with
+     * @return This emulator
+     */
+    public VisionEmulator withErrorRate(double errorRate, Status.Code code) {
+        this.errorRate = errorRate;
+        this.errorCode = code;
+        return this;
+    }
+
+    /**
+     * Fails the next calls.
+     *
+     * @param count The number of calls to fail
+     * @param code The status the failed calls end with
+     * @return This emulator
+     */
+    public VisionEmulator failNext(int count, Status.Code code) {
+        this.failNextCode = code;
+        this.failNext.set(count);
+        return this;
+    }
+
+    /**
+     * @return The number of batchAnnotateImages calls received
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * @return The number of images received over all calls
+     */
+    public long getImages() {
+        return images.get();
+    }
+
+    @Override
+    public void close() {
+        server.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Builds a Vision-shaped annotation: one page, a block per paragraph of text, a word per token.
+     */
+    private static TextAnnotation toTextAnnotation(String text, float confidence) {
+        Page.Builder page = Page.newBuilder().setWidth(1654).setHeight(2339).setConfidence(confidence);
+        for (String blockText : text.split("\n\\s*\n")) {
+            Paragraph.Builder paragraph = Paragraph.newBuilder().setConfidence(confidence);
+            for (String token : blockText.trim().split("\\s+")) {
+                if (!token.isEmpty()) {
+                    paragraph.addWords(Word.newBuilder().setConfidence(confidence));
+                }
+            }
+            page.addBlocks(Block.newBuilder()
+                    .setBlockType(Block.BlockType.TEXT)
+                    .setConfidence(confidence)
+                    .addParagraphs(paragraph));
+        }
+        return TextAnnotation.newBuilder()
+                .setText(text)
+                .addPages(page)
+                .build();
+    }
+
+    /**
+     * Answers a batchAnnotateImages call, failing it or delaying the response as configured.
+     */
+    private void batchAnnotateImages(BatchAnnotateImagesRequest request,
+                                     StreamObserver<BatchAnnotateImagesResponse> responseObserver) {
+        calls.incrementAndGet();
+        images.addAndGet(request.getRequestsCount());
+
+        Runnable respond;
+        if (failNext.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+            Status.Code code = failNextCode;
+            respond = () -> responseObserver.onError(Status.fromCode(code)
+                    .withDescription("Injected failure").asRuntimeException());
+        } else if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            Status.Code code = errorCode;
+            respond = () -> responseObserver.onError(Status.fromCode(code)
+                    .withDescription("Injected failure").asRuntimeException());
+        } else {
+            BatchAnnotateImagesResponse.Builder response = BatchAnnotateImagesResponse.newBuilder();
+            for (AnnotateImageRequest imageRequest : request.getRequestsList()) {
+                response.addResponses(annotate(imageRequest));
+            }
+            BatchAnnotateImagesResponse built = response.build();
+            respond = () -> {
+                responseObserver.onNext(built);
+                responseObserver.onCompleted();
+            };
+        }
+
+        long latency = latencyMs.getAsLong();
+        if (latency > 0) {
+            scheduler.schedule(respond, latency, TimeUnit.MILLISECONDS);
+        } else {
+            respond.run();
+        }
+    }
+
+    private AnnotateImageResponse annotate(AnnotateImageRequest imageRequest) {
+        ByteString content = imageRequest.getImage().getContent();
+        com.google.rpc.Status error = imageErrors.get(content);
+        if (error != null) {
+            return AnnotateImageResponse.newBuilder().setError(error).build();
+        }
+        return AnnotateImageResponse.newBuilder()
+                .setFullTextAnnotation(fixtures.getOrDefault(content, TextAnnotation.getDefaultInstance()))
+                .build();
+    }
+}
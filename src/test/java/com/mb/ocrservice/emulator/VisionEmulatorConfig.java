@@ -0,0 +1,38 @@
+package com.mb.ocrservice.emulator;
+
+import io.grpc.ManagedChannel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+
+/**
+ * Runs the {@link VisionEmulator} under the "vision-emulator" profile and provides the channel
+ * {@link com.mb.ocrservice.config.GoogleVisionConfig} connects the Google Vision client to.
+ */
+@Configuration
+@Profile("vision-emulator")
+public class VisionEmulatorConfig {
+
+    @Value("${google.vision.emulator.latency-p50-ms:0}")
+    private long latencyP50Ms;
+
+    @Value("${google.vision.emulator.latency-p99-ms:0}")
+    private long latencyP99Ms;
+
+    @Bean(destroyMethod = "close")
+    public VisionEmulator visionEmulator() throws IOException {
+        VisionEmulator emulator = VisionEmulator.start();
+        if (latencyP50Ms > 0) {
+            emulator.withLatency(latencyP50Ms, Math.max(latencyP50Ms, latencyP99Ms), 42);
+        }
+        return emulator;
+    }
+
+    @Bean(name = "visionEmulatorChannel", destroyMethod = "shutdownNow")
+    public ManagedChannel visionEmulatorChannel(VisionEmulator visionEmulator) {
+        return visionEmulator.newChannel();
+    }
+}
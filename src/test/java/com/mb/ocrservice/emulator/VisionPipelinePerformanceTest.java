@@ -0,0 +1,147 @@
+package com.mb.ocrservice.emulator;
+
+import com.google.cloud.vision.v1.ImageAnnotatorClient;
+import com.mb.ocrservice.config.GoogleVisionConfig;
+import com.mb.ocrservice.exception.OcrProcessingException;
+import com.mb.ocrservice.service.AdaptiveConcurrencyLimiter;
+import com.mb.ocrservice.service.CircuitBreaker;
+import com.mb.ocrservice.service.HedgingPolicy;
+import com.mb.ocrservice.service.ImagePreprocessor;
+import com.mb.ocrservice.service.VisionGateway;
+import com.mb.ocrservice.service.VisionQuotaManager;
+import com.mb.ocrservice.service.VisionRequestBatcher;
+import com.mb.ocrservice.service.engine.LocalOcrEngine;
+import com.mb.ocrservice.service.engine.RecognizedText;
+import com.mb.ocrservice.service.engine.VisionOcrEngine;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end test of the Vision call path against the in-process {@link VisionEmulator}: the real
+ * ImageAnnotatorClient (protobuf serialization and gRPC channel), VisionGateway, VisionRequestBatcher and
+ * VisionOcrEngine, without a Spring context. Reports throughput and latency percentiles of the run.
+ */
+@Slf4j
+public class VisionPipelinePerformanceTest {
+
+    private static final String[] DOCUMENT_TYPES = {"AADHAAR", "PAN", "DRIVING_LICENSE", "BANK_STATEMENT"};
+    private static final int FIXTURES = 50;
+    private static final float CONFIDENCE = 0.9f;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<byte[]> images = new ArrayList<>();
+    private final List<String> texts = new ArrayList<>();
+
+    private VisionEmulator emulator;
+    private ManagedChannel channel;
+    private ImageAnnotatorClient client;
+    private VisionGateway gateway;
+    private VisionRequestBatcher batcher;
+    private VisionOcrEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        emulator = VisionEmulator.start();
+        LocalOcrEngine corpus = new LocalOcrEngine(0, 0, 0, 1);
+        for (int i = 0; i < FIXTURES; i++) {
+            byte[] image = ("fixture-" + i).getBytes(StandardCharsets.UTF_8);
+            String text = corpus.recognize(image, DOCUMENT_TYPES[i % DOCUMENT_TYPES.length]).join().text();
+            emulator.withFixture(image, text, CONFIDENCE);
+            images.add(image);
+            texts.add(text);
+        }
+
+        channel = emulator.newChannel();
+        client = new GoogleVisionConfig().emulatorImageAnnotatorClient(channel);
+        gateway = new VisionGateway(client,
+                new AdaptiveConcurrencyLimiter(8, 1, 64, TimeUnit.SECONDS.toNanos(5), 0.9),
+                new CircuitBreaker(20, 10, 0.5, 30_000, 3, Clock.systemUTC()),
+                new HedgingPolicy(false, 0.95, 200, 50, 0.05),
+                new VisionQuotaManager(null, meterRegistry, false, false, 1800, 100, 20, 1000),
+                meterRegistry, 3, 1, 1000);
+        batcher = new VisionRequestBatcher(gateway, meterRegistry, true, 16, 10, 31_457_280);
+        engine = new VisionOcrEngine(batcher,
+                new ImagePreprocessor(meterRegistry, false, 2048, true, 0.85f, 524288), Runnable::run, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+        gateway.shutdown();
+        client.close();
+        channel.shutdownNow();
+        emulator.close();
+    }
+
+    @Test
+    void testConcurrentDocumentsThroughTheRealClient() {
+        emulator.withLatency(20, 80, 7);
+        int documents = 800;
+
+        long start = System.nanoTime();
+        List<CompletableFuture<RecognizedText>> results = new ArrayList<>();
+        long[] latencies = new long[documents];
+        for (int i = 0; i < documents; i++) {
+            int index = i;
+            long submitted = System.nanoTime();
+            results.add(engine.recognize(images.get(i % FIXTURES), DOCUMENT_TYPES[i % DOCUMENT_TYPES.length])
+                    .whenComplete((text, ex) -> latencies[index] = System.nanoTime() - submitted));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).orTimeout(60, TimeUnit.SECONDS).join();
+        long elapsed = System.nanoTime() - start;
+
+        for (int i = 0; i < documents; i++) {
+            RecognizedText recognized = results.get(i).join();
+            assertEquals(texts.get(i % FIXTURES), recognized.text());
+            assertEquals(CONFIDENCE, recognized.confidenceScore(), 1e-6);
+        }
+        assertEquals(documents, emulator.getImages());
+        assertTrue(emulator.getCalls() < documents, "Documents were not batched");
+
+        Arrays.sort(latencies);
+        log.info("Vision pipeline: {} documents in {} calls, {} documents/s, p50 {} ms, p99 {} ms",
+                documents, emulator.getCalls(), Math.round(documents / (elapsed / 1e9)),
+                TimeUnit.NANOSECONDS.toMillis(latencies[documents / 2]),
+                TimeUnit.NANOSECONDS.toMillis(latencies[documents * 99 / 100]));
+    }
+
+    @Test
+    void testInjectedCallFailuresAreRetried() {
+        emulator.failNext(2, Status.Code.UNAVAILABLE);
+
+        RecognizedText recognized = engine.recognize(images.get(0), "AADHAAR").orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertEquals(texts.get(0), recognized.text());
+        assertEquals(3, emulator.getCalls());
+    }
+
+    @Test
+    void testInjectedImageErrorFailsOnlyThatDocument() {
+        emulator.withImageError(images.get(1), 3, "Bad image data");
+
+        CompletableFuture<RecognizedText> bad = engine.recognize(images.get(1), "PAN");
+        CompletableFuture<RecognizedText> good = engine.recognize(images.get(2), "DRIVING_LICENSE");
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> bad.orTimeout(10, TimeUnit.SECONDS).join());
+        assertInstanceOf(OcrProcessingException.class, exception.getCause());
+        assertEquals(texts.get(2), good.orTimeout(10, TimeUnit.SECONDS).join().text());
+        assertEquals(1, emulator.getCalls());
+    }
+}
@@ -0,0 +1,98 @@
+package com.mb.ocrservice.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for VisionQuotaRepository against PostgreSQL, with the schema created by the Flyway migrations.
+ * Each test runs in one transaction, so now() and with it the current minute are the same for all its statements.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+public class VisionQuotaRepositoryTest {
+
+    private static final String QUOTA_NAME = "google-vision";
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private VisionQuotaRepository visionQuotaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testLeaseIsChargedToTheCurrentMinute() {
+        Optional<Long> millisLeft = visionQuotaRepository.lease(QUOTA_NAME, 5, 10);
+
+        assertTrue(millisLeft.isPresent());
+        assertTrue(millisLeft.get() > 0 && millisLeft.get() <= 60_000, "Millis left: " + millisLeft.get());
+        assertEquals(5, used());
+        assertTrue(chargedToCurrentMinute());
+    }
+
+    @Test
+    void testLeasesWithinTheLimitAddUp() {
+        assertTrue(visionQuotaRepository.lease(QUOTA_NAME, 4, 10).isPresent());
+        assertTrue(visionQuotaRepository.lease(QUOTA_NAME, 6, 10).isPresent());
+
+        assertEquals(10, used());
+    }
+
+    @Test
+    void testLeaseOverTheLimitIsRefused() {
+        assertTrue(visionQuotaRepository.lease(QUOTA_NAME, 8, 10).isPresent());
+
+        assertTrue(visionQuotaRepository.lease(QUOTA_NAME, 5, 10).isEmpty());
+        assertEquals(8, used());
+    }
+
+    @Test
+    void testUsageIsResetInANewMinute() {
+        // The budget of the previous minute is spent
+        jdbcTemplate.update("UPDATE vision_quotas SET used = 10, "
+                + "window_start = date_trunc('minute', now()) - INTERVAL '1 minute' WHERE name = ?", QUOTA_NAME);
+
+        Optional<Long> millisLeft = visionQuotaRepository.lease(QUOTA_NAME, 3, 10);
+
+        assertTrue(millisLeft.isPresent());
+        assertEquals(3, used());
+        assertTrue(chargedToCurrentMinute());
+    }
+
+    @Test
+    void testUnknownQuotaIsNotLeased() {
+        assertTrue(visionQuotaRepository.lease("unknown", 1, 10).isEmpty());
+    }
+
+    private int used() {
+        return jdbcTemplate.queryForObject("SELECT used FROM vision_quotas WHERE name = ?", Integer.class, QUOTA_NAME);
+    }
+
+    private boolean chargedToCurrentMinute() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT window_start = date_trunc('minute', now()) FROM vision_quotas WHERE name = ?",
+                Boolean.class, QUOTA_NAME));
+    }
+}
@@ -0,0 +1,316 @@
+package com.mb.ocrservice.service;
+
+import com.mb.ocrservice.dto.DocumentVerificationCompletedEvent;
+import com.mb.ocrservice.dto.DocumentVerificationErrorEvent;
+import com.mb.ocrservice.dto.OcrResultDto;
+import com.mb.ocrservice.dto.ValidationResultDto;
+import com.mb.ocrservice.dto.VerifyDocumentEvent;
+import com.mb.ocrservice.exception.OcrProcessingException;
+import com.mb.ocrservice.model.Document;
+import com.mb.ocrservice.model.DocumentType;
+import com.mb.ocrservice.model.OcrResult;
+import com.mb.ocrservice.model.ValidationResult;
+import com.mb.ocrservice.repository.AuditLogRepository;
+import com.mb.ocrservice.repository.DocumentRepository;
+import com.mb.ocrservice.repository.DocumentTypeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for DocumentVerificationService using mocked collaborators.
+ */
+public class DocumentVerificationServiceTest {
+
+    private static final String TOPIC = "document-verification-completed";
+
+    private DocumentService documentService;
+    private ValidationService validationService;
+    private DocumentTypeRepository documentTypeRepository;
+    private DocumentRepository documentRepository;
+    private KafkaTemplate<String, DocumentVerificationCompletedEvent> kafkaTemplate;
+    private DocumentVerificationService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        documentService = mock(DocumentService.class);
+        validationService = mock(ValidationService.class);
+        documentRepository = mock(DocumentRepository.class);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        documentTypeRepository = mock(DocumentTypeRepository.class);
+        when(documentTypeRepository.findByName("PANCARD")).thenReturn(Optional.of(documentType("PANCARD")));
+        when(documentRepository.save(any(Document.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(validationService.validateDocument(anyInt())).thenReturn(new ValidationResult());
+        when(documentService.convertToDto(any(ValidationResult.class))).thenReturn(new ValidationResultDto());
+        when(documentService.getRawText(anyInt())).thenReturn(Optional.empty());
+
+        service = service(Runnable::run);
+    }
+
+    @Test
+    void testEventsOfSameApplicationAreEachAnswered() {
+        givenDocument("applicant-1", 1, "ABCDE1234F");
+        givenDocument("applicant-2", 2, "FGHIJ5678K");
+
+        service.processVerifyDocumentEvents(List.of(
+                event("event-1", "application-1", Map.of("applicant-1", pan("storage-1", "ABCDE1234F"))),
+                event("event-2", "application-1", Map.of("applicant-2", pan("storage-2", "FGHIJ5678K")))));
+
+        List<DocumentVerificationCompletedEvent> sent = sentEvents(2);
+        assertEquals("event-1", sent.get(0).getRequestId());
+        assertEquals(Set.of("applicant-1"), sent.get(0).getCustomerResults().keySet());
+        assertEquals("event-2", sent.get(1).getRequestId());
+        assertEquals(Set.of("applicant-2"), sent.get(1).getCustomerResults().keySet());
+        for (DocumentVerificationCompletedEvent completed : sent) {
+            assertEquals("application-1", completed.getApplicationNumber());
+            assertEquals(Document.Status.COMPLETED.name(), completed.getStatus());
+        }
+    }
+
+    @Test
+    void testFailedDocumentOnlyMarksTheEventsRequestingIt() {
+        givenDocument("applicant-1", 1, "ABCDE1234F");
+        givenDocument("applicant-2", 2, "FGHIJ5678K");
+        when(documentService.processDocumentAsync(eq(2), any()))
+                .thenReturn(CompletableFuture.failedFuture(new OcrProcessingException("Vision unavailable")));
+
+        service.processVerifyDocumentEvents(List.of(
+                event("event-1", "application-1", Map.of("applicant-1", pan("storage-1", "ABCDE1234F"))),
+                event("event-2", "application-1", Map.of("applicant-2", pan("storage-2", "FGHIJ5678K")))));
+
+        List<DocumentVerificationCompletedEvent> sent = sentEvents(2);
+        assertEquals(Document.Status.COMPLETED.name(), sent.get(0).getStatus());
+        assertEquals("PARTIAL_SUCCESS", sent.get(1).getStatus());
+    }
+
+    @Test
+    void testDocumentSharedByApplicationsIsProcessedOnce() {
+        givenDocument("applicant-1", 1, "ABCDE1234F");
+
+        service.processVerifyDocumentEvents(List.of(
+                event("event-1", "application-1", Map.of("applicant-1", pan("storage-1", "ABCDE1234F"))),
+                event("event-2", "application-2", Map.of("applicant-1", pan("storage-1", "ABCDE1234F")))));
+
+        verify(documentService, times(1)).processDocumentAsync(1, "storage-1");
+        verify(validationService, times(1)).validateDocument(1);
+        List<DocumentVerificationCompletedEvent> sent = sentEvents(2);
+        assertEquals(Document.Status.COMPLETED.name(), sent.get(0).getStatus());
+        assertEquals(Document.Status.COMPLETED.name(), sent.get(1).getStatus());
+        assertEquals(1, sent.get(1).getCustomerResults().get("applicant-1").size());
+    }
+
+    @Test
+    void testOcrResultIsNotReusedWithoutSpeculativeOcr() {
+        givenDocument("applicant-1", 1, "ABCDE1234F");
+
+        service.processVerifyDocumentEvent(
+                event("event-1", "application-1", Map.of("applicant-1", pan("storage-1", "ABCDE1234F"))));
+
+        verify(documentService).processDocumentAsync(1, "storage-1");
+        verify(documentService, never()).processOrReuseDocumentAsync(anyInt(), any());
+    }
+
+    @Test
+    void testSpeculativeOcrResultIsReused() {
+        givenDocument("applicant-1", 1, "ABCDE1234F");
+        when(documentService.processOrReuseDocumentAsync(eq(1), any()))
+                .thenReturn(CompletableFuture.completedFuture(new OcrResult()));
+        ReflectionTestUtils.setField(service, "speculativeOcrEnabled", true);
+
+        service.processVerifyDocumentEvents(List.of(
+                event("event-1", "application-1", Map.of("applicant-1", pan("storage-1", "ABCDE1234F")))));
+
+        verify(documentService).processOrReuseDocumentAsync(1, "storage-1");
+        verify(documentService, never()).processDocumentAsync(anyInt(), any());
+        assertEquals(Document.Status.COMPLETED.name(), sentEvents(1).get(0).getStatus());
+    }
+
+    @Test
+    void testAllDocumentsAreOcrProcessedBeforeAnyIsValidated() {
+        givenDocument("applicant-1", 1, "ABCDE1234F");
+        givenDocument("applicant-2", 2, "FGHIJ5678K");
+
+        service.processVerifyDocumentEvents(List.of(
+                event("event-1", "application-1", Map.of("applicant-1", pan("storage-1", "ABCDE1234F"))),
+                event("event-2", "application-2", Map.of("applicant-2", pan("storage-2", "FGHIJ5678K")))));
+
+        InOrder inOrder = inOrder(documentRepository, documentService, validationService, kafkaTemplate);
+        inOrder.verify(documentRepository, times(2)).save(any(Document.class));
+        inOrder.verify(documentService).processDocumentAsync(1, "storage-1");
+        inOrder.verify(documentService).processDocumentAsync(2, "storage-2");
+        inOrder.verify(validationService).validateDocument(1);
+        inOrder.verify(validationService).validateDocument(2);
+        inOrder.verify(kafkaTemplate, times(2)).send(eq(TOPIC), any(DocumentVerificationCompletedEvent.class));
+    }
+
+    @Test
+    void testFailedDocumentOnlyAffectsItsApplication() {
+        givenDocument("applicant-1", 1, "ABCDE1234F");
+        givenDocument("applicant-2", 2, "FGHIJ5678K");
+        givenDocument("applicant-3", 3, "LMNOP9012Q");
+        when(documentService.processDocumentAsync(2, "storage-2"))
+                .thenReturn(CompletableFuture.failedFuture(new OcrProcessingException("Vision unavailable")));
+
+        Map<String, VerifyDocumentEvent.DocDetailEvent> documents = new LinkedHashMap<>();
+        documents.put("applicant-1", pan("storage-1", "ABCDE1234F"));
+        documents.put("applicant-2", pan("storage-2", "FGHIJ5678K"));
+        service.processVerifyDocumentEvents(List.of(
+                event("event-1", "application-1", documents),
+                event("event-2", "application-2", Map.of("applicant-3", pan("storage-3", "LMNOP9012Q")))));
+
+        verify(validationService, never()).validateDocument(2);
+        List<DocumentVerificationCompletedEvent> sent = sentEvents(2);
+        assertEquals("PARTIAL_SUCCESS", sent.get(0).getStatus());
+        assertEquals(Set.of("applicant-1"), sent.get(0).getCustomerResults().keySet());
+        assertEquals(Document.Status.COMPLETED.name(), sent.get(1).getStatus());
+        assertEquals(Set.of("applicant-3"), sent.get(1).getCustomerResults().keySet());
+    }
+
+    @Test
+    void testDocumentRequestedWithAnotherStorageIdIsRejected() {
+        givenDocument("applicant-1", 1, "ABCDE1234F");
+
+        service.processVerifyDocumentEvents(List.of(
+                event("event-1", "application-1", Map.of("applicant-1", pan("storage-1", "ABCDE1234F"))),
+                event("event-2", "application-2", Map.of("applicant-1", pan("storage-2", "ABCDE1234F")))));
+
+        verify(documentService).processDocumentAsync(1, "storage-1");
+        verify(documentService, never()).processDocumentAsync(1, "storage-2");
+        List<DocumentVerificationCompletedEvent> sent = sentEvents(2);
+        assertEquals(Document.Status.COMPLETED.name(), sent.get(0).getStatus());
+        assertEquals("storage-1", sent.get(0).getCustomerResults().get("applicant-1").get(0).getStorageId());
+        assertEquals("PARTIAL_SUCCESS", sent.get(1).getStatus());
+        assertTrue(sent.get(1).getCustomerResults().isEmpty());
+    }
+
+    @Test
+    void testParallelDocumentsReportIntoOneEvent() {
+        int count = 6;
+        Map<String, VerifyDocumentEvent.DocDetailEvent> documents = givenDocuments(count);
+        // Each document waits for all others to start, so their results are added to the event concurrently
+        CountDownLatch allStarted = new CountDownLatch(count);
+        when(documentService.processDocumentAsync(anyInt(), any())).thenAnswer(invocation -> {
+            allStarted.countDown();
+            allStarted.await(5, TimeUnit.SECONDS);
+            return CompletableFuture.completedFuture(new OcrResult());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            DocumentVerificationService parallelService = service(executor);
+            ReflectionTestUtils.setField(parallelService, "parallelProcessingEnabled", true);
+
+            parallelService.processVerifyDocumentEvent(event("event-1", "application-1", documents));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, allStarted.getCount());
+        DocumentVerificationCompletedEvent completed = sentEvents(1).get(0);
+        assertEquals(Document.Status.COMPLETED.name(), completed.getStatus());
+        assertEquals(documents.keySet(), completed.getCustomerResults().keySet());
+        completed.getCustomerResults().values().forEach(results -> assertEquals(1, results.size()));
+    }
+
+    @Test
+    void testParallelDocumentFailureMakesEventPartial() {
+        int count = 4;
+        Map<String, VerifyDocumentEvent.DocDetailEvent> documents = givenDocuments(count);
+        when(validationService.validateDocument(3)).thenThrow(new IllegalStateException("No OCR result"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            DocumentVerificationService parallelService = service(executor);
+            ReflectionTestUtils.setField(parallelService, "parallelProcessingEnabled", true);
+
+            parallelService.processVerifyDocumentEvent(event("event-1", "application-1", documents));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(documentService, times(count)).processDocumentAsync(anyInt(), any());
+        DocumentVerificationCompletedEvent completed = sentEvents(1).get(0);
+        assertEquals("PARTIAL_SUCCESS", completed.getStatus());
+        assertEquals(Set.of("applicant-1", "applicant-2", "applicant-4"), completed.getCustomerResults().keySet());
+    }
+
+    @SuppressWarnings("unchecked")
+    private DocumentVerificationService service(Executor executor) {
+        DocumentVerificationService verificationService = new DocumentVerificationService(documentService,
+                validationService, documentTypeRepository, documentRepository, mock(AuditLogRepository.class),
+                kafkaTemplate, (KafkaTemplate<String, DocumentVerificationErrorEvent>) mock(KafkaTemplate.class),
+                executor);
+        ReflectionTestUtils.setField(verificationService, "documentVerificationCompletedTopic", TOPIC);
+        return verificationService;
+    }
+
+    private Map<String, VerifyDocumentEvent.DocDetailEvent> givenDocuments(int count) {
+        Map<String, VerifyDocumentEvent.DocDetailEvent> documents = new LinkedHashMap<>();
+        for (int id = 1; id <= count; id++) {
+            String panNumber = String.format("ABCDE%04dF", id);
+            givenDocument("applicant-" + id, id, panNumber);
+            documents.put("applicant-" + id, pan("storage-" + id, panNumber));
+        }
+        return documents;
+    }
+
+    private void givenDocument(String applicantId, int id, String panNumber) {
+        Document document = new Document();
+        document.setId(id);
+        document.setApplicantId(applicantId);
+        document.setDocumentType(documentType("PANCARD"));
+        when(documentRepository.findByApplicantIdAndDocumentType(eq(applicantId), any(DocumentType.class)))
+                .thenReturn(Optional.of(document));
+        when(documentService.processDocumentAsync(eq(id), any()))
+                .thenReturn(CompletableFuture.completedFuture(new OcrResult()));
+
+        OcrResultDto ocrResult = new OcrResultDto();
+        ocrResult.setDocumentId(id);
+        ocrResult.setStructuredData(Map.of("pan_number", Map.of("value", panNumber, "confidence", 0.9)));
+        when(documentService.getOcrResult(id)).thenReturn(ocrResult);
+    }
+
+    private List<DocumentVerificationCompletedEvent> sentEvents(int count) {
+        ArgumentCaptor<DocumentVerificationCompletedEvent> captor =
+                ArgumentCaptor.forClass(DocumentVerificationCompletedEvent.class);
+        verify(kafkaTemplate, times(count)).send(eq(TOPIC), captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static DocumentType documentType(String name) {
+        DocumentType documentType = new DocumentType();
+        documentType.setName(name);
+        return documentType;
+    }
+
+    private static VerifyDocumentEvent event(String eventId, String applicationId,
+                                             Map<String, VerifyDocumentEvent.DocDetailEvent> documents) {
+        return new VerifyDocumentEvent(eventId, applicationId, documents, "2024-01-15T10:30:00Z");
+    }
+
+    private static VerifyDocumentEvent.DocDetailEvent pan(String storageId, String panNumber) {
+        return new VerifyDocumentEvent.DocDetailEvent(storageId, "PANCARD", panNumber);
+    }
+}
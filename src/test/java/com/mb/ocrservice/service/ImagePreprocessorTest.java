@@ -0,0 +1,91 @@
+package com.mb.ocrservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for ImagePreprocessor.
+ */
+public class ImagePreprocessorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ImagePreprocessor preprocessor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        preprocessor = new ImagePreprocessor(meterRegistry, true, 512, true, 0.85f, 1024);
+    }
+
+    @Test
+    void testLargeImageIsDownscaledToGrayscaleJpeg() throws IOException {
+        byte[] content = png(2000, 1000);
+
+        byte[] result = preprocessor.preprocess(content);
+
+        assertTrue(result.length < content.length);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(result));
+        assertEquals(512, image.getWidth());
+        assertEquals(256, image.getHeight());
+        assertEquals(1, image.getRaster().getNumBands());
+        assertEquals(1, meterRegistry.get("ocr.preprocess.duration").tag("outcome", "processed").timer().count());
+        assertEquals(content.length - result.length,
+                meterRegistry.get("ocr.preprocess.bytes.saved").summary().totalAmount(), 0.5);
+    }
+
+    @Test
+    void testSmallContentIsSkipped() {
+        byte[] content = new byte[100];
+
+        assertSame(content, preprocessor.preprocess(content));
+        assertEquals(1, meterRegistry.get("ocr.preprocess.duration").tag("outcome", "skipped").timer().count());
+    }
+
+    @Test
+    void testContentThatIsNotAnImageIsSentUnchanged() {
+        byte[] content = "%PDF-1.4 ".repeat(200).getBytes(StandardCharsets.US_ASCII);
+
+        assertSame(content, preprocessor.preprocess(content));
+    }
+
+    @Test
+    void testDisabledPreprocessorReturnsContent() throws IOException {
+        preprocessor = new ImagePreprocessor(meterRegistry, false, 512, true, 0.85f, 1024);
+        byte[] content = png(2000, 1000);
+
+        assertSame(content, preprocessor.preprocess(content));
+    }
+
+    /**
+     * Creates a noisy PNG, which compresses poorly and so is larger than its downscaled JPEG.
+     */
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.BLACK);
+        graphics.drawString("PERMANENT ACCOUNT NUMBER", 100, 100);
+        graphics.dispose();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+}
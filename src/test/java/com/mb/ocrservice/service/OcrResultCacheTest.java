@@ -0,0 +1,161 @@
+package com.mb.ocrservice.service;
+
+import com.mb.ocrservice.model.OcrCacheEntry;
+import com.mb.ocrservice.repository.OcrCacheEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for OcrResultCache using a mocked cache entry repository.
+ */
+@ExtendWith(MockitoExtension.class)
+public class OcrResultCacheTest {
+
+    @Mock
+    private OcrCacheEntryRepository ocrCacheEntryRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OcrResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new OcrResultCache(ocrCacheEntryRepository, meterRegistry, true, 2);
+    }
+
+    @Test
+    void testKeyDependsOnContentAndDocumentType() {
+        byte[] content = "same image".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(cache.keyFor(content, "PAN"), cache.keyFor(content.clone(), "PAN"));
+        assertNotEquals(cache.keyFor(content, "PAN"), cache.keyFor(content, "AADHAAR"));
+        assertEquals(64, cache.keyFor(content, "PAN").contentHash().length());
+    }
+
+    @Test
+    void testPutThenGetHitsL1() {
+        OcrResultCache.CacheKey key = cache.keyFor(new byte[]{1, 2, 3}, "PAN");
+        cache.put(key, result("PAN TEXT"));
+
+        Optional<OcrResultCache.CachedOcrResult> cached = cache.get(key);
+
+        assertTrue(cached.isPresent());
+        assertEquals("PAN TEXT", cached.get().rawText());
+        verify(ocrCacheEntryRepository).save(any(OcrCacheEntry.class));
+        verify(ocrCacheEntryRepository, never()).findSummaryByContentHashAndDocumentType(anyString(), anyString());
+        assertEquals(1.0, meterRegistry.get("ocr.cache.hits").tag("tier", "l1").counter().count());
+    }
+
+    @Test
+    void testL2HitIsPromotedToL1() {
+        OcrResultCache.CacheKey key = cache.keyFor(new byte[]{4, 5, 6}, "AADHAAR");
+        givenEntry(key, 7);
+
+        assertEquals(Map.of("name", "Test"), cache.get(key).orElseThrow().structuredData());
+        assertEquals(new BigDecimal("0.90"), cache.get(key).orElseThrow().confidenceScore());
+
+        verify(ocrCacheEntryRepository, times(1)).findSummaryByContentHashAndDocumentType(anyString(), anyString());
+        assertEquals(1.0, meterRegistry.get("ocr.cache.hits").tag("tier", "l2").counter().count());
+        assertEquals(1.0, meterRegistry.get("ocr.cache.hits").tag("tier", "l1").counter().count());
+    }
+
+    @Test
+    void testRawTextOfL2HitIsOnlyReadWhenAskedFor() {
+        OcrResultCache.CacheKey key = cache.keyFor(new byte[]{4, 5, 6}, "AADHAAR");
+        givenEntry(key, 7);
+        RawTextCodec.Encoded encoded = RawTextCodec.encode("AADHAAR TEXT ".repeat(20));
+        OcrCacheEntryRepository.RawText rawText = mock(OcrCacheEntryRepository.RawText.class);
+        when(rawText.getRawTextEncoding()).thenReturn(encoded.encoding());
+        when(rawText.getRawTextContent()).thenReturn(encoded.content());
+        when(ocrCacheEntryRepository.findRawTextById(7)).thenReturn(Optional.of(rawText));
+
+        OcrResultCache.CachedOcrResult cached = cache.get(key).orElseThrow();
+        verify(ocrCacheEntryRepository, never()).findRawTextById(any());
+
+        assertEquals("AADHAAR TEXT ".repeat(20), cached.rawText());
+        assertEquals(RawTextCodec.GZIP, encoded.encoding());
+    }
+
+    @Test
+    void testRawTextIsStoredCompressed() {
+        OcrResultCache.CacheKey key = cache.keyFor(new byte[]{1, 2, 3}, "BANK_STATEMENT");
+        String text = "01/01/2024 OPENING BALANCE 1,000.00\n".repeat(50);
+
+        cache.put(key, result(text));
+
+        ArgumentCaptor<OcrCacheEntry> saved = ArgumentCaptor.forClass(OcrCacheEntry.class);
+        verify(ocrCacheEntryRepository).save(saved.capture());
+        assertEquals(RawTextCodec.GZIP, saved.getValue().getRawTextEncoding());
+        assertTrue(saved.getValue().getRawTextContent().length < text.length());
+        assertEquals(text, RawTextCodec.decode(RawTextCodec.GZIP, saved.getValue().getRawTextContent()));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvictedFromL1() {
+        OcrResultCache.CacheKey first = cache.keyFor(new byte[]{1}, "PAN");
+        OcrResultCache.CacheKey second = cache.keyFor(new byte[]{2}, "PAN");
+        OcrResultCache.CacheKey third = cache.keyFor(new byte[]{3}, "PAN");
+        when(ocrCacheEntryRepository.existsByContentHashAndDocumentType(anyString(), anyString())).thenReturn(true);
+
+        cache.put(first, result("first"));
+        cache.put(second, result("second"));
+        cache.get(first);
+        cache.put(third, result("third"));
+
+        assertTrue(cache.get(first).isPresent());
+        assertTrue(cache.get(second).isEmpty());
+        assertEquals(1.0, meterRegistry.get("ocr.cache.misses").counter().count());
+    }
+
+    @Test
+    void testDisabledCacheAlwaysMisses() {
+        OcrResultCache disabled = new OcrResultCache(ocrCacheEntryRepository, meterRegistry, false, 2);
+        OcrResultCache.CacheKey key = disabled.keyFor(new byte[]{7}, "PAN");
+
+        disabled.put(key, result("text"));
+
+        assertTrue(disabled.get(key).isEmpty());
+        verifyNoInteractions(ocrCacheEntryRepository);
+    }
+
+    @Test
+    void testResultWithFieldOverBudgetIsNotCached() {
+        OcrResultCache.CacheKey key = cache.keyFor(new byte[]{7, 8, 9}, "BANK_STATEMENT");
+        Map<String, Object> structuredData = Map.of(
+                "account_number", Map.of("value", "12345678", "confidence", 0.9),
+                "closing_balance", Map.of("extracted", false, "reason", "budget_exceeded"));
+
+        cache.put(key, new OcrResultCache.CachedOcrResult("STATEMENT", structuredData, new BigDecimal("0.85")));
+
+        verify(ocrCacheEntryRepository, never()).save(any(OcrCacheEntry.class));
+        assertTrue(cache.get(key).isEmpty());
+    }
+
+    private void givenEntry(OcrResultCache.CacheKey key, int id) {
+        OcrCacheEntryRepository.Summary entry = mock(OcrCacheEntryRepository.Summary.class);
+        when(entry.getId()).thenReturn(id);
+        when(entry.getStructuredData()).thenReturn(Map.of("name", "Test"));
+        when(entry.getConfidenceScore()).thenReturn(new BigDecimal("0.90"));
+        when(ocrCacheEntryRepository.findSummaryByContentHashAndDocumentType(key.contentHash(), key.documentType()))
+                .thenReturn(Optional.of(entry));
+    }
+
+    private OcrResultCache.CachedOcrResult result(String text) {
+        return new OcrResultCache.CachedOcrResult(text, Map.of(), new BigDecimal("0.85"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.mb.ocrservice.service;
+
+import com.mb.ocrservice.model.Document;
+import com.mb.ocrservice.model.OcrResult;
+import com.mb.ocrservice.repository.DocumentRepository;
+import com.mb.ocrservice.repository.OcrRawTextRepository;
+import com.mb.ocrservice.repository.OcrResultRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for OcrResultPersistenceService using mocked repositories.
+ */
+public class OcrResultPersistenceServiceTest {
+
+    private static final String FILE_PATH = "storage-1/PANCARD_document.jpg";
+
+    private DocumentRepository documentRepository;
+    private OcrResultRepository ocrResultRepository;
+    private OcrResultPersistenceService persistenceService;
+    private Document document;
+
+    @BeforeEach
+    void setUp() {
+        documentRepository = mock(DocumentRepository.class);
+        ocrResultRepository = mock(OcrResultRepository.class);
+        persistenceService = new OcrResultPersistenceService(documentRepository, ocrResultRepository,
+                mock(OcrRawTextRepository.class));
+
+        document = new Document();
+        document.setId(1);
+        document.setFilePath(FILE_PATH);
+        document.setStatus(Document.Status.PENDING.name());
+        when(documentRepository.findById(1)).thenReturn(Optional.of(document));
+        when(documentRepository.save(any(Document.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void testFailureAfterMarkProcessingLeavesDocumentFailed() {
+        persistenceService.markProcessing(1);
+        assertEquals(Document.Status.PROCESSING.name(), document.getStatus());
+
+        persistenceService.markFailed(1);
+
+        assertEquals(Document.Status.FAILED.name(), document.getStatus());
+        verify(documentRepository, times(2)).save(document);
+    }
+
+    @Test
+    void testFreshResultIsReusedAndCompletesDocument() {
+        persistenceService.markProcessing(1);
+        OcrResult stored = storedResult("hash", FILE_PATH);
+
+        Optional<OcrResult> reused = persistenceService.reuseFreshResult(1, "hash");
+
+        assertSame(stored, reused.orElseThrow());
+        assertEquals(Document.Status.COMPLETED.name(), document.getStatus());
+        verify(ocrResultRepository, never()).save(any());
+    }
+
+    @Test
+    void testResultOfOtherContentIsNotReused() {
+        persistenceService.markProcessing(1);
+        storedResult("other-hash", FILE_PATH);
+
+        assertTrue(persistenceService.reuseFreshResult(1, "hash").isEmpty());
+        assertEquals(Document.Status.PROCESSING.name(), document.getStatus());
+    }
+
+    @Test
+    void testResultOfOtherFileIsNotReused() {
+        persistenceService.markProcessing(1);
+        storedResult("hash", "storage-0/PANCARD_document.jpg");
+
+        assertTrue(persistenceService.reuseFreshResult(1, "hash").isEmpty());
+        assertEquals(Document.Status.PROCESSING.name(), document.getStatus());
+    }
+
+    private OcrResult storedResult(String contentHash, String sourceFilePath) {
+        OcrResult ocrResult = new OcrResult();
+        ocrResult.setDocument(document);
+        ocrResult.setContentHash(contentHash);
+        ocrResult.setSourceFilePath(sourceFilePath);
+        when(ocrResultRepository.findByDocumentId(1)).thenReturn(Optional.of(ocrResult));
+        return ocrResult;
+    }
+}
@@ -0,0 +1,166 @@
+package com.mb.ocrservice.service;
+
+import com.google.cloud.vision.v1.TextAnnotation;
+import com.mb.ocrservice.exception.OcrProcessingException;
+import com.mb.ocrservice.model.Document;
+import com.mb.ocrservice.model.DocumentType;
+import com.mb.ocrservice.model.OcrResult;
+import com.mb.ocrservice.repository.DocumentRepository;
+import com.mb.ocrservice.repository.OcrRawTextRepository;
+import com.mb.ocrservice.repository.OcrResultRepository;
+import com.mb.ocrservice.service.engine.OcrEngine;
+import com.mb.ocrservice.service.engine.RecognizedText;
+import com.mb.ocrservice.service.extraction.DocumentClassifier;
+import com.mb.ocrservice.service.extraction.ExtractionGuard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for OcrService using a mocked OCR engine and storage, and mocked repositories behind the real
+ * OcrResultPersistenceService.
+ */
+public class OcrServiceTest {
+
+    private static final byte[] CONTENT = {1, 2, 3};
+    private static final String FILE_PATH = "storage-1/PANCARD_document.jpg";
+
+    private OcrEngine ocrEngine;
+    private OcrResultRepository ocrResultRepository;
+    private OcrResultPersistenceService persistenceService;
+    private StorageService storageService;
+    private OcrResultCache ocrResultCache;
+    private DocumentClassifier documentClassifier;
+    private OcrSidecarStore ocrSidecarStore;
+    private Document document;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ocrEngine = mock(OcrEngine.class);
+        ocrResultRepository = mock(OcrResultRepository.class);
+        storageService = mock(StorageService.class);
+        ocrResultCache = mock(OcrResultCache.class);
+        documentClassifier = mock(DocumentClassifier.class);
+        ocrSidecarStore = mock(OcrSidecarStore.class);
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
+        persistenceService = new OcrResultPersistenceService(documentRepository, ocrResultRepository,
+                mock(OcrRawTextRepository.class));
+
+        document = new Document();
+        document.setId(1);
+        document.setFilePath(FILE_PATH);
+        DocumentType documentType = new DocumentType();
+        documentType.setName("PANCARD");
+        document.setDocumentType(documentType);
+        when(documentRepository.findById(1)).thenReturn(Optional.of(document));
+        when(documentRepository.save(any(Document.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(storageService.getDocumentByTypeAndStorage(anyString(), anyString(), anyString())).thenReturn(CONTENT);
+        when(ocrResultCache.keyFor(CONTENT, "PANCARD")).thenReturn(new OcrResultCache.CacheKey("hash", "PANCARD"));
+        when(ocrResultCache.get(any())).thenReturn(Optional.empty());
+        when(ocrEngine.recognize(CONTENT, "PANCARD"))
+                .thenReturn(CompletableFuture.completedFuture(new RecognizedText("PAN ABCDE1234F", 0.9f)));
+    }
+
+    @Test
+    void testSaturatedVisionExecutorFailsDocument() {
+        Executor saturated = task -> {
+            throw new RejectedExecutionException("saturated");
+        };
+        OcrService ocrService = ocrService(saturated);
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> ocrService.processDocumentAsync(1, "storage-1").join());
+
+        assertInstanceOf(OcrProcessingException.class, e.getCause());
+        assertEquals(Document.Status.FAILED.name(), document.getStatus());
+        verify(ocrResultRepository, never()).save(any());
+    }
+
+    @Test
+    void testEngineFailureAfterMarkProcessingLeavesDocumentFailed() {
+        when(ocrEngine.recognize(CONTENT, "PANCARD"))
+                .thenReturn(CompletableFuture.failedFuture(new OcrProcessingException("Vision unavailable")));
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> ocrService(Runnable::run).processDocumentAsync(1, "storage-1").join());
+
+        assertEquals("Vision unavailable", e.getCause().getMessage());
+        assertEquals(Document.Status.FAILED.name(), document.getStatus());
+    }
+
+    @Test
+    void testStorageFailureAfterMarkProcessingLeavesDocumentFailed() throws Exception {
+        when(storageService.getDocumentByTypeAndStorage(anyString(), anyString(), anyString()))
+                .thenThrow(new IOException("Bucket unavailable"));
+
+        assertThrows(OcrProcessingException.class, () -> ocrService(Runnable::run).processDocument(1, "storage-1"));
+
+        assertEquals(Document.Status.FAILED.name(), document.getStatus());
+        verifyNoInteractions(ocrEngine);
+    }
+
+    @Test
+    void testFreshResultIsReusedAndCompletesDocument() {
+        OcrResult stored = new OcrResult();
+        stored.setDocument(document);
+        stored.setSourceFilePath(FILE_PATH);
+        stored.setContentHash("hash");
+        when(ocrResultRepository.findByDocumentId(1)).thenReturn(Optional.of(stored));
+
+        OcrResult result = ocrService(Runnable::run).processOrReuseAsync(1, "storage-1").join();
+
+        assertSame(stored, result);
+        assertEquals(Document.Status.COMPLETED.name(), document.getStatus());
+        verifyNoInteractions(ocrEngine);
+    }
+
+    @Test
+    void testCacheHitCopiesTheSidecarOfSameContent() throws Exception {
+        String sourcePath = "storage-0/PANCARD_document.jpg";
+        when(ocrResultCache.get(any())).thenReturn(Optional.of(new OcrResultCache.CachedOcrResult(
+                "PAN ABCDE1234F", Map.of(), BigDecimal.valueOf(0.9))));
+        when(ocrResultRepository.findByDocumentId(1)).thenReturn(Optional.empty());
+        when(ocrResultRepository.save(any(OcrResult.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(ocrResultRepository.findSourceFilePathsByContentHash("hash", FILE_PATH)).thenReturn(List.of(sourcePath));
+        when(ocrSidecarStore.copy(sourcePath, FILE_PATH)).thenReturn(true);
+
+        ocrService(Runnable::run).processDocumentAsync(1, "storage-1").join();
+
+        verify(ocrSidecarStore).copy(sourcePath, FILE_PATH);
+        verify(ocrSidecarStore, never()).store(anyString(), any());
+        verifyNoInteractions(ocrEngine);
+    }
+
+    @Test
+    void testReextractionOverBudgetKeepsStoredData() throws Exception {
+        when(ocrSidecarStore.load(FILE_PATH))
+                .thenReturn(Optional.of(TextAnnotation.newBuilder().setText("PAN ABCDE1234F").build()));
+        when(documentClassifier.extract("PANCARD", "PAN ABCDE1234F")).thenReturn(Map.of(
+                "pan_number", Map.of("extracted", false, "reason", ExtractionGuard.BUDGET_EXCEEDED)));
+
+        assertThrows(IllegalStateException.class, () -> ocrService(Runnable::run).reextract(1));
+
+        verify(ocrResultRepository, never()).save(any());
+    }
+
+    private OcrService ocrService(Executor visionExecutor) {
+        return new OcrService(ocrEngine, ocrResultRepository, persistenceService, storageService, ocrResultCache,
+                documentClassifier, mock(PdfOcrProcessor.class), ocrSidecarStore,
+                Runnable::run, visionExecutor, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,216 @@
+package com.mb.ocrservice.service;
+
+import com.mb.ocrservice.exception.OcrProcessingException;
+import com.mb.ocrservice.service.engine.OcrEngine;
+import com.mb.ocrservice.service.engine.RecognizedText;
+import com.mb.ocrservice.service.extraction.BankStatementFieldExtractor;
+import com.mb.ocrservice.service.extraction.FieldExtractorRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for PdfOcrProcessor.
+ */
+public class PdfOcrProcessorTest {
+
+    private static final int PAGES = 6;
+    private static final int MAX_CONCURRENT_PAGES = 2;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PageEngine engine;
+    private PdfOcrProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        engine = new PageEngine();
+        processor = new PdfOcrProcessor(engine,
+                new FieldExtractorRegistry(List.of(new BankStatementFieldExtractor())),
+                Runnable::run, meterRegistry, true, 72, 50, MAX_CONCURRENT_PAGES);
+    }
+
+    @Test
+    void testDetectsPdfContent() throws IOException {
+        assertTrue(processor.isPdf(pdf(1)));
+        assertTrue(processor.isPdf("\n\n%PDF-1.7".getBytes(StandardCharsets.US_ASCII)));
+        assertFalse(processor.isPdf("not a pdf".getBytes(StandardCharsets.US_ASCII)));
+        assertFalse(processor.isPdf(new byte[0]));
+    }
+
+    @Test
+    void testPagesAreStitchedInPageOrderWithBoundedConcurrency() throws IOException {
+        CompletableFuture<PdfOcrProcessor.PdfText> result = processor.recognize(pdf(PAGES), "BANK_STATEMENT");
+
+        // Complete the outstanding pages newest first, so pages finish out of order
+        while (!engine.pending.isEmpty()) {
+            assertTrue(engine.pending.size() <= MAX_CONCURRENT_PAGES);
+            int page = engine.pending.keySet().stream().max(Integer::compare).orElseThrow();
+            engine.pending.remove(page).complete(new RecognizedText(pageText(page), 0.5f + page * 0.1f));
+        }
+
+        PdfOcrProcessor.PdfText text = result.join();
+        assertEquals(PAGES, text.pageCount());
+        assertEquals(String.join("\n", pageText(0), pageText(1), pageText(2), pageText(3), pageText(4),
+                pageText(5)), text.text());
+        assertEquals(0.75f, text.confidenceScore(), 1e-5);
+        assertEquals("12345678", valueOf(text.structuredData(), "account_number"));
+        assertEquals("₹10.00", valueOf(text.structuredData(), "closing_balance"));
+        assertEquals(PAGES, meterRegistry.get("ocr.pdf.render").timer().count());
+    }
+
+    @Test
+    void testFailedPageFailsDocument() throws IOException {
+        CompletableFuture<PdfOcrProcessor.PdfText> result = processor.recognize(pdf(PAGES), "BANK_STATEMENT");
+
+        engine.pending.remove(1).completeExceptionally(new OcrProcessingException("quota exceeded"));
+
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(OcrProcessingException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains("page 2"));
+    }
+
+    @Test
+    void testUnreadablePdfFails() {
+        CompletableFuture<PdfOcrProcessor.PdfText> result = processor.recognize(
+                "%PDF-1.4 truncated".getBytes(StandardCharsets.US_ASCII), "BANK_STATEMENT");
+
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(OcrProcessingException.class, e.getCause());
+    }
+
+    @Test
+    void testEngineThrowingSynchronouslyFailsDocument() throws IOException {
+        OcrEngine throwingEngine = new PageEngine() {
+            @Override
+            public CompletableFuture<RecognizedText> recognize(byte[] content, String documentType) {
+                throw new RejectedExecutionException("Vision executor is saturated");
+            }
+        };
+        PdfOcrProcessor throwingProcessor = new PdfOcrProcessor(throwingEngine,
+                new FieldExtractorRegistry(List.of(new BankStatementFieldExtractor())),
+                Runnable::run, meterRegistry, true, 72, 50, MAX_CONCURRENT_PAGES);
+
+        CompletableFuture<PdfOcrProcessor.PdfText> result = throwingProcessor.recognize(pdf(PAGES), "BANK_STATEMENT");
+
+        assertTrue(result.isCompletedExceptionally());
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(OcrProcessingException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains("page 1"));
+    }
+
+    @Test
+    void testRejectedExecutorFailsDocument() throws IOException {
+        PdfOcrProcessor rejectingProcessor = new PdfOcrProcessor(engine,
+                new FieldExtractorRegistry(List.of(new BankStatementFieldExtractor())),
+                task -> {
+                    throw new RejectedExecutionException("Vision executor is saturated");
+                }, meterRegistry, true, 72, 50, MAX_CONCURRENT_PAGES);
+
+        CompletableFuture<PdfOcrProcessor.PdfText> result = rejectingProcessor.recognize(pdf(PAGES), "BANK_STATEMENT");
+
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(OcrProcessingException.class, e.getCause());
+        assertInstanceOf(RejectedExecutionException.class, e.getCause().getCause());
+    }
+
+    @Test
+    void testExecutorRejectingLaterStepFailsDocument() throws IOException {
+        // Runs the first task (opening the PDF and rendering the first pages), then rejects everything
+        AtomicInteger submitted = new AtomicInteger();
+        PdfOcrProcessor saturatingProcessor = new PdfOcrProcessor(engine,
+                new FieldExtractorRegistry(List.of(new BankStatementFieldExtractor())),
+                task -> {
+                    if (submitted.getAndIncrement() > 0) {
+                        throw new RejectedExecutionException("Vision executor is saturated");
+                    }
+                    task.run();
+                }, meterRegistry, true, 72, 50, MAX_CONCURRENT_PAGES);
+
+        CompletableFuture<PdfOcrProcessor.PdfText> result =
+                saturatingProcessor.recognize(pdf(PAGES), "BANK_STATEMENT");
+        engine.pending.remove(0).complete(new RecognizedText(pageText(0), 0.9f));
+
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(OcrProcessingException.class, e.getCause());
+    }
+
+    private static String pageText(int page) {
+        if (page == 0) {
+            return "HDFC BANK\nAccount Number: 1234 5678\nDate Description Debit Credit Balance";
+        }
+        if (page == PAGES - 1) {
+            return "30/03/2023 UPI/PAYMENT 5.00 10.00\nClosing Balance: ₹10.00";
+        }
+        return String.format("%02d/02/2023 UPI/%d/PAYMENT 1,250.00 98,000.50", page, page);
+    }
+
+    /**
+     * Creates a PDF whose pages have different widths, so the engine can tell rendered pages apart.
+     */
+    private static byte[] pdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int page = 0; page < pages; page++) {
+                document.addPage(new PDPage(new PDRectangle(100 + 10 * page, 100)));
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            document.save(bytes);
+            return bytes.toByteArray();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object valueOf(Map<String, Object> data, String field) {
+        Map<String, Object> fieldData = (Map<String, Object>) data.get(field);
+        return fieldData == null ? null : fieldData.get("value");
+    }
+
+    /**
+     * Engine that identifies pages by the width of their image and completes only when the test says so.
+     */
+    private static class PageEngine implements OcrEngine {
+
+        final Map<Integer, CompletableFuture<RecognizedText>> pending = new ConcurrentHashMap<>();
+
+        @Override
+        public String getName() {
+            return "page";
+        }
+
+        @Override
+        public CompletableFuture<RecognizedText> recognize(byte[] content, String documentType) {
+            try {
+                int page = (ImageIO.read(new ByteArrayInputStream(content)).getWidth() - 100) / 10;
+                CompletableFuture<RecognizedText> result = new CompletableFuture<>();
+                pending.put(page, result);
+                return result;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return true;
+        }
+    }
+}
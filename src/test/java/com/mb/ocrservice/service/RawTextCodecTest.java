@@ -0,0 +1,51 @@
+package com.mb.ocrservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for RawTextCodec.
+ */
+public class RawTextCodecTest {
+
+    @Test
+    void testLongTextIsCompressed() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= 500; i++) {
+            text.append(String.format("%02d/01/2024 UPI/PAYMENT/%d ₹ 1,250.00 Dr 48,210.50%n", i % 28 + 1, i));
+        }
+
+        RawTextCodec.Encoded encoded = RawTextCodec.encode(text.toString());
+
+        assertEquals(RawTextCodec.GZIP, encoded.encoding());
+        assertTrue(encoded.content().length < text.toString().getBytes(StandardCharsets.UTF_8).length / 4);
+        assertEquals(text.toString(), RawTextCodec.decode(encoded.encoding(), encoded.content()));
+    }
+
+    @Test
+    void testShortTextIsStoredAsUtf8() {
+        RawTextCodec.Encoded encoded = RawTextCodec.encode("PAN");
+
+        assertEquals(RawTextCodec.IDENTITY, encoded.encoding());
+        assertArrayEquals("PAN".getBytes(StandardCharsets.UTF_8), encoded.content());
+        assertEquals("PAN", RawTextCodec.decode(encoded.encoding(), encoded.content()));
+    }
+
+    @Test
+    void testMissingContentDecodesToNull() {
+        assertNull(RawTextCodec.decode(null, null));
+    }
+
+    @Test
+    void testUnknownEncodingIsRejected() {
+        assertThrows(IllegalStateException.class, () -> RawTextCodec.decode("zstd", new byte[]{1}));
+    }
+
+    @Test
+    void testCorruptContentIsRejected() {
+        assertThrows(IllegalStateException.class, () -> RawTextCodec.decode(RawTextCodec.GZIP, new byte[]{1, 2, 3}));
+    }
+}
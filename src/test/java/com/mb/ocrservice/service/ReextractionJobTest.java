@@ -0,0 +1,148 @@
+package com.mb.ocrservice.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mb.ocrservice.model.ReextractionCheckpoint;
+import com.mb.ocrservice.repository.ReextractionCheckpointRepository;
+import com.mb.ocrservice.service.extraction.BankStatementFieldExtractor;
+import com.mb.ocrservice.service.extraction.DocumentClassifier;
+import com.mb.ocrservice.service.extraction.FieldExtractorRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for ReextractionJob.
+ */
+public class ReextractionJobTest {
+
+    private static final String TEXT = "HDFC BANK\nAccount Number: 5010 0123\nClosing Balance: ₹10.00";
+    private static final Timestamp UPDATED_AT = Timestamp.valueOf("2024-01-15 10:30:00.123456");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DocumentClassifier classifier = DocumentClassifier.withDefaults(
+            new FieldExtractorRegistry(List.of(new BankStatementFieldExtractor())));
+    private JdbcTemplate jdbcTemplate;
+    private ReextractionCheckpointRepository checkpointRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ReextractionJob job;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        checkpointRepository = mock(ReextractionCheckpointRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        job = new ReextractionJob(jdbcTemplate, mock(PlatformTransactionManager.class), checkpointRepository,
+                classifier, mock(OcrResultCache.class), objectMapper, meterRegistry, 100, 2, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        job.shutdown();
+    }
+
+    @Test
+    void testUnchangedRowIsNotWritten() throws Exception {
+        String stored = objectMapper.writeValueAsString(classifier.extract("BANK_STATEMENT", TEXT));
+
+        ReextractionJob.Outcome outcome = job.reextract(row(1, TEXT, stored));
+
+        assertFalse(outcome.failed());
+        assertNull(outcome.structuredData());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testChangedRowKeepsEvidenceOfUnchangedFields() throws Exception {
+        String stored = "{\"account_number\": {\"value\": \"50100123\", \"confidence\": 0.9, \"ocr_confidence\": 0.97,"
+                + " \"page\": 1, \"words\": [{\"text\": \"5010\"}, {\"text\": \"0123\"}]},"
+                + " \"bank_name\": {\"value\": \"SBI\", \"confidence\": 0.9}}";
+
+        ReextractionJob.Outcome outcome = job.reextract(row(2, TEXT, stored));
+
+        assertFalse(outcome.failed());
+        assertEquals(UPDATED_AT, outcome.updatedAt());
+        Map<String, Object> data = objectMapper.readValue(outcome.structuredData(), new TypeReference<>() {
+        });
+        assertEquals("HDFC", ((Map<String, Object>) data.get("bank_name")).get("value"));
+        Map<String, Object> account = (Map<String, Object>) data.get("account_number");
+        assertEquals(0.97, account.get("ocr_confidence"));
+        assertEquals(2, ((List<Object>) account.get("words")).size());
+        assertNotNull(data.get("closing_balance"));
+    }
+
+    @Test
+    void testRowWithUnreadableDataFails() {
+        ReextractionJob.Outcome outcome = job.reextract(row(3, TEXT, "{not json"));
+
+        assertTrue(outcome.failed());
+        assertNull(outcome.structuredData());
+    }
+
+    @Test
+    void testRowWithoutRawTextIsSkipped() {
+        ReextractionJob.Outcome outcome = job.reextract(row(4, null, "{}"));
+
+        assertTrue(outcome.skipped());
+        assertFalse(outcome.failed());
+        assertNull(outcome.structuredData());
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void testRowUpdatedWhileReextractedIsNotOverwritten() {
+        Map<String, ReextractionCheckpoint> checkpoints = new ConcurrentHashMap<>();
+        when(checkpointRepository.save(any(ReextractionCheckpoint.class))).thenAnswer(invocation -> {
+            ReextractionCheckpoint checkpoint = invocation.getArgument(0);
+            checkpoints.put(checkpoint.getName(), checkpoint);
+            return checkpoint;
+        });
+        when(jdbcTemplate.query(contains("FROM ocr_results"), any(RowMapper.class), any(), any()))
+                .thenReturn(List.of(row(1, TEXT, "{}"), row(2, null, "{}"), row(3, TEXT, "{}")), List.of());
+        when(jdbcTemplate.query(contains("FROM ocr_cache_entries"), any(RowMapper.class), any(), any()))
+                .thenReturn(List.of());
+        // Row 1 was stored again by a live OCR run after its page was read
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{0, 1});
+
+        assertTrue(job.start(true, null));
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (job.getStatus().isRunning()) {
+                Thread.sleep(10);
+            }
+        });
+
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass((Class) List.class);
+        verify(jdbcTemplate).batchUpdate(contains("updated_at IS NOT DISTINCT FROM ?"), updates.capture());
+        assertEquals(2, updates.getValue().size());
+        assertEquals(UPDATED_AT, updates.getValue().get(0)[2]);
+        ReextractionCheckpoint checkpoint = checkpoints.get("ocr_results");
+        assertEquals(ReextractionCheckpoint.Status.COMPLETED.name(), checkpoint.getStatus());
+        assertEquals(3L, checkpoint.getProcessed());
+        assertEquals(1L, checkpoint.getChanged());
+        assertEquals(2L, checkpoint.getSkipped());
+        assertEquals(0L, checkpoint.getFailed());
+        assertEquals(2.0, meterRegistry.get("ocr.reextraction.rows")
+                .tags("table", "ocr_results", "outcome", "skipped").counter().count());
+    }
+
+    private static ReextractionJob.Row row(int id, String rawText, String structuredData) {
+        return new ReextractionJob.Row(id, rawText, structuredData, "BANK_STATEMENT", UPDATED_AT);
+    }
+}
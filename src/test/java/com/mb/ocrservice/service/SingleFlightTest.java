@@ -0,0 +1,81 @@
+package com.mb.ocrservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for SingleFlight.
+ */
+public class SingleFlightTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight<Integer, String> singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight<>("test", meterRegistry);
+    }
+
+    @Test
+    void testConcurrentCallersShareInFlightOperation() {
+        AtomicInteger starts = new AtomicInteger();
+        CompletableFuture<String> operation = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute(1, () -> {
+            starts.incrementAndGet();
+            return operation;
+        });
+        CompletableFuture<String> second = singleFlight.execute(1, () -> {
+            starts.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+
+        assertSame(first, second);
+        assertTrue(singleFlight.isInFlight(1));
+
+        operation.complete("result");
+
+        assertEquals("result", second.join());
+        assertEquals(1, starts.get());
+        assertFalse(singleFlight.isInFlight(1));
+        assertEquals(1.0, meterRegistry.get("ocr.singleflight.coalesced").tag("name", "test").counter().count());
+    }
+
+    @Test
+    void testKeyIsReleasedAfterCompletion() {
+        assertEquals("a", singleFlight.execute(1, () -> CompletableFuture.completedFuture("a")).join());
+        assertEquals("b", singleFlight.execute(1, () -> CompletableFuture.completedFuture("b")).join());
+    }
+
+    @Test
+    void testFailureIsSharedAndReleasesKey() {
+        CompletableFuture<String> operation = new CompletableFuture<>();
+        CompletableFuture<String> first = singleFlight.execute(2, () -> operation);
+        CompletableFuture<String> second = singleFlight.execute(2, () -> CompletableFuture.completedFuture("other"));
+
+        operation.completeExceptionally(new IllegalStateException("boom"));
+
+        assertThrows(CompletionException.class, first::join);
+        assertThrows(CompletionException.class, second::join);
+        assertFalse(singleFlight.isInFlight(2));
+    }
+
+    @Test
+    void testOperationThatThrowsFailsTheFuture() {
+        CompletableFuture<String> result = singleFlight.execute(3, () -> {
+            throw new IllegalArgumentException("not found");
+        });
+
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertFalse(singleFlight.isInFlight(3));
+    }
+}
@@ -0,0 +1,129 @@
+package com.mb.ocrservice.service;
+
+import com.mb.ocrservice.exception.OcrProcessingException;
+import com.mb.ocrservice.model.OcrResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for SpeculativeOcrScheduler using a mocked OCR service.
+ */
+@ExtendWith(MockitoExtension.class)
+public class SpeculativeOcrSchedulerTest {
+
+    @Mock
+    private OcrService ocrService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testDisabledSchedulerDoesNothing() {
+        SpeculativeOcrScheduler scheduler = scheduler(Runnable::run, false);
+
+        scheduler.scheduleAfterCommit(1, "storage-1");
+
+        verifyNoInteractions(ocrService);
+    }
+
+    @Test
+    void testDocumentIsProcessedRightAwayWithoutTransaction() {
+        when(ocrService.processOrReuseAsync(1, "storage-1"))
+                .thenReturn(CompletableFuture.completedFuture(new OcrResult()));
+        SpeculativeOcrScheduler scheduler = scheduler(Runnable::run, true);
+
+        scheduler.scheduleAfterCommit(1, "storage-1");
+
+        verify(ocrService).processOrReuseAsync(1, "storage-1");
+        assertEquals(1.0, outcomeCount("completed"));
+    }
+
+    @Test
+    void testDocumentIsProcessedOnlyAfterCommit() {
+        when(ocrService.processOrReuseAsync(1, "storage-1"))
+                .thenReturn(CompletableFuture.completedFuture(new OcrResult()));
+        SpeculativeOcrScheduler scheduler = scheduler(Runnable::run, true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        scheduler.scheduleAfterCommit(1, "storage-1");
+
+        verifyNoInteractions(ocrService);
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+
+        verify(ocrService).processOrReuseAsync(1, "storage-1");
+    }
+
+    @Test
+    void testDocumentIsNotProcessedAfterRollback() {
+        SpeculativeOcrScheduler scheduler = scheduler(Runnable::run, true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        scheduler.scheduleAfterCommit(1, "storage-1");
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        verifyNoInteractions(ocrService);
+    }
+
+    @Test
+    void testSaturatedExecutorDropsDocument() {
+        Executor saturated = task -> {
+            throw new RejectedExecutionException("saturated");
+        };
+        SpeculativeOcrScheduler scheduler = scheduler(saturated, true);
+
+        scheduler.scheduleAfterCommit(1, "storage-1");
+
+        verifyNoInteractions(ocrService);
+        assertEquals(1.0, outcomeCount("dropped"));
+    }
+
+    @Test
+    void testFailureIsCountedAndNotPropagated() {
+        when(ocrService.processOrReuseAsync(1, "storage-1"))
+                .thenReturn(CompletableFuture.failedFuture(new OcrProcessingException("Vision unavailable")));
+        SpeculativeOcrScheduler scheduler = scheduler(Runnable::run, true);
+
+        assertDoesNotThrow(() -> scheduler.scheduleAfterCommit(1, "storage-1"));
+        assertEquals(1.0, outcomeCount("failed"));
+        assertEquals(0.0, outcomeCount("completed"));
+    }
+
+    private SpeculativeOcrScheduler scheduler(Executor executor, boolean enabled) {
+        return new SpeculativeOcrScheduler(ocrService, executor, meterRegistry, enabled);
+    }
+
+    private double outcomeCount(String outcome) {
+        return meterRegistry.get("ocr.speculative.documents").tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,289 @@
+package com.mb.ocrservice.service;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.BatchAnnotateImagesRequest;
+import com.google.cloud.vision.v1.BatchAnnotateImagesResponse;
+import com.google.cloud.vision.v1.ImageAnnotatorClient;
+import com.mb.ocrservice.exception.VisionApiException;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for VisionGateway, its concurrency limiter, circuit breaker and hedging, using a mocked Google Vision client.
+ */
+@ExtendWith(MockitoExtension.class)
+public class VisionGatewayTest {
+
+    private static final BatchAnnotateImagesResponse RESPONSE = BatchAnnotateImagesResponse.newBuilder()
+            .addResponses(AnnotateImageResponse.getDefaultInstance())
+            .build();
+
+    @Mock
+    private ImageAnnotatorClient imageAnnotatorClient;
+
+    @Mock
+    private UnaryCallable<BatchAnnotateImagesRequest, BatchAnnotateImagesResponse> batchAnnotateImagesCallable;
+
+    private final MutableClock clock = new MutableClock();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private VisionGateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(imageAnnotatorClient.batchAnnotateImagesCallable()).thenReturn(batchAnnotateImagesCallable);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (gateway != null) {
+            gateway.shutdown();
+        }
+    }
+
+    @Test
+    void testTransientFailureIsRetried() {
+        gateway = newGateway(new AdaptiveConcurrencyLimiter(8, 1, 64, Long.MAX_VALUE, 0.9), defaultBreaker(), 2);
+        when(batchAnnotateImagesCallable.futureCall(any(BatchAnnotateImagesRequest.class)))
+                .thenReturn(ApiFutures.immediateFailedFuture(apiException(Status.Code.UNAVAILABLE)))
+                .thenReturn(ApiFutures.immediateFuture(RESPONSE));
+
+        assertEquals(RESPONSE, gateway.batchAnnotate(BatchAnnotateImagesRequest.getDefaultInstance())
+                .orTimeout(5, TimeUnit.SECONDS).join());
+        verify(batchAnnotateImagesCallable, times(2)).futureCall(any(BatchAnnotateImagesRequest.class));
+    }
+
+    @Test
+    void testRetriesAreBoundedByMaxRetries() {
+        gateway = newGateway(new AdaptiveConcurrencyLimiter(8, 1, 64, Long.MAX_VALUE, 0.9), defaultBreaker(), 2);
+        when(batchAnnotateImagesCallable.futureCall(any(BatchAnnotateImagesRequest.class)))
+                .thenReturn(ApiFutures.immediateFailedFuture(apiException(Status.Code.RESOURCE_EXHAUSTED)));
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> gateway.batchAnnotate(BatchAnnotateImagesRequest.getDefaultInstance())
+                        .orTimeout(5, TimeUnit.SECONDS).join());
+        VisionApiException failure = assertInstanceOf(VisionApiException.class, exception.getCause());
+        assertEquals(StatusCode.Code.RESOURCE_EXHAUSTED, failure.getStatusCode());
+        verify(batchAnnotateImagesCallable, times(3)).futureCall(any(BatchAnnotateImagesRequest.class));
+    }
+
+    @Test
+    void testFailedQuotaWaitFailsTheCall() {
+        VisionQuotaManager quotaManager = mock(VisionQuotaManager.class);
+        when(quotaManager.acquire(anyInt()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Quota manager failed")));
+        gateway = newGateway(new AdaptiveConcurrencyLimiter(8, 1, 64, Long.MAX_VALUE, 0.9), defaultBreaker(),
+                new HedgingPolicy(false, 0.95, 200, 50, 0.05), quotaManager, 2);
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> gateway.batchAnnotate(BatchAnnotateImagesRequest.getDefaultInstance())
+                        .orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(VisionApiException.class, exception.getCause());
+        verify(batchAnnotateImagesCallable, never()).futureCall(any(BatchAnnotateImagesRequest.class));
+    }
+
+    @Test
+    void testNonRetryableFailureIsNotRetried() {
+        gateway = newGateway(new AdaptiveConcurrencyLimiter(8, 1, 64, Long.MAX_VALUE, 0.9), defaultBreaker(), 2);
+        when(batchAnnotateImagesCallable.futureCall(any(BatchAnnotateImagesRequest.class)))
+                .thenReturn(ApiFutures.immediateFailedFuture(apiException(Status.Code.INVALID_ARGUMENT)));
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> gateway.batchAnnotate(BatchAnnotateImagesRequest.getDefaultInstance()).join());
+        assertFalse(((VisionApiException) exception.getCause()).isRetryable());
+        verify(batchAnnotateImagesCallable, times(1)).futureCall(any(BatchAnnotateImagesRequest.class));
+    }
+
+    @Test
+    void testCircuitOpensOnSustainedFailuresAndClosesAfterTrialCalls() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, 30_000, 1, clock);
+        gateway = newGateway(new AdaptiveConcurrencyLimiter(8, 1, 64, Long.MAX_VALUE, 0.9), breaker, 0);
+        when(batchAnnotateImagesCallable.futureCall(any(BatchAnnotateImagesRequest.class)))
+                .thenReturn(ApiFutures.immediateFailedFuture(apiException(Status.Code.UNAVAILABLE)));
+
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<BatchAnnotateImagesResponse> call =
+                    gateway.batchAnnotate(BatchAnnotateImagesRequest.getDefaultInstance());
+            assertThrows(CompletionException.class, call::join);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Refused without calling Vision while open
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> gateway.batchAnnotate(BatchAnnotateImagesRequest.getDefaultInstance()).join());
+        assertEquals(StatusCode.Code.UNAVAILABLE, ((VisionApiException) exception.getCause()).getStatusCode());
+        verify(batchAnnotateImagesCallable, times(4)).futureCall(any(BatchAnnotateImagesRequest.class));
+
+        clock.advance(30_000);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        when(batchAnnotateImagesCallable.futureCall(any(BatchAnnotateImagesRequest.class)))
+                .thenReturn(ApiFutures.immediateFuture(RESPONSE));
+        assertEquals(RESPONSE, gateway.batchAnnotate(BatchAnnotateImagesRequest.getDefaultInstance()).join());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testCallsOverTheLimitWaitForEarlierCalls() {
+        gateway = newGateway(new AdaptiveConcurrencyLimiter(1, 1, 1, Long.MAX_VALUE, 0.9), defaultBreaker(), 0);
+        SettableApiFuture<BatchAnnotateImagesResponse> firstResponse = SettableApiFuture.create();
+        when(batchAnnotateImagesCallable.futureCall(any(BatchAnnotateImagesRequest.class)))
+                .thenReturn(firstResponse)
+                .thenReturn(ApiFutures.immediateFuture(RESPONSE));
+
+        CompletableFuture<BatchAnnotateImagesResponse> first =
+                gateway.batchAnnotate(BatchAnnotateImagesRequest.getDefaultInstance());
+        CompletableFuture<BatchAnnotateImagesResponse> second =
+                gateway.batchAnnotate(BatchAnnotateImagesRequest.getDefaultInstance());
+
+        assertEquals(1, gateway.getQueuedCalls());
+        verify(batchAnnotateImagesCallable, times(1)).futureCall(any(BatchAnnotateImagesRequest.class));
+
+        firstResponse.set(RESPONSE);
+        assertEquals(RESPONSE, first.join());
+        assertEquals(RESPONSE, second.join());
+        assertEquals(0, gateway.getQueuedCalls());
+        verify(batchAnnotateImagesCallable, times(2)).futureCall(any(BatchAnnotateImagesRequest.class));
+    }
+
+    @Test
+    void testSlowCallIsHedgedAndTheFasterResponseWins() {
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(true, 0.5, 10, 1, 1.0);
+        hedgingPolicy.recordLatency(TimeUnit.MILLISECONDS.toNanos(1));
+        gateway = newGateway(new AdaptiveConcurrencyLimiter(8, 1, 64, Long.MAX_VALUE, 0.9), defaultBreaker(),
+                hedgingPolicy, 0);
+        SettableApiFuture<BatchAnnotateImagesResponse> slowResponse = SettableApiFuture.create();
+        when(batchAnnotateImagesCallable.futureCall(any(BatchAnnotateImagesRequest.class)))
+                .thenReturn(slowResponse)
+                .thenReturn(ApiFutures.immediateFuture(RESPONSE));
+
+        assertEquals(RESPONSE, gateway.batchAnnotate(BatchAnnotateImagesRequest.getDefaultInstance())
+                .orTimeout(5, TimeUnit.SECONDS).join());
+        assertTrue(slowResponse.isCancelled());
+        assertEquals(1, meterRegistry.counter("ocr.vision.hedges.sent").count());
+        assertEquals(1, meterRegistry.counter("ocr.vision.hedges.won").count());
+    }
+
+    @Test
+    void testHedgeRateIsCapped() throws InterruptedException {
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(true, 0.5, 10, 1, 0.0);
+        hedgingPolicy.recordLatency(TimeUnit.MILLISECONDS.toNanos(1));
+        gateway = newGateway(new AdaptiveConcurrencyLimiter(8, 1, 64, Long.MAX_VALUE, 0.9), defaultBreaker(),
+                hedgingPolicy, 0);
+        SettableApiFuture<BatchAnnotateImagesResponse> slowResponse = SettableApiFuture.create();
+        when(batchAnnotateImagesCallable.futureCall(any(BatchAnnotateImagesRequest.class))).thenReturn(slowResponse);
+
+        CompletableFuture<BatchAnnotateImagesResponse> result =
+                gateway.batchAnnotate(BatchAnnotateImagesRequest.getDefaultInstance());
+        Thread.sleep(100);
+        slowResponse.set(RESPONSE);
+
+        assertEquals(RESPONSE, result.join());
+        verify(batchAnnotateImagesCallable, times(1)).futureCall(any(BatchAnnotateImagesRequest.class));
+        assertEquals(0, meterRegistry.counter("ocr.vision.hedges.sent").count());
+    }
+
+    @Test
+    void testLimiterBacksOffOnSlowCallsAndGrowsOnFastOnes() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 20, 1_000, 0.5);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.onSuccess(5_000);
+        assertEquals(5, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        // Each fast call completing while the limit is in use adds 1 / limit
+        for (int i = 0; i < 6; i++) {
+            limiter.onSuccess(100);
+            assertTrue(limiter.tryAcquire());
+        }
+        assertEquals(6, limiter.getLimit());
+
+        limiter.onDropped();
+        assertEquals(3, limiter.getLimit());
+        for (int i = 0; i < 4; i++) {
+            limiter.onIgnored();
+        }
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private VisionGateway newGateway(AdaptiveConcurrencyLimiter limiter, CircuitBreaker breaker, int maxRetries) {
+        return newGateway(limiter, breaker, new HedgingPolicy(false, 0.95, 200, 50, 0.05), maxRetries);
+    }
+
+    private VisionGateway newGateway(AdaptiveConcurrencyLimiter limiter, CircuitBreaker breaker,
+                                     HedgingPolicy hedgingPolicy, int maxRetries) {
+        return newGateway(limiter, breaker, hedgingPolicy,
+                new VisionQuotaManager(null, meterRegistry, false, false, 1800, 100, 20, 1000), maxRetries);
+    }
+
+    private VisionGateway newGateway(AdaptiveConcurrencyLimiter limiter, CircuitBreaker breaker,
+                                     HedgingPolicy hedgingPolicy, VisionQuotaManager quotaManager, int maxRetries) {
+        return new VisionGateway(imageAnnotatorClient, limiter, breaker, hedgingPolicy, quotaManager,
+                meterRegistry, maxRetries, 1, 100);
+    }
+
+    private CircuitBreaker defaultBreaker() {
+        return new CircuitBreaker(20, 10, 0.5, 30_000, 3, clock);
+    }
+
+    private static ApiException apiException(Status.Code code) {
+        return new ApiException(new RuntimeException(code.name()), GrpcStatusCode.of(code), false);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private final AtomicLong millis = new AtomicLong(Instant.parse("2024-01-01T00:00:00Z").toEpochMilli());
+
+        void advance(long deltaMillis) {
+            millis.addAndGet(deltaMillis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+    }
+}
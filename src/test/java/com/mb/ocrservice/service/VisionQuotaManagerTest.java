@@ -0,0 +1,134 @@
+package com.mb.ocrservice.service;
+
+import com.mb.ocrservice.repository.VisionQuotaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for VisionQuotaManager and its TokenBucket, using a mocked quota repository.
+ */
+@ExtendWith(MockitoExtension.class)
+public class VisionQuotaManagerTest {
+
+    @Mock
+    private VisionQuotaRepository visionQuotaRepository;
+
+    private VisionQuotaManager quotaManager;
+
+    @AfterEach
+    void tearDown() {
+        if (quotaManager != null) {
+            quotaManager.shutdown();
+        }
+    }
+
+    @Test
+    void testTokenBucketRefillsOverTime() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(2, 1, now::get);
+
+        assertTrue(bucket.tryAcquire(2));
+        assertFalse(bucket.tryAcquire(1));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.nanosUntilAvailable(1));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1500));
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(2, bucket.available());
+    }
+
+    @Test
+    void testCallsWaitInsteadOfFailingWhenTheLocalBudgetIsSpent() {
+        // 600 images per minute, 10 per second
+        quotaManager = new VisionQuotaManager(null, new SimpleMeterRegistry(), true, false, 600, 2, 20, 1000);
+
+        assertTrue(quotaManager.acquire(2).isDone());
+        CompletableFuture<Void> waiting = quotaManager.acquire(1);
+        assertFalse(quotaManager.tryAcquire(1));
+
+        waiting.orTimeout(5, TimeUnit.SECONDS).join();
+        assertEquals(0, quotaManager.getWaiting());
+    }
+
+    @Test
+    void testCoordinatedQuotaIsLeasedFromTheDatabase() {
+        when(visionQuotaRepository.lease(eq(VisionQuotaManager.QUOTA_NAME), anyInt(), eq(100)))
+                .thenReturn(Optional.of(30_000L));
+        quotaManager = new VisionQuotaManager(visionQuotaRepository, new SimpleMeterRegistry(), true, true, 100, 10, 5, 10);
+
+        quotaManager.acquire(3).orTimeout(5, TimeUnit.SECONDS).join();
+        // The rest of the lease is spent locally
+        assertTrue(quotaManager.tryAcquire(2));
+        verify(visionQuotaRepository, times(1)).lease(VisionQuotaManager.QUOTA_NAME, 5, 100);
+    }
+
+    @Test
+    void testCoordinatedCallsWaitUntilTheSharedBudgetAllows() {
+        when(visionQuotaRepository.lease(eq(VisionQuotaManager.QUOTA_NAME), anyInt(), eq(100)))
+                .thenReturn(Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty())
+                .thenReturn(Optional.of(30_000L));
+        quotaManager = new VisionQuotaManager(visionQuotaRepository, new SimpleMeterRegistry(), true, true, 100, 10, 5, 10);
+
+        quotaManager.acquire(1).orTimeout(5, TimeUnit.SECONDS).join();
+        verify(visionQuotaRepository, times(5)).lease(eq(VisionQuotaManager.QUOTA_NAME), anyInt(), eq(100));
+    }
+
+    @Test
+    void testLeasedTokensExpireWithTheDatabaseMinute() throws InterruptedException {
+        // The lease is charged to a minute that ends 50 ms later
+        when(visionQuotaRepository.lease(eq(VisionQuotaManager.QUOTA_NAME), anyInt(), eq(100)))
+                .thenReturn(Optional.of(50L));
+        quotaManager = new VisionQuotaManager(visionQuotaRepository, new SimpleMeterRegistry(), true, true, 100, 10, 5, 10);
+
+        quotaManager.acquire(1).orTimeout(5, TimeUnit.SECONDS).join();
+        assertTrue(quotaManager.tryAcquire(1));
+
+        Thread.sleep(100);
+        // The unspent tokens belong to a past minute
+        assertFalse(quotaManager.tryAcquire(1));
+    }
+
+    @Test
+    void testFallsBackToTheLocalBudgetWhenTheDatabaseFails() {
+        when(visionQuotaRepository.lease(eq(VisionQuotaManager.QUOTA_NAME), anyInt(), eq(100)))
+                .thenThrow(new CannotCreateTransactionException("Could not open JPA EntityManager for transaction"));
+        quotaManager = new VisionQuotaManager(visionQuotaRepository, new SimpleMeterRegistry(), true, true, 100, 10, 5, 10);
+
+        quotaManager.acquire(1).orTimeout(5, TimeUnit.SECONDS).join();
+    }
+
+    @Test
+    void testWaitersAreServedFromTheLocalBudgetWhileTheDatabaseIsDown() {
+        when(visionQuotaRepository.lease(eq(VisionQuotaManager.QUOTA_NAME), anyInt(), eq(6000)))
+                .thenThrow(new CannotCreateTransactionException("Could not open JPA EntityManager for transaction"));
+        // A burst of 2 refilled at 100 tokens per second
+        quotaManager = new VisionQuotaManager(visionQuotaRepository, new SimpleMeterRegistry(), true, true, 6000, 2, 5, 10);
+
+        List<CompletableFuture<Void>> waiting = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            waiting.add(quotaManager.acquire(1));
+        }
+
+        CompletableFuture.allOf(waiting.toArray(CompletableFuture[]::new)).orTimeout(5, TimeUnit.SECONDS).join();
+        assertEquals(0, quotaManager.getWaiting());
+    }
+}
@@ -0,0 +1,129 @@
+package com.mb.ocrservice.service;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.BatchAnnotateImagesRequest;
+import com.google.cloud.vision.v1.BatchAnnotateImagesResponse;
+import com.google.cloud.vision.v1.Image;
+import com.google.cloud.vision.v1.ImageAnnotatorClient;
+import com.google.cloud.vision.v1.TextAnnotation;
+import com.google.protobuf.ByteString;
+import com.google.rpc.Status;
+import com.mb.ocrservice.exception.OcrProcessingException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for VisionRequestBatcher using a mocked Google Vision client behind a real VisionGateway.
+ */
+@ExtendWith(MockitoExtension.class)
+public class VisionRequestBatcherTest {
+
+    @Mock
+    private ImageAnnotatorClient imageAnnotatorClient;
+
+    @Mock
+    private UnaryCallable<BatchAnnotateImagesRequest, BatchAnnotateImagesResponse> batchAnnotateImagesCallable;
+
+    private VisionRequestBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+    }
+
+    @Test
+    void testConcurrentRequestsAreSentAsOneBatch() {
+        batcher = newBatcher(true, 3, 10_000, Long.MAX_VALUE);
+        givenBatchResponse(BatchAnnotateImagesResponse.newBuilder()
+                .addResponses(textResponse("first"))
+                .addResponses(textResponse("second"))
+                .addResponses(textResponse("third"))
+                .build());
+
+        CompletableFuture<AnnotateImageResponse> first = batcher.annotate(request("a"));
+        CompletableFuture<AnnotateImageResponse> second = batcher.annotate(request("b"));
+        CompletableFuture<AnnotateImageResponse> third = batcher.annotate(request("c"));
+
+        assertEquals("first", first.join().getFullTextAnnotation().getText());
+        assertEquals("second", second.join().getFullTextAnnotation().getText());
+        assertEquals("third", third.join().getFullTextAnnotation().getText());
+
+        ArgumentCaptor<BatchAnnotateImagesRequest> requestCaptor = ArgumentCaptor.forClass(BatchAnnotateImagesRequest.class);
+        verify(batchAnnotateImagesCallable, times(1)).futureCall(requestCaptor.capture());
+        assertEquals(3, requestCaptor.getValue().getRequestsCount());
+    }
+
+    @Test
+    void testPendingRequestsAreFlushedAfterDelay() {
+        batcher = newBatcher(true, 16, 20, Long.MAX_VALUE);
+        givenBatchResponse(BatchAnnotateImagesResponse.newBuilder()
+                .addResponses(textResponse("only"))
+                .build());
+
+        assertEquals("only", batcher.annotate(request("a")).join().getFullTextAnnotation().getText());
+    }
+
+    @Test
+    void testImageErrorOnlyFailsThatImage() {
+        batcher = newBatcher(true, 2, 10_000, Long.MAX_VALUE);
+        givenBatchResponse(BatchAnnotateImagesResponse.newBuilder()
+                .addResponses(AnnotateImageResponse.newBuilder()
+                        .setError(Status.newBuilder().setCode(3).setMessage("Bad image data").build()))
+                .addResponses(textResponse("good"))
+                .build());
+
+        CompletableFuture<AnnotateImageResponse> bad = batcher.annotate(request("a"));
+        CompletableFuture<AnnotateImageResponse> good = batcher.annotate(request("b"));
+
+        CompletionException exception = assertThrows(CompletionException.class, bad::join);
+        assertInstanceOf(OcrProcessingException.class, exception.getCause());
+        assertEquals("good", good.join().getFullTextAnnotation().getText());
+    }
+
+    private VisionRequestBatcher newBatcher(boolean enabled, int maxBatchSize, long maxDelayMs, long maxBatchBytes) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        VisionGateway gateway = new VisionGateway(imageAnnotatorClient,
+                new AdaptiveConcurrencyLimiter(8, 1, 64, Long.MAX_VALUE, 0.9),
+                new CircuitBreaker(20, 10, 0.5, 30_000, 3, Clock.systemUTC()),
+                new HedgingPolicy(false, 0.95, 200, 50, 0.05),
+                new VisionQuotaManager(null, meterRegistry, false, false, 1800, 100, 20, 1000),
+                meterRegistry, 0, 0, 1000);
+        return new VisionRequestBatcher(gateway, meterRegistry, enabled, maxBatchSize, maxDelayMs, maxBatchBytes);
+    }
+
+    private void givenBatchResponse(BatchAnnotateImagesResponse response) {
+        when(imageAnnotatorClient.batchAnnotateImagesCallable()).thenReturn(batchAnnotateImagesCallable);
+        when(batchAnnotateImagesCallable.futureCall(any(BatchAnnotateImagesRequest.class)))
+                .thenReturn(ApiFutures.immediateFuture(response));
+    }
+
+    private AnnotateImageRequest request(String content) {
+        return AnnotateImageRequest.newBuilder()
+                .setImage(Image.newBuilder().setContent(ByteString.copyFromUtf8(content)))
+                .build();
+    }
+
+    private AnnotateImageResponse textResponse(String text) {
+        return AnnotateImageResponse.newBuilder()
+                .setFullTextAnnotation(TextAnnotation.newBuilder().setText(text))
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.mb.ocrservice.service;
+
+import com.google.cloud.vision.v1.Block;
+import com.google.cloud.vision.v1.BoundingPoly;
+import com.google.cloud.vision.v1.Page;
+import com.google.cloud.vision.v1.Paragraph;
+import com.google.cloud.vision.v1.Symbol;
+import com.google.cloud.vision.v1.TextAnnotation;
+import com.google.cloud.vision.v1.Vertex;
+import com.google.cloud.vision.v1.Word;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for WordEvidence and the OCR sidecar encoding.
+ */
+public class WordEvidenceTest {
+
+    /**
+     * An annotation of one line "Account Number: 5010 0123 ₹45.00", each word 40 pixels wide.
+     */
+    static TextAnnotation annotation() {
+        String[] words = {"Account", "Number", ":", "5010", "0123", "₹", "45.00"};
+        Paragraph.Builder paragraph = Paragraph.newBuilder();
+        for (int i = 0; i < words.length; i++) {
+            Word.Builder word = Word.newBuilder()
+                    .setConfidence(0.9f - i * 0.01f)
+                    .setBoundingBox(box(i * 50, 10, i * 50 + 40, 30));
+            words[i].codePoints().forEach(c -> word.addSymbols(Symbol.newBuilder().setText(Character.toString(c))));
+            paragraph.addWords(word);
+        }
+        return TextAnnotation.newBuilder()
+                .setText("Account Number: 5010 0123 ₹45.00\n")
+                .addPages(Page.newBuilder().addBlocks(Block.newBuilder().addParagraphs(paragraph)))
+                .build();
+    }
+
+    private static BoundingPoly box(int left, int top, int right, int bottom) {
+        return BoundingPoly.newBuilder()
+                .addVertices(Vertex.newBuilder().setX(left).setY(top))
+                .addVertices(Vertex.newBuilder().setX(right).setY(top))
+                .addVertices(Vertex.newBuilder().setX(right).setY(bottom))
+                .addVertices(Vertex.newBuilder().setX(left).setY(bottom))
+                .build();
+    }
+
+    private static Map<String, Object> field(String value) {
+        Map<String, Object> field = new HashMap<>();
+        field.put("value", value);
+        field.put("confidence", 0.9f);
+        return field;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAttachesWordsOfNormalizedValues() {
+        Map<String, Object> data = WordEvidence.attach(Map.of(
+                "account_number", field("50100123"),
+                "balance", field("₹45.00"),
+                "name", field("Not In Text")), annotation());
+
+        Map<String, Object> account = (Map<String, Object>) data.get("account_number");
+        assertEquals("50100123", account.get("value"));
+        assertEquals(0.9f, account.get("confidence"));
+        assertEquals((0.87f + 0.86f) / 2, (float) account.get("ocr_confidence"), 1e-6);
+        assertEquals(1, account.get("page"));
+        assertEquals(Map.of("x", 150, "y", 10, "width", 90, "height", 20), account.get("bounding_box"));
+        List<Map<String, Object>> words = (List<Map<String, Object>>) account.get("words");
+        assertEquals(List.of("5010", "0123"), words.stream().map(word -> word.get("text")).toList());
+
+        Map<String, Object> balance = (Map<String, Object>) data.get("balance");
+        assertEquals(List.of("45.00"), ((List<Map<String, Object>>) balance.get("words")).stream()
+                .map(word -> word.get("text")).toList());
+
+        assertEquals(field("Not In Text"), data.get("name"));
+    }
+
+    @Test
+    void testSidecarRoundTrip() throws IOException {
+        StorageService storageService = mock(StorageService.class);
+        OcrSidecarStore store = new OcrSidecarStore(storageService, new SimpleMeterRegistry(), true);
+        TextAnnotation annotation = annotation();
+
+        store.store("applicant_1/PAN_card.jpg", annotation);
+
+        verify(storageService).storeOcrSidecar(eq("applicant_1/PAN_card.jpg"), any());
+        byte[] encoded = OcrSidecarStore.encode(annotation);
+        when(storageService.getOcrSidecar("applicant_1/PAN_card.jpg")).thenReturn(Optional.of(encoded));
+        assertEquals(Optional.of(annotation), store.load("applicant_1/PAN_card.jpg"));
+        assertEquals(Optional.empty(), store.load("applicant_1/AADHAAR_card.jpg"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.mb.ocrservice.service.engine;
+
+import com.mb.ocrservice.exception.OcrProcessingException;
+import com.mb.ocrservice.service.extraction.AadhaarFieldExtractor;
+import com.mb.ocrservice.service.extraction.BankStatementFieldExtractor;
+import com.mb.ocrservice.service.extraction.DrivingLicenseFieldExtractor;
+import com.mb.ocrservice.service.extraction.FieldExtractorRegistry;
+import com.mb.ocrservice.service.extraction.PanFieldExtractor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the offline LocalOcrEngine.
+ */
+public class LocalOcrEngineTest {
+
+    private final FieldExtractorRegistry registry = new FieldExtractorRegistry(List.of(
+            new AadhaarFieldExtractor(),
+            new PanFieldExtractor(),
+            new DrivingLicenseFieldExtractor(),
+            new BankStatementFieldExtractor()));
+
+    @Test
+    void testSameContentYieldsSameText() {
+        LocalOcrEngine engine = new LocalOcrEngine(0, 0, 0, 1);
+        byte[] content = "scan-1".getBytes(StandardCharsets.UTF_8);
+
+        RecognizedText first = engine.recognize(content, "AADHAAR").join();
+        RecognizedText second = engine.recognize(content, "AADHAAR").join();
+        RecognizedText other = engine.recognize("scan-2".getBytes(StandardCharsets.UTF_8), "AADHAAR").join();
+
+        assertEquals(first, second);
+        assertNotEquals(first.text(), other.text());
+        assertTrue(first.confidenceScore() >= 0.8f && first.confidenceScore() < 1f);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"AADHAAR", "PAN", "DRIVING_LICENSE", "BANK_STATEMENT"})
+    void testGeneratedTextIsExtractable(String documentType) {
+        LocalOcrEngine engine = new LocalOcrEngine(0, 0, 0, 1);
+        String idField = Map.of(
+                "AADHAAR", "aadhaar_number",
+                "PAN", "pan_number",
+                "DRIVING_LICENSE", "license_number",
+                "BANK_STATEMENT", "account_number").get(documentType);
+
+        for (int i = 0; i < 50; i++) {
+            String text = engine.generate(("scan-" + i).getBytes(StandardCharsets.UTF_8), documentType).text();
+            Map<String, Object> fields = registry.extract(documentType, text);
+            assertTrue(fields.containsKey(idField), () -> "No " + idField + " in:\n" + text);
+        }
+    }
+
+    @Test
+    void testUnknownTypeUsesDefaultCorpus() {
+        LocalOcrEngine engine = new LocalOcrEngine(0, 0, 0, 1);
+        assertTrue(engine.recognize(new byte[]{1}, "PASSPORT").join().text().startsWith("Sample document text"));
+    }
+
+    @Test
+    void testLatencyFollowsConfiguredPercentiles() {
+        LocalOcrEngine engine = new LocalOcrEngine(200, 1000, 0, 7);
+        long[] samples = new long[20_000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = engine.sampleLatencyMs();
+        }
+        Arrays.sort(samples);
+
+        assertEquals(200, samples[samples.length / 2], 20);
+        assertEquals(1000, samples[samples.length * 99 / 100], 150);
+    }
+
+    @Test
+    void testConfiguredErrorRateFailsCalls() {
+        LocalOcrEngine engine = new LocalOcrEngine(1, 2, 1.0, 1);
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> engine.recognize(new byte[]{1}, "PAN").orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(OcrProcessingException.class, exception.getCause());
+        assertFalse(engine.isCacheable());
+    }
+}
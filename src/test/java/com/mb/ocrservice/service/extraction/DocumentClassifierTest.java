@@ -0,0 +1,79 @@
+package com.mb.ocrservice.service.extraction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for DocumentClassifier.
+ */
+public class DocumentClassifierTest {
+
+    private final FieldExtractorRegistry registry = new FieldExtractorRegistry(List.of(
+            new AadhaarFieldExtractor(),
+            new PanFieldExtractor(),
+            new DrivingLicenseFieldExtractor(),
+            new BankStatementFieldExtractor()));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DocumentClassifier classifier = new DocumentClassifier(registry, meterRegistry, true, 3);
+
+    @Test
+    void testDetectsEveryType() {
+        Map<String, String> samples = Map.of(
+                "AADHAAR", FieldExtractorRegistryTest.AADHAAR_TEXT,
+                "PAN", FieldExtractorRegistryTest.PAN_TEXT,
+                "DRIVING_LICENSE", FieldExtractorRegistryTest.DRIVING_LICENSE_TEXT,
+                "BANK_STATEMENT", FieldExtractorRegistryTest.BANK_STATEMENT_TEXT);
+
+        samples.forEach((type, text) -> {
+            DocumentClassifier.Classification classification = classifier.classify(text, type);
+            assertEquals(type, classification.detectedType());
+            assertFalse(classification.mismatch());
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMismatchSkipsExtraction() {
+        Map<String, Object> data = classifier.extract("AADHAAR", FieldExtractorRegistryTest.PAN_TEXT);
+
+        assertEquals(1, data.size());
+        Map<String, Object> classification = (Map<String, Object>) data.get(DocumentClassifier.CLASSIFICATION_FIELD);
+        assertEquals("AADHAAR", classification.get("declared_type"));
+        assertEquals("PAN", classification.get("detected_type"));
+        assertEquals(true, classification.get("type_mismatch"));
+        assertEquals(1, meterRegistry.get("ocr.classifier.mismatches").counter().count());
+    }
+
+    @Test
+    void testMatchingTypeIsExtracted() {
+        Map<String, Object> data = classifier.extract("PAN", FieldExtractorRegistryTest.PAN_TEXT);
+
+        Map<String, Object> fields = registry.extract("PAN", FieldExtractorRegistryTest.PAN_TEXT);
+        fields.put(DocumentClassifier.CLASSIFICATION_FIELD, classifier.classify(FieldExtractorRegistryTest.PAN_TEXT,
+                "PAN").toMap());
+        assertEquals(fields, data);
+    }
+
+    @Test
+    void testTextWithoutSignaturesIsNotAMismatch() {
+        DocumentClassifier.Classification classification = classifier.classify("blurry photo\nName: John", "PAN");
+
+        assertNull(classification.detectedType());
+        assertFalse(classification.mismatch());
+        assertFalse(classifier.classify(FieldExtractorRegistryTest.PAN_TEXT, "PASSPORT").mismatch());
+    }
+
+    @Test
+    void testDisabledClassifierOnlyExtracts() {
+        DocumentClassifier disabled = new DocumentClassifier(registry, meterRegistry, false, 3);
+
+        assertEquals(registry.extract("AADHAAR", FieldExtractorRegistryTest.PAN_TEXT),
+                disabled.extract("AADHAAR", FieldExtractorRegistryTest.PAN_TEXT));
+    }
+}
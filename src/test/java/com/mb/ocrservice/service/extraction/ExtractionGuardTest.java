@@ -0,0 +1,72 @@
+package com.mb.ocrservice.service.extraction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for ExtractionGuard.
+ */
+public class ExtractionGuardTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final FieldExtractor extractor = new RuleBasedFieldExtractor("TEST", List.of(
+            FieldRule.firstMatch("name", "(?i)(?:Name)[:\\s]+([\\p{L}\\s]+)")
+                    .labels("Name")
+                    .confidence(0.85f)
+                    .build(),
+            // Nested quantifiers: exponential backtracking when no X follows
+            FieldRule.firstMatch("reference", "(?i)(?:Ref)[:\\s]+((\\w+)*)*X")
+                    .labels("Ref")
+                    .confidence(0.8f)
+                    .build()));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFieldOverBudgetIsNotExtractedAndDocumentCompletes() {
+        FieldExtractorRegistry registry = new FieldExtractorRegistry(List.of(extractor),
+                new ExtractionGuard(meterRegistry, 4096, 100_000, 1000));
+        String text = "Name: John Doe;\nRef: " + "ab".repeat(20) + "!";
+
+        Map<String, Object> data = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> registry.extract("TEST", text));
+
+        assertEquals("John Doe", ((Map<String, Object>) data.get("name")).get("value"));
+        assertEquals(Map.of("extracted", false, "reason", "budget_exceeded"), data.get("reference"));
+        assertFalse(ExtractionGuard.isComplete(data));
+        assertEquals(1, meterRegistry.get("ocr.extraction.field")
+                .tags("document_type", "TEST", "field", "reference", "outcome", "budget_exceeded").timer().count());
+        assertEquals(1, meterRegistry.get("ocr.extraction.field")
+                .tags("document_type", "TEST", "field", "name", "outcome", "extracted").timer().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMatchOnlySeesItsWindow() {
+        FieldExtractorRegistry registry = new FieldExtractorRegistry(List.of(extractor),
+                new ExtractionGuard(meterRegistry, 16, 100_000, 1000));
+
+        Map<String, Object> data = registry.extract("TEST", "Name: " + "a".repeat(100));
+
+        assertEquals("a".repeat(10), ((Map<String, Object>) data.get("name")).get("value"));
+        assertEquals(1, meterRegistry.get("ocr.extraction.field")
+                .tags("document_type", "TEST", "field", "reference", "outcome", "missing").timer().count());
+    }
+
+    @Test
+    void testDefaultBudgetsDoNotChangeRegularExtraction() {
+        FieldExtractorRegistry guarded = new FieldExtractorRegistry(List.of(new AadhaarFieldExtractor()),
+                new ExtractionGuard(meterRegistry, 4096, 5_000_000, 100));
+        FieldExtractorRegistry unguarded = new FieldExtractorRegistry(List.of(new AadhaarFieldExtractor()),
+                new ExtractionGuard(meterRegistry, Integer.MAX_VALUE, Long.MAX_VALUE, 60_000));
+
+        assertEquals(unguarded.extract("AADHAAR", FieldExtractorRegistryTest.AADHAAR_TEXT),
+                guarded.extract("AADHAAR", FieldExtractorRegistryTest.AADHAAR_TEXT));
+    }
+}
@@ -0,0 +1,78 @@
+package com.mb.ocrservice.service.extraction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the rule-based field extractors with the previous per-call {@code Pattern.compile} implementation.
+ * Run with {@code mvn test-compile exec:java -Dexec.mainClass=...FieldExtractionBenchmark
+ * -Dexec.classpathScope=test}, or from the IDE through {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FieldExtractionBenchmark {
+
+    @Param({"AADHAAR", "PAN", "DRIVING_LICENSE", "BANK_STATEMENT", "BANK_STATEMENT_MULTI_PAGE"})
+    private String sample;
+
+    private String documentType;
+
+    private String text;
+    private FieldExtractorRegistry registry;
+    private LegacyFieldExtraction legacy;
+
+    @Setup
+    public void setUp() {
+        registry = new FieldExtractorRegistry(List.of(
+                new AadhaarFieldExtractor(),
+                new PanFieldExtractor(),
+                new DrivingLicenseFieldExtractor(),
+                new BankStatementFieldExtractor()));
+        legacy = new LegacyFieldExtraction();
+        documentType = sample.startsWith("BANK_STATEMENT") ? "BANK_STATEMENT" : sample;
+        text = switch (sample) {
+            case "AADHAAR" -> FieldExtractorRegistryTest.AADHAAR_TEXT;
+            case "PAN" -> FieldExtractorRegistryTest.PAN_TEXT;
+            case "DRIVING_LICENSE" -> FieldExtractorRegistryTest.DRIVING_LICENSE_TEXT;
+            case "BANK_STATEMENT" -> FieldExtractorRegistryTest.BANK_STATEMENT_TEXT;
+            default -> FieldExtractorRegistryTest.multiPageBankStatement(2000);
+        };
+    }
+
+    @Benchmark
+    public Map<String, Object> legacyExtraction() {
+        return legacy.extractStructuredData(text, documentType);
+    }
+
+    @Benchmark
+    public Map<String, Object> ruleBasedExtraction() {
+        return registry.extract(documentType, text);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FieldExtractionBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,178 @@
+package com.mb.ocrservice.service.extraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the rule-based field extractors, checked against the previous regex implementation.
+ */
+public class FieldExtractorRegistryTest {
+
+    static final String AADHAAR_TEXT = "Government of India\n" +
+            "Unique Identification Authority of India\n" +
+            "नाम / Name: Rahul Kumar Sharma\n" +
+            "जन्म तिथि / DOB: 15/08/1988\n" +
+            "पुरुष / Male\n" +
+            "1234 5678 9012\n" +
+            "पता / Address: S/O Ramesh Sharma, 12 MG Road,\n" +
+            "Indiranagar, Bangalore, Karnataka 560038\n" +
+            "मेरा आधार, मेरी पहचान";
+
+    static final String PAN_TEXT = "आयकर विभाग INCOME TAX DEPARTMENT\n" +
+            "भारत सरकार GOVT. OF INDIA\n" +
+            "स्थायी लेखा संख्या कार्ड Permanent Account Number Card\n" +
+            "ABCDE1234F\n" +
+            "नाम / Name\n" +
+            "RAHUL KUMAR SHARMA\n" +
+            "पिता का नाम / Father's Name\n" +
+            "RAMESH SHARMA\n" +
+            "जन्म की तारीख / Date of Birth\n" +
+            "15/08/1988\n" +
+            "हस्ताक्षर / Signature";
+
+    static final String DRIVING_LICENSE_TEXT = "DRIVING LICENSE\n" +
+            "License No: KA01 20120012345\n" +
+            "Name: John Doe\n" +
+            "DOB: 01/01/1990\n" +
+            "Address: 123 Main Street, Apartment 4B, Bangalore, Karnataka, 560001\n" +
+            "Valid From: 01/01/2020\n" +
+            "Valid Until: 31/12/2030\n" +
+            "Blood Group: O+\n" +
+            "Issuing Authority: RTO Bangalore";
+
+    static final String BANK_STATEMENT_TEXT = "HDFC BANK\n" +
+            "Statement of Account\n" +
+            "Customer Name: John Doe\n" +
+            "Account Number: 5010 0123 4567 89\n" +
+            "Statement Period: 01/01/2023 to 31/03/2023\n" +
+            "Opening Balance: ₹45,230.50\n" +
+            "Date Description Debit Credit Balance\n" +
+            "02/01/2023 SALARY CREDIT 85,000.00 1,30,230.50\n" +
+            "05/01/2023 ATM WITHDRAWAL 5,000.00 1,25,230.50\n" +
+            "Closing Balance: ₹1,25,230.50";
+
+    /**
+     * A multi-page statement: the header followed by many transaction lines and page footers.
+     */
+    static String multiPageBankStatement(int transactions) {
+        StringBuilder text = new StringBuilder(BANK_STATEMENT_TEXT.substring(0, BANK_STATEMENT_TEXT.indexOf("Closing")));
+        for (int i = 1; i <= transactions; i++) {
+            text.append(String.format("%02d/02/2023 UPI/%d/PAYMENT TO MERCHANT 1,250.00 98,%03d.50\n", i % 28 + 1, i, i % 1000));
+            if (i % 40 == 0) {
+                text.append("Page ").append(i / 40).append(" of ").append(transactions / 40 + 1).append('\n');
+                text.append("Date Description Debit Credit Balance\n");
+            }
+        }
+        return text.append("Closing Balance: ₹1,25,230.50").toString();
+    }
+
+    private final FieldExtractorRegistry registry = new FieldExtractorRegistry(List.of(
+            new AadhaarFieldExtractor(),
+            new PanFieldExtractor(),
+            new DrivingLicenseFieldExtractor(),
+            new BankStatementFieldExtractor()));
+
+    private final LegacyFieldExtraction legacy = new LegacyFieldExtraction();
+
+    @Test
+    void testAadhaarMatchesPreviousExtraction() {
+        Map<String, Object> data = registry.extract("AADHAAR", AADHAAR_TEXT);
+
+        assertEquals(legacy.extractStructuredData(AADHAAR_TEXT, "AADHAAR"), data);
+        assertEquals("123456789012", valueOf(data, "aadhaar_number"));
+        assertEquals("15/08/1988", valueOf(data, "date_of_birth"));
+        assertEquals("Male", valueOf(data, "gender"));
+    }
+
+    @Test
+    void testDrivingLicenseMatchesPreviousExtraction() {
+        Map<String, Object> data = registry.extract("DRIVING_LICENSE", DRIVING_LICENSE_TEXT);
+
+        assertEquals(legacy.extractStructuredData(DRIVING_LICENSE_TEXT, "DRIVING_LICENSE"), data);
+        assertEquals("KA01 20120012345", valueOf(data, "license_number"));
+        assertEquals("31/12/2030", valueOf(data, "valid_until"));
+    }
+
+    @Test
+    void testBankStatementMatchesPreviousExtraction() {
+        Map<String, Object> data = registry.extract("BANK_STATEMENT", BANK_STATEMENT_TEXT);
+
+        assertEquals(legacy.extractStructuredData(BANK_STATEMENT_TEXT, "BANK_STATEMENT"), withoutTransactions(data));
+        assertEquals("50100123456789", valueOf(data, "account_number"));
+        assertEquals("HDFC", valueOf(data, "bank_name"));
+        assertEquals("₹1,25,230.50", valueOf(data, "closing_balance"));
+    }
+
+    @Test
+    void testMultiPageBankStatementMatchesPreviousExtraction() {
+        String text = multiPageBankStatement(2000);
+
+        assertEquals(legacy.extractStructuredData(text, "BANK_STATEMENT"),
+                withoutTransactions(registry.extract("BANK_STATEMENT", text)));
+    }
+
+    @Test
+    void testPagedExtractionMatchesExtractionOfJoinedPages() {
+        String text = multiPageBankStatement(200);
+        PagedExtraction paged = registry.startPaged("BANK_STATEMENT");
+        int start = 0;
+        for (int end = text.indexOf("Page "); end >= 0; end = text.indexOf("Page ", start)) {
+            paged.addPage(text.substring(start, end - 1));
+            start = end;
+        }
+        paged.addPage(text.substring(start));
+
+        assertEquals(6, paged.getPageCount());
+        assertEquals(text, paged.getText());
+        assertEquals(registry.extract("BANK_STATEMENT", text), paged.extract());
+        assertTrue(registry.startPaged("PASSPORT").extract().isEmpty());
+    }
+
+    @Test
+    void testPanDoesNotTakeFathersNameAsName() {
+        Map<String, Object> data = registry.extract("PAN", PAN_TEXT);
+        Map<String, Object> previous = legacy.extractStructuredData(PAN_TEXT, "PAN");
+
+        // The previous implementation overwrote the name with the father's name
+        assertEquals("RAMESH SHARMA", valueOf(previous, "name"));
+        assertEquals("RAHUL KUMAR SHARMA", valueOf(data, "name"));
+        assertEquals(previous.get("fathers_name"), data.get("fathers_name"));
+        assertEquals(previous.get("date_of_birth"), data.get("date_of_birth"));
+        assertEquals(previous.get("pan_number"), data.get("pan_number"));
+    }
+
+    @Test
+    void testUnknownDocumentTypeReturnsEmptyData() {
+        assertTrue(registry.extract("PASSPORT", AADHAAR_TEXT).isEmpty());
+        assertTrue(registry.getExtractor("PASSPORT").isEmpty());
+    }
+
+    @Test
+    void testTextWithoutFieldsMatchesPreviousExtraction() {
+        for (String documentType : List.of("AADHAAR", "PAN", "DRIVING_LICENSE", "BANK_STATEMENT")) {
+            assertEquals(legacy.extractStructuredData("", documentType), registry.extract(documentType, ""));
+            assertEquals(legacy.extractStructuredData("no fields here\n\n", documentType),
+                    registry.extract(documentType, "no fields here\n\n"));
+        }
+    }
+
+    /**
+     * The header fields of a bank statement; the previous implementation ignored the transaction rows.
+     */
+    private static Map<String, Object> withoutTransactions(Map<String, Object> data) {
+        Map<String, Object> fields = new HashMap<>(data);
+        assertNotNull(fields.remove("transaction_summary"));
+        return fields;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object valueOf(Map<String, Object> data, String field) {
+        Map<String, Object> fieldData = (Map<String, Object>) data.get(field);
+        return fieldData == null ? null : fieldData.get("value");
+    }
+}
@@ -0,0 +1,70 @@
+package com.mb.ocrservice.service.extraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for LabelAutomaton.
+ */
+public class LabelAutomatonTest {
+
+    @Test
+    void testFindsOverlappingLabelsOrderedByStart() {
+        LabelAutomaton automaton = new LabelAutomaton(List.of("Name", "Father's Name", "Customer Name"));
+
+        LabelHits hits = automaton.scan("Father's Name: X\nCustomer Name: Y");
+
+        assertEquals(List.of("father's name@0", "name@9", "customer name@17", "name@26"), describe(hits));
+    }
+
+    @Test
+    void testMatchesCaseInsensitively() {
+        LabelAutomaton automaton = new LabelAutomaton(List.of("DOB", "Valid Until"));
+
+        LabelHits hits = automaton.scan("dob: 01/01/1990\nVALID UNTIL: 31/12/2030");
+
+        assertEquals(List.of("dob@0", "valid until@16"), describe(hits));
+        assertEquals(automaton.labelId("dob"), automaton.labelId("DOB"));
+        assertEquals(2, automaton.labelCount());
+    }
+
+    @Test
+    void testMatchesDevanagariLabels() {
+        LabelAutomaton automaton = new LabelAutomaton(List.of("नाम", "पिता का नाम", "पता", "जन्म तिथि"));
+
+        LabelHits hits = automaton.scan("पिता का नाम / Father's Name\nपता: Bangalore");
+
+        assertEquals(List.of("पिता का नाम@0", "नाम@8", "पता@28"), describe(hits));
+    }
+
+    @Test
+    void testFollowsFailureLinksAcrossPartialMatches() {
+        LabelAutomaton automaton = new LabelAutomaton(List.of("Account Number", "Account Name", "Number"));
+
+        LabelHits hits = automaton.scan("Account Account Number");
+
+        assertEquals(List.of("account number@8", "number@16"), describe(hits));
+        assertEquals(1, hits.firstAtOrAfter(9));
+        assertEquals(hits.size(), hits.firstAtOrAfter(17));
+    }
+
+    @Test
+    void testTextWithoutLabels() {
+        LabelAutomaton automaton = new LabelAutomaton(List.of("Address"));
+
+        assertEquals(0, automaton.scan("").size());
+        assertEquals(0, automaton.scan("no labels in this text").size());
+    }
+
+    private static List<String> describe(LabelHits hits) {
+        List<String> described = new ArrayList<>();
+        for (int i = 0; i < hits.size(); i++) {
+            described.add(hits.label(i) + "@" + hits.start(i));
+        }
+        return described;
+    }
+}
@@ -0,0 +1,320 @@
+package com.mb.ocrservice.service.extraction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The field extraction as it was implemented in OcrService before the rule-based extractors, kept as the
+ * reference for equivalence tests and as the baseline of {@link FieldExtractionBenchmark}.
+ */
+public class LegacyFieldExtraction {
+
+    /**
+     * Extract structured data from the OCR text based on document type.
+     *
+     * @param extractedText The text extracted from the document
+     * @param docType The name of the document type
+     * @return A map of structured data
+     */
+    public Map<String, Object> extractStructuredData(String extractedText, String docType) {
+        
+        switch (docType) {
+            case "AADHAAR":
+                return extractAadhaarData(extractedText);
+            case "PAN":
+                return extractPanData(extractedText);
+            case "DRIVING_LICENSE":
+                return extractDrivingLicenseData(extractedText);
+            case "BANK_STATEMENT":
+                return extractBankStatementData(extractedText);
+            default:
+                return new HashMap<>();
+        }
+    }
+
+    /**
+     * Extract structured data from Aadhaar card.
+     *
+     * @param text The text extracted from the document
+     * @return A map of structured data
+     */
+    private Map<String, Object> extractAadhaarData(String text) {
+        Map<String, Object> data = new HashMap<>();
+        
+        // Extract Aadhaar number (12 digits, may be space-separated)
+        Pattern aadhaarPattern = Pattern.compile("\\d{4}\\s?\\d{4}\\s?\\d{4}");
+        Matcher aadhaarMatcher = aadhaarPattern.matcher(text);
+        if (aadhaarMatcher.find()) {
+            String aadhaarNumber = aadhaarMatcher.group().replaceAll("\\s", "");
+            addFieldWithConfidence(data, "aadhaar_number", aadhaarNumber, 0.9f);
+        }
+        
+        // Extract name (typically after "Name:" or similar)
+        Pattern namePattern = Pattern.compile("(?i)(?:name|नाम)[:\\s]+([\\p{L}\\s]+)");
+        Matcher nameMatcher = namePattern.matcher(text);
+        if (nameMatcher.find()) {
+            String name = cleanText(nameMatcher.group(1).trim());
+            if (!name.isEmpty()) {
+                addFieldWithConfidence(data, "name", name, 0.85f);
+            }
+        }
+        
+        // Extract date of birth
+        Pattern dobPattern = Pattern.compile("(?i)(?:DOB|Date of Birth|जन्म तिथि)[:\\s]+(\\d{2}/\\d{2}/\\d{4})");
+        Matcher dobMatcher = dobPattern.matcher(text);
+        if (dobMatcher.find()) {
+            String dob = dobMatcher.group(1).trim();
+            addFieldWithConfidence(data, "date_of_birth", dob, 0.85f);
+        }
+        
+        // Extract gender
+        Pattern genderPattern = Pattern.compile("(?i)(Male|Female)");
+        Matcher genderMatcher = genderPattern.matcher(text);
+        if (genderMatcher.find()) {
+            String gender = genderMatcher.group(1).trim();
+            addFieldWithConfidence(data, "gender", gender, 0.9f);
+        }
+        
+        // Extract address (more complex, may span multiple lines)
+        Pattern addressPattern = Pattern.compile("(?i)(?:Address|पता)[:\\s]+([\\s\\S]+?)(?:\\n\\n|\\d{6}|$)");
+        Matcher addressMatcher = addressPattern.matcher(text);
+        if (addressMatcher.find()) {
+            String address = cleanText(addressMatcher.group(1).trim().replaceAll("\\n", ", "));
+            if (!address.isEmpty()) {
+                addFieldWithConfidence(data, "address", address, 0.75f);
+            }
+        }
+        
+        return data;
+    }
+
+    /**
+     * Extract structured data from PAN card.
+     *
+     * @param text The text extracted from the document
+     * @return A map of structured data
+     */
+    private Map<String, Object> extractPanData(String text) {
+        Map<String, Object> data = new HashMap<>();
+        
+        // Extract PAN number (5 letters, 4 digits, 1 letter)
+        Pattern panPattern = Pattern.compile("[A-Z]{5}\\d{4}[A-Z]{1}");
+        Matcher panMatcher = panPattern.matcher(text);
+        if (panMatcher.find()) {
+            String panNumber = panMatcher.group().trim();
+            addFieldWithConfidence(data, "pan_number", panNumber, 0.9f);
+        }
+        
+        // Split text into lines for better parsing
+        String[] lines = text.split("\\n");
+        
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            
+            // Extract name
+            if (line.contains("नाम") || line.contains("Name")) {
+                if (i + 1 < lines.length) {
+                    String nextLine = lines[i + 1].trim();
+                    // Check if next line contains only English letters and spaces
+                    if (nextLine.matches("[A-Z\\s]+")) {
+                        String name = cleanText(nextLine);
+                        if (!name.isEmpty()) {
+                            addFieldWithConfidence(data, "name", name, 0.85f);
+                        }
+                    }
+                }
+            }
+            
+            // Extract father's name
+            if (line.contains("पिता का नाम") || line.contains("Father's Name")) {
+                if (i + 1 < lines.length) {
+                    String nextLine = lines[i + 1].trim();
+                    // Check if next line contains only English letters and spaces
+                    if (nextLine.matches("[A-Z\\s]+")) {
+                        String fathersName = cleanText(nextLine);
+                        if (!fathersName.isEmpty()) {
+                            addFieldWithConfidence(data, "fathers_name", fathersName, 0.8f);
+                        }
+                    }
+                }
+            }
+            
+            // Extract date of birth
+            if (line.contains("जन्म की तारीख") || line.contains("Date of Birth")) {
+                if (i + 1 < lines.length) {
+                    String nextLine = lines[i + 1].trim();
+                    // Check if next line contains date format
+                    if (nextLine.matches("\\d{2}/\\d{2}/\\d{4}")) {
+                        addFieldWithConfidence(data, "date_of_birth", nextLine, 0.85f);
+                    }
+                }
+            }
+        }
+        
+        return data;
+    }
+
+    /**
+     * Extract structured data from driving license.
+     *
+     * @param text The text extracted from the document
+     * @return A map of structured data
+     */
+    private Map<String, Object> extractDrivingLicenseData(String text) {
+        Map<String, Object> data = new HashMap<>();
+        
+        // Extract license number
+        Pattern licensePattern = Pattern.compile("(?i)(?:DL No|License No)[.:\\s]+(\\w+\\s?\\w+)");
+        Matcher licenseMatcher = licensePattern.matcher(text);
+        if (licenseMatcher.find()) {
+            String licenseNumber = licenseMatcher.group(1).trim();
+            addFieldWithConfidence(data, "license_number", licenseNumber, 0.9f);
+        }
+        
+        // Extract name
+        Pattern namePattern = Pattern.compile("(?i)(?:Name|नाम)[:\\s]+([\\p{L}\\s]+)");
+        Matcher nameMatcher = namePattern.matcher(text);
+        if (nameMatcher.find()) {
+            String name = cleanText(nameMatcher.group(1).trim());
+            if (!name.isEmpty()) {
+                addFieldWithConfidence(data, "name", name, 0.85f);
+            }
+        }
+        
+        // Extract date of birth
+        Pattern dobPattern = Pattern.compile("(?i)(?:DOB|Date of Birth|जन्म तिथि)[:\\s]+(\\d{2}/\\d{2}/\\d{4})");
+        Matcher dobMatcher = dobPattern.matcher(text);
+        if (dobMatcher.find()) {
+            String dob = dobMatcher.group(1).trim();
+            addFieldWithConfidence(data, "date_of_birth", dob, 0.85f);
+        }
+        
+        // Extract address
+        Pattern addressPattern = Pattern.compile("(?i)(?:Address|पता)[:\\s]+([\\s\\S]+?)(?:\\n\\n|\\d{6}|$)");
+        Matcher addressMatcher = addressPattern.matcher(text);
+        if (addressMatcher.find()) {
+            String address = cleanText(addressMatcher.group(1).trim().replaceAll("\\n", ", "));
+            if (!address.isEmpty()) {
+                addFieldWithConfidence(data, "address", address, 0.75f);
+            }
+        }
+        
+        // Extract valid from date
+        Pattern validFromPattern = Pattern.compile("(?i)(?:Valid From|Issue Date)[:\\s]+(\\d{2}/\\d{2}/\\d{4})");
+        Matcher validFromMatcher = validFromPattern.matcher(text);
+        if (validFromMatcher.find()) {
+            String validFrom = validFromMatcher.group(1).trim();
+            addFieldWithConfidence(data, "valid_from", validFrom, 0.85f);
+        }
+        
+        // Extract valid until date
+        Pattern validUntilPattern = Pattern.compile("(?i)(?:Valid Until|Valid Till|Expiry Date)[:\\s]+(\\d{2}/\\d{2}/\\d{4})");
+        Matcher validUntilMatcher = validUntilPattern.matcher(text);
+        if (validUntilMatcher.find()) {
+            String validUntil = validUntilMatcher.group(1).trim();
+            addFieldWithConfidence(data, "valid_until", validUntil, 0.85f);
+        }
+        
+        return data;
+    }
+
+    /**
+     * Extract structured data from bank statement.
+     *
+     * @param text The text extracted from the document
+     * @return A map of structured data
+     */
+    private Map<String, Object> extractBankStatementData(String text) {
+        Map<String, Object> data = new HashMap<>();
+        
+        // Extract account number
+        Pattern accountPattern = Pattern.compile("(?i)(?:A/C No|Account No|Account Number)[.:\\s]+(\\d[\\d\\s]+)");
+        Matcher accountMatcher = accountPattern.matcher(text);
+        if (accountMatcher.find()) {
+            String accountNumber = accountMatcher.group(1).trim().replaceAll("\\s", "");
+            addFieldWithConfidence(data, "account_number", accountNumber, 0.9f);
+        }
+        
+        // Extract account holder name
+        Pattern namePattern = Pattern.compile("(?i)(?:Name|Customer Name|Account Name)[:\\s]+([\\p{L}\\s]+)");
+        Matcher nameMatcher = namePattern.matcher(text);
+        if (nameMatcher.find()) {
+            String name = nameMatcher.group(1).trim();
+            addFieldWithConfidence(data, "account_holder_name", name, 0.85f);
+        }
+        
+        // Extract bank name
+        Pattern bankPattern = Pattern.compile("(?i)(HDFC|SBI|ICICI|AXIS|KOTAK|PNB|BANK OF BARODA|CANARA|UNION BANK)");
+        Matcher bankMatcher = bankPattern.matcher(text);
+        if (bankMatcher.find()) {
+            String bankName = bankMatcher.group(1).trim();
+            addFieldWithConfidence(data, "bank_name", bankName, 0.9f);
+        }
+        
+        // Extract statement period
+        Pattern periodPattern = Pattern.compile("(?i)(?:Statement Period|Period)[:\\s]+([\\d/\\s\\-]+to[\\d/\\s\\-]+)");
+        Matcher periodMatcher = periodPattern.matcher(text);
+        if (periodMatcher.find()) {
+            String period = periodMatcher.group(1).trim();
+            addFieldWithConfidence(data, "statement_period", period, 0.8f);
+        }
+        
+        // Extract opening balance
+        Pattern openingPattern = Pattern.compile("(?i)(?:Opening Balance)[:\\s]+([$₹]?[\\d,.]+)");
+        Matcher openingMatcher = openingPattern.matcher(text);
+        if (openingMatcher.find()) {
+            String openingBalance = openingMatcher.group(1).trim();
+            addFieldWithConfidence(data, "opening_balance", openingBalance, 0.8f);
+        }
+        
+        // Extract closing balance
+        Pattern closingPattern = Pattern.compile("(?i)(?:Closing Balance)[:\\s]+([$₹]?[\\d,.]+)");
+        Matcher closingMatcher = closingPattern.matcher(text);
+        if (closingMatcher.find()) {
+            String closingBalance = closingMatcher.group(1).trim();
+            addFieldWithConfidence(data, "closing_balance", closingBalance, 0.8f);
+        }
+        
+        return data;
+    }
+
+    /**
+     * Add a field with confidence score to the data map.
+     *
+     * @param data The data map
+     * @param fieldName The name of the field
+     * @param fieldValue The value of the field
+     * @param confidence The confidence score
+     */
+    private void addFieldWithConfidence(Map<String, Object> data, String fieldName, String fieldValue, float confidence) {
+        Map<String, Object> fieldData = new HashMap<>();
+        fieldData.put("value", fieldValue);
+        fieldData.put("confidence", confidence);
+        data.put(fieldName, fieldData);
+    }
+
+    /**
+     * Clean text by removing Devanagari characters and keeping only English text.
+     *
+     * @param text The text to clean
+     * @return The cleaned text with only English characters
+     */
+    String cleanText(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return text;
+        }
+        
+        // Remove Devanagari characters (Unicode range: \u0900-\u097F)
+        String cleanedText = text.replaceAll("[\\u0900-\\u097F]", "");
+        
+        // Remove extra whitespace and newlines
+        cleanedText = cleanedText.replaceAll("\\s+", " ").trim();
+        
+        // Remove any remaining non-English characters except spaces, numbers, and common punctuation
+        cleanedText = cleanedText.replaceAll("[^a-zA-Z0-9\\s./-]", "");
+        
+        return cleanedText.trim();
+    }
+}
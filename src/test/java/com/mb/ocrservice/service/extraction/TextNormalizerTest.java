@@ -0,0 +1,67 @@
+package com.mb.ocrservice.service.extraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for TextNormalizer, checked against the previous regex normalization.
+ */
+public class TextNormalizerTest {
+
+    private static final String ALPHABET = "aZ09./-,:;₹ \t\n\r\u000B\f\u0001नामपता";
+
+    private final LegacyFieldExtraction legacy = new LegacyFieldExtraction();
+
+    @Test
+    void testCleanTextMatchesPreviousNormalization() {
+        for (String text : List.of("", "   ", "Rahul Kumar Sharma", "  नाम / Name:  Rahul\n\tKumar  ",
+                "A ₹ B", "₹ ₹ A", "A \u0001 B", "12 MG Road,\nIndiranagar, Bangalore", "मेरा आधार, मेरी पहचान",
+                "S/O Ramesh-Sharma. ")) {
+            assertEquals(legacy.cleanText(text), FieldNormalizers.cleanText(text), text);
+        }
+        assertNull(FieldNormalizers.cleanText(null));
+    }
+
+    @Test
+    void testRandomTextMatchesPreviousNormalization() {
+        Random random = new Random(42);
+        for (int n = 0; n < 10_000; n++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(40); i > 0; i--) {
+                text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            String value = text.toString();
+
+            assertEquals(legacy.cleanText(value), FieldNormalizers.cleanText(value), value);
+            assertEquals(legacy.cleanText(value.trim().replaceAll("\\n", ", ")),
+                    FieldNormalizers.joinLinesAndClean(value), value);
+            assertEquals(value.trim().replaceAll("\\s", ""), FieldNormalizers.removeWhitespace(value), value);
+        }
+    }
+
+    @Test
+    void testNormalTextIsReturnedAsIs() {
+        String text = "Rahul Kumar Sharma";
+
+        assertSame(text, FieldNormalizers.cleanText(text));
+        assertSame(text, FieldNormalizers.removeWhitespace(text.replace(" ", "")));
+    }
+
+    @Test
+    void testDocumentNumber() {
+        assertEquals("ABCDE1234F", FieldNormalizers.normalizeDocumentNumber(" abcde 1234f\n"));
+        assertEquals("123456789012", FieldNormalizers.normalizeDocumentNumber("1234\t5678 9012"));
+    }
+
+    @Test
+    void testLongTextOutgrowsBuffer() {
+        String text = "word \n ".repeat(20_000);
+
+        assertEquals(legacy.cleanText(text), FieldNormalizers.cleanText(text));
+        assertEquals("AB", FieldNormalizers.normalizeDocumentNumber("a b"));
+    }
+}
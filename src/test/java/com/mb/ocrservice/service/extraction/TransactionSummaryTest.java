@@ -0,0 +1,163 @@
+package com.mb.ocrservice.service.extraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for TransactionTable and TransactionSummary.
+ */
+public class TransactionSummaryTest {
+
+    private static final String STATEMENT = "Opening Balance: 10,000.00\n" +
+            "Date Description Debit Credit Balance\n" +
+            "31/01/2023 ACME CORP SALARY JAN 50,000.00 60,000.00\n" +
+            "02/02/2023 RENT TRANSFER 15,000.00 45,000.00\n" +
+            "15-02-23 ATM WITHDRAWAL 2,000.00 43,000.00\n" +
+            "Page 1 of 2\n" +
+            "28.02.2023 NEFT SAL ACME CORP FEB 50,000.00 93,000.00\n" +
+            "03/03/2023 SALMON FOODS 1,000.00 92,000.00\n" +
+            "05/03/2023 REFUND 250.5 92,250.50Cr\n" +
+            "Closing Balance: 92,250.50";
+
+    @Test
+    void testParsesRowsIntoColumns() {
+        TransactionTable table = TransactionTable.parse(STATEMENT, 1_000_000L);
+
+        assertEquals(6, table.size());
+        assertEquals(TransactionTable.epochDay(2023, 1, 31), table.epochDay(0));
+        assertEquals(LocalDate.of(2023, 2, 15).toEpochDay(), table.epochDay(2));
+        assertEquals(5_000_000L, table.amount(0));
+        assertEquals(-1_500_000L, table.amount(1));
+        assertEquals(9_300_000L, table.balance(3));
+        assertEquals(25_050L, table.amount(5));
+        assertEquals("NEFT SAL ACME CORP FEB", table.description(3));
+        assertTrue(table.descriptionContains(3, "SAL"));
+        assertFalse(table.descriptionContains(4, "SAL"));
+    }
+
+    @Test
+    void testDirectionFallsBackToDescriptionWithoutOpeningBalance() {
+        TransactionTable table = TransactionTable.parse(STATEMENT, Long.MIN_VALUE);
+
+        assertFalse(table.hasOpeningBalance());
+        assertFalse(table.isContinuous(0));
+        assertEquals(5_000_000L, table.amount(0));
+        assertEquals(-1_500_000L, table.amount(1));
+        assertTrue(table.isContinuous(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSummarizesMonthsSalaryAndContinuity() {
+        Map<String, Object> summary = TransactionSummary.summarize(
+                TransactionTable.parse(STATEMENT, 1_000_000L), 9_225_050L);
+
+        assertEquals(6, summary.get("transaction_count"));
+        assertEquals("2023-01-31", summary.get("first_date"));
+        assertEquals("2023-03-05", summary.get("last_date"));
+        assertEquals(new BigDecimal("100250.50"), summary.get("total_credits"));
+        assertEquals(new BigDecimal("18000.00"), summary.get("total_debits"));
+
+        List<Map<String, Object>> monthly = (List<Map<String, Object>>) summary.get("monthly");
+        assertEquals(List.of("2023-01", "2023-02", "2023-03"), monthly.stream().map(m -> m.get("month")).toList());
+        assertEquals(new BigDecimal("50000.00"), monthly.get(1).get("credits"));
+        assertEquals(new BigDecimal("17000.00"), monthly.get(1).get("debits"));
+        assertEquals(2L, monthly.get(1).get("debit_count"));
+        assertEquals(new BigDecimal("93000.00"), monthly.get(1).get("closing_balance"));
+
+        Map<String, Object> salary = (Map<String, Object>) summary.get("salary");
+        assertEquals(true, salary.get("detected"));
+        assertEquals(2, salary.get("months"));
+        assertEquals(new BigDecimal("50000.00"), salary.get("average_amount"));
+        assertEquals("2023-02-28", salary.get("last_date"));
+
+        Map<String, Object> continuity = (Map<String, Object>) summary.get("balance_continuity");
+        assertEquals(6, continuity.get("checked"));
+        assertEquals(0, continuity.get("breaks"));
+        assertEquals(true, continuity.get("closing_balance_matches"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReportsBalanceBreaks() {
+        String text = STATEMENT.replace("43,000.00", "43,900.00");
+        Map<String, Object> continuity = (Map<String, Object>) TransactionSummary.summarize(
+                TransactionTable.parse(text, 1_000_000L), Long.MIN_VALUE).get("balance_continuity");
+
+        assertEquals(2, continuity.get("breaks"));
+        assertEquals(false, continuity.get("consistent"));
+        assertEquals("2023-02-15", continuity.get("first_break_date"));
+        assertFalse(continuity.containsKey("closing_balance_matches"));
+    }
+
+    @Test
+    void testOverdrawnBalancesAreNegative() {
+        String text = "01/04/2023 RENT TRANSFER 15,000.00 5,000.00Dr\n" +
+                "03/04/2023 UPI/GROCERY 2,000.00 -7,000.00\n" +
+                "05/04/2023 CHEQUE DEPOSIT 10,000.00 3,000.00 Cr\n" +
+                "06/04/2023 ATM WITHDRAWAL 4,500.00 1,500.00 DR";
+        TransactionTable table = TransactionTable.parse(text, 1_000_000L);
+
+        assertEquals(4, table.size());
+        assertEquals(-500_000L, table.balance(0));
+        assertEquals(-700_000L, table.balance(1));
+        assertEquals(300_000L, table.balance(2));
+        assertEquals(-150_000L, table.balance(3));
+        assertEquals(-1_500_000L, table.amount(0));
+        assertEquals(-200_000L, table.amount(1));
+        assertEquals(1_000_000L, table.amount(2));
+        assertEquals(-450_000L, table.amount(3));
+        for (int row = 0; row < table.size(); row++) {
+            assertTrue(table.isContinuous(row), "row " + row);
+        }
+        assertEquals("CHEQUE DEPOSIT", table.description(2));
+    }
+
+    @Test
+    void testCrBalanceDoesNotMakeRowACredit() {
+        // Without an opening balance the first row is not continuous and its direction comes from the description
+        String text = "01/04/2023 RENT TRANSFER 15,000.00 45,000.00Cr\n" +
+                "02/04/2023 BILL PAYMENT 500.00 44,500.00 Cr";
+        TransactionTable table = TransactionTable.parse(text, Long.MIN_VALUE);
+
+        assertEquals(2, table.size());
+        assertFalse(table.isContinuous(0));
+        assertEquals(-1_500_000L, table.amount(0));
+        assertEquals(4_500_000L, table.balance(0));
+        assertEquals(-50_000L, table.amount(1));
+        assertTrue(table.isContinuous(1));
+    }
+
+    @Test
+    void testMarkerOnAmountGivesDirectionWithoutOpeningBalance() {
+        TransactionTable table = TransactionTable.parse(
+                "01/04/2023 NEFT ACME CORP 25,000.00Cr 20,000.00Dr\n" +
+                        "02/04/2023 SALARY REVERSAL -1,000.00 21,000.00Dr", Long.MIN_VALUE);
+
+        assertEquals(2_500_000L, table.amount(0));
+        assertEquals(-2_000_000L, table.balance(0));
+        assertEquals(-100_000L, table.amount(1));
+        assertTrue(table.isContinuous(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBankStatementExtractionIncludesSummary() {
+        Map<String, Object> data = new FieldExtractorRegistry(List.of(new BankStatementFieldExtractor()))
+                .extract("BANK_STATEMENT", FieldExtractorRegistryTest.BANK_STATEMENT_TEXT);
+        Map<String, Object> summary = (Map<String, Object>) data.get("transaction_summary");
+
+        assertEquals(2, summary.get("transaction_count"));
+        assertEquals(new BigDecimal("85000.00"), summary.get("total_credits"));
+        assertEquals(new BigDecimal("5000.00"), summary.get("total_debits"));
+        assertEquals(true, ((Map<String, Object>) summary.get("salary")).get("detected"));
+        assertEquals(Map.of("checked", 2, "breaks", 0, "consistent", true, "closing_balance_matches", true),
+                summary.get("balance_continuity"));
+    }
+}